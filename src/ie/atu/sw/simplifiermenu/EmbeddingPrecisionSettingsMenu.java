@@ -0,0 +1,100 @@
+package ie.atu.sw.simplifiermenu;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.prefs.Preferences;
+
+import ie.atu.sw.menu.MenuItem;
+import ie.atu.sw.menu.SettingsMenu;
+import ie.atu.sw.util.InputReaderInterface;
+import ie.atu.sw.util.MenuPrinterInterface;
+import ie.atu.sw.wordembedding.EmbeddingPrecision;
+
+/**
+ * Menu for configuring the precision that word-embedding vectors are stored
+ * with when a word-embeddings file is loaded or converted.
+ */
+public class EmbeddingPrecisionSettingsMenu extends SettingsMenu {
+
+    private static final String EMBEDDING_PRECISION_KEY = "embeddingPrecisionToUse";
+    private static final String EMBEDDING_PRECISION_DEFAULT = EmbeddingPrecision.FLOAT64.name();
+
+    /**
+     * Constructor to initialize the EmbeddingPrecisionSettingsMenu.
+     *
+     * @param inputReader the input reader interface for user input.
+     * @param menuPrinter the menu printer interface for output.
+     * @param preferences the preferences object for storing settings.
+     */
+    public EmbeddingPrecisionSettingsMenu(
+            InputReaderInterface inputReader,
+            MenuPrinterInterface menuPrinter,
+            Preferences preferences) {
+
+        super("Word-Embeddings Storage Precision", inputReader, menuPrinter, preferences);
+
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void createMenuItems() {
+        List<MenuItem> itemList = new ArrayList<MenuItem>();
+        for (EmbeddingPrecision precision : EmbeddingPrecision.values()) {
+            itemList.add(
+                    new MenuItem(
+                            String.valueOf(precision.ordinal() + 1),
+                            precision.toString(),
+                            () -> setEmbeddingPrecisionToUse(precision)));
+        }
+
+        addMenuItemList(itemList);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void printPreferences() {
+        getMenuPrinter().printInfo("Embeddings Storage Precision: \t"
+                + getEmbeddingPrecisionToUse().toString());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The precision only applies when a file is loaded, so there is nothing to
+     * reset beyond the stored preference.
+     * </p>
+     */
+    @Override
+    public void resetPreferences() {
+        // The preference is read each time a file is loaded
+    }
+
+    /**
+     * Retrieves the precision to store word-embedding vectors with from
+     * preferences.
+     *
+     * @return the EmbeddingPrecision to use.
+     */
+    public EmbeddingPrecision getEmbeddingPrecisionToUse() {
+        return EmbeddingPrecision
+                .valueOf(
+                        getPreferences().get(EMBEDDING_PRECISION_KEY, EMBEDDING_PRECISION_DEFAULT));
+    }
+
+    /**
+     * Sets the precision to store word-embedding vectors with and updates
+     * preferences.
+     *
+     * @param precision the EmbeddingPrecision to set.
+     */
+    private void setEmbeddingPrecisionToUse(EmbeddingPrecision precision) {
+        getPreferences().put(EMBEDDING_PRECISION_KEY, precision.name());
+        getMenuPrinter().printSuccess("Embeddings Storage Precision set to: " + precision.toString());
+        getMenuPrinter().printWarning("Reload the Word-Embeddings File for the new precision to take effect");
+    }
+
+}
@@ -0,0 +1,98 @@
+package ie.atu.sw.simplifiermenu;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.prefs.Preferences;
+
+import ie.atu.sw.menu.MenuItem;
+import ie.atu.sw.menu.SettingsMenu;
+import ie.atu.sw.util.InputReaderInterface;
+import ie.atu.sw.util.MenuPrinterInterface;
+import ie.atu.sw.wordembedding.EmbeddingStorage;
+
+/**
+ * Menu for configuring where word-embedding vectors are kept when a
+ * word-embeddings file is loaded.
+ */
+public class EmbeddingStorageSettingsMenu extends SettingsMenu {
+
+    private static final String EMBEDDING_STORAGE_KEY = "embeddingStorageToUse";
+    private static final String EMBEDDING_STORAGE_DEFAULT = EmbeddingStorage.HEAP.name();
+
+    /**
+     * Constructor to initialize the EmbeddingStorageSettingsMenu.
+     *
+     * @param inputReader the input reader interface for user input.
+     * @param menuPrinter the menu printer interface for output.
+     * @param preferences the preferences object for storing settings.
+     */
+    public EmbeddingStorageSettingsMenu(
+            InputReaderInterface inputReader,
+            MenuPrinterInterface menuPrinter,
+            Preferences preferences) {
+
+        super("Word-Embeddings Storage", inputReader, menuPrinter, preferences);
+
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void createMenuItems() {
+        List<MenuItem> itemList = new ArrayList<MenuItem>();
+        for (EmbeddingStorage storage : EmbeddingStorage.values()) {
+            itemList.add(
+                    new MenuItem(
+                            String.valueOf(storage.ordinal() + 1),
+                            storage.toString(),
+                            () -> setEmbeddingStorageToUse(storage)));
+        }
+
+        addMenuItemList(itemList);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void printPreferences() {
+        getMenuPrinter().printInfo("Embeddings Storage: \t\t"
+                + getEmbeddingStorageToUse().toString());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The storage only applies when a file is loaded, so there is nothing to
+     * reset beyond the stored preference.
+     * </p>
+     */
+    @Override
+    public void resetPreferences() {
+        // The preference is read each time a file is loaded
+    }
+
+    /**
+     * Retrieves where to keep word-embedding vectors from preferences.
+     *
+     * @return the EmbeddingStorage to use.
+     */
+    public EmbeddingStorage getEmbeddingStorageToUse() {
+        return EmbeddingStorage
+                .valueOf(
+                        getPreferences().get(EMBEDDING_STORAGE_KEY, EMBEDDING_STORAGE_DEFAULT));
+    }
+
+    /**
+     * Sets where to keep word-embedding vectors and updates preferences.
+     *
+     * @param storage the EmbeddingStorage to set.
+     */
+    private void setEmbeddingStorageToUse(EmbeddingStorage storage) {
+        getPreferences().put(EMBEDDING_STORAGE_KEY, storage.name());
+        getMenuPrinter().printSuccess("Embeddings Storage set to: " + storage.toString());
+        getMenuPrinter().printWarning("Reload the Word-Embeddings File for the new storage to take effect");
+    }
+
+}
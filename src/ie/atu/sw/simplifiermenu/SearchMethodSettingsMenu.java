@@ -0,0 +1,255 @@
+package ie.atu.sw.simplifiermenu;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.prefs.Preferences;
+
+import ie.atu.sw.menu.MenuItem;
+import ie.atu.sw.util.InputReaderInterface;
+import ie.atu.sw.util.MenuPrinterInterface;
+import ie.atu.sw.wordreplacer.WordReplacerAbstract;
+import ie.atu.sw.wordsearch.SearchMethod;
+import ie.atu.sw.wordsearch.SearchOptions;
+
+/**
+ * Menu for configuring the similar-word search method used by the WordReplacer.
+ */
+public class SearchMethodSettingsMenu extends WordReplacerSettingsMenu {
+
+    private static final String SEARCH_METHOD_KEY = "searchMethodToUse";
+    private static final String SEARCH_METHOD_DEFAULT = SearchMethod.LINEAR_SCAN.name();
+    private static final String HNSW_M_KEY = "hnswM";
+    private static final String HNSW_EF_CONSTRUCTION_KEY = "hnswEfConstruction";
+    private static final String HNSW_EF_KEY = "hnswEf";
+    private static final String INDEX_FILE_NAME_KEY = "searchIndexFileName";
+    private static final String IVF_PROBES_KEY = "ivfProbes";
+    private static final String SKETCH_BITS_KEY = "sketchBits";
+
+    /**
+     * Constructor to initialize the SearchMethodSettingsMenu.
+     *
+     * @param inputReader  the input reader interface for user input.
+     * @param menuPrinter  the menu printer interface for output.
+     * @param preferences  the preferences object for storing settings.
+     * @param wordReplacer the WordReplacerAbstract instance to configure.
+     */
+    public SearchMethodSettingsMenu(
+            InputReaderInterface inputReader,
+            MenuPrinterInterface menuPrinter,
+            Preferences preferences,
+            WordReplacerAbstract wordReplacer) {
+
+        super(inputReader, menuPrinter, preferences, wordReplacer);
+
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void initWordReplacer() {
+        getWordReplacer().setSearchMethod(getSearchMethodToUse());
+        getWordReplacer().setSearchOptions(getSearchOptions());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void createMenuItems() {
+        List<MenuItem> itemList = new ArrayList<MenuItem>();
+        for (SearchMethod method : SearchMethod.values()) {
+            itemList.add(
+                    new MenuItem(
+                            String.valueOf(method.ordinal() + 1),
+                            method.toString(),
+                            () -> setSearchMethodToUse(method)));
+        }
+
+        itemList.add(
+                new MenuItem(
+                        "h",
+                        "Set HNSW Graph Parameters (M, efConstruction, ef)",
+                        this::scanHnswParameters));
+
+        itemList.add(
+                new MenuItem(
+                        "i",
+                        "Set Search Index File",
+                        this::scanIndexFileName));
+
+        itemList.add(
+                new MenuItem(
+                        "p",
+                        "Set Inverted File Lists to Scan (nprobe)",
+                        this::scanIvfProbes));
+
+        itemList.add(
+                new MenuItem(
+                        "b",
+                        "Set Binary Sketch Bits (256 or 512)",
+                        this::scanSketchBits));
+
+        addMenuItemList(itemList);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void printPreferences() {
+        getMenuPrinter().printInfo("Search Method: \t\t\t"
+                + getSearchMethodToUse().toString());
+
+        SearchOptions searchOptions = getSearchOptions();
+        getMenuPrinter().printInfo("HNSW M / efConstruction / ef: \t"
+                + searchOptions.hnswM() + " / "
+                + searchOptions.hnswEfConstruction() + " / "
+                + searchOptions.hnswEf());
+        getMenuPrinter().printInfo("Search Index File: \t\t"
+                + (searchOptions.indexFileName().isBlank() ? "None" : searchOptions.indexFileName()));
+        getMenuPrinter().printInfo("Inverted File Lists to Scan: \t"
+                + searchOptions.ivfProbes());
+        getMenuPrinter().printInfo("Binary Sketch Bits: \t\t"
+                + searchOptions.sketchBits());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void resetPreferences() {
+        getWordReplacer().setSearchMethod(getSearchMethodToUse());
+        getWordReplacer().setSearchOptions(getSearchOptions());
+    }
+
+    /**
+     * Retrieves the search method to use from preferences.
+     *
+     * @return the SearchMethod to use.
+     */
+    private SearchMethod getSearchMethodToUse() {
+        return SearchMethod
+                .valueOf(
+                        getPreferences().get(SEARCH_METHOD_KEY, SEARCH_METHOD_DEFAULT));
+    }
+
+    /**
+     * Sets the search method to use and updates preferences.
+     *
+     * @param searchMethod the SearchMethod to set.
+     */
+    private void setSearchMethodToUse(SearchMethod searchMethod) {
+        getWordReplacer().setSearchMethod(searchMethod);
+        getPreferences().put(SEARCH_METHOD_KEY, searchMethod.name());
+        getMenuPrinter().printSuccess("Search Method set to: " + searchMethod.toString());
+    }
+
+    /**
+     * Retrieves the settings of the search methods that build an index from
+     * preferences.
+     *
+     * @return the SearchOptions to use.
+     */
+    private SearchOptions getSearchOptions() {
+        return new SearchOptions(
+                getPreferences().getInt(HNSW_M_KEY, SearchOptions.DEFAULT.hnswM()),
+                getPreferences().getInt(HNSW_EF_CONSTRUCTION_KEY, SearchOptions.DEFAULT.hnswEfConstruction()),
+                getPreferences().getInt(HNSW_EF_KEY, SearchOptions.DEFAULT.hnswEf()),
+                getPreferences().get(INDEX_FILE_NAME_KEY, SearchOptions.DEFAULT.indexFileName()),
+                getPreferences().getInt(IVF_PROBES_KEY, SearchOptions.DEFAULT.ivfProbes()),
+                getPreferences().getInt(SKETCH_BITS_KEY, SearchOptions.DEFAULT.sketchBits()));
+    }
+
+    /**
+     * Sets the settings of the search methods that build an index and updates
+     * preferences.
+     *
+     * @param searchOptions the SearchOptions to set.
+     */
+    private void setSearchOptions(SearchOptions searchOptions) {
+        getWordReplacer().setSearchOptions(searchOptions);
+        getPreferences().putInt(HNSW_M_KEY, searchOptions.hnswM());
+        getPreferences().putInt(HNSW_EF_CONSTRUCTION_KEY, searchOptions.hnswEfConstruction());
+        getPreferences().putInt(HNSW_EF_KEY, searchOptions.hnswEf());
+        getPreferences().put(INDEX_FILE_NAME_KEY, searchOptions.indexFileName());
+        getPreferences().putInt(IVF_PROBES_KEY, searchOptions.ivfProbes());
+        getPreferences().putInt(SKETCH_BITS_KEY, searchOptions.sketchBits());
+    }
+
+    /**
+     * Updates the HNSW graph parameters and reflects the change in the
+     * preferences and UI. Values below the minimum are raised to it.
+     */
+    private void scanHnswParameters() {
+        SearchOptions searchOptions = getSearchOptions();
+
+        int m = getInputReader().getInt(
+                "HNSW M (LINKS PER NODE, MIN 2)",
+                searchOptions.hnswM());
+
+        int efConstruction = getInputReader().getInt(
+                "HNSW efConstruction (CANDIDATES WHILE BUILDING)",
+                searchOptions.hnswEfConstruction());
+
+        int ef = getInputReader().getInt(
+                "HNSW ef (CANDIDATES PER SEARCH)",
+                searchOptions.hnswEf());
+
+        setSearchOptions(searchOptions.withHnsw(Math.max(2, m), Math.max(1, efConstruction), Math.max(1, ef)));
+
+        searchOptions = getSearchOptions();
+        getMenuPrinter().printSuccess("HNSW M / efConstruction / ef set to: "
+                + searchOptions.hnswM() + " / "
+                + searchOptions.hnswEfConstruction() + " / "
+                + searchOptions.hnswEf());
+    }
+
+    /**
+     * Updates the file the index of the HNSW and vantage-point tree search
+     * methods is read from and saved to and reflects the change in the
+     * preferences and UI. Entering "-" clears it, so that the index is built
+     * every time without being saved.
+     */
+    private void scanIndexFileName() {
+        String fileName = getInputReader().getString(
+                "SEARCH INDEX FILE NAME (- = NONE)",
+                getSearchOptions().indexFileName()).strip();
+
+        if (fileName.equals("-"))
+            fileName = "";
+
+        setSearchOptions(getSearchOptions().withIndexFileName(fileName));
+        getMenuPrinter().printSuccess("Search Index File set to: " + (fileName.isEmpty() ? "None" : fileName));
+    }
+
+    /**
+     * Updates the number of inverted-file lists scanned per word and reflects
+     * the change in the preferences and UI. More lists find more of the most
+     * similar words, more slowly.
+     */
+    private void scanIvfProbes() {
+        int probes = getInputReader().getInt(
+                "INVERTED FILE LISTS TO SCAN (MIN 1)",
+                getSearchOptions().ivfProbes());
+
+        setSearchOptions(getSearchOptions().withIvfProbes(Math.max(1, probes)));
+        getMenuPrinter().printSuccess("Inverted File Lists to Scan set to: " + getSearchOptions().ivfProbes());
+    }
+
+    /**
+     * Updates the number of bits of the binary sketches and reflects the change
+     * in the preferences and UI. Other values are rounded up to a multiple of
+     * 64.
+     */
+    private void scanSketchBits() {
+        int bits = getInputReader().getInt(
+                "BINARY SKETCH BITS (256 OR 512)",
+                getSearchOptions().sketchBits());
+
+        int longs = Math.max(1, (bits + Long.SIZE - 1) / Long.SIZE);
+        setSearchOptions(getSearchOptions().withSketchBits(longs * Long.SIZE));
+        getMenuPrinter().printSuccess("Binary Sketch Bits set to: " + getSearchOptions().sketchBits());
+    }
+
+}
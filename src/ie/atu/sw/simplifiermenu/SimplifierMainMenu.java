@@ -1,14 +1,21 @@
 package ie.atu.sw.simplifiermenu;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.prefs.Preferences;
 
 import ie.atu.sw.menu.Menu;
 import ie.atu.sw.menu.MenuItem;
 import ie.atu.sw.util.InputReaderInterface;
 import ie.atu.sw.util.MenuPrinterInterface;
+import ie.atu.sw.wordembedding.WordEmbeddingMap;
+import ie.atu.sw.wordreplacer.ReplacementWordSet;
 import ie.atu.sw.wordreplacer.WordReplacerAbstract;
+import ie.atu.sw.wordsearch.SearchEvaluator;
 
 /**
  * Main menu for the Simplifier application. Provides options for text
@@ -16,6 +23,11 @@ import ie.atu.sw.wordreplacer.WordReplacerAbstract;
  */
 public class SimplifierMainMenu extends Menu {
 
+    private static final int EVALUATION_QUERIES_DEFAULT = 1000;
+    private static final int EVALUATION_N_DEFAULT = 10;
+    private static final int EVALUATION_DIMENSION_DEFAULT = 50;
+    private static final String EVALUATION_JSON_DEFAULT = "search-evaluation.json";
+
     private final WordReplacerAbstract wordReplacer;
     private final SimplifierSettingsMenu settingsMenu;
     private final Preferences preferences = Preferences.userNodeForPackage(SimplifierMainMenu.class);
@@ -38,6 +50,8 @@ public class SimplifierMainMenu extends Menu {
 
         settingsMenu = new SimplifierSettingsMenu(inputReader, menuPrinter, preferences, wordReplacer);
 
+        settingsMenu.startLoadingSavedFiles();
+
     }
 
     /**
@@ -92,6 +106,14 @@ public class SimplifierMainMenu extends Menu {
                             }
                         }),
 
+                new MenuItem(
+                        "5",
+                        "Evaluate Search Methods",
+                        () -> {
+                            launchEvaluateSearchMethods();
+                            printMenuAndAcceptChoice();
+                        }),
+
                 new MenuItem(
                         "s",
                         "Settings",
@@ -110,7 +132,35 @@ public class SimplifierMainMenu extends Menu {
     }
 
     /**
-     * Handles the logic for simplifying a text file.
+     * Waits for any files still loading in the background, and loads those the
+     * word replacer is missing. Word embeddings pruned to a different input file
+     * are reloaded.
+     *
+     * @param inputTextFileName the input text file to simplify, or null if the
+     *                          text is entered directly.
+     * @throws IOException if an I/O error occurs while loading a file.
+     */
+    private void awaitLoadedFiles(String inputTextFileName) throws IOException {
+        settingsMenu.awaitReplacementWordsFile();
+        if (wordReplacer.isReplacementWordSetNull()) {
+            settingsMenu.loadReplacementWordsFile();
+            settingsMenu.awaitReplacementWordsFile();
+        }
+
+        settingsMenu.awaitWordEmbeddingsFile();
+        boolean isLoadNeeded = inputTextFileName == null
+                ? wordReplacer.isWordEmbeddingMapNull()
+                : settingsMenu.isWordEmbeddingsLoadNeeded(inputTextFileName);
+        if (isLoadNeeded) {
+            settingsMenu.loadWordEmbeddingsFile();
+            settingsMenu.awaitWordEmbeddingsFile();
+        }
+    }
+
+    /**
+     * Handles the logic for simplifying a text file. The input and output files
+     * are chosen first, so that word embeddings loaded with vocabulary pruning
+     * are pruned to the chosen input file.
      */
     private void launchSimplifyTextFile() {
 
@@ -118,14 +168,6 @@ public class SimplifierMainMenu extends Menu {
 
             getMenuPrinter().printTitle("Simplify File");
 
-            if (wordReplacer.isWordEmbeddingMapNull()) {
-                settingsMenu.loadWordEmbeddingsFile();
-            }
-
-            if (wordReplacer.isReplacementWordSetNull()) {
-                settingsMenu.loadReplacementWordsFile();
-            }
-
             String inputTextFileName = getInputReader().getFileName(
                     "INPUT FILE",
                     settingsMenu.getInputTextFileName(),
@@ -140,6 +182,8 @@ public class SimplifierMainMenu extends Menu {
 
             settingsMenu.setOutputTextFileName(outputTextFileName);
 
+            awaitLoadedFiles(inputTextFileName);
+
             wordReplacer
                     .writeReplacedFile(
                             inputTextFileName,
@@ -147,6 +191,8 @@ public class SimplifierMainMenu extends Menu {
 
             getMenuPrinter().printSuccess("OUTPUT TEXT file written (" + outputTextFileName + ").");
 
+            settingsMenu.printVectorCacheStatistics();
+
         } catch (Exception e) {
             getMenuPrinter().printError(e.getMessage());
         }
@@ -161,12 +207,11 @@ public class SimplifierMainMenu extends Menu {
 
             getMenuPrinter().printTitle("Simplify Text");
 
-            if (wordReplacer.isWordEmbeddingMapNull()) {
-                settingsMenu.loadWordEmbeddingsFile();
-            }
+            awaitLoadedFiles(null);
 
-            if (wordReplacer.isReplacementWordSetNull()) {
-                settingsMenu.loadReplacementWordsFile();
+            if (settingsMenu.isWordEmbeddingsPruned()) {
+                getMenuPrinter().printWarning(
+                        "Word Embeddings Are Pruned to the Input File; Other Words Are Left Unchanged");
             }
 
             System.out.println();
@@ -181,6 +226,81 @@ public class SimplifierMainMenu extends Menu {
             System.out.println();
             System.out.println(simplified);
 
+            settingsMenu.printVectorCacheStatistics();
+
+        } catch (Exception e) {
+            getMenuPrinter().printError(e.getMessage());
+        }
+    }
+
+    /**
+     * Handles the logic for evaluating the recall and speed of every search
+     * method against the exact linear scan, on the loaded files or on synthetic
+     * word embeddings, which need no files. The results are printed as a table
+     * and can also be written to a JSON file.
+     */
+    private void launchEvaluateSearchMethods() {
+
+        try {
+
+            getMenuPrinter().printTitle("Evaluate Search Methods");
+
+            int syntheticWords = getInputReader().getInt(
+                    "SYNTHETIC WORDS (0 = USE LOADED FILES)",
+                    0);
+
+            int queryCount = getInputReader().getInt(
+                    "QUERY WORDS TO SAMPLE",
+                    EVALUATION_QUERIES_DEFAULT);
+
+            int n = getInputReader().getInt(
+                    "SIMILAR WORDS PER QUERY (N)",
+                    EVALUATION_N_DEFAULT);
+
+            String jsonFileName = getInputReader().getString(
+                    "JSON RESULTS FILE (- = NONE)",
+                    EVALUATION_JSON_DEFAULT).strip();
+
+            List<SearchEvaluator.Result> results;
+
+            if (syntheticWords > 0) {
+                int dimension = getInputReader().getInt(
+                        "SYNTHETIC DIMENSION",
+                        EVALUATION_DIMENSION_DEFAULT);
+
+                WordEmbeddingMap syntheticMap = WordEmbeddingMap.synthetic(syntheticWords, dimension, 42L);
+
+                // The top-ranked quarter of the words stands in for the replacement words
+                Set<String> syntheticReplacementWords = new HashSet<>();
+                for (int rank = 0; rank < Math.max(1, syntheticWords / 4); rank++)
+                    syntheticReplacementWords.add("word" + rank);
+
+                getMenuPrinter().printInfo("Evaluating Search Methods Against Linear Scan");
+                results = wordReplacer.evaluateSearchMethods(
+                        syntheticMap,
+                        new ReplacementWordSet(syntheticReplacementWords),
+                        queryCount,
+                        n);
+            } else {
+                awaitLoadedFiles(null);
+
+                getMenuPrinter().printInfo("Evaluating Search Methods Against Linear Scan");
+                results = wordReplacer.evaluateSearchMethods(queryCount, n);
+            }
+
+            System.out.println();
+            getMenuPrinter().printWithUnderline("Search Methods ("
+                    + wordReplacer.getSimilarityAlgorithm() + ", Top " + n + "):");
+            System.out.println();
+            System.out.print(SearchEvaluator.toTable(results));
+
+            if (!jsonFileName.equals("-") && !jsonFileName.isEmpty()) {
+                Files.writeString(
+                        Path.of(jsonFileName),
+                        SearchEvaluator.toJson(wordReplacer.getSimilarityAlgorithm(), queryCount, n, results));
+                getMenuPrinter().printSuccess("JSON results written (" + jsonFileName + ").");
+            }
+
         } catch (Exception e) {
             getMenuPrinter().printError(e.getMessage());
         }
@@ -1,15 +1,38 @@
 package ie.atu.sw.simplifiermenu;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.prefs.BackingStoreException;
 import java.util.prefs.Preferences;
 
+import ie.atu.sw.console.ConsoleColor;
 import ie.atu.sw.console.ConsoleProgressMeter;
 import ie.atu.sw.menu.MenuItem;
+import ie.atu.sw.util.ArchiveFileParser;
 import ie.atu.sw.util.InputReaderInterface;
+import ie.atu.sw.util.LoadProgress;
 import ie.atu.sw.util.MenuPrinterInterface;
-import ie.atu.sw.wordembedding.WordEmbeddingMap;
+import ie.atu.sw.util.ReplacementWordSetInterface;
+import ie.atu.sw.util.Vector;
+import ie.atu.sw.util.WordEmbeddingMapInterface;
+import ie.atu.sw.wordembedding.DiskWordEmbeddingMap;
+import ie.atu.sw.wordembedding.EmbeddingLoadOptions;
+import ie.atu.sw.wordembedding.EmbeddingPrecision;
+import ie.atu.sw.wordembedding.EmbeddingSnapshot;
+import ie.atu.sw.wordembedding.EmbeddingStorage;
+import ie.atu.sw.wordembedding.ReplacementCandidates;
+import ie.atu.sw.wordembedding.SnapshotCache;
 import ie.atu.sw.wordreplacer.ReplacementWordSet;
 import ie.atu.sw.wordreplacer.WordReplacerAbstract;
 
@@ -28,6 +51,8 @@ public class SimplifierSettingsMenu extends WordReplacerSettingsMenu {
     private static final String WORD_EMBEDDINGS_FILE_DELIMITER_KEY = "wordEmbeddingsFileDelimiter";
     private static final String WORD_EMBEDDINGS_FILE_DELIMITER_DEFAULT = ", ";
 
+    private static final String SNAPSHOT_FILE_EXTENSION = ".snapshot";
+
     private static final String REPLACEMENT_WORDS_FILE_NAME_KEY = "replacementWordsFileName";
     private static final String REPLACEMENT_WORDS_FILE_NAME_DEFAULT = "../google-1000.txt";
 
@@ -43,6 +68,26 @@ public class SimplifierSettingsMenu extends WordReplacerSettingsMenu {
     private static final String NUM_SIMILAR_WORDS_KEY = "numSimilarReplacementWordsToStore";
     private static final int NUM_SIMILAR_WORDS_DEFAULT = 1;
 
+    private static final String VECTOR_CACHE_MEGABYTES_KEY = "vectorCacheMegabytes";
+    private static final int VECTOR_CACHE_MEGABYTES_DEFAULT = 256;
+
+    private static final String SNAPSHOT_CACHE_MEGABYTES_KEY = "snapshotCacheMegabytes";
+    private static final int SNAPSHOT_CACHE_MEGABYTES_DEFAULT = 2048;
+
+    private static final String PRUNED_LOADING_KEY = "prunedWordEmbeddingsLoading";
+    private static final boolean PRUNED_LOADING_DEFAULT = false;
+
+    private static final long PROGRESS_INTERVAL_MILLIS = 100;
+
+    private static final String MAX_WORD_EMBEDDINGS_KEY = "maxWordEmbeddingsToLoad";
+    private static final int MAX_WORD_EMBEDDINGS_DEFAULT = 0;
+
+    private static final String MAX_WORD_EMBEDDINGS_MEGABYTES_KEY = "maxWordEmbeddingsMegabytesToLoad";
+    private static final int MAX_WORD_EMBEDDINGS_MEGABYTES_DEFAULT = 0;
+
+    private static final String MAX_REPLACEMENT_RANK_KEY = "maxReplacementWordRank";
+    private static final int MAX_REPLACEMENT_RANK_DEFAULT = 0;
+
     // Instance variables
     /**
      * Settings menu for managing similarity algorithm configurations.
@@ -54,6 +99,52 @@ public class SimplifierSettingsMenu extends WordReplacerSettingsMenu {
      */
     private final ReplacementMethodSettingsMenu replacementMethodMenu;
 
+    /**
+     * Settings menu for managing the precision word embeddings are stored with.
+     */
+    private final EmbeddingPrecisionSettingsMenu embeddingPrecisionMenu;
+
+    /**
+     * Settings menu for managing the similar-word search method.
+     */
+    private final SearchMethodSettingsMenu searchMethodMenu;
+
+    /**
+     * Settings menu for managing where word-embedding vectors are kept.
+     */
+    private final EmbeddingStorageSettingsMenu embeddingStorageMenu;
+
+    /**
+     * The input text file and replacement words file the loaded word embeddings
+     * were pruned to, or null if every word was loaded.
+     */
+    private String prunedInputTextFileName;
+    private String prunedReplacementWordsFileName;
+
+    /**
+     * The replacement words resolved against the loaded word embeddings, with
+     * their candidate matrix, or null if they were not loaded through the
+     * snapshot cache.
+     */
+    private ReplacementWordSet resolvedReplacementWordSet;
+
+    /**
+     * Runs file loads in the background, so that the menu stays usable while a
+     * file loads. Two threads let the word embeddings and the replacement words
+     * load in parallel.
+     */
+    private final ExecutorService loader = Executors.newFixedThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "file-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * The loads running in the background, or null if none is pending.
+     */
+    private PendingLoad<LoadedWordEmbeddings> pendingWordEmbeddings;
+    private PendingLoad<LoadedReplacementWords> pendingReplacementWords;
+
     /**
      * Constructs a new instance of the simplifier settings menu.
      *
@@ -83,6 +174,22 @@ public class SimplifierSettingsMenu extends WordReplacerSettingsMenu {
                 preferences,
                 wordReplacer);
 
+        this.embeddingPrecisionMenu = new EmbeddingPrecisionSettingsMenu(
+                inputReader,
+                menuPrinter,
+                preferences);
+
+        this.searchMethodMenu = new SearchMethodSettingsMenu(
+                inputReader,
+                menuPrinter,
+                preferences,
+                wordReplacer);
+
+        this.embeddingStorageMenu = new EmbeddingStorageSettingsMenu(
+                inputReader,
+                menuPrinter,
+                preferences);
+
     }
 
     /**
@@ -93,6 +200,8 @@ public class SimplifierSettingsMenu extends WordReplacerSettingsMenu {
     protected void initWordReplacer() {
         getWordReplacer()
                 .setSimilarReplacementWords(getNumSimilarReplacementWordsToStore());
+        getWordReplacer()
+                .setMaxReplacementRank(getMaxReplacementRank());
     }
 
     /**
@@ -183,6 +292,84 @@ public class SimplifierSettingsMenu extends WordReplacerSettingsMenu {
                             printMenuAndAcceptChoice();
                         }),
 
+                new MenuItem(
+                        "8",
+                        "Convert Word-Embeddings File to Binary Snapshot",
+                        () -> {
+                            try {
+                                convertWordEmbeddingsFile();
+                            } catch (Exception e) {
+                                getMenuPrinter().printError(e.getMessage());
+                            } finally {
+                                printMenuAndAcceptChoice();
+                            }
+                        }),
+
+                new MenuItem(
+                        "9",
+                        "Set Word-Embeddings Storage Precision",
+                        () -> {
+                            embeddingPrecisionMenu.printMenuAndAcceptChoice();
+                            printMenuAndAcceptChoice();
+                        }),
+
+                new MenuItem(
+                        "10",
+                        "Set Similar-Word Search Method to Use",
+                        () -> {
+                            searchMethodMenu.printMenuAndAcceptChoice();
+                            printMenuAndAcceptChoice();
+                        }),
+
+                new MenuItem(
+                        "11",
+                        "Set Word-Embeddings Storage",
+                        () -> {
+                            embeddingStorageMenu.printMenuAndAcceptChoice();
+                            printMenuAndAcceptChoice();
+                        }),
+
+                new MenuItem(
+                        "12",
+                        "Set Disk-Storage Vector Cache Size (MB)",
+                        () -> {
+                            scanVectorCacheMegabytes();
+                            printMenuAndAcceptChoice();
+                        }),
+
+                new MenuItem(
+                        "13",
+                        "Toggle Vocabulary-Pruned Word-Embeddings Loading",
+                        () -> {
+                            setPrunedLoading(!isPrunedLoading());
+                            getMenuPrinter().printInfo("Vocabulary-Pruned Loading = " + isPrunedLoading());
+                            printMenuAndAcceptChoice();
+                        }),
+
+                new MenuItem(
+                        "14",
+                        "Set Word-Embeddings Load Limits (Top Words, MB)",
+                        () -> {
+                            scanWordEmbeddingsLoadLimits();
+                            printMenuAndAcceptChoice();
+                        }),
+
+                new MenuItem(
+                        "15",
+                        "Set Maximum Frequency Rank of Replacement Words",
+                        () -> {
+                            scanMaxReplacementRank();
+                            printMenuAndAcceptChoice();
+                        }),
+
+                new MenuItem(
+                        "16",
+                        "Set Parsed-Model Snapshot Cache Size (MB)",
+                        () -> {
+                            scanSnapshotCacheMegabytes();
+                            printMenuAndAcceptChoice();
+                        }),
+
                 new MenuItem(
                         "r",
                         "Reset Settings to Default Values",
@@ -340,45 +527,478 @@ public class SimplifierSettingsMenu extends WordReplacerSettingsMenu {
     }
 
     /**
-     * Handles loading of the word embeddings file, updating preferences, and
-     * setting the word replacer's map.
+     * Retrieves the current vector cache size of the disk storage, in megabytes,
+     * from the preferences.
+     *
+     * @return the vector cache size, or the default value if not set.
+     */
+    private int getVectorCacheMegabytes() {
+        return getPreferences().getInt(VECTOR_CACHE_MEGABYTES_KEY, VECTOR_CACHE_MEGABYTES_DEFAULT);
+    }
+
+    /**
+     * Updates the vector cache size of the disk storage in the preferences.
+     *
+     * @param megabytes the new vector cache size, in megabytes, to set.
+     */
+    private void setVectorCacheMegabytes(int megabytes) {
+        getPreferences().putInt(VECTOR_CACHE_MEGABYTES_KEY, megabytes);
+    }
+
+    /**
+     * Retrieves the byte budget of the parsed-model snapshot cache from the
+     * preferences, in megabytes.
+     *
+     * @return the budget in megabytes, 0 if the cache is off, or the default
+     *         value if not set.
+     */
+    private int getSnapshotCacheMegabytes() {
+        return getPreferences().getInt(SNAPSHOT_CACHE_MEGABYTES_KEY, SNAPSHOT_CACHE_MEGABYTES_DEFAULT);
+    }
+
+    /**
+     * Updates the byte budget of the parsed-model snapshot cache in the
+     * preferences.
+     *
+     * @param megabytes the new budget in megabytes, or 0 to turn the cache off.
+     */
+    private void setSnapshotCacheMegabytes(int megabytes) {
+        getPreferences().putInt(SNAPSHOT_CACHE_MEGABYTES_KEY, megabytes);
+    }
+
+    /**
+     * Retrieves the number of lines to load from the start of word embeddings
+     * files from the preferences.
+     *
+     * @return the number of lines, 0 for all, or the default value if not set.
+     */
+    private int getMaxWordEmbeddings() {
+        return getPreferences().getInt(MAX_WORD_EMBEDDINGS_KEY, MAX_WORD_EMBEDDINGS_DEFAULT);
+    }
+
+    /**
+     * Updates the number of lines to load from word embeddings files in the
+     * preferences.
+     *
+     * @param maxWords the new number of lines, or 0 for all.
+     */
+    private void setMaxWordEmbeddings(int maxWords) {
+        getPreferences().putInt(MAX_WORD_EMBEDDINGS_KEY, maxWords);
+    }
+
+    /**
+     * Retrieves the number of megabytes to load from the start of word
+     * embeddings files from the preferences.
+     *
+     * @return the number of megabytes, 0 for all, or the default value if not
+     *         set.
+     */
+    private int getMaxWordEmbeddingsMegabytes() {
+        return getPreferences().getInt(MAX_WORD_EMBEDDINGS_MEGABYTES_KEY, MAX_WORD_EMBEDDINGS_MEGABYTES_DEFAULT);
+    }
+
+    /**
+     * Updates the number of megabytes to load from word embeddings files in the
+     * preferences.
+     *
+     * @param megabytes the new number of megabytes, or 0 for all.
+     */
+    private void setMaxWordEmbeddingsMegabytes(int megabytes) {
+        getPreferences().putInt(MAX_WORD_EMBEDDINGS_MEGABYTES_KEY, megabytes);
+    }
+
+    /**
+     * Retrieves the maximum frequency rank of replacement words from the
+     * preferences.
+     *
+     * @return the maximum rank, 0 for no limit, or the default value if not set.
+     */
+    private int getMaxReplacementRank() {
+        return getPreferences().getInt(MAX_REPLACEMENT_RANK_KEY, MAX_REPLACEMENT_RANK_DEFAULT);
+    }
+
+    /**
+     * Updates the maximum frequency rank of replacement words in the
+     * preferences.
+     *
+     * @param maxRank the new maximum rank, or 0 for no limit.
+     */
+    private void setMaxReplacementRank(int maxRank) {
+        getPreferences().putInt(MAX_REPLACEMENT_RANK_KEY, maxRank);
+    }
+
+    /**
+     * Checks in the preferences whether word embeddings are loaded pruned to the
+     * vocabulary of the input text and replacement words.
+     *
+     * @return {@code true} if pruned loading is enabled, or the default value if
+     *         not set.
+     */
+    private boolean isPrunedLoading() {
+        return getPreferences().getBoolean(PRUNED_LOADING_KEY, PRUNED_LOADING_DEFAULT);
+    }
+
+    /**
+     * Updates whether word embeddings are loaded pruned in the preferences.
+     *
+     * @param isPrunedLoading {@code true} to enable pruned loading.
+     */
+    private void setPrunedLoading(boolean isPrunedLoading) {
+        getPreferences().putBoolean(PRUNED_LOADING_KEY, isPrunedLoading);
+    }
+
+    /**
+     * Checks whether the word embeddings must be (re)loaded before the given
+     * input text file can be simplified: either none are loaded, or they were
+     * pruned to a different input text file or replacement words file.
+     *
+     * @param inputTextFileName the input text file to simplify.
+     * @return {@code true} if the word embeddings must be loaded.
+     */
+    boolean isWordEmbeddingsLoadNeeded(String inputTextFileName) {
+        return getWordReplacer().isWordEmbeddingMapNull()
+                || prunedInputTextFileName != null
+                        && (!prunedInputTextFileName.equals(inputTextFileName)
+                                || !prunedReplacementWordsFileName.equals(getReplacementWordsFileName()));
+    }
+
+    /**
+     * Checks whether the loaded word embeddings were pruned to the vocabulary of
+     * an input text file.
+     *
+     * @return {@code true} if the loaded word embeddings are pruned.
+     */
+    boolean isWordEmbeddingsPruned() {
+        return prunedInputTextFileName != null;
+    }
+
+    /**
+     * Collects the words needed to simplify an input text file with a replacement
+     * words file: every replacement word, and every word looked up for the input
+     * text. Both files are read line by line.
+     *
+     * @param inputTextFileName        the input text file.
+     * @param replacementWordsFileName the replacement words file.
+     * @param replacementWordsDelimiter the delimiter of the replacement words file.
+     * @return the vocabulary to load.
+     * @throws IOException if an I/O error occurs while reading either file.
+     */
+    private Set<String> collectVocabulary(
+            String inputTextFileName,
+            String replacementWordsFileName,
+            String replacementWordsDelimiter) throws IOException {
+        Set<String> vocabulary = new HashSet<>(getWordReplacer().getLookupWords(inputTextFileName));
+        vocabulary.addAll(
+                ReplacementWordSet
+                        .getSetFromFile(replacementWordsFileName, replacementWordsDelimiter)
+                        .getReplacementWordSet());
+        return vocabulary;
+    }
+
+    /**
+     * Starts loading the word embeddings and replacement words files saved in
+     * the preferences in the background, so that they are ready, or nearly so,
+     * when first needed. Files that do not exist are skipped.
+     */
+    public void startLoadingSavedFiles() {
+        try {
+            if (Files.isRegularFile(Path.of(getReplacementWordsFileName()))) {
+                startLoadingReplacementWords(getReplacementWordsFileName());
+            }
+            if (Files.isRegularFile(Path.of(ArchiveFileParser.getArchiveFileName(getWordEmbeddingsFileName())))
+                    && (!isPrunedLoading() || Files.isRegularFile(Path.of(getInputTextFileName())))) {
+                startLoadingWordEmbeddings(getWordEmbeddingsFileName());
+            }
+        } catch (IOException e) {
+            getMenuPrinter().printError(e.getMessage());
+        }
+    }
+
+    /**
+     * Starts loading a word embeddings file in the background with the current
+     * settings. A load that is still pending is cancelled.
+     *
+     * @param fileName the word embeddings file to load.
+     * @throws IOException if the size of the file cannot be read.
+     */
+    private void startLoadingWordEmbeddings(String fileName) throws IOException {
+        // Settings are read now, on the menu thread, so later changes do not
+        // affect a load that is already running
+        EmbeddingStorage storage = embeddingStorageMenu.getEmbeddingStorageToUse();
+        String delimiter = getWordEmbeddingsFileDelimiter();
+        EmbeddingPrecision precision = embeddingPrecisionMenu.getEmbeddingPrecisionToUse();
+        long cacheBytes = getVectorCacheMegabytes() * 1024L * 1024L;
+        int maxWords = getMaxWordEmbeddings();
+        long maxBytes = getMaxWordEmbeddingsMegabytes() * 1024L * 1024L;
+        long snapshotCacheBytes = getSnapshotCacheMegabytes() * 1024L * 1024L;
+        boolean isPrunedLoading = isPrunedLoading();
+        String inputTextFileName = getInputTextFileName();
+        String replacementWordsFileName = getReplacementWordsFileName();
+        String replacementWordsDelimiter = getReplacementWordsFileDelimiter();
+
+        LoadProgress progress = new LoadProgress(ArchiveFileParser.getLoadSize(fileName));
+
+        cancelPendingWordEmbeddings();
+
+        // Completed by hand rather than by supplyAsync, so a map that loads
+        // after its load was cancelled is closed instead of being dropped open
+        CompletableFuture<LoadedWordEmbeddings> future = new CompletableFuture<>();
+        loader.execute(() -> {
+            if (future.isCancelled())
+                return;
+            try {
+                boolean isPruned = isPrunedLoading && !EmbeddingSnapshot.isSnapshotFile(fileName);
+                Set<String> vocabulary = isPruned
+                        ? collectVocabulary(inputTextFileName, replacementWordsFileName, replacementWordsDelimiter)
+                        : null;
+
+                EmbeddingLoadOptions options = new EmbeddingLoadOptions(
+                        delimiter,
+                        precision,
+                        maxWords,
+                        maxBytes,
+                        vocabulary,
+                        cacheBytes,
+                        progress);
+
+                SnapshotCache snapshotCache = snapshotCacheBytes > 0
+                        ? new SnapshotCache(SnapshotCache.getDefaultDirectory(), snapshotCacheBytes)
+                        : null;
+                SnapshotCache.Fingerprint fingerprint = snapshotCache != null
+                        ? snapshotCache.fingerprint(storage, fileName, options)
+                        : null;
+
+                WordEmbeddingMapInterface wordEmbeddingMap = snapshotCache != null
+                        ? snapshotCache.load(storage, fileName, options, fingerprint)
+                        : storage.load(fileName, options);
+
+                ReplacementWordSet resolvedReplacementWordSet = fingerprint != null
+                        ? resolveReplacementWords(
+                                snapshotCache,
+                                replacementWordsFileName,
+                                replacementWordsDelimiter,
+                                fingerprint,
+                                wordEmbeddingMap)
+                        : null;
+
+                LoadedWordEmbeddings loaded = new LoadedWordEmbeddings(
+                        fileName,
+                        wordEmbeddingMap,
+                        isPruned ? inputTextFileName : null,
+                        isPruned ? replacementWordsFileName : null,
+                        resolvedReplacementWordSet);
+                if (!future.complete(loaded))
+                    closeWordEmbeddings(wordEmbeddingMap);
+            } catch (IOException e) {
+                future.completeExceptionally(new UncheckedIOException(e));
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+
+        pendingWordEmbeddings = new PendingLoad<>("WORD EMBEDDINGS", future, progress);
+    }
+
+    /**
+     * Resolves a replacement words file against word embeddings loaded through
+     * the snapshot cache, from the cache if it has been resolved against them
+     * before.
+     *
+     * @param snapshotCache            the cache the embeddings were loaded
+     *                                 through.
+     * @param replacementWordsFileName the replacement words file.
+     * @param delimiter                the delimiter used in the file.
+     * @param fingerprint              the fingerprint the embeddings were
+     *                                 loaded under.
+     * @param wordEmbeddingMap         the loaded embeddings.
+     * @return the resolved set, or null if the file cannot be resolved.
+     */
+    private static ReplacementWordSet resolveReplacementWords(
+            SnapshotCache snapshotCache,
+            String replacementWordsFileName,
+            String delimiter,
+            SnapshotCache.Fingerprint fingerprint,
+            WordEmbeddingMapInterface wordEmbeddingMap) {
+
+        if (replacementWordsFileName == null || !Files.isRegularFile(Path.of(replacementWordsFileName)))
+            return null;
+
+        try {
+            ReplacementCandidates replacementCandidates = snapshotCache.loadReplacementCandidates(
+                    replacementWordsFileName,
+                    delimiter,
+                    fingerprint,
+                    wordEmbeddingMap);
+            return new ReplacementWordSet(
+                    replacementCandidates.replacementWords(),
+                    wordEmbeddingMap,
+                    replacementCandidates.candidateMatrix());
+        } catch (IOException | RuntimeException e) {
+            // The replacement words are loaded, and their errors reported, on
+            // their own; the search then packs the candidate matrix itself
+            return null;
+        }
+    }
+
+    /**
+     * Gives the word replacer the replacement words resolved against its map by
+     * the last word embeddings load, if they are the words it uses, so that the
+     * search does not pack their candidate matrix again. Time complexity: O(r),
+     * for r replacement words.
+     */
+    private void useResolvedReplacementWords() {
+        ReplacementWordSetInterface replacementWordSet = getWordReplacer().getReplacementWordsSet();
+
+        if (resolvedReplacementWordSet != null
+                && replacementWordSet != null
+                && replacementWordSet != resolvedReplacementWordSet
+                && resolvedReplacementWordSet.candidateMap() == getWordReplacer().getWordEmbeddingsMap()
+                && resolvedReplacementWordSet.replacementWordSet().equals(replacementWordSet.getReplacementWordSet())) {
+            getWordReplacer().setReplacementWordsSet(resolvedReplacementWordSet);
+        }
+    }
+
+    /**
+     * Cancels a pending word embeddings load. A load that has not started is
+     * never run, and one that is reading its file stops at its next read. The
+     * map of a load that had already completed is closed, as is the map of one
+     * that completes after being cancelled.
+     */
+    private void cancelPendingWordEmbeddings() {
+        if (pendingWordEmbeddings != null) {
+            CompletableFuture<LoadedWordEmbeddings> future = pendingWordEmbeddings.future();
+            pendingWordEmbeddings.progress().cancel();
+            if (!future.cancel(false) && !future.isCompletedExceptionally())
+                closeWordEmbeddings(future.join().wordEmbeddingMap());
+            pendingWordEmbeddings = null;
+        }
+    }
+
+    /**
+     * Closes a word embedding map that is no longer used, if it holds an open
+     * file. A failure to close it is reported as an error.
+     *
+     * @param wordEmbeddingMap the map to close.
+     */
+    private void closeWordEmbeddings(WordEmbeddingMapInterface wordEmbeddingMap) {
+        if (wordEmbeddingMap instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                getMenuPrinter().printError("Could not close word embeddings: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Starts loading a replacement words file in the background. A load that is
+     * still pending is cancelled.
+     *
+     * @param fileName the replacement words file to load.
+     * @throws IOException if the size of the file cannot be read.
+     */
+    private void startLoadingReplacementWords(String fileName) throws IOException {
+        String delimiter = getReplacementWordsFileDelimiter();
+        LoadProgress progress = new LoadProgress(Files.size(Path.of(fileName)));
+
+        cancelPendingReplacementWords();
+        CompletableFuture<LoadedReplacementWords> future = CompletableFuture.supplyAsync(() -> {
+            try {
+                return new LoadedReplacementWords(
+                        fileName,
+                        ReplacementWordSet.getSetFromFile(fileName, delimiter, progress));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, loader);
+
+        pendingReplacementWords = new PendingLoad<>("REPLACEMENT WORDS", future, progress);
+    }
+
+    /**
+     * Cancels a pending replacement words load. A load that has not started is
+     * never run, and one that is reading its file stops at its next read.
+     */
+    private void cancelPendingReplacementWords() {
+        if (pendingReplacementWords != null) {
+            pendingReplacementWords.progress().cancel();
+            pendingReplacementWords.future().cancel(false);
+            pendingReplacementWords = null;
+        }
+    }
+
+    /**
+     * Handles the choice of a word embeddings file and starts loading it in the
+     * background. The vectors are kept in the configured storage; text files are
+     * stored at the configured storage precision. Binary snapshot files, written
+     * by {@link #convertWordEmbeddingsFile()}, are memory-mapped instead of
+     * parsed and keep the precision they were written with.
      * <p>
-     * Loading word embeddings from file: O(n), where n is the number of
-     * lines in the file.
+     * If pruned loading is enabled, only the embeddings of the replacement words
+     * and of the words in the current input text file are loaded from text
+     * files. The rest of each line is skipped without being parsed.
+     * </p>
+     * <p>
+     * Text files can be read straight out of {@code .zip} and {@code .gz}
+     * archives; the entry to read is asked for if a zip archive holds several
+     * files.
+     * </p>
+     * <p>
+     * Unless the snapshot cache is off, a text file that has been parsed before
+     * with the same settings is loaded from its cached snapshot (see
+     * {@link SnapshotCache}), and the first parse of a file is cached.
+     * </p>
+     * <p>
+     * The loaded map is given to the word replacer by
+     * {@link #awaitWordEmbeddingsFile()}. Loading word embeddings from file:
+     * O(n), where n is the number of lines in the file.
      * </p>
      *
-     * @throws IOException           if an I/O error occurs while reading the file.
-     * @throws NumberFormatException if the file format is invalid.
+     * @throws IOException if the file cannot be found.
      */
-    void loadWordEmbeddingsFile() throws IOException, NumberFormatException {
+    void loadWordEmbeddingsFile() throws IOException {
+        getMenuPrinter().printInfo("\"Word Embeddings Delimiter\" = \"" + getWordEmbeddingsFileDelimiter() + "\"");
+
+        String fileName = scanArchiveEntry(getInputReader().getFileName(
+                "WORD EMBEDDINGS",
+                ArchiveFileParser.getArchiveFileName(getWordEmbeddingsFileName()),
+                true));
+
+        startLoadingWordEmbeddings(fileName);
+
+        getMenuPrinter().printInfo("Loading WORD EMBEDDINGS in the background");
+    }
+
+    /**
+     * Waits for a pending word embeddings load, showing its progress, then sets
+     * the word replacer's map and updates the preferences. Returns at once if no
+     * load is pending.
+     *
+     * @throws IOException if an I/O error occurred while reading the file.
+     */
+    void awaitWordEmbeddingsFile() throws IOException {
+        if (pendingWordEmbeddings == null)
+            return;
+
+        PendingLoad<LoadedWordEmbeddings> pending = pendingWordEmbeddings;
+        pendingWordEmbeddings = null;
+
         try {
-            int CROSSOVER_TIME = 99;
-
-            getMenuPrinter().printInfo("\"Word Embeddings Delimiter\" = \"" + getWordEmbeddingsFileDelimiter() + "\"");
-
-            String fileName = getInputReader().getFileName(
-                    "WORD EMBEDDINGS",
-                    getWordEmbeddingsFileName(),
-                    true);
-
-            for (int i = 0; i <= CROSSOVER_TIME; i++) {
-                ConsoleProgressMeter.printProgress(i, 100);
-                try {
-                    Thread.sleep(5);
-                } catch (InterruptedException e) {
-                    System.err.println("Sleep interrupted: " + e.getMessage());
-                }
+            LoadedWordEmbeddings loaded = await(pending);
+
+            try {
+                getWordReplacer().setWordEmbeddingsMap(loaded.wordEmbeddingMap());
+            } catch (IOException e) {
+                // The new map is in use; only the old one could not be closed
+                getMenuPrinter().printError(e.getMessage());
             }
-            getWordReplacer()
-                    .setWordEmbeddingsMap(
-                            WordEmbeddingMap
-                                    .getMapFromFile(fileName, getWordEmbeddingsFileDelimiter()));
 
-            setWordEmbeddingsFileName(fileName);
+            prunedInputTextFileName = loaded.prunedInputTextFileName();
+            prunedReplacementWordsFileName = loaded.prunedReplacementWordsFileName();
+            resolvedReplacementWordSet = loaded.resolvedReplacementWordSet();
+            useResolvedReplacementWords();
 
-            for (int i = CROSSOVER_TIME; i <= 100; i++) {
-                ConsoleProgressMeter.printProgress(i, 100);
-            }
+            setWordEmbeddingsFileName(loaded.fileName());
 
         } catch (NumberFormatException e) {
             getMenuPrinter()
@@ -387,18 +1007,129 @@ public class SimplifierSettingsMenu extends WordReplacerSettingsMenu {
     }
 
     /**
-     * Handles loading of the replacement words file, updating preferences, and
-     * setting the word replacer's set.
+     * Waits for a background load to finish, drawing a progress meter from the
+     * bytes it has consumed.
+     *
+     * @param <T>     the type of the loaded result.
+     * @param pending the pending load.
+     * @return the loaded result.
+     * @throws IOException if an I/O error occurred during the load.
+     */
+    private <T> T await(PendingLoad<T> pending) throws IOException {
+        boolean isProgressShown = false;
+        while (true) {
+            try {
+                T result = pending.future().get(PROGRESS_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (isProgressShown)
+                    ConsoleProgressMeter.printProgress(100, 100);
+                return result;
+
+            } catch (TimeoutException e) {
+                if (!isProgressShown)
+                    getMenuPrinter().printInfo("Waiting for " + pending.description() + " to load");
+                isProgressShown = true;
+                // 100% ends the meter's line, so it is only drawn once the load is done
+                ConsoleProgressMeter.printProgress(Math.min(99, pending.progress().getPercent()), 100);
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while loading " + pending.description(), e);
+
+            } catch (ExecutionException e) {
+                if (isProgressShown)
+                    System.out.println(ConsoleColor.RESET);
+                Throwable cause = e.getCause();
+                if (cause instanceof UncheckedIOException uncheckedIOException)
+                    throw uncheckedIOException.getCause();
+                if (cause instanceof RuntimeException runtimeException)
+                    throw runtimeException;
+                throw new IOException(cause);
+            }
+        }
+    }
+
+    /**
+     * Converts a text word embeddings file into a binary snapshot that can be
+     * loaded without parsing, and makes the snapshot the default word embeddings
+     * file. The vectors are stored at the configured storage precision.
+     * <p>
+     * Converting: O(n⋅m), for n words of dimension m.
+     * </p>
+     *
+     * @throws IOException           if an I/O error occurs while reading or
+     *                               writing.
+     * @throws NumberFormatException if the text file format is invalid.
+     */
+    void convertWordEmbeddingsFile() throws IOException, NumberFormatException {
+        getMenuPrinter().printInfo("\"Word Embeddings Delimiter\" = \"" + getWordEmbeddingsFileDelimiter() + "\"");
+
+        String textFileName = scanArchiveEntry(getInputReader().getFileName(
+                "WORD EMBEDDINGS TEXT",
+                ArchiveFileParser.getArchiveFileName(getWordEmbeddingsFileName()),
+                true));
+
+        String snapshotFileName = getInputReader().getFileName(
+                "WORD EMBEDDINGS SNAPSHOT",
+                ArchiveFileParser.getContentFileName(textFileName) + SNAPSHOT_FILE_EXTENSION,
+                false);
+
+        EmbeddingSnapshot.convert(
+                textFileName,
+                getWordEmbeddingsFileDelimiter(),
+                snapshotFileName,
+                embeddingPrecisionMenu.getEmbeddingPrecisionToUse());
+
+        setWordEmbeddingsFileName(snapshotFileName);
+
+        getMenuPrinter().printSuccess("Word Embeddings Snapshot written (" + snapshotFileName + ").");
+    }
+
+    /**
+     * Asks which file to read from a zip archive that holds several files, such
+     * as the GloVe downloads, which hold one file per dimension. The entry of
+     * the saved word embeddings file is the default if it is in the same
+     * archive.
+     *
+     * @param fileName the chosen file name.
+     * @return the file name of the chosen entry, or {@code fileName} if there
+     *         is no choice to make.
+     * @throws IOException if an I/O error occurs while reading the archive, or
+     *                     the chosen number is not an entry.
+     */
+    private String scanArchiveEntry(String fileName) throws IOException {
+        List<String> entryNames = ArchiveFileParser.listEntries(fileName);
+        if (entryNames.size() <= 1)
+            return fileName;
+
+        String savedFileName = getWordEmbeddingsFileName();
+        int defaultEntry = ArchiveFileParser.getArchiveFileName(savedFileName).equals(fileName)
+                ? entryNames.indexOf(ArchiveFileParser.getEntryName(savedFileName)) + 1
+                : 0;
+
+        for (int i = 0; i < entryNames.size(); i++)
+            getMenuPrinter().printInfo((i + 1) + ") " + entryNames.get(i));
+
+        int entry = getInputReader().getInt("ARCHIVE ENTRY NUMBER", Math.max(1, defaultEntry));
+        if (entry < 1 || entry > entryNames.size())
+            throw new IOException("No archive entry number " + entry);
+
+        String entryFileName = ArchiveFileParser.getEntryFileName(fileName, entryNames.get(entry - 1));
+        getMenuPrinter().printInfo("WORD EMBEDDINGS archive entry = " + entryNames.get(entry - 1));
+        return entryFileName;
+    }
+
+    /**
+     * Handles the choice of a replacement words file and starts loading it in
+     * the background. The loaded set is given to the word replacer by
+     * {@link #awaitReplacementWordsFile()}.
      * <p>
      * Loading replacement words from file: O(n), where n is the number of
      * lines in the file.
      * </p>
      *
-     * @throws IOException if an I/O error occurs while reading the file.
+     * @throws IOException if the file cannot be found.
      */
     void loadReplacementWordsFile() throws IOException {
-        int CROSSOVER_TIME = 99;
-
         getMenuPrinter().printInfo("\"Replacement Words Delimiter\" = \"" + getReplacementWordsFileDelimiter() + "\"");
 
         String fileName = getInputReader().getFileName(
@@ -406,25 +1137,31 @@ public class SimplifierSettingsMenu extends WordReplacerSettingsMenu {
                 getReplacementWordsFileName(),
                 true);
 
-        for (int i = 0; i <= CROSSOVER_TIME; i++) {
-            ConsoleProgressMeter.printProgress(i, 100);
-            try {
-                Thread.sleep(3);
-            } catch (InterruptedException e) {
-                System.err.println("Sleep interrupted: " + e.getMessage());
-            }
-        }
+        startLoadingReplacementWords(fileName);
 
-        getWordReplacer()
-                .setReplacementWordsSet(
-                        ReplacementWordSet
-                                .getSetFromFile(fileName, getReplacementWordsFileDelimiter()));
+        getMenuPrinter().printInfo("Loading REPLACEMENT WORDS in the background");
+    }
 
-        setReplacementWordsFileName(fileName);
+    /**
+     * Waits for a pending replacement words load, showing its progress, then
+     * sets the word replacer's set and updates the preferences. Returns at once
+     * if no load is pending.
+     *
+     * @throws IOException if an I/O error occurred while reading the file.
+     */
+    void awaitReplacementWordsFile() throws IOException {
+        if (pendingReplacementWords == null)
+            return;
 
-        for (int i = CROSSOVER_TIME; i <= 100; i++) {
-            ConsoleProgressMeter.printProgress(i, 100);
-        }
+        PendingLoad<LoadedReplacementWords> pending = pendingReplacementWords;
+        pendingReplacementWords = null;
+
+        LoadedReplacementWords loaded = await(pending);
+
+        getWordReplacer().setReplacementWordsSet(loaded.replacementWordSet());
+        useResolvedReplacementWords();
+
+        setReplacementWordsFileName(loaded.fileName());
     }
 
     /**
@@ -445,6 +1182,101 @@ public class SimplifierSettingsMenu extends WordReplacerSettingsMenu {
 
     }
 
+    /**
+     * Updates the vector cache size of the disk storage and reflects the change
+     * in the preferences and UI. The new size is used the next time word
+     * embeddings are loaded.
+     */
+    public void scanVectorCacheMegabytes() {
+
+        int megabytes = getInputReader().getInt(
+                "VECTOR CACHE SIZE (MB)",
+                getVectorCacheMegabytes());
+
+        setVectorCacheMegabytes(Math.max(0, megabytes));
+
+        getMenuPrinter().printInfo("VECTOR CACHE SIZE (MB) = " + getVectorCacheMegabytes());
+
+    }
+
+    /**
+     * Updates the byte budget of the parsed-model snapshot cache and reflects
+     * the change in the preferences and UI. Text word embeddings files that
+     * have been parsed before are loaded from their cached snapshot.
+     */
+    public void scanSnapshotCacheMegabytes() {
+
+        int megabytes = getInputReader().getInt(
+                "SNAPSHOT CACHE SIZE (MB, 0 = OFF)",
+                getSnapshotCacheMegabytes());
+
+        setSnapshotCacheMegabytes(Math.max(0, megabytes));
+
+        getMenuPrinter().printInfo("SNAPSHOT CACHE SIZE (MB) = " + getSnapshotCacheMegabytes()
+                + " (" + SnapshotCache.getDefaultDirectory() + ")");
+
+    }
+
+    /**
+     * Updates the number of words and megabytes loaded from the start of word
+     * embeddings files and reflects the change in the preferences and UI. The
+     * limits are used the next time word embeddings are loaded.
+     */
+    public void scanWordEmbeddingsLoadLimits() {
+
+        int maxWords = getInputReader().getInt(
+                "TOP WORDS TO LOAD (0 = ALL)",
+                getMaxWordEmbeddings());
+
+        setMaxWordEmbeddings(Math.max(0, maxWords));
+
+        int megabytes = getInputReader().getInt(
+                "MEGABYTES TO LOAD (0 = ALL)",
+                getMaxWordEmbeddingsMegabytes());
+
+        setMaxWordEmbeddingsMegabytes(Math.max(0, megabytes));
+
+        getMenuPrinter().printInfo("TOP WORDS TO LOAD = " + getMaxWordEmbeddings()
+                + ", MEGABYTES TO LOAD = " + getMaxWordEmbeddingsMegabytes());
+
+    }
+
+    /**
+     * Updates the maximum frequency rank of replacement words and reflects the
+     * change in the preferences and UI.
+     */
+    public void scanMaxReplacementRank() {
+
+        int maxRank = getInputReader().getInt(
+                "MAX REPLACEMENT WORD RANK (0 = NO LIMIT)",
+                getMaxReplacementRank());
+
+        setMaxReplacementRank(Math.max(0, maxRank));
+
+        getWordReplacer().setMaxReplacementRank(getMaxReplacementRank());
+
+        getMenuPrinter().printInfo("MAX REPLACEMENT WORD RANK = " + getMaxReplacementRank());
+
+    }
+
+    /**
+     * Prints the hit, miss and eviction counts of the vector cache if the loaded
+     * word embeddings are kept on disk.
+     */
+    void printVectorCacheStatistics() {
+        if (getWordReplacer().getWordEmbeddingsMap() instanceof DiskWordEmbeddingMap diskMap) {
+            DiskWordEmbeddingMap.CacheStatistics statistics = diskMap.getCacheStatistics();
+            getMenuPrinter().printInfo(String.format(
+                    "Vector Cache: %d hits, %d misses, %d evictions (%.1f%% hit rate), %d of %d KB used",
+                    statistics.hits(),
+                    statistics.misses(),
+                    statistics.evictions(),
+                    statistics.hitRate() * 100,
+                    statistics.usedBytes() / 1024,
+                    statistics.budgetBytes() / 1024));
+        }
+    }
+
     /**
      * Prints the current preferences to the menu printer.
      */
@@ -475,10 +1307,37 @@ public class SimplifierSettingsMenu extends WordReplacerSettingsMenu {
             getMenuPrinter().printInfo("Num Similar Words to Store: \t"
                     + getNumSimilarReplacementWordsToStore());
 
+            getMenuPrinter().printInfo("Vector Cache Size (MB): \t"
+                    + getVectorCacheMegabytes());
+
+            getMenuPrinter().printInfo("Snapshot Cache Size (MB): \t"
+                    + getSnapshotCacheMegabytes());
+
+            getMenuPrinter().printInfo("Vocabulary-Pruned Loading: \t"
+                    + isPrunedLoading());
+
+            getMenuPrinter().printInfo("Top Words to Load (0 = All): \t"
+                    + getMaxWordEmbeddings());
+
+            getMenuPrinter().printInfo("Megabytes to Load (0 = All): \t"
+                    + getMaxWordEmbeddingsMegabytes());
+
+            getMenuPrinter().printInfo("Max Replacement Word Rank: \t"
+                    + getMaxReplacementRank());
+
+            getMenuPrinter().printInfo("Similarity Kernels: \t\t"
+                    + Vector.getKernels());
+
             similarityAlgorithmMenu.printPreferences();
 
             replacementMethodMenu.printPreferences();
 
+            embeddingPrecisionMenu.printPreferences();
+
+            searchMethodMenu.printPreferences();
+
+            embeddingStorageMenu.printPreferences();
+
         } catch (Exception e) {
             getMenuPrinter().printError("Error reading preferences: " + e.getMessage());
         }
@@ -495,10 +1354,18 @@ public class SimplifierSettingsMenu extends WordReplacerSettingsMenu {
 
             getWordReplacer().setSimilarReplacementWords(getNumSimilarReplacementWordsToStore());
 
+            getWordReplacer().setMaxReplacementRank(getMaxReplacementRank());
+
             similarityAlgorithmMenu.resetPreferences();
 
             replacementMethodMenu.resetPreferences();
 
+            embeddingPrecisionMenu.resetPreferences();
+
+            searchMethodMenu.resetPreferences();
+
+            embeddingStorageMenu.resetPreferences();
+
             getMenuPrinter().printSuccess("Preferences reset to default values");
 
             printPreferences();
@@ -517,4 +1384,48 @@ public class SimplifierSettingsMenu extends WordReplacerSettingsMenu {
         getMenuPrinter().printInfo("Closing Settings");
     }
 
+    /**
+     * Record holding a load running in the background.
+     *
+     * @param <T>         the type of the loaded result
+     * @param description the description of the file being loaded
+     * @param future      the result of the load
+     * @param progress    the bytes consumed by the load so far
+     */
+    private record PendingLoad<T>(String description, CompletableFuture<T> future, LoadProgress progress) {
+
+    }
+
+    /**
+     * Record holding loaded word embeddings and the files they were pruned to.
+     *
+     * @param fileName                       the word embeddings file
+     * @param wordEmbeddingMap               the loaded map
+     * @param prunedInputTextFileName        the input text file the map was
+     *                                       pruned to, or null
+     * @param prunedReplacementWordsFileName the replacement words file the map
+     *                                       was pruned to, or null
+     * @param resolvedReplacementWordSet     the replacement words resolved
+     *                                       against the map through the snapshot
+     *                                       cache, or null
+     */
+    private record LoadedWordEmbeddings(
+            String fileName,
+            WordEmbeddingMapInterface wordEmbeddingMap,
+            String prunedInputTextFileName,
+            String prunedReplacementWordsFileName,
+            ReplacementWordSet resolvedReplacementWordSet) {
+
+    }
+
+    /**
+     * Record holding a loaded replacement word set.
+     *
+     * @param fileName           the replacement words file
+     * @param replacementWordSet the loaded set
+     */
+    private record LoadedReplacementWords(String fileName, ReplacementWordSet replacementWordSet) {
+
+    }
+
 }
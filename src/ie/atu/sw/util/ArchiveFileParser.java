@@ -0,0 +1,623 @@
+package ie.atu.sw.util;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import ie.atu.sw.wordembedding.EmbeddingLoadOptions;
+import ie.atu.sw.wordembedding.WordEmbedding;
+
+/**
+ * Utility class for parsing word-embedding files straight out of
+ * {@code .zip} and {@code .gz} archives, without extracting them to disk.
+ * <p>
+ * An entry of a zip archive is named after the archive, separated by
+ * {@value #ENTRY_SEPARATOR}, e.g. {@code glove.6B.zip!glove.6B.100d.txt}. The
+ * entry can be left out of archives that hold a single file.
+ * </p>
+ * <p>
+ * The archive is decompressed on its own thread, which cuts the text into
+ * newline-aligned blocks and hands them to the parsing thread through a
+ * bounded queue, so decompression overlaps with parsing. Blocks are parsed on
+ * the fork-join workers in the same way as the chunks of
+ * {@link MappedFileParser}, then merged in file order.
+ * </p>
+ * This class cannot be instantiated.
+ */
+public class ArchiveFileParser {
+
+    /**
+     * The separator between the name of a zip archive and the name of an entry
+     * in it.
+     */
+    public static final String ENTRY_SEPARATOR = "!";
+
+    private static final String ZIP_EXTENSION = ".zip";
+    private static final String[] GZIP_EXTENSIONS = { ".gz", ".gzip" };
+
+    private static final int BLOCK_BYTES = 1 << 20;
+    private static final int QUEUED_BLOCKS = 4;
+    private static final int STREAM_BUFFER_BYTES = 1 << 16;
+
+    private static final ByteBuffer END_OF_BLOCKS = ByteBuffer.allocate(0);
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private ArchiveFileParser() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Checks whether a file name refers to a zip or gzip archive, or to an entry
+     * of a zip archive, by its extension.
+     *
+     * @param fileName the file name to check
+     * @return {@code true} if the file is read through an archive, {@code false}
+     *         otherwise
+     */
+    public static boolean isArchiveFile(String fileName) {
+        return isZipFile(fileName) || isGzipFile(fileName);
+    }
+
+    /**
+     * Retrieves the name of the archive file a file name refers to, without the
+     * name of the entry.
+     *
+     * @param fileName the file name, possibly naming an entry of a zip archive
+     * @return the name of the file on disk
+     */
+    public static String getArchiveFileName(String fileName) {
+        int separator = findEntrySeparator(fileName);
+        return separator < 0 ? fileName : fileName.substring(0, separator);
+    }
+
+    /**
+     * Retrieves the name of the zip archive entry a file name refers to.
+     *
+     * @param fileName the file name, possibly naming an entry of a zip archive
+     * @return the name of the entry, or {@code null} if none is named
+     */
+    public static String getEntryName(String fileName) {
+        int separator = findEntrySeparator(fileName);
+        return separator < 0 ? null : fileName.substring(separator + ENTRY_SEPARATOR.length());
+    }
+
+    /**
+     * Creates the file name referring to an entry of a zip archive.
+     *
+     * @param archiveFileName the name of the archive, with or without an entry
+     * @param entryName       the name of the entry
+     * @return the file name of the entry
+     */
+    public static String getEntryFileName(String archiveFileName, String entryName) {
+        return getArchiveFileName(archiveFileName) + ENTRY_SEPARATOR + entryName;
+    }
+
+    /**
+     * Retrieves the name the decompressed file would have if it were extracted
+     * next to its archive: the entry name for zip archives, or the archive name
+     * without its extension for gzip archives.
+     *
+     * @param fileName the file name, possibly of an archive
+     * @return the name of the extracted file, or {@code fileName} if it is not
+     *         an archive
+     */
+    public static String getContentFileName(String fileName) {
+        String archiveFileName = getArchiveFileName(fileName);
+        String entryName = getEntryName(fileName);
+
+        if (entryName != null) {
+            Path parent = Path.of(archiveFileName).getParent();
+            String entryFileName = Path.of(entryName).getFileName().toString();
+            return parent == null ? entryFileName : parent.resolve(entryFileName).toString();
+        }
+
+        String lowerCase = archiveFileName.toLowerCase(Locale.ROOT);
+        for (String extension : GZIP_EXTENSIONS) {
+            if (lowerCase.endsWith(extension))
+                return archiveFileName.substring(0, archiveFileName.length() - extension.length());
+        }
+        return archiveFileName;
+    }
+
+    /**
+     * Lists the files in a zip archive, in archive order. Directories are left
+     * out.
+     *
+     * @param fileName the name of the archive, with or without an entry
+     * @return the entry names, or an empty list if the file is not a zip archive
+     * @throws IOException if an I/O error occurs while reading the archive
+     */
+    public static List<String> listEntries(String fileName) throws IOException {
+        if (!isZipFile(fileName))
+            return Collections.emptyList();
+
+        try (ZipFile zipFile = new ZipFile(getArchiveFileName(fileName))) {
+            return listEntries(zipFile);
+        }
+    }
+
+    /**
+     * Calculates the number of bytes a load of the file will record in its
+     * {@link LoadProgress}: the decompressed size of zip entries, or the size
+     * of the file on disk for gzip archives, whose compressed bytes are counted
+     * as their decompressed size is not known in advance.
+     *
+     * @param fileName the file name, possibly of an archive
+     * @return the number of bytes the load will consume
+     * @throws IOException if an I/O error occurs while reading the archive
+     */
+    public static long getLoadSize(String fileName) throws IOException {
+        if (isZipFile(fileName)) {
+            try (ZipFile zipFile = new ZipFile(getArchiveFileName(fileName))) {
+                long size = findEntry(zipFile, getEntryName(fileName)).getSize();
+                if (size >= 0)
+                    return size;
+            }
+        }
+        return Files.size(Path.of(getArchiveFileName(fileName)));
+    }
+
+    /**
+     * Opens a stream of the decompressed bytes of an archive, counting the bytes
+     * read if a progress counter is given (see {@link #getLoadSize(String)}).
+     *
+     * @param fileName the name of the archive, or of an entry of a zip archive
+     * @param progress the counter of bytes read, or {@code null}
+     * @return a stream of the decompressed file
+     * @throws IOException if the archive or entry cannot be opened
+     */
+    public static InputStream openStream(String fileName, LoadProgress progress) throws IOException {
+        String archiveFileName = getArchiveFileName(fileName);
+
+        if (isZipFile(fileName)) {
+            ZipFile zipFile = new ZipFile(archiveFileName);
+            try {
+                InputStream in = zipFile.getInputStream(findEntry(zipFile, getEntryName(fileName)));
+                return new FilterInputStream(progress == null ? in : progress.track(in)) {
+
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        } finally {
+                            zipFile.close();
+                        }
+                    }
+                };
+            } catch (IOException e) {
+                zipFile.close();
+                throw e;
+            }
+        }
+
+        InputStream in = new FileInputStream(archiveFileName);
+        try {
+            return new GZIPInputStream(progress == null ? in : progress.track(in), STREAM_BUFFER_BYTES);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Parses a word-embeddings file inside an archive into a {@link HashMap}
+     * mapping strings to {@link WordEmbedding} objects as directed by a set of
+     * load options, with the same results as
+     * {@link MappedFileParser#parseMapFile(String, EmbeddingLoadOptions)} on the
+     * extracted file. Decompression stops as soon as the word or byte limit of
+     * the options is reached.
+     * <p>
+     * Time complexity: O(n), where n is the number of decompressed bytes; the
+     * parsing of each block runs on the fork-join workers while the next blocks
+     * are decompressed.
+     * </p>
+     *
+     * @param fileName the name of the archive, or of an entry of a zip archive
+     * @param options  the delimiter, precision, limits, vocabulary and progress
+     *                 counter of the load
+     * @return a {@link HashMap} mapping words to their corresponding
+     *         {@link WordEmbedding} objects
+     * @throws IOException           if an I/O error occurs while reading or
+     *                               decompressing the archive
+     * @throws NumberFormatException if a non-numeric value is encountered in the
+     *                               embedding data
+     */
+    public static HashMap<String, WordEmbedding> parseMapFile(String fileName, EmbeddingLoadOptions options)
+            throws IOException, NumberFormatException {
+
+        InputStream in = openStream(fileName, options.progress());
+        BlockingQueue<ByteBuffer> blocks = new ArrayBlockingQueue<>(QUEUED_BLOCKS);
+        BlockReader blockReader = new BlockReader(in, options.maxBytes(), blocks);
+
+        Thread decompressor = new Thread(blockReader, "archive-decompressor");
+        decompressor.setDaemon(true);
+        decompressor.start();
+
+        try {
+            HashMap<String, WordEmbedding> wordEmbeddingMap = MappedFileParser.isLiteralDelimiter(options.delimiter())
+                    ? parseBlocks(blocks, options)
+                    : parseBlockLines(blocks, options);
+
+            // The decompressor's failure, a cancellation of the load included
+            if (blockReader.failure instanceof IOException e)
+                throw e;
+            if (blockReader.failure instanceof RuntimeException e)
+                throw e;
+
+            return wordEmbeddingMap;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Loading was interrupted", e);
+        } finally {
+            // Stops decompression if parsing ended early
+            decompressor.interrupt();
+        }
+
+    }
+
+    /**
+     * Parses the blocks in the queue on the fork-join workers, keeping a few
+     * blocks in flight, and merges the results in file order.
+     *
+     * @param blocks  the queue of newline-aligned blocks
+     * @param options the options of the load
+     * @return the parsed word embeddings
+     * @throws InterruptedException if interrupted while waiting for a block
+     */
+    private static HashMap<String, WordEmbedding> parseBlocks(
+            BlockingQueue<ByteBuffer> blocks,
+            EmbeddingLoadOptions options)
+            throws InterruptedException {
+
+        byte[] delimiterBytes = options.delimiter().getBytes(StandardCharsets.UTF_8);
+        // Progress is counted on the archive stream, so blocks do not count it again
+        EmbeddingLoadOptions blockOptions = options.withProgress(null);
+        int maxInFlight = Math.max(2, ForkJoinPool.getCommonPoolParallelism() * 2);
+
+        ArrayDeque<ForkJoinTask<MappedFileParser.ChunkResult>> inFlight = new ArrayDeque<>();
+        ResultMerger merger = new ResultMerger(options.maxWords());
+
+        try {
+            ByteBuffer block;
+            while ((block = blocks.take()) != END_OF_BLOCKS) {
+                ByteBuffer chunk = block;
+                inFlight.add(ForkJoinPool.commonPool().submit(
+                        () -> MappedFileParser.parseChunk(chunk, delimiterBytes, blockOptions)));
+
+                if (inFlight.size() >= maxInFlight && !merger.merge(inFlight.poll().join()))
+                    return merger.wordEmbeddingMap;
+            }
+
+            while (!inFlight.isEmpty()) {
+                if (!merger.merge(inFlight.poll().join()))
+                    break;
+            }
+
+            return merger.wordEmbeddingMap;
+
+        } finally {
+            for (ForkJoinTask<MappedFileParser.ChunkResult> task : inFlight)
+                task.cancel(false);
+        }
+    }
+
+    /**
+     * Parses the blocks in the queue line by line with
+     * {@link FileParser#parseMapLine(String, String, ie.atu.sw.wordembedding.EmbeddingPrecision, int)},
+     * for delimiters that are regular expressions.
+     *
+     * @param blocks  the queue of newline-aligned blocks
+     * @param options the options of the load
+     * @return the parsed word embeddings
+     * @throws InterruptedException if interrupted while waiting for a block
+     */
+    private static HashMap<String, WordEmbedding> parseBlockLines(
+            BlockingQueue<ByteBuffer> blocks,
+            EmbeddingLoadOptions options)
+            throws InterruptedException {
+
+        String delimiter = options.delimiter();
+        Set<String> vocabulary = options.vocabulary();
+        int lineLimit = options.maxWords() > 0 ? options.maxWords() : Integer.MAX_VALUE;
+
+        HashMap<String, WordEmbedding> wordEmbeddingMap = new HashMap<>();
+        int rank = 0;
+
+        ByteBuffer block;
+        while (rank < lineLimit && (block = blocks.take()) != END_OF_BLOCKS) {
+            String text = new String(block.array(), 0, block.limit(), StandardCharsets.UTF_8);
+
+            for (Iterator<String> lines = text.lines().iterator(); rank < lineLimit && lines.hasNext(); rank++) {
+                String line = lines.next();
+                if (vocabulary != null && !vocabulary.contains(line.split(delimiter, 2)[0]))
+                    continue;
+                WordEmbedding wordEmbedding = FileParser.parseMapLine(line, delimiter, options.precision(), rank);
+                wordEmbeddingMap.put(wordEmbedding.word(), wordEmbedding);
+            }
+        }
+
+        return wordEmbeddingMap;
+    }
+
+    /**
+     * Checks whether a file name refers to a zip archive or one of its entries.
+     *
+     * @param fileName the file name to check
+     * @return {@code true} if the file is a zip archive
+     */
+    private static boolean isZipFile(String fileName) {
+        return getArchiveFileName(fileName).toLowerCase(Locale.ROOT).endsWith(ZIP_EXTENSION);
+    }
+
+    /**
+     * Checks whether a file name refers to a gzip archive.
+     *
+     * @param fileName the file name to check
+     * @return {@code true} if the file is a gzip archive
+     */
+    private static boolean isGzipFile(String fileName) {
+        String lowerCase = fileName.toLowerCase(Locale.ROOT);
+        for (String extension : GZIP_EXTENSIONS) {
+            if (lowerCase.endsWith(extension))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Finds the separator between a zip archive name and an entry name. Only a
+     * separator that directly follows the zip extension counts, so file names
+     * that merely contain it are left alone.
+     *
+     * @param fileName the file name to search
+     * @return the index of the separator, or -1 if there is none
+     */
+    private static int findEntrySeparator(String fileName) {
+        String lowerCase = fileName.toLowerCase(Locale.ROOT);
+        int separator = lowerCase.indexOf(ZIP_EXTENSION + ENTRY_SEPARATOR);
+        return separator < 0 ? -1 : separator + ZIP_EXTENSION.length();
+    }
+
+    /**
+     * Lists the files in an open zip archive, in archive order.
+     *
+     * @param zipFile the archive
+     * @return the entry names
+     */
+    private static List<String> listEntries(ZipFile zipFile) {
+        List<String> entryNames = new ArrayList<>();
+        for (Enumeration<? extends ZipEntry> entries = zipFile.entries(); entries.hasMoreElements();) {
+            ZipEntry entry = entries.nextElement();
+            if (!entry.isDirectory())
+                entryNames.add(entry.getName());
+        }
+        return entryNames;
+    }
+
+    /**
+     * Finds an entry of a zip archive. If no entry is named, the archive must
+     * hold a single file.
+     *
+     * @param zipFile   the archive
+     * @param entryName the name of the entry, or {@code null}
+     * @return the entry
+     * @throws IOException if the entry does not exist, or none is named and the
+     *                     archive does not hold exactly one file
+     */
+    private static ZipEntry findEntry(ZipFile zipFile, String entryName) throws IOException {
+        if (entryName != null) {
+            ZipEntry entry = zipFile.getEntry(entryName);
+            if (entry == null || entry.isDirectory())
+                throw new FileNotFoundException("Cannot find " + entryName + " in " + zipFile.getName());
+            return entry;
+        }
+
+        List<String> entryNames = listEntries(zipFile);
+        if (entryNames.size() != 1) {
+            throw new IOException(zipFile.getName() + " holds " + entryNames.size()
+                    + " files; choose one as archive" + ENTRY_SEPARATOR + "entry: " + entryNames);
+        }
+        return zipFile.getEntry(entryNames.get(0));
+    }
+
+    /**
+     * Finds the first occurrence of a byte in the range [from, to).
+     *
+     * @param bytes the array to search
+     * @param b     the byte to find
+     * @param from  the first index to check (inclusive)
+     * @param to    the last index to check (exclusive)
+     * @return the index of the byte, or {@code to} if it does not occur
+     */
+    private static int indexOf(byte[] bytes, byte b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == b)
+                return i;
+        }
+        return to;
+    }
+
+    /**
+     * Finds the last occurrence of a byte in the range [0, to).
+     *
+     * @param bytes the array to search
+     * @param b     the byte to find
+     * @param to    the last index to check (exclusive)
+     * @return the index of the byte, or -1 if it does not occur
+     */
+    private static int lastIndexOf(byte[] bytes, byte b, int to) {
+        for (int i = to - 1; i >= 0; i--) {
+            if (bytes[i] == b)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Merges the results of consecutive blocks into one map, offsetting the
+     * ranks of each block by the lines of the blocks before it, until the word
+     * limit is reached.
+     */
+    private static class ResultMerger {
+
+        private final HashMap<String, WordEmbedding> wordEmbeddingMap = new HashMap<>();
+        private final int lineLimit;
+        private int firstLine = 0;
+
+        /**
+         * Constructs a merger for a load with the given word limit.
+         *
+         * @param maxWords the maximum number of lines, or 0 for no limit
+         */
+        ResultMerger(int maxWords) {
+            this.lineLimit = maxWords > 0 ? maxWords : Integer.MAX_VALUE;
+        }
+
+        /**
+         * Merges the result of the next block.
+         *
+         * @param result the result of the block
+         * @return {@code true} if more blocks are needed, {@code false} if the
+         *         word limit has been reached
+         */
+        boolean merge(MappedFileParser.ChunkResult result) {
+            for (WordEmbedding wordEmbedding : result.embeddings()) {
+                int rank = wordEmbedding.rank() + firstLine;
+                if (rank >= lineLimit)
+                    break;
+                wordEmbeddingMap.put(
+                        wordEmbedding.word(),
+                        new WordEmbedding(
+                                wordEmbedding.word(),
+                                wordEmbedding.vector(),
+                                rank));
+            }
+            firstLine += result.lines();
+            return firstLine < lineLimit;
+        }
+    }
+
+    /**
+     * Task run on the decompression thread that reads the decompressed stream
+     * into newline-aligned blocks and puts them on a queue, followed by
+     * {@link ArchiveFileParser#END_OF_BLOCKS}. Reading stops at the first line
+     * that starts at or after the byte limit, or when the thread is
+     * interrupted. The end marker is queued however reading ends, so the
+     * parsing thread never waits on a dead reader; a failure, such as the
+     * {@link java.util.concurrent.CancellationException} of a cancelled
+     * {@link LoadProgress}, is recorded for the parsing thread to rethrow.
+     */
+    private static class BlockReader implements Runnable {
+
+        private final InputStream in;
+        private final long maxBytes;
+        private final BlockingQueue<ByteBuffer> blocks;
+        private volatile Exception failure;
+
+        /**
+         * Constructs a reader of the given stream.
+         *
+         * @param in       the decompressed stream, closed when reading ends
+         * @param maxBytes the byte position lines must start before, or 0 for
+         *                 no limit
+         * @param blocks   the queue receiving the blocks
+         */
+        BlockReader(InputStream in, long maxBytes, BlockingQueue<ByteBuffer> blocks) {
+            this.in = in;
+            this.maxBytes = maxBytes;
+            this.blocks = blocks;
+        }
+
+        /**
+         * Reads the stream into blocks until it ends, the byte limit is reached,
+         * reading fails or the thread is interrupted.
+         */
+        @Override
+        public void run() {
+            try {
+                readBlocks();
+            } catch (IOException | RuntimeException e) {
+                failure = e;
+            } catch (InterruptedException e) {
+                // Parsing has ended; keeps the end marker from being queued
+                Thread.currentThread().interrupt();
+            } finally {
+                try {
+                    blocks.put(END_OF_BLOCKS);
+                } catch (InterruptedException e) {
+                    // Parsing has ended; nothing is waiting for the end
+                }
+            }
+        }
+
+        /**
+         * Reads the stream into blocks and closes it.
+         *
+         * @throws IOException          if reading or decompressing fails
+         * @throws InterruptedException if interrupted while waiting for room in
+         *                              the queue
+         */
+        private void readBlocks() throws IOException, InterruptedException {
+            try (in) {
+                byte[] block = new byte[BLOCK_BYTES];
+                int filled = 0;
+                long position = 0;
+                boolean isLast = false;
+
+                while (!isLast) {
+                    filled += in.readNBytes(block, filled, block.length - filled);
+                    isLast = filled < block.length;
+
+                    int end = isLast ? filled : lastIndexOf(block, (byte) '\n', filled) + 1;
+                    if (end == 0) {
+                        // A single line fills the block
+                        block = Arrays.copyOf(block, block.length * 2);
+                        continue;
+                    }
+
+                    if (maxBytes > 0 && position + end >= maxBytes) {
+                        int lastLineByte = (int) Math.max(0, maxBytes - 1 - position);
+                        end = Math.min(end, indexOf(block, (byte) '\n', lastLineByte, end) + 1);
+                        isLast = true;
+                    }
+
+                    byte[] next = new byte[block.length];
+                    System.arraycopy(block, end, next, 0, filled - end);
+                    if (end > 0)
+                        blocks.put(ByteBuffer.wrap(block, 0, end));
+
+                    position += end;
+                    filled -= end;
+                    block = next;
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,161 @@
+package ie.atu.sw.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Hand-written scanner for decimal numbers stored as ASCII bytes. Used by the
+ * byte-level file parsers to avoid creating a {@link String} for every token
+ * before calling {@link Double#parseDouble(String)}.
+ * <p>
+ * Numbers with at most 19 significant digits and a decimal exponent in the
+ * range [-22, 22] (which covers every value in the published GloVe files) are
+ * converted with a single multiplication or division by an exact power of ten.
+ * Anything else falls back to {@link Double#parseDouble(String)}.
+ * </p>
+ * This class cannot be instantiated.
+ */
+class ByteNumberScanner {
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+    private static final int MAX_SIGNIFICANT_DIGITS = 19;
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private ByteNumberScanner() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Parses the bytes in the range [start, end) of the buffer as a decimal
+     * number. Time complexity: O(k), where k is the number of bytes in the range.
+     *
+     * @param buffer the buffer holding the ASCII digits
+     * @param start  the index of the first byte of the number (inclusive)
+     * @param end    the index of the last byte of the number (exclusive)
+     * @return the parsed value
+     * @throws NumberFormatException if the bytes are not a valid number
+     */
+    static double parseDouble(ByteBuffer buffer, int start, int end) throws NumberFormatException {
+        int i = start;
+        boolean negative = false;
+
+        if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+            negative = buffer.get(i) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        boolean anyDigits = false;
+
+        // Integer part
+        while (i < end) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9)
+                break;
+            anyDigits = true;
+            if (significantDigits < MAX_SIGNIFICANT_DIGITS) {
+                mantissa = mantissa * 10 + digit;
+                if (mantissa != 0)
+                    significantDigits++;
+            } else {
+                exponent++;
+            }
+            i++;
+        }
+
+        // Fractional part
+        if (i < end && buffer.get(i) == '.') {
+            i++;
+            while (i < end) {
+                int digit = buffer.get(i) - '0';
+                if (digit < 0 || digit > 9)
+                    break;
+                anyDigits = true;
+                if (significantDigits < MAX_SIGNIFICANT_DIGITS) {
+                    mantissa = mantissa * 10 + digit;
+                    if (mantissa != 0)
+                        significantDigits++;
+                    exponent--;
+                }
+                i++;
+            }
+        }
+
+        if (!anyDigits)
+            return fallback(buffer, start, end);
+
+        // Exponent part
+        if (i < end && (buffer.get(i) == 'e' || buffer.get(i) == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+                negativeExponent = buffer.get(i) == '-';
+                i++;
+            }
+            int exponentDigits = 0;
+            int explicitExponent = 0;
+            while (i < end) {
+                int digit = buffer.get(i) - '0';
+                if (digit < 0 || digit > 9)
+                    break;
+                if (explicitExponent < 10_000)
+                    explicitExponent = explicitExponent * 10 + digit;
+                exponentDigits++;
+                i++;
+            }
+            if (exponentDigits == 0)
+                return fallback(buffer, start, end);
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+
+        // Trailing garbage is handed to Double.parseDouble, which will reject it
+        if (i != end)
+            return fallback(buffer, start, end);
+
+        // Fast path: the mantissa is exactly representable and so is the power of ten
+        if (mantissa < (1L << 53) && exponent >= -22 && exponent <= 22) {
+            double value = (double) mantissa;
+            value = exponent < 0 ? value / POWERS_OF_TEN[-exponent] : value * POWERS_OF_TEN[exponent];
+            return negative ? -value : value;
+        }
+
+        return fallback(buffer, start, end);
+    }
+
+    /**
+     * Parses the range with {@link Double#parseDouble(String)}. Used for inputs
+     * the fast path cannot convert exactly (e.g. very long mantissas, large
+     * exponents, "NaN" or "Infinity").
+     *
+     * @param buffer the buffer holding the characters
+     * @param start  the index of the first byte (inclusive)
+     * @param end    the index of the last byte (exclusive)
+     * @return the parsed value
+     * @throws NumberFormatException if the bytes are not a valid number
+     */
+    private static double fallback(ByteBuffer buffer, int start, int end) throws NumberFormatException {
+        return Double.parseDouble(decode(buffer, start, end).trim());
+    }
+
+    /**
+     * Decodes the bytes in the range [start, end) of the buffer as UTF-8.
+     *
+     * @param buffer the buffer holding the encoded characters
+     * @param start  the index of the first byte (inclusive)
+     * @param end    the index of the last byte (exclusive)
+     * @return the decoded string
+     */
+    static String decode(ByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,191 @@
+package ie.atu.sw.util;
+
+import ie.atu.sw.wordembedding.EmbeddingPrecision;
+
+/**
+ * Sealed interface for an embedding vector stored at one of the
+ * {@link EmbeddingPrecision} levels. Each implementation wraps a primitive
+ * array of the matching type, so that the {@link Vector} and
+ * {@link SimilarityAlgorithm} kernels can work on the stored values directly.
+ */
+public sealed interface EmbeddingVector
+        permits EmbeddingVector.Float64, EmbeddingVector.Float32, EmbeddingVector.Float16 {
+
+    /**
+     * Creates an embedding vector holding the given values at the given
+     * precision.
+     *
+     * @param values    the vector values
+     * @param precision the precision to store the values with
+     * @return a new embedding vector; for {@link EmbeddingPrecision#FLOAT64} the
+     *         array is used as is
+     */
+    static EmbeddingVector of(double[] values, EmbeddingPrecision precision) {
+        return switch (precision) {
+            case FLOAT64 -> new Float64(values);
+            case FLOAT32 -> {
+                float[] floats = new float[values.length];
+                for (int i = 0; i < values.length; i++)
+                    floats[i] = (float) values[i];
+                yield new Float32(floats);
+            }
+            case FLOAT16 -> {
+                short[] halves = new short[values.length];
+                for (int i = 0; i < values.length; i++)
+                    halves[i] = Float.floatToFloat16((float) values[i]);
+                yield new Float16(halves);
+            }
+        };
+    }
+
+    /**
+     * Retrieves the number of elements in the vector.
+     *
+     * @return the vector dimension
+     */
+    int dimension();
+
+    /**
+     * Retrieves a single element of the vector.
+     *
+     * @param index the index of the element
+     * @return the element, widened to a double
+     */
+    double get(int index);
+
+    /**
+     * Retrieves the precision the vector is stored with.
+     *
+     * @return the stored precision
+     */
+    EmbeddingPrecision precision();
+
+    /**
+     * Retrieves the vector as an array of doubles.
+     *
+     * @return the vector values; for {@link Float64} this is the backing array,
+     *         otherwise a new array
+     */
+    double[] toDoubleArray();
+
+    /**
+     * Retrieves the vector as an array of floats.
+     *
+     * @return the vector values; for {@link Float32} this is the backing array,
+     *         otherwise a new array
+     */
+    float[] toFloatArray();
+
+    /**
+     * Embedding vector stored as 64-bit doubles.
+     *
+     * @param values the vector values
+     */
+    record Float64(double[] values) implements EmbeddingVector {
+
+        @Override
+        public int dimension() {
+            return values.length;
+        }
+
+        @Override
+        public double get(int index) {
+            return values[index];
+        }
+
+        @Override
+        public EmbeddingPrecision precision() {
+            return EmbeddingPrecision.FLOAT64;
+        }
+
+        @Override
+        public double[] toDoubleArray() {
+            return values;
+        }
+
+        @Override
+        public float[] toFloatArray() {
+            float[] floats = new float[values.length];
+            for (int i = 0; i < values.length; i++)
+                floats[i] = (float) values[i];
+            return floats;
+        }
+    }
+
+    /**
+     * Embedding vector stored as 32-bit floats.
+     *
+     * @param values the vector values
+     */
+    record Float32(float[] values) implements EmbeddingVector {
+
+        @Override
+        public int dimension() {
+            return values.length;
+        }
+
+        @Override
+        public double get(int index) {
+            return values[index];
+        }
+
+        @Override
+        public EmbeddingPrecision precision() {
+            return EmbeddingPrecision.FLOAT32;
+        }
+
+        @Override
+        public double[] toDoubleArray() {
+            double[] doubles = new double[values.length];
+            for (int i = 0; i < values.length; i++)
+                doubles[i] = values[i];
+            return doubles;
+        }
+
+        @Override
+        public float[] toFloatArray() {
+            return values;
+        }
+    }
+
+    /**
+     * Embedding vector stored as IEEE 754 half-precision values, held in the
+     * bits of a {@code short} as produced by {@link Float#floatToFloat16(float)}.
+     *
+     * @param values the vector values in binary16 format
+     */
+    record Float16(short[] values) implements EmbeddingVector {
+
+        @Override
+        public int dimension() {
+            return values.length;
+        }
+
+        @Override
+        public double get(int index) {
+            return Float.float16ToFloat(values[index]);
+        }
+
+        @Override
+        public EmbeddingPrecision precision() {
+            return EmbeddingPrecision.FLOAT16;
+        }
+
+        @Override
+        public double[] toDoubleArray() {
+            double[] doubles = new double[values.length];
+            for (int i = 0; i < values.length; i++)
+                doubles[i] = Float.float16ToFloat(values[i]);
+            return doubles;
+        }
+
+        @Override
+        public float[] toFloatArray() {
+            float[] floats = new float[values.length];
+            for (int i = 0; i < values.length; i++)
+                floats[i] = Float.float16ToFloat(values[i]);
+            return floats;
+        }
+    }
+
+}
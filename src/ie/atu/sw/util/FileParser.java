@@ -1,12 +1,19 @@
 package ie.atu.sw.util;
 
 import java.io.BufferedReader;
+import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Set;
 
+import ie.atu.sw.wordembedding.EmbeddingLoadOptions;
+import ie.atu.sw.wordembedding.EmbeddingPrecision;
 import ie.atu.sw.wordembedding.WordEmbedding;
 
 /**
@@ -40,10 +47,26 @@ public class FileParser {
      */
     public static HashSet<String> parseSetFile(String fileName, String delimiter)
             throws IOException {
+        return parseSetFile(fileName, delimiter, null);
+    }
+
+    /**
+     * Parses a file into a {@link HashSet} of strings, recording the bytes read
+     * in a progress counter.
+     *
+     * @param fileName  the name of the file to parse
+     * @param delimiter the delimiter used to split each line
+     * @param progress  the counter of bytes read, or {@code null}
+     * @return a {@link HashSet} containing all unique parts from the file
+     * @throws IOException if an I/O error occurs while reading the file
+     * @see #parseSetFile(String, String)
+     */
+    public static HashSet<String> parseSetFile(String fileName, String delimiter, LoadProgress progress)
+            throws IOException {
 
         HashSet<String> replacementWordSet = new HashSet<>();
 
-        try (BufferedReader br = new BufferedReader(new FileReader(fileName))) {
+        try (BufferedReader br = openReader(fileName, progress)) {
             String line;
 
             while ((line = br.readLine()) != null) {
@@ -77,27 +100,74 @@ public class FileParser {
      */
     public static HashMap<String, WordEmbedding> parseMapFile(String fileName, String delimiter)
             throws IOException, NumberFormatException {
+        return parseMapFile(fileName, delimiter, EmbeddingPrecision.FLOAT64);
+    }
 
-        try (BufferedReader br = new BufferedReader(new FileReader(fileName))) {
+    /**
+     * Parses a file into a {@link HashMap} mapping strings to {@link WordEmbedding}
+     * objects, storing each vector at the given precision.
+     * The first part of each line is treated as the key (a word), and the remaining
+     * parts are parsed as numerical values to create a {@link WordEmbedding}.
+     * 
+     * Time complexity: O(n) where n is the total number of characters in the file.
+     *
+     * @param fileName  the name of the file to parse
+     * @param delimiter the delimiter used to split each line
+     * @param precision the precision to store the vectors with
+     * @return a {@link HashMap} mapping words to their corresponding
+     *         {@link WordEmbedding} objects
+     * @throws IOException           if an I/O error occurs while reading the file
+     * @throws NumberFormatException if a non-numeric value is encountered in the
+     *                               embedding data
+     */
+    public static HashMap<String, WordEmbedding> parseMapFile(
+            String fileName,
+            String delimiter,
+            EmbeddingPrecision precision)
+            throws IOException, NumberFormatException {
+        return parseMapFile(fileName, new EmbeddingLoadOptions(delimiter, precision, 0));
+    }
 
-            HashMap<String, WordEmbedding> wordEmbeddingMap = new HashMap<>();
+    /**
+     * Parses a file into a {@link HashMap} mapping strings to {@link WordEmbedding}
+     * objects as directed by a set of load options. Each embedding records its
+     * line in the file as its rank. Only the lines within the word and byte
+     * limits of the options are read, and the numbers on lines whose word is not
+     * in the vocabulary of the options are not parsed.
+     * 
+     * Time complexity: O(n) where n is the total number of characters read.
+     *
+     * @param fileName the name of the file to parse
+     * @param options  the delimiter, precision, limits, vocabulary and progress
+     *                 counter of the load
+     * @return a {@link HashMap} mapping words to their corresponding
+     *         {@link WordEmbedding} objects
+     * @throws IOException           if an I/O error occurs while reading the file
+     * @throws NumberFormatException if a non-numeric value is encountered in the
+     *                               embedding data
+     */
+    public static HashMap<String, WordEmbedding> parseMapFile(String fileName, EmbeddingLoadOptions options)
+            throws IOException, NumberFormatException {
 
-            String line;
+        String delimiter = options.delimiter();
+        Set<String> vocabulary = options.vocabulary();
 
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split(delimiter);
-                String word = parts[0];
-                double[] embedding = new double[parts.length - 1];
+        int lines;
+        try (FileChannel channel = FileChannel.open(Path.of(fileName), StandardOpenOption.READ)) {
+            lines = MappedFileParser.findLoadRange(channel, options.maxWords(), options.maxBytes()).lines();
+        }
 
-                for (int i = 1; i < parts.length; i++) {
-                    embedding[i - 1] = Double.parseDouble(parts[i]);
-                }
+        try (BufferedReader br = openReader(fileName, options.progress())) {
+
+            HashMap<String, WordEmbedding> wordEmbeddingMap = new HashMap<>();
+
+            String line;
 
-                wordEmbeddingMap.put(
-                        word,
-                        new WordEmbedding(
-                                word,
-                                embedding, new ArrayList<String>()));
+            for (int rank = 0; rank < lines && (line = br.readLine()) != null; rank++) {
+                if (vocabulary != null && !vocabulary.contains(line.split(delimiter, 2)[0]))
+                    continue;
+                WordEmbedding wordEmbedding = parseMapLine(line, delimiter, options.precision(), rank);
+                wordEmbeddingMap.put(wordEmbedding.word(), wordEmbedding);
             }
 
             return wordEmbeddingMap;
@@ -106,4 +176,66 @@ public class FileParser {
 
     }
 
+    /**
+     * Opens a file for reading lines, counting the bytes read if a progress
+     * counter is given.
+     *
+     * @param fileName the name of the file to open
+     * @param progress the counter of bytes read, or {@code null}
+     * @return a reader over the file
+     * @throws IOException if the file cannot be opened
+     */
+    private static BufferedReader openReader(String fileName, LoadProgress progress) throws IOException {
+        return progress == null
+                ? new BufferedReader(new FileReader(fileName))
+                : new BufferedReader(new InputStreamReader(progress.track(new FileInputStream(fileName))));
+    }
+
+    /**
+     * Parses a single line of a word embeddings file into a {@link WordEmbedding}.
+     * The first part of the line is the word, and the remaining parts are parsed
+     * as the numerical values of its embedding. Time complexity: O(n), where n is
+     * the number of characters in the line.
+     *
+     * @param line      the line to parse
+     * @param delimiter the delimiter used to split the line
+     * @param precision the precision to store the vector with
+     * @return the parsed {@link WordEmbedding}
+     * @throws NumberFormatException if a non-numeric value is encountered in the
+     *                               embedding data
+     */
+    public static WordEmbedding parseMapLine(String line, String delimiter, EmbeddingPrecision precision)
+            throws NumberFormatException {
+        return parseMapLine(line, delimiter, precision, WordEmbedding.UNKNOWN_RANK);
+    }
+
+    /**
+     * Parses a single line of a word embeddings file into a {@link WordEmbedding}
+     * with the given rank.
+     *
+     * @param line      the line to parse
+     * @param delimiter the delimiter used to split the line
+     * @param precision the precision to store the vector with
+     * @param rank      the line of the word in its file
+     * @return the parsed {@link WordEmbedding}
+     * @throws NumberFormatException if a non-numeric value is encountered in the
+     *                               embedding data
+     * @see #parseMapLine(String, String, EmbeddingPrecision)
+     */
+    public static WordEmbedding parseMapLine(String line, String delimiter, EmbeddingPrecision precision, int rank)
+            throws NumberFormatException {
+        String[] parts = line.split(delimiter);
+        String word = parts[0];
+        double[] embedding = new double[parts.length - 1];
+
+        for (int i = 1; i < parts.length; i++) {
+            embedding[i - 1] = Double.parseDouble(parts[i]);
+        }
+
+        return new WordEmbedding(
+                word,
+                EmbeddingVector.of(embedding, precision),
+                rank);
+    }
+
 }
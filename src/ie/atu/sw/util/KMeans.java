@@ -0,0 +1,195 @@
+package ie.atu.sw.util;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Utility class for clustering vectors with Lloyd's k-means algorithm.
+ * The vectors and centroids are packed row-major into {@code float[]} arrays.
+ * The assignment step, which dominates the running time, and the centroid
+ * update, one task per cluster, are run in parallel on the common fork-join
+ * pool. Results are deterministic for a given seed.
+ * <p>
+ * This class cannot be instantiated.
+ * </p>
+ */
+public class KMeans {
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private KMeans() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Clusters the vectors into k clusters. The centroids are seeded with k
+     * distinct vectors chosen at random, and a cluster that becomes empty is
+     * re-seeded with a random vector.
+     * <p>
+     * Time complexity: O(i⋅n⋅k⋅m / p), for i iterations over n vectors of
+     * dimension m with p workers.
+     * </p>
+     *
+     * @param vectors    the row-major vectors to cluster
+     * @param rows       the number of vectors
+     * @param dimension  the dimension of each vector
+     * @param k          the number of clusters; must not exceed rows
+     * @param iterations the maximum number of iterations
+     * @param seed       the seed for choosing the initial centroids
+     * @return the row-major centroids, k x dimension
+     * @throws IllegalArgumentException if k is not between 1 and rows
+     */
+    public static float[] train(float[] vectors, int rows, int dimension, int k, int iterations, long seed)
+            throws IllegalArgumentException {
+        if (k < 1 || k > rows)
+            throw new IllegalArgumentException("Cannot make " + k + " clusters from " + rows + " vectors");
+
+        Random random = new Random(seed);
+        float[] centroids = new float[k * dimension];
+
+        int[] order = IntStream.range(0, rows).toArray();
+        for (int i = 0; i < k; i++) {
+            int j = i + random.nextInt(rows - i);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+            System.arraycopy(vectors, order[i] * dimension, centroids, i * dimension, dimension);
+        }
+
+        int[] assignments = new int[rows];
+        int[] counts = new int[k];
+        int[] starts = new int[k + 1];
+        int[] members = new int[rows];
+
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            boolean changed = assign(vectors, rows, dimension, centroids, k, assignments) || iteration == 0;
+
+            if (!changed)
+                break;
+
+            // Group the rows by cluster, in row order, so that each centroid can
+            // be summed independently
+            Arrays.fill(counts, 0);
+            for (int row = 0; row < rows; row++)
+                counts[assignments[row]]++;
+
+            for (int cluster = 0; cluster < k; cluster++)
+                starts[cluster + 1] = starts[cluster] + counts[cluster];
+
+            int[] next = Arrays.copyOf(starts, k);
+            for (int row = 0; row < rows; row++)
+                members[next[assignments[row]]++] = row;
+
+            IntStream.range(0, k)
+                    .parallel()
+                    .forEach(cluster -> updateCentroid(
+                            vectors, dimension, members, starts[cluster], starts[cluster + 1], centroids, cluster));
+
+            for (int cluster = 0; cluster < k; cluster++)
+                if (counts[cluster] == 0)
+                    System.arraycopy(vectors, random.nextInt(rows) * dimension, centroids, cluster * dimension,
+                            dimension);
+        }
+
+        return centroids;
+    }
+
+    /**
+     * Moves a centroid to the mean of the vectors assigned to it, summed in
+     * double precision. A centroid without vectors is left as it is.
+     *
+     * @param vectors   the row-major vectors
+     * @param dimension the dimension of each vector
+     * @param members   the rows of the vectors, grouped by cluster
+     * @param from      the index in members of the first row of the cluster
+     * @param to        the index in members after the last row of the cluster
+     * @param centroids the row-major centroids
+     * @param cluster   the cluster
+     */
+    private static void updateCentroid(
+            float[] vectors,
+            int dimension,
+            int[] members,
+            int from,
+            int to,
+            float[] centroids,
+            int cluster) {
+        if (from == to)
+            return;
+
+        double[] sums = new double[dimension];
+        for (int member = from; member < to; member++) {
+            int base = members[member] * dimension;
+            for (int i = 0; i < dimension; i++)
+                sums[i] += vectors[base + i];
+        }
+
+        int centroidBase = cluster * dimension;
+        for (int i = 0; i < dimension; i++)
+            centroids[centroidBase + i] = (float) (sums[i] / (to - from));
+    }
+
+    /**
+     * Finds the centroid nearest, by squared Euclidean distance, to a vector.
+     * Time complexity: O(k⋅m).
+     *
+     * @param centroids the row-major centroids
+     * @param k         the number of centroids
+     * @param vector    the array holding the vector
+     * @param offset    the index of the first element of the vector
+     * @param dimension the dimension of the vector
+     * @return the index of the nearest centroid
+     */
+    public static int nearest(float[] centroids, int k, float[] vector, int offset, int dimension) {
+        int nearest = 0;
+        float nearestDistance = Float.POSITIVE_INFINITY;
+
+        for (int cluster = 0; cluster < k; cluster++) {
+            int centroidBase = cluster * dimension;
+            float distance = 0.0f;
+            for (int i = 0; i < dimension; i++) {
+                float difference = vector[offset + i] - centroids[centroidBase + i];
+                distance += difference * difference;
+            }
+            if (distance < nearestDistance) {
+                nearestDistance = distance;
+                nearest = cluster;
+            }
+        }
+
+        return nearest;
+    }
+
+    /**
+     * Assigns every vector to its nearest centroid, in parallel.
+     *
+     * @param vectors     the row-major vectors
+     * @param rows        the number of vectors
+     * @param dimension   the dimension of each vector
+     * @param centroids   the row-major centroids
+     * @param k           the number of centroids
+     * @param assignments the array receiving the centroid of each vector
+     * @return {@code true} if any assignment changed, {@code false} otherwise
+     */
+    private static boolean assign(
+            float[] vectors,
+            int rows,
+            int dimension,
+            float[] centroids,
+            int k,
+            int[] assignments) {
+        return IntStream.range(0, rows)
+                .parallel()
+                .map(row -> {
+                    int cluster = nearest(centroids, k, vectors, row * dimension, dimension);
+                    if (cluster == assignments[row])
+                        return 0;
+                    assignments[row] = cluster;
+                    return 1;
+                })
+                .sum() > 0;
+    }
+
+}
@@ -0,0 +1,97 @@
+package ie.atu.sw.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe counter of the bytes of a file consumed by a load, used to show
+ * real progress while the load runs in the background. Parsers add the bytes
+ * they have read with {@link #addBytes(long)}, possibly from several threads,
+ * and the console reads the percentage with {@link #getPercent()}. A load
+ * that is no longer needed is stopped with {@link #cancel()}.
+ */
+public class LoadProgress {
+
+    private final long totalBytes;
+    private final LongAdder consumedBytes = new LongAdder();
+    private volatile boolean isCancelled;
+
+    /**
+     * Constructs a progress counter for a load of the given size.
+     *
+     * @param totalBytes the number of bytes the load will consume
+     */
+    public LoadProgress(long totalBytes) {
+        this.totalBytes = totalBytes;
+    }
+
+    /**
+     * Records that a number of bytes have been consumed.
+     *
+     * @param bytes the number of bytes consumed
+     * @throws CancellationException if the load has been cancelled, which stops
+     *                               the parser recording it
+     */
+    public void addBytes(long bytes) throws CancellationException {
+        if (isCancelled)
+            throw new CancellationException("Load cancelled");
+        consumedBytes.add(bytes);
+    }
+
+    /**
+     * Cancels the load, so that the parser recording it stops the next time it
+     * records bytes.
+     */
+    public void cancel() {
+        isCancelled = true;
+    }
+
+    /**
+     * Calculates the percentage of the bytes consumed so far.
+     *
+     * @return the percentage, between 0 and 100
+     */
+    public int getPercent() {
+        if (totalBytes <= 0)
+            return 0;
+        return (int) Math.min(100, consumedBytes.sum() * 100 / totalBytes);
+    }
+
+    /**
+     * Wraps an input stream so that every byte read from it is recorded.
+     *
+     * @param in the stream to wrap
+     * @return a stream reading from {@code in}
+     */
+    public InputStream track(InputStream in) {
+        return new FilterInputStream(in) {
+
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0)
+                    addBytes(1);
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int read = super.read(b, off, len);
+                if (read > 0)
+                    addBytes(read);
+                return read;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                long skipped = super.skip(n);
+                addBytes(skipped);
+                return skipped;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,542 @@
+package ie.atu.sw.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import ie.atu.sw.wordembedding.EmbeddingLoadOptions;
+import ie.atu.sw.wordembedding.EmbeddingPrecision;
+import ie.atu.sw.wordembedding.WordEmbedding;
+
+/**
+ * Utility class for parsing large word-embedding files in parallel.
+ * The file is memory-mapped and split into newline-aligned chunks, each of
+ * which is parsed on its own fork-join worker directly from the mapped bytes
+ * using {@link ByteNumberScanner}. The per-chunk results are then merged, in
+ * file order, into a single {@link HashMap}.
+ * <p>
+ * The delimiter is matched literally. Delimiters containing regular-expression
+ * metacharacters are handed to {@link FileParser#parseMapFile(String, String)}
+ * so that the semantics of {@link String#split(String)} are preserved.
+ * Archives, which cannot be mapped, are handed to {@link ArchiveFileParser}.
+ * </p>
+ * This class cannot be instantiated.
+ */
+public class MappedFileParser {
+
+    private static final String REGEX_METACHARACTERS = ".$|()[{^?*+\\";
+
+    private static final long MIN_CHUNK_BYTES = 1L << 20;
+    private static final long MAX_CHUNK_BYTES = 1L << 28;
+    private static final int PROGRESS_STEP_BYTES = 1 << 16;
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private MappedFileParser() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Parses a file into a {@link HashMap} mapping strings to {@link WordEmbedding}
+     * objects, using all available fork-join workers.
+     * The first part of each line is treated as the key (a word), and the remaining
+     * parts are parsed as numerical values to create a {@link WordEmbedding}. If a
+     * word appears more than once, the last occurrence wins, as with
+     * {@link FileParser#parseMapFile(String, String)}.
+     * <p>
+     * Time complexity: O(n / p + w), where n is the number of bytes in the file, p
+     * is the number of workers and w is the number of words merged into the map.
+     * </p>
+     *
+     * @param fileName  the name of the file to parse
+     * @param delimiter the delimiter used to split each line
+     * @return a {@link HashMap} mapping words to their corresponding
+     *         {@link WordEmbedding} objects
+     * @throws IOException           if an I/O error occurs while reading the file
+     * @throws NumberFormatException if a non-numeric value is encountered in the
+     *                               embedding data
+     */
+    public static HashMap<String, WordEmbedding> parseMapFile(String fileName, String delimiter)
+            throws IOException, NumberFormatException {
+        return parseMapFile(fileName, delimiter, EmbeddingPrecision.FLOAT64);
+    }
+
+    /**
+     * Parses a file into a {@link HashMap} mapping strings to {@link WordEmbedding}
+     * objects, using all available fork-join workers and storing each vector at
+     * the given precision.
+     *
+     * @param fileName  the name of the file to parse
+     * @param delimiter the delimiter used to split each line
+     * @param precision the precision to store the vectors with
+     * @return a {@link HashMap} mapping words to their corresponding
+     *         {@link WordEmbedding} objects
+     * @throws IOException           if an I/O error occurs while reading the file
+     * @throws NumberFormatException if a non-numeric value is encountered in the
+     *                               embedding data
+     * @see #parseMapFile(String, String)
+     */
+    public static HashMap<String, WordEmbedding> parseMapFile(
+            String fileName,
+            String delimiter,
+            EmbeddingPrecision precision)
+            throws IOException, NumberFormatException {
+        return parseMapFile(fileName, new EmbeddingLoadOptions(delimiter, precision, 0));
+    }
+
+    /**
+     * Parses a file into a {@link HashMap} mapping strings to {@link WordEmbedding}
+     * objects as directed by a set of load options, using all available
+     * fork-join workers. Each embedding records its line in the file as its
+     * rank.
+     * <p>
+     * Only the lines within the word and byte limits of the options are read
+     * (see {@link #findLoadRange(FileChannel, int, long)}), and lines whose
+     * word is not in the vocabulary of the options are skipped without their
+     * numbers being parsed.
+     * </p>
+     *
+     * @param fileName the name of the file to parse
+     * @param options  the delimiter, precision, limits, vocabulary and progress
+     *                 counter of the load
+     * @return a {@link HashMap} mapping words to their corresponding
+     *         {@link WordEmbedding} objects
+     * @throws IOException           if an I/O error occurs while reading the file
+     * @throws NumberFormatException if a non-numeric value is encountered in the
+     *                               embedding data
+     * @see #parseMapFile(String, String)
+     */
+    public static HashMap<String, WordEmbedding> parseMapFile(String fileName, EmbeddingLoadOptions options)
+            throws IOException, NumberFormatException {
+
+        if (ArchiveFileParser.isArchiveFile(fileName)) {
+            return ArchiveFileParser.parseMapFile(fileName, options);
+        }
+
+        if (!isLiteralDelimiter(options.delimiter())) {
+            return FileParser.parseMapFile(fileName, options);
+        }
+
+        byte[] delimiterBytes = options.delimiter().getBytes(StandardCharsets.UTF_8);
+
+        try (FileChannel channel = FileChannel.open(Path.of(fileName), StandardOpenOption.READ)) {
+
+            LoadRange range = findLoadRange(channel, options.maxWords(), options.maxBytes());
+            long[] boundaries = findChunkBoundaries(channel, range.end());
+            int chunks = boundaries.length - 1;
+
+            ChunkResult[] results = new ChunkResult[chunks];
+
+            try {
+                ForkJoinPool.commonPool().invoke(
+                        new ChunkParseTask(channel, boundaries, delimiterBytes, options, results, 0, chunks));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            int total = 0;
+            for (ChunkResult result : results)
+                total += result.embeddings().size();
+
+            HashMap<String, WordEmbedding> wordEmbeddingMap = HashMap.newHashMap(total);
+
+            // Chunks number their lines from zero, so the ranks of later chunks
+            // are offset by the lines of the chunks before them
+            int firstLine = 0;
+            for (ChunkResult result : results) {
+                for (WordEmbedding wordEmbedding : result.embeddings()) {
+                    if (firstLine > 0) {
+                        wordEmbedding = new WordEmbedding(
+                                wordEmbedding.word(),
+                                wordEmbedding.vector(),
+                                wordEmbedding.rank() + firstLine);
+                    }
+                    wordEmbeddingMap.put(wordEmbedding.word(), wordEmbedding);
+                }
+                firstLine += result.lines();
+            }
+
+            return wordEmbeddingMap;
+
+        }
+
+    }
+
+    /**
+     * Checks whether a delimiter can be matched byte-for-byte, i.e. it contains no
+     * characters with a special meaning in a regular expression.
+     *
+     * @param delimiter the delimiter to check
+     * @return {@code true} if the delimiter is a plain literal, {@code false}
+     *         otherwise
+     */
+    public static boolean isLiteralDelimiter(String delimiter) {
+        if (delimiter.isEmpty())
+            return false;
+
+        for (int i = 0; i < delimiter.length(); i++) {
+            if (REGEX_METACHARACTERS.indexOf(delimiter.charAt(i)) >= 0)
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Finds the part of a file to load under a word limit and a byte limit.
+     * Files such as GloVe and word2vec are sorted by corpus frequency, so the
+     * first lines hold the most useful words. The range holds the first
+     * {@code maxWords} lines, cut short before the first line that starts at or
+     * after {@code maxBytes}. Only the line breaks are scanned, and only up to
+     * the end of the range.
+     *
+     * @param channel  the channel of the file
+     * @param maxWords the maximum number of lines, or 0 for no limit
+     * @param maxBytes the byte position lines must start before, or 0 for no
+     *                 limit
+     * @return the range to load
+     * @throws IOException if an I/O error occurs while reading the file
+     */
+    public static LoadRange findLoadRange(FileChannel channel, int maxWords, long maxBytes) throws IOException {
+        long size = channel.size();
+        long byteLimit = maxBytes > 0 ? Math.min(size, maxBytes) : size;
+        int lineLimit = maxWords > 0 ? maxWords : Integer.MAX_VALUE;
+
+        if (maxWords <= 0 && byteLimit == size)
+            return new LoadRange(size, Integer.MAX_VALUE);
+
+        ByteBuffer block = ByteBuffer.allocate(1 << 16);
+        long blockStart = 0;
+        long end = 0;
+        int lines = 0;
+
+        while (blockStart < size) {
+            block.clear();
+            int read = channel.read(block, blockStart);
+            if (read <= 0)
+                break;
+
+            for (int i = 0; i < read; i++) {
+                if (block.get(i) == '\n') {
+                    end = blockStart + i + 1;
+                    lines++;
+                    if (lines >= lineLimit || end >= byteLimit)
+                        return new LoadRange(end, lines);
+                }
+            }
+            blockStart += read;
+        }
+
+        // The last line has no line break
+        if (end < size && lines < lineLimit)
+            lines++;
+        return new LoadRange(size, lines);
+    }
+
+    /**
+     * Splits the start of a file into chunks whose boundaries fall just after a
+     * newline character. The chunk size is chosen so that every worker receives
+     * several chunks, which keeps the workers busy when line lengths vary.
+     *
+     * @param channel the channel of the file to split
+     * @param size    the number of bytes to split, ending at a line boundary
+     * @return the chunk boundaries; chunk i covers [boundaries[i],
+     *         boundaries[i + 1])
+     * @throws IOException if an I/O error occurs while reading the file
+     */
+    private static long[] findChunkBoundaries(FileChannel channel, long size) throws IOException {
+        long targetChunkBytes = size / (ForkJoinPool.getCommonPoolParallelism() * 4L);
+        targetChunkBytes = Math.max(MIN_CHUNK_BYTES, Math.min(MAX_CHUNK_BYTES, targetChunkBytes));
+
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(0L);
+
+        ByteBuffer probe = ByteBuffer.allocate(8192);
+        long position = targetChunkBytes;
+
+        while (position < size) {
+            long boundary = findNextLineStart(channel, position, probe);
+            if (boundary >= size)
+                break;
+            boundaries.add(boundary);
+            position = boundary + targetChunkBytes;
+        }
+
+        boundaries.add(size);
+
+        long[] result = new long[boundaries.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = boundaries.get(i);
+            if (i > 0 && result[i] - result[i - 1] > Integer.MAX_VALUE)
+                throw new IOException("A single line in the file is too long to be mapped");
+        }
+        return result;
+    }
+
+    /**
+     * Finds the position of the first byte after the next newline at or after the
+     * given position.
+     *
+     * @param channel  the channel of the file
+     * @param position the position to start searching from
+     * @param probe    a reusable buffer for reading ahead
+     * @return the start of the next line, or the file size if there is none
+     * @throws IOException if an I/O error occurs while reading the file
+     */
+    private static long findNextLineStart(FileChannel channel, long position, ByteBuffer probe) throws IOException {
+        while (true) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0)
+                return channel.size();
+
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n')
+                    return position + i + 1;
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Parses every line in a chunk of bytes. The rank of each embedding is its
+     * line within the chunk. Also used by {@link ArchiveFileParser} for the
+     * blocks of decompressed archives.
+     *
+     * @param buffer    the chunk, starting at the beginning of a line
+     * @param delimiter the delimiter bytes
+     * @param options   the precision, vocabulary and progress counter of the
+     *                  load
+     * @return the word embeddings in the chunk, in file order, and the number of
+     *         lines in the chunk
+     * @throws NumberFormatException if a non-numeric value is encountered
+     */
+    static ChunkResult parseChunk(ByteBuffer buffer, byte[] delimiter, EmbeddingLoadOptions options)
+            throws NumberFormatException {
+
+        EmbeddingPrecision precision = options.precision();
+        Set<String> vocabulary = options.vocabulary();
+        LoadProgress progress = options.progress();
+
+        List<WordEmbedding> embeddings = new ArrayList<>();
+        int line = 0;
+        double[] values = new double[512];
+
+        int limit = buffer.limit();
+        int lineStart = 0;
+        int reportedBytes = 0;
+
+        while (lineStart < limit) {
+            if (progress != null && lineStart - reportedBytes >= PROGRESS_STEP_BYTES) {
+                progress.addBytes(lineStart - reportedBytes);
+                reportedBytes = lineStart;
+            }
+
+            int lineEnd = indexOf(buffer, (byte) '\n', lineStart, limit);
+            int nextLineStart = lineEnd + 1;
+
+            // BufferedReader.readLine() also strips the carriage return of "\r\n"
+            if (lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r')
+                lineEnd--;
+
+            // String.split() drops trailing empty tokens
+            while (lineEnd - delimiter.length >= lineStart
+                    && matches(buffer, lineEnd - delimiter.length, delimiter))
+                lineEnd -= delimiter.length;
+
+            if (lineEnd > lineStart) {
+                int wordEnd = indexOf(buffer, delimiter, lineStart, lineEnd);
+                String word = ByteNumberScanner.decode(buffer, lineStart, wordEnd);
+                if (vocabulary != null && !vocabulary.contains(word)) {
+                    lineStart = nextLineStart;
+                    line++;
+                    continue;
+                }
+
+                int count = 0;
+                int tokenStart = wordEnd + delimiter.length;
+
+                while (tokenStart <= lineEnd && wordEnd < lineEnd) {
+                    int tokenEnd = indexOf(buffer, delimiter, tokenStart, lineEnd);
+
+                    if (count == values.length)
+                        values = Arrays.copyOf(values, count * 2);
+                    values[count++] = ByteNumberScanner.parseDouble(buffer, tokenStart, tokenEnd);
+
+                    tokenStart = tokenEnd + delimiter.length;
+                }
+
+                embeddings.add(
+                        new WordEmbedding(
+                                word,
+                                EmbeddingVector.of(Arrays.copyOf(values, count), precision),
+                                line));
+            }
+
+            lineStart = nextLineStart;
+            line++;
+        }
+
+        if (progress != null)
+            progress.addBytes(limit - reportedBytes);
+
+        return new ChunkResult(embeddings, line);
+    }
+
+    /**
+     * Finds the first occurrence of a byte in the range [from, to).
+     *
+     * @param buffer the buffer to search
+     * @param b      the byte to find
+     * @param from   the first index to check (inclusive)
+     * @param to     the last index to check (exclusive)
+     * @return the index of the byte, or {@code to} if it does not occur
+     */
+    private static int indexOf(ByteBuffer buffer, byte b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == b)
+                return i;
+        }
+        return to;
+    }
+
+    /**
+     * Finds the first occurrence of a byte sequence in the range [from, to).
+     *
+     * @param buffer   the buffer to search
+     * @param sequence the bytes to find
+     * @param from     the first index to check (inclusive)
+     * @param to       the last index to check (exclusive)
+     * @return the index of the sequence, or {@code to} if it does not occur
+     */
+    private static int indexOf(ByteBuffer buffer, byte[] sequence, int from, int to) {
+        byte first = sequence[0];
+        int last = to - sequence.length;
+
+        for (int i = from; i <= last; i++) {
+            if (buffer.get(i) == first && matches(buffer, i, sequence))
+                return i;
+        }
+        return to;
+    }
+
+    /**
+     * Checks whether a byte sequence occurs at the given index.
+     *
+     * @param buffer   the buffer to check
+     * @param index    the index at which the sequence should start
+     * @param sequence the bytes to compare
+     * @return {@code true} if the bytes match, {@code false} otherwise
+     */
+    private static boolean matches(ByteBuffer buffer, int index, byte[] sequence) {
+        for (int j = 0; j < sequence.length; j++) {
+            if (buffer.get(index + j) != sequence[j])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Record holding the part of a file to load.
+     *
+     * @param end   the position after the last byte to load, at a line boundary
+     * @param lines the number of lines to load, or {@link Integer#MAX_VALUE} if
+     *              the whole file is loaded
+     */
+    public record LoadRange(long end, int lines) {
+
+    }
+
+    /**
+     * Record holding the result of parsing one chunk.
+     *
+     * @param embeddings the word embeddings in the chunk, in file order
+     * @param lines      the number of lines in the chunk
+     */
+    record ChunkResult(List<WordEmbedding> embeddings, int lines) {
+
+    }
+
+    /**
+     * Fork-join task that parses a range of chunks, splitting the range in half
+     * until a single chunk remains.
+     */
+    private static class ChunkParseTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient FileChannel channel;
+        private final long[] boundaries;
+        private final byte[] delimiter;
+        private final transient EmbeddingLoadOptions options;
+        private final transient ChunkResult[] results;
+        private final int from;
+        private final int to;
+
+        /**
+         * Constructs a task for the chunks in the range [from, to).
+         *
+         * @param channel    the channel of the file being parsed
+         * @param boundaries the chunk boundaries
+         * @param delimiter  the delimiter bytes
+         * @param options    the options of the load
+         * @param results    the array receiving the result of each chunk
+         * @param from       the first chunk (inclusive)
+         * @param to         the last chunk (exclusive)
+         */
+        ChunkParseTask(
+                FileChannel channel,
+                long[] boundaries,
+                byte[] delimiter,
+                EmbeddingLoadOptions options,
+                ChunkResult[] results,
+                int from,
+                int to) {
+            this.channel = channel;
+            this.boundaries = boundaries;
+            this.delimiter = delimiter;
+            this.options = options;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Parses a single chunk, or forks two subtasks for each half of the range.
+         */
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                try {
+                    long start = boundaries[from];
+                    MappedByteBuffer buffer = channel.map(
+                            FileChannel.MapMode.READ_ONLY,
+                            start,
+                            boundaries[to] - start);
+                    results[from] = parseChunk(buffer, delimiter, options);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(
+                        new ChunkParseTask(channel, boundaries, delimiter, options, results, from, middle),
+                        new ChunkParseTask(channel, boundaries, delimiter, options, results, middle, to));
+            }
+        }
+    }
+
+}
@@ -2,6 +2,8 @@ package ie.atu.sw.util;
 
 import java.util.Set;
 
+import ie.atu.sw.wordembedding.PackedEmbeddingMatrix;
+
 /**
  * Interface for managing a set of replacement words.
  * Provides methods for accessing, querying, and checking properties of the word
@@ -31,4 +33,16 @@ public interface ReplacementWordSetInterface {
      */
     boolean containsWord(String word);
 
+    /**
+     * Retrieves the candidate matrix already packed from the embeddings of the
+     * words in a map, if the set was resolved against that map.
+     *
+     * @param wordEmbeddingMap the word embeddings the matrix must be packed from
+     * @return the packed matrix, or {@code null} if the set was not resolved
+     *         against the map
+     */
+    default PackedEmbeddingMatrix getCandidateMatrix(WordEmbeddingMapInterface wordEmbeddingMap) {
+        return null;
+    }
+
 }
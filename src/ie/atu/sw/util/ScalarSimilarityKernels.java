@@ -0,0 +1,120 @@
+package ie.atu.sw.util;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Implementation of {@link SimilarityKernelsInterface} with the plain loops of
+ * {@link Vector}, one element at a time. Used when the
+ * {@code jdk.incubator.vector} module is not available.
+ */
+public class ScalarSimilarityKernels implements SimilarityKernelsInterface {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double dotProduct(double[] vector1, double[] vector2) {
+        return Vector.dotProduct(vector1, vector2);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double euclideanDistanceNoSqrt(double[] vector1, double[] vector2) {
+        return Vector.euclideanDistanceNoSqrt(vector1, vector2);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double cosineSimilarity(double[] vector1, double[] vector2) {
+        return Vector.cosineSimilarity(vector1, vector2);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double dotProduct(float[] vector1, float[] vector2) {
+        return Vector.dotProduct(vector1, vector2);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double euclideanDistanceNoSqrt(float[] vector1, float[] vector2) {
+        return Vector.euclideanDistanceNoSqrt(vector1, vector2);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double cosineSimilarity(float[] vector1, float[] vector2) {
+        return Vector.cosineSimilarity(vector1, vector2);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double dotProduct(FloatBuffer rows, int offset, float[] vector) {
+        return Vector.dotProduct(rows, offset, vector);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double euclideanDistanceNoSqrt(FloatBuffer rows, int offset, float[] vector) {
+        return Vector.euclideanDistanceNoSqrt(rows, offset, vector);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double cosineSimilarity(FloatBuffer rows, int offset, float[] vector) {
+        return Vector.cosineSimilarity(rows, offset, vector);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double euclideanDistanceNoSqrt(float[] matrix, int offset, float[] vector, int from, int to) {
+        return Vector.euclideanDistanceNoSqrt(matrix, offset, vector, from, to);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void matrixVectorProduct(float[] matrix, int firstRow, int rowCount, float[] vector,
+            float[] destination) {
+        Vector.matrixVectorProduct(matrix, firstRow, rowCount, vector, destination);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void matrixMatrixProduct(float[] matrix, int firstRow, int rowCount, float[] queries, int queryCount,
+            int dimension, float[] destination) {
+        Vector.matrixMatrixProduct(matrix, firstRow, rowCount, queries, queryCount, dimension, destination);
+    }
+
+    /**
+     * Returns the name of the kernels.
+     *
+     * @return the name of the kernels
+     */
+    @Override
+    public String toString() {
+        return "Scalar";
+    }
+
+}
@@ -0,0 +1,556 @@
+package ie.atu.sw.util;
+
+import java.nio.FloatBuffer;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Implementation of {@link SimilarityKernelsInterface} with the
+ * {@code jdk.incubator.vector} API, which compiles to the widest SIMD
+ * instructions of the processor (e.g. AVX2 or AVX-512). Each kernel works on
+ * whole vectors of the preferred species with fused multiply-adds into
+ * several independent accumulators, so consecutive steps do not wait on each
+ * other, and finishes the elements that do not fill a vector one at a time.
+ * Cosine similarity accumulates the dot product and both magnitudes in a
+ * single pass.
+ * <p>
+ * The module is incubating, so this class is only loaded, by
+ * {@link Vector#getKernels()}, when the application is started with
+ * {@code --add-modules jdk.incubator.vector}. Results can differ from the
+ * scalar kernels in the last bits, as the elements are summed in a different
+ * order.
+ * </p>
+ */
+public class SimdSimilarityKernels implements SimilarityKernelsInterface {
+
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+
+    // Rows in buffers are copied into an array so that they can be loaded as
+    // vectors; the copy is a bulk memory copy
+    private static final ThreadLocal<float[]> ROW = ThreadLocal.withInitial(() -> new float[0]);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double dotProduct(double[] vector1, double[] vector2) {
+        int length = vector1.length;
+        int step = DOUBLES.length();
+        DoubleVector sum0 = DoubleVector.zero(DOUBLES);
+        DoubleVector sum1 = DoubleVector.zero(DOUBLES);
+        DoubleVector sum2 = DoubleVector.zero(DOUBLES);
+        DoubleVector sum3 = DoubleVector.zero(DOUBLES);
+
+        int i = 0;
+        for (; i <= length - 4 * step; i += 4 * step) {
+            sum0 = DoubleVector.fromArray(DOUBLES, vector1, i)
+                    .fma(DoubleVector.fromArray(DOUBLES, vector2, i), sum0);
+            sum1 = DoubleVector.fromArray(DOUBLES, vector1, i + step)
+                    .fma(DoubleVector.fromArray(DOUBLES, vector2, i + step), sum1);
+            sum2 = DoubleVector.fromArray(DOUBLES, vector1, i + 2 * step)
+                    .fma(DoubleVector.fromArray(DOUBLES, vector2, i + 2 * step), sum2);
+            sum3 = DoubleVector.fromArray(DOUBLES, vector1, i + 3 * step)
+                    .fma(DoubleVector.fromArray(DOUBLES, vector2, i + 3 * step), sum3);
+        }
+        for (; i <= length - step; i += step) {
+            sum0 = DoubleVector.fromArray(DOUBLES, vector1, i)
+                    .fma(DoubleVector.fromArray(DOUBLES, vector2, i), sum0);
+        }
+
+        double dotProduct = sum0.add(sum1).add(sum2.add(sum3)).reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++)
+            dotProduct += vector1[i] * vector2[i];
+
+        return dotProduct;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double euclideanDistanceNoSqrt(double[] vector1, double[] vector2) {
+        int length = vector1.length;
+        int step = DOUBLES.length();
+        DoubleVector sum0 = DoubleVector.zero(DOUBLES);
+        DoubleVector sum1 = DoubleVector.zero(DOUBLES);
+        DoubleVector sum2 = DoubleVector.zero(DOUBLES);
+        DoubleVector sum3 = DoubleVector.zero(DOUBLES);
+
+        int i = 0;
+        for (; i <= length - 4 * step; i += 4 * step) {
+            DoubleVector difference0 = DoubleVector.fromArray(DOUBLES, vector1, i)
+                    .sub(DoubleVector.fromArray(DOUBLES, vector2, i));
+            DoubleVector difference1 = DoubleVector.fromArray(DOUBLES, vector1, i + step)
+                    .sub(DoubleVector.fromArray(DOUBLES, vector2, i + step));
+            DoubleVector difference2 = DoubleVector.fromArray(DOUBLES, vector1, i + 2 * step)
+                    .sub(DoubleVector.fromArray(DOUBLES, vector2, i + 2 * step));
+            DoubleVector difference3 = DoubleVector.fromArray(DOUBLES, vector1, i + 3 * step)
+                    .sub(DoubleVector.fromArray(DOUBLES, vector2, i + 3 * step));
+            sum0 = difference0.fma(difference0, sum0);
+            sum1 = difference1.fma(difference1, sum1);
+            sum2 = difference2.fma(difference2, sum2);
+            sum3 = difference3.fma(difference3, sum3);
+        }
+        for (; i <= length - step; i += step) {
+            DoubleVector difference = DoubleVector.fromArray(DOUBLES, vector1, i)
+                    .sub(DoubleVector.fromArray(DOUBLES, vector2, i));
+            sum0 = difference.fma(difference, sum0);
+        }
+
+        double distance = sum0.add(sum1).add(sum2.add(sum3)).reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            double difference = vector1[i] - vector2[i];
+            distance += difference * difference;
+        }
+
+        return distance;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double cosineSimilarity(double[] vector1, double[] vector2) {
+        int length = vector1.length;
+        int step = DOUBLES.length();
+        DoubleVector dot0 = DoubleVector.zero(DOUBLES);
+        DoubleVector dot1 = DoubleVector.zero(DOUBLES);
+        DoubleVector magnitude10 = DoubleVector.zero(DOUBLES);
+        DoubleVector magnitude11 = DoubleVector.zero(DOUBLES);
+        DoubleVector magnitude20 = DoubleVector.zero(DOUBLES);
+        DoubleVector magnitude21 = DoubleVector.zero(DOUBLES);
+
+        int i = 0;
+        for (; i <= length - 2 * step; i += 2 * step) {
+            DoubleVector a0 = DoubleVector.fromArray(DOUBLES, vector1, i);
+            DoubleVector b0 = DoubleVector.fromArray(DOUBLES, vector2, i);
+            DoubleVector a1 = DoubleVector.fromArray(DOUBLES, vector1, i + step);
+            DoubleVector b1 = DoubleVector.fromArray(DOUBLES, vector2, i + step);
+            dot0 = a0.fma(b0, dot0);
+            dot1 = a1.fma(b1, dot1);
+            magnitude10 = a0.fma(a0, magnitude10);
+            magnitude11 = a1.fma(a1, magnitude11);
+            magnitude20 = b0.fma(b0, magnitude20);
+            magnitude21 = b1.fma(b1, magnitude21);
+        }
+        for (; i <= length - step; i += step) {
+            DoubleVector a = DoubleVector.fromArray(DOUBLES, vector1, i);
+            DoubleVector b = DoubleVector.fromArray(DOUBLES, vector2, i);
+            dot0 = a.fma(b, dot0);
+            magnitude10 = a.fma(a, magnitude10);
+            magnitude20 = b.fma(b, magnitude20);
+        }
+
+        double dotProduct = dot0.add(dot1).reduceLanes(VectorOperators.ADD);
+        double magnitude1 = magnitude10.add(magnitude11).reduceLanes(VectorOperators.ADD);
+        double magnitude2 = magnitude20.add(magnitude21).reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            dotProduct += vector1[i] * vector2[i];
+            magnitude1 += vector1[i] * vector1[i];
+            magnitude2 += vector2[i] * vector2[i];
+        }
+
+        return dotProduct / (Math.sqrt(magnitude1) * Math.sqrt(magnitude2));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double dotProduct(float[] vector1, float[] vector2) {
+        int length = vector1.length;
+        int step = FLOATS.length();
+        FloatVector sum0 = FloatVector.zero(FLOATS);
+        FloatVector sum1 = FloatVector.zero(FLOATS);
+        FloatVector sum2 = FloatVector.zero(FLOATS);
+        FloatVector sum3 = FloatVector.zero(FLOATS);
+
+        int i = 0;
+        for (; i <= length - 4 * step; i += 4 * step) {
+            sum0 = FloatVector.fromArray(FLOATS, vector1, i)
+                    .fma(FloatVector.fromArray(FLOATS, vector2, i), sum0);
+            sum1 = FloatVector.fromArray(FLOATS, vector1, i + step)
+                    .fma(FloatVector.fromArray(FLOATS, vector2, i + step), sum1);
+            sum2 = FloatVector.fromArray(FLOATS, vector1, i + 2 * step)
+                    .fma(FloatVector.fromArray(FLOATS, vector2, i + 2 * step), sum2);
+            sum3 = FloatVector.fromArray(FLOATS, vector1, i + 3 * step)
+                    .fma(FloatVector.fromArray(FLOATS, vector2, i + 3 * step), sum3);
+        }
+        for (; i <= length - step; i += step) {
+            sum0 = FloatVector.fromArray(FLOATS, vector1, i)
+                    .fma(FloatVector.fromArray(FLOATS, vector2, i), sum0);
+        }
+
+        float dotProduct = sum0.add(sum1).add(sum2.add(sum3)).reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++)
+            dotProduct += vector1[i] * vector2[i];
+
+        return dotProduct;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double euclideanDistanceNoSqrt(float[] vector1, float[] vector2) {
+        int length = vector1.length;
+        int step = FLOATS.length();
+        FloatVector sum0 = FloatVector.zero(FLOATS);
+        FloatVector sum1 = FloatVector.zero(FLOATS);
+        FloatVector sum2 = FloatVector.zero(FLOATS);
+        FloatVector sum3 = FloatVector.zero(FLOATS);
+
+        int i = 0;
+        for (; i <= length - 4 * step; i += 4 * step) {
+            FloatVector difference0 = FloatVector.fromArray(FLOATS, vector1, i)
+                    .sub(FloatVector.fromArray(FLOATS, vector2, i));
+            FloatVector difference1 = FloatVector.fromArray(FLOATS, vector1, i + step)
+                    .sub(FloatVector.fromArray(FLOATS, vector2, i + step));
+            FloatVector difference2 = FloatVector.fromArray(FLOATS, vector1, i + 2 * step)
+                    .sub(FloatVector.fromArray(FLOATS, vector2, i + 2 * step));
+            FloatVector difference3 = FloatVector.fromArray(FLOATS, vector1, i + 3 * step)
+                    .sub(FloatVector.fromArray(FLOATS, vector2, i + 3 * step));
+            sum0 = difference0.fma(difference0, sum0);
+            sum1 = difference1.fma(difference1, sum1);
+            sum2 = difference2.fma(difference2, sum2);
+            sum3 = difference3.fma(difference3, sum3);
+        }
+        for (; i <= length - step; i += step) {
+            FloatVector difference = FloatVector.fromArray(FLOATS, vector1, i)
+                    .sub(FloatVector.fromArray(FLOATS, vector2, i));
+            sum0 = difference.fma(difference, sum0);
+        }
+
+        float distance = sum0.add(sum1).add(sum2.add(sum3)).reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            float difference = vector1[i] - vector2[i];
+            distance += difference * difference;
+        }
+
+        return distance;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double cosineSimilarity(float[] vector1, float[] vector2) {
+        int length = vector1.length;
+        int step = FLOATS.length();
+        FloatVector dot0 = FloatVector.zero(FLOATS);
+        FloatVector dot1 = FloatVector.zero(FLOATS);
+        FloatVector magnitude10 = FloatVector.zero(FLOATS);
+        FloatVector magnitude11 = FloatVector.zero(FLOATS);
+        FloatVector magnitude20 = FloatVector.zero(FLOATS);
+        FloatVector magnitude21 = FloatVector.zero(FLOATS);
+
+        int i = 0;
+        for (; i <= length - 2 * step; i += 2 * step) {
+            FloatVector a0 = FloatVector.fromArray(FLOATS, vector1, i);
+            FloatVector b0 = FloatVector.fromArray(FLOATS, vector2, i);
+            FloatVector a1 = FloatVector.fromArray(FLOATS, vector1, i + step);
+            FloatVector b1 = FloatVector.fromArray(FLOATS, vector2, i + step);
+            dot0 = a0.fma(b0, dot0);
+            dot1 = a1.fma(b1, dot1);
+            magnitude10 = a0.fma(a0, magnitude10);
+            magnitude11 = a1.fma(a1, magnitude11);
+            magnitude20 = b0.fma(b0, magnitude20);
+            magnitude21 = b1.fma(b1, magnitude21);
+        }
+        for (; i <= length - step; i += step) {
+            FloatVector a = FloatVector.fromArray(FLOATS, vector1, i);
+            FloatVector b = FloatVector.fromArray(FLOATS, vector2, i);
+            dot0 = a.fma(b, dot0);
+            magnitude10 = a.fma(a, magnitude10);
+            magnitude20 = b.fma(b, magnitude20);
+        }
+
+        float dotProduct = dot0.add(dot1).reduceLanes(VectorOperators.ADD);
+        float magnitude1 = magnitude10.add(magnitude11).reduceLanes(VectorOperators.ADD);
+        float magnitude2 = magnitude20.add(magnitude21).reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            dotProduct += vector1[i] * vector2[i];
+            magnitude1 += vector1[i] * vector1[i];
+            magnitude2 += vector2[i] * vector2[i];
+        }
+
+        return dotProduct / (Math.sqrt(magnitude1) * Math.sqrt(magnitude2));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double dotProduct(FloatBuffer rows, int offset, float[] vector) {
+        return dotProduct(copyRow(rows, offset, vector.length), vector);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double euclideanDistanceNoSqrt(FloatBuffer rows, int offset, float[] vector) {
+        return euclideanDistanceNoSqrt(copyRow(rows, offset, vector.length), vector);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double cosineSimilarity(FloatBuffer rows, int offset, float[] vector) {
+        return cosineSimilarity(copyRow(rows, offset, vector.length), vector);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double euclideanDistanceNoSqrt(float[] matrix, int offset, float[] vector, int from, int to) {
+        int step = FLOATS.length();
+        FloatVector sum0 = FloatVector.zero(FLOATS);
+        FloatVector sum1 = FloatVector.zero(FLOATS);
+
+        int i = from;
+        for (; i <= to - 2 * step; i += 2 * step) {
+            FloatVector difference0 = FloatVector.fromArray(FLOATS, matrix, offset + i)
+                    .sub(FloatVector.fromArray(FLOATS, vector, i));
+            FloatVector difference1 = FloatVector.fromArray(FLOATS, matrix, offset + i + step)
+                    .sub(FloatVector.fromArray(FLOATS, vector, i + step));
+            sum0 = difference0.fma(difference0, sum0);
+            sum1 = difference1.fma(difference1, sum1);
+        }
+        for (; i <= to - step; i += step) {
+            FloatVector difference = FloatVector.fromArray(FLOATS, matrix, offset + i)
+                    .sub(FloatVector.fromArray(FLOATS, vector, i));
+            sum0 = difference.fma(difference, sum0);
+        }
+
+        float distance = sum0.add(sum1).reduceLanes(VectorOperators.ADD);
+        for (; i < to; i++) {
+            float difference = matrix[offset + i] - vector[i];
+            distance += difference * difference;
+        }
+
+        return distance;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Four rows are multiplied together, so each vector of query elements is
+     * loaded once for four rows.
+     * </p>
+     */
+    @Override
+    public void matrixVectorProduct(float[] matrix, int firstRow, int rowCount, float[] vector,
+            float[] destination) {
+        matrixVectorProduct(matrix, firstRow, 0, rowCount, vector, 0, vector.length, destination, 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Queries are taken in pairs against four rows at a time, so eight dot
+     * products share each load of four row vectors and two query vectors. An odd
+     * last query is multiplied on its own.
+     * </p>
+     */
+    @Override
+    public void matrixMatrixProduct(float[] matrix, int firstRow, int rowCount, float[] queries, int queryCount,
+            int dimension, float[] destination) {
+        int step = FLOATS.length();
+        int vectorEnd = dimension - dimension % step;
+        int pairedQueries = queryCount - queryCount % 2;
+        int row = 0;
+
+        for (; row <= rowCount - 4; row += 4) {
+            int base0 = (firstRow + row) * dimension;
+            int base1 = base0 + dimension;
+            int base2 = base1 + dimension;
+            int base3 = base2 + dimension;
+
+            for (int query = 0; query < pairedQueries; query += 2) {
+                int queryBase0 = query * dimension;
+                int queryBase1 = queryBase0 + dimension;
+                FloatVector sum00 = FloatVector.zero(FLOATS);
+                FloatVector sum01 = FloatVector.zero(FLOATS);
+                FloatVector sum02 = FloatVector.zero(FLOATS);
+                FloatVector sum03 = FloatVector.zero(FLOATS);
+                FloatVector sum10 = FloatVector.zero(FLOATS);
+                FloatVector sum11 = FloatVector.zero(FLOATS);
+                FloatVector sum12 = FloatVector.zero(FLOATS);
+                FloatVector sum13 = FloatVector.zero(FLOATS);
+
+                for (int i = 0; i < vectorEnd; i += step) {
+                    FloatVector query0 = FloatVector.fromArray(FLOATS, queries, queryBase0 + i);
+                    FloatVector query1 = FloatVector.fromArray(FLOATS, queries, queryBase1 + i);
+                    FloatVector row0 = FloatVector.fromArray(FLOATS, matrix, base0 + i);
+                    FloatVector row1 = FloatVector.fromArray(FLOATS, matrix, base1 + i);
+                    FloatVector row2 = FloatVector.fromArray(FLOATS, matrix, base2 + i);
+                    FloatVector row3 = FloatVector.fromArray(FLOATS, matrix, base3 + i);
+                    sum00 = row0.fma(query0, sum00);
+                    sum01 = row1.fma(query0, sum01);
+                    sum02 = row2.fma(query0, sum02);
+                    sum03 = row3.fma(query0, sum03);
+                    sum10 = row0.fma(query1, sum10);
+                    sum11 = row1.fma(query1, sum11);
+                    sum12 = row2.fma(query1, sum12);
+                    sum13 = row3.fma(query1, sum13);
+                }
+
+                float dotProduct00 = sum00.reduceLanes(VectorOperators.ADD);
+                float dotProduct01 = sum01.reduceLanes(VectorOperators.ADD);
+                float dotProduct02 = sum02.reduceLanes(VectorOperators.ADD);
+                float dotProduct03 = sum03.reduceLanes(VectorOperators.ADD);
+                float dotProduct10 = sum10.reduceLanes(VectorOperators.ADD);
+                float dotProduct11 = sum11.reduceLanes(VectorOperators.ADD);
+                float dotProduct12 = sum12.reduceLanes(VectorOperators.ADD);
+                float dotProduct13 = sum13.reduceLanes(VectorOperators.ADD);
+                for (int i = vectorEnd; i < dimension; i++) {
+                    float value0 = queries[queryBase0 + i];
+                    float value1 = queries[queryBase1 + i];
+                    dotProduct00 += matrix[base0 + i] * value0;
+                    dotProduct01 += matrix[base1 + i] * value0;
+                    dotProduct02 += matrix[base2 + i] * value0;
+                    dotProduct03 += matrix[base3 + i] * value0;
+                    dotProduct10 += matrix[base0 + i] * value1;
+                    dotProduct11 += matrix[base1 + i] * value1;
+                    dotProduct12 += matrix[base2 + i] * value1;
+                    dotProduct13 += matrix[base3 + i] * value1;
+                }
+
+                int destination0 = query * rowCount + row;
+                int destination1 = destination0 + rowCount;
+                destination[destination0] = dotProduct00;
+                destination[destination0 + 1] = dotProduct01;
+                destination[destination0 + 2] = dotProduct02;
+                destination[destination0 + 3] = dotProduct03;
+                destination[destination1] = dotProduct10;
+                destination[destination1 + 1] = dotProduct11;
+                destination[destination1 + 2] = dotProduct12;
+                destination[destination1 + 3] = dotProduct13;
+            }
+        }
+
+        for (int query = 0; query < queryCount; query++) {
+            int firstUnpaired = query < pairedQueries ? row : 0;
+            matrixVectorProduct(
+                    matrix,
+                    firstRow,
+                    firstUnpaired,
+                    rowCount,
+                    queries,
+                    query * dimension,
+                    dimension,
+                    destination,
+                    query * rowCount);
+        }
+    }
+
+    /**
+     * Computes the dot products of rows of a packed row-major matrix with a
+     * vector held at an offset in an array, four rows at a time.
+     *
+     * @param matrix            the row-major matrix
+     * @param firstRow          the first row of the block
+     * @param fromRow           the first row of the block to multiply
+     * @param rowCount          the number of rows in the block
+     * @param vector            the array holding the vector
+     * @param vectorOffset      the index of the first element of the vector
+     * @param dimension         the length of each row and of the vector
+     * @param destination       the array receiving the dot product of each row
+     *                          of the block
+     * @param destinationOffset the index to store the dot product of the first
+     *                          row of the block at
+     */
+    private static void matrixVectorProduct(float[] matrix, int firstRow, int fromRow, int rowCount,
+            float[] vector, int vectorOffset, int dimension, float[] destination, int destinationOffset) {
+        int step = FLOATS.length();
+        int vectorEnd = dimension - dimension % step;
+        int row = fromRow;
+
+        for (; row <= rowCount - 4; row += 4) {
+            int base0 = (firstRow + row) * dimension;
+            int base1 = base0 + dimension;
+            int base2 = base1 + dimension;
+            int base3 = base2 + dimension;
+            FloatVector sum0 = FloatVector.zero(FLOATS);
+            FloatVector sum1 = FloatVector.zero(FLOATS);
+            FloatVector sum2 = FloatVector.zero(FLOATS);
+            FloatVector sum3 = FloatVector.zero(FLOATS);
+
+            for (int i = 0; i < vectorEnd; i += step) {
+                FloatVector values = FloatVector.fromArray(FLOATS, vector, vectorOffset + i);
+                sum0 = FloatVector.fromArray(FLOATS, matrix, base0 + i).fma(values, sum0);
+                sum1 = FloatVector.fromArray(FLOATS, matrix, base1 + i).fma(values, sum1);
+                sum2 = FloatVector.fromArray(FLOATS, matrix, base2 + i).fma(values, sum2);
+                sum3 = FloatVector.fromArray(FLOATS, matrix, base3 + i).fma(values, sum3);
+            }
+
+            float dotProduct0 = sum0.reduceLanes(VectorOperators.ADD);
+            float dotProduct1 = sum1.reduceLanes(VectorOperators.ADD);
+            float dotProduct2 = sum2.reduceLanes(VectorOperators.ADD);
+            float dotProduct3 = sum3.reduceLanes(VectorOperators.ADD);
+            for (int i = vectorEnd; i < dimension; i++) {
+                float value = vector[vectorOffset + i];
+                dotProduct0 += matrix[base0 + i] * value;
+                dotProduct1 += matrix[base1 + i] * value;
+                dotProduct2 += matrix[base2 + i] * value;
+                dotProduct3 += matrix[base3 + i] * value;
+            }
+
+            destination[destinationOffset + row] = dotProduct0;
+            destination[destinationOffset + row + 1] = dotProduct1;
+            destination[destinationOffset + row + 2] = dotProduct2;
+            destination[destinationOffset + row + 3] = dotProduct3;
+        }
+
+        for (; row < rowCount; row++) {
+            int base = (firstRow + row) * dimension;
+            FloatVector sum = FloatVector.zero(FLOATS);
+            for (int i = 0; i < vectorEnd; i += step) {
+                sum = FloatVector.fromArray(FLOATS, matrix, base + i)
+                        .fma(FloatVector.fromArray(FLOATS, vector, vectorOffset + i), sum);
+            }
+
+            float dotProduct = sum.reduceLanes(VectorOperators.ADD);
+            for (int i = vectorEnd; i < dimension; i++)
+                dotProduct += matrix[base + i] * vector[vectorOffset + i];
+            destination[destinationOffset + row] = dotProduct;
+        }
+    }
+
+    /**
+     * Copies a row of a buffer into the row array of the calling thread.
+     *
+     * @param rows   the buffer holding the row
+     * @param offset the index of the first element of the row in the buffer
+     * @param length the length of the row
+     * @return the row array of the calling thread, holding the row
+     */
+    private static float[] copyRow(FloatBuffer rows, int offset, int length) {
+        float[] row = ROW.get();
+        if (row.length != length) {
+            row = new float[length];
+            ROW.set(row);
+        }
+        rows.get(offset, row);
+        return row;
+    }
+
+    /**
+     * Returns the name of the kernels, with the number of lanes of the vectors
+     * they use.
+     *
+     * @return the name of the kernels
+     */
+    @Override
+    public String toString() {
+        return "SIMD (" + FLOATS.length() + " floats, " + DOUBLES.length() + " doubles per vector)";
+    }
+
+}
@@ -0,0 +1,39 @@
+package ie.atu.sw.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Interface for searching a set of candidate words for the words most similar
+ * to a query embedding. Implementations are built for one set of candidates
+ * and one {@link SimilarityAlgorithm}, and may trade accuracy for speed.
+ */
+public interface SimilarWordSearchInterface {
+
+    /**
+     * Finds the candidate words most similar to the query embedding.
+     *
+     * @param query the embedding to find similar words for
+     * @param n     the maximum number of similar words to return
+     * @return up to n similar words, ordered from least to most similar
+     */
+    List<String> getSimilarWords(EmbeddingVector query, int n);
+
+    /**
+     * Finds the candidate words most similar to each of a batch of query
+     * embeddings. Searches that can share work between queries override this;
+     * the default searches for each query in turn.
+     *
+     * @param queries the embeddings to find similar words for
+     * @param n       the maximum number of similar words to return per query
+     * @return for each query, in order, up to n similar words, ordered from least
+     *         to most similar
+     */
+    default List<List<String>> getSimilarWords(List<EmbeddingVector> queries, int n) {
+        List<List<String>> similarWords = new ArrayList<>(queries.size());
+        for (EmbeddingVector query : queries)
+            similarWords.add(getSimilarWords(query, n));
+        return similarWords;
+    }
+
+}
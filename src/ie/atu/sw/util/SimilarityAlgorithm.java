@@ -1,9 +1,13 @@
 package ie.atu.sw.util;
 
+import java.nio.FloatBuffer;
+
 /**
  * Enum defining various similarity algorithms for comparing word embeddings.
  * Each algorithm implements a method for calculating similarity or distance
- * between two vectors.
+ * between two vectors. Double- and single-precision vectors are compared with
+ * the kernels of {@link Vector#getKernels()}, which are SIMD kernels when the
+ * {@code jdk.incubator.vector} module is available.
  */
 public enum SimilarityAlgorithm {
 
@@ -14,7 +18,22 @@ public enum SimilarityAlgorithm {
     DOT_PRODUCT("Dot Product", true) {
         @Override
         public double calculate(double[] vector1, double[] vector2) {
-            return Vector.dotProduct(vector1, vector2);
+            return Vector.getKernels().dotProduct(vector1, vector2);
+        }
+
+        @Override
+        public double calculate(float[] vector1, float[] vector2) {
+            return Vector.getKernels().dotProduct(vector1, vector2);
+        }
+
+        @Override
+        public double calculateFloat16(short[] vector1, short[] vector2) {
+            return Vector.dotProductFloat16(vector1, vector2);
+        }
+
+        @Override
+        public double calculate(FloatBuffer rows, int offset, float[] vector) {
+            return Vector.getKernels().dotProduct(rows, offset, vector);
         }
     },
 
@@ -25,7 +44,22 @@ public enum SimilarityAlgorithm {
     EUCLIDEAN_DISTANCE_NO_SQRT("Euclidean Distance (No Square Root)", false) {
         @Override
         public double calculate(double[] vector1, double[] vector2) {
-            return Vector.euclideanDistanceNoSqrt(vector1, vector2);
+            return Vector.getKernels().euclideanDistanceNoSqrt(vector1, vector2);
+        }
+
+        @Override
+        public double calculate(float[] vector1, float[] vector2) {
+            return Vector.getKernels().euclideanDistanceNoSqrt(vector1, vector2);
+        }
+
+        @Override
+        public double calculateFloat16(short[] vector1, short[] vector2) {
+            return Vector.euclideanDistanceNoSqrtFloat16(vector1, vector2);
+        }
+
+        @Override
+        public double calculate(FloatBuffer rows, int offset, float[] vector) {
+            return Vector.getKernels().euclideanDistanceNoSqrt(rows, offset, vector);
         }
     },
 
@@ -36,8 +70,22 @@ public enum SimilarityAlgorithm {
     EUCLIDEAN_DISTANCE("Euclidean Distance", false) {
         @Override
         public double calculate(double[] vector1, double[] vector2) {
-            return Vector.euclideanDistance(vector1, vector2);
+            return Math.sqrt(Vector.getKernels().euclideanDistanceNoSqrt(vector1, vector2));
+        }
+
+        @Override
+        public double calculate(float[] vector1, float[] vector2) {
+            return Math.sqrt(Vector.getKernels().euclideanDistanceNoSqrt(vector1, vector2));
+        }
+
+        @Override
+        public double calculateFloat16(short[] vector1, short[] vector2) {
+            return Vector.euclideanDistanceFloat16(vector1, vector2);
+        }
 
+        @Override
+        public double calculate(FloatBuffer rows, int offset, float[] vector) {
+            return Math.sqrt(Vector.getKernels().euclideanDistanceNoSqrt(rows, offset, vector));
         }
     },
 
@@ -48,7 +96,22 @@ public enum SimilarityAlgorithm {
     COSINE_SIMILARITY("Cosine Similarity", true) {
         @Override
         public double calculate(double[] vector1, double[] vector2) {
-            return Vector.cosineSimilarity(vector1, vector2);
+            return Vector.getKernels().cosineSimilarity(vector1, vector2);
+        }
+
+        @Override
+        public double calculate(float[] vector1, float[] vector2) {
+            return Vector.getKernels().cosineSimilarity(vector1, vector2);
+        }
+
+        @Override
+        public double calculateFloat16(short[] vector1, short[] vector2) {
+            return Vector.cosineSimilarityFloat16(vector1, vector2);
+        }
+
+        @Override
+        public double calculate(FloatBuffer rows, int offset, float[] vector) {
+            return Vector.getKernels().cosineSimilarity(rows, offset, vector);
         }
     };
 
@@ -96,4 +159,56 @@ public enum SimilarityAlgorithm {
      */
     public abstract double calculate(double[] vector1, double[] vector2);
 
+    /**
+     * Calculates the similarity or distance between two single-precision vectors
+     * using the algorithm.
+     *
+     * @param vector1 the first vector
+     * @param vector2 the second vector
+     * @return the calculated similarity or distance
+     */
+    public abstract double calculate(float[] vector1, float[] vector2);
+
+    /**
+     * Calculates the similarity or distance between two half-precision vectors,
+     * stored as {@link Float#floatToFloat16(float)} bits, using the algorithm.
+     *
+     * @param vector1 the first vector
+     * @param vector2 the second vector
+     * @return the calculated similarity or distance
+     */
+    public abstract double calculateFloat16(short[] vector1, short[] vector2);
+
+    /**
+     * Calculates the similarity or distance between a single-precision row held in
+     * a buffer and a single-precision vector using the algorithm. The row is read
+     * in place, without being copied.
+     *
+     * @param rows   the buffer holding the row
+     * @param offset the index of the first element of the row in the buffer
+     * @param vector the vector, whose length is the dimension of the row
+     * @return the calculated similarity or distance
+     */
+    public abstract double calculate(FloatBuffer rows, int offset, float[] vector);
+
+    /**
+     * Calculates the similarity or distance between two embedding vectors using
+     * the algorithm. Vectors stored at the same precision are handed to the
+     * kernel for that precision without conversion; mixed precisions are widened
+     * to doubles.
+     *
+     * @param vector1 the first vector
+     * @param vector2 the second vector
+     * @return the calculated similarity or distance
+     */
+    public double calculate(EmbeddingVector vector1, EmbeddingVector vector2) {
+        if (vector1 instanceof EmbeddingVector.Float32 float1 && vector2 instanceof EmbeddingVector.Float32 float2)
+            return calculate(float1.values(), float2.values());
+
+        if (vector1 instanceof EmbeddingVector.Float16 half1 && vector2 instanceof EmbeddingVector.Float16 half2)
+            return calculateFloat16(half1.values(), half2.values());
+
+        return calculate(vector1.toDoubleArray(), vector2.toDoubleArray());
+    }
+
 }
@@ -0,0 +1,152 @@
+package ie.atu.sw.util;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Interface for the similarity kernels used by {@link SimilarityAlgorithm}:
+ * the dot product, the squared Euclidean distance and the cosine similarity of
+ * double-precision vectors, single-precision vectors and single-precision rows
+ * read in place from a {@link FloatBuffer}, and the products of a packed matrix
+ * of single-precision rows with a vector or with a block of vectors. The implementation in use is chosen
+ * once, at runtime, by {@link Vector#getKernels()}.
+ */
+public interface SimilarityKernelsInterface {
+
+    /**
+     * Computes the dot product of two vectors.
+     *
+     * @param vector1 the first vector
+     * @param vector2 the second vector
+     * @return the dot product of the two vectors
+     */
+    double dotProduct(double[] vector1, double[] vector2);
+
+    /**
+     * Computes the Euclidean distance squared (without the square root)
+     * between two vectors.
+     *
+     * @param vector1 the first vector
+     * @param vector2 the second vector
+     * @return the squared Euclidean distance between the two vectors
+     */
+    double euclideanDistanceNoSqrt(double[] vector1, double[] vector2);
+
+    /**
+     * Computes the cosine similarity between two vectors.
+     *
+     * @param vector1 the first vector
+     * @param vector2 the second vector
+     * @return the cosine similarity of the two vectors
+     */
+    double cosineSimilarity(double[] vector1, double[] vector2);
+
+    /**
+     * Computes the dot product of two single-precision vectors.
+     *
+     * @param vector1 the first vector
+     * @param vector2 the second vector
+     * @return the dot product of the two vectors
+     */
+    double dotProduct(float[] vector1, float[] vector2);
+
+    /**
+     * Computes the Euclidean distance squared (without the square root)
+     * between two single-precision vectors.
+     *
+     * @param vector1 the first vector
+     * @param vector2 the second vector
+     * @return the squared Euclidean distance between the two vectors
+     */
+    double euclideanDistanceNoSqrt(float[] vector1, float[] vector2);
+
+    /**
+     * Computes the cosine similarity between two single-precision vectors.
+     *
+     * @param vector1 the first vector
+     * @param vector2 the second vector
+     * @return the cosine similarity of the two vectors
+     */
+    double cosineSimilarity(float[] vector1, float[] vector2);
+
+    /**
+     * Computes the dot product of a single-precision row held in a buffer
+     * with a single-precision vector.
+     *
+     * @param rows   the buffer holding the row
+     * @param offset the index of the first element of the row in the buffer
+     * @param vector the vector
+     * @return the dot product of the row and the vector
+     */
+    double dotProduct(FloatBuffer rows, int offset, float[] vector);
+
+    /**
+     * Computes the Euclidean distance squared (without the square root)
+     * between a single-precision row held in a buffer and a single-precision
+     * vector.
+     *
+     * @param rows   the buffer holding the row
+     * @param offset the index of the first element of the row in the buffer
+     * @param vector the vector
+     * @return the squared Euclidean distance between the row and the vector
+     */
+    double euclideanDistanceNoSqrt(FloatBuffer rows, int offset, float[] vector);
+
+    /**
+     * Computes the cosine similarity between a single-precision row held in
+     * a buffer and a single-precision vector.
+     *
+     * @param rows   the buffer holding the row
+     * @param offset the index of the first element of the row in the buffer
+     * @param vector the vector
+     * @return the cosine similarity of the row and the vector
+     */
+    double cosineSimilarity(FloatBuffer rows, int offset, float[] vector);
+
+    /**
+     * Computes part of the Euclidean distance squared (without the square root)
+     * between a row of a packed row-major matrix and a vector: the sum over the
+     * elements from index {@code from} up to {@code to} only. Summing the parts
+     * of consecutive ranges gives the whole distance, up to rounding.
+     *
+     * @param matrix the row-major matrix
+     * @param offset the index of the first element of the row in the matrix
+     * @param vector the vector
+     * @param from   the first element to include
+     * @param to     the element after the last one to include
+     * @return the partial squared Euclidean distance
+     */
+    double euclideanDistanceNoSqrt(float[] matrix, int offset, float[] vector, int from, int to);
+
+    /**
+     * Computes the dot products of consecutive rows of a packed row-major
+     * matrix with a vector, whose length is the row length. Each result equals
+     * {@link #dotProduct(float[], float[])} of the row and the vector, up to
+     * rounding.
+     *
+     * @param matrix      the row-major matrix
+     * @param firstRow    the first row to multiply
+     * @param rowCount    the number of rows to multiply
+     * @param vector      the vector
+     * @param destination the array receiving the dot product of each row, from
+     *                    index 0
+     */
+    void matrixVectorProduct(float[] matrix, int firstRow, int rowCount, float[] vector, float[] destination);
+
+    /**
+     * Computes the dot products of consecutive rows of a packed row-major
+     * matrix with each of a block of queries, also packed row-major. The rows
+     * are read once for the whole block of queries.
+     *
+     * @param matrix      the row-major matrix
+     * @param firstRow    the first row to multiply
+     * @param rowCount    the number of rows to multiply
+     * @param queries     the row-major queries
+     * @param queryCount  the number of queries
+     * @param dimension   the length of each row and query
+     * @param destination the array receiving the dot product of query q with row
+     *                    r of the block at index {@code q * rowCount + r}
+     */
+    void matrixMatrixProduct(float[] matrix, int firstRow, int rowCount, float[] queries, int queryCount,
+            int dimension, float[] destination);
+
+}
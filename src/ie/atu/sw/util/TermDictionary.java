@@ -0,0 +1,506 @@
+package ie.atu.sw.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compact dictionary mapping terms to dense integer ids 0 to n - 1. The terms
+ * are stored back to back as UTF-8 in a single byte arena, and located with a
+ * minimal perfect hash function built with the BBHash algorithm.
+ * <p>
+ * BBHash hashes every term into a bit array of about twice as many bits as
+ * there are terms. Positions hit by exactly one term are kept, and the terms
+ * that collided are hashed again into a smaller array at the next level. The
+ * slot of a term is the rank of its bit across all levels, which the
+ * dictionary maps to the term's id. The few terms still colliding after the
+ * last level are kept in an ordinary hash map.
+ * </p>
+ * <p>
+ * A lookup hashes the UTF-8 encoding of the term, probes one bit per level
+ * until it finds a set one, and compares the term with the bytes in the arena
+ * to reject terms that are not in the dictionary. Lookups accept any
+ * {@link CharSequence} or a range of UTF-8 bytes, so callers need not create a
+ * {@link String} per lookup.
+ * </p>
+ */
+public class TermDictionary {
+
+    private static final double GAMMA = 2.0;
+    private static final int MAX_LEVELS = 24;
+
+    private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+    private static final long LEVEL_SEED = 0x9E3779B97F4A7C15L;
+
+    private final byte[] arena;
+    private final int[] offsets;
+    private final long[][] levelBits;
+    private final int[][] levelRanks;
+    private final int[] slotIds;
+    private final Map<String, Integer> fallback;
+
+    /**
+     * Constructs a dictionary from its built parts.
+     *
+     * @param arena     the UTF-8 bytes of every term, in id order
+     * @param offsets   the start of each term in the arena, followed by the
+     *                  length of the arena
+     * @param levelBits the bit array of each level
+     * @param slotIds   the id of the term in each slot
+     * @param fallback  the terms that could not be placed in any level
+     */
+    private TermDictionary(
+            byte[] arena,
+            int[] offsets,
+            long[][] levelBits,
+            int[] slotIds,
+            Map<String, Integer> fallback) {
+        this.arena = arena;
+        this.offsets = offsets;
+        this.levelBits = levelBits;
+        this.slotIds = slotIds;
+        this.fallback = fallback;
+
+        // Cumulative bit counts before each 64-bit word, across all levels
+        this.levelRanks = new int[levelBits.length][];
+        int rank = 0;
+        for (int level = 0; level < levelBits.length; level++) {
+            levelRanks[level] = new int[levelBits[level].length];
+            for (int i = 0; i < levelBits[level].length; i++) {
+                levelRanks[level][i] = rank;
+                rank += Long.bitCount(levelBits[level][i]);
+            }
+        }
+    }
+
+    /**
+     * Builds a dictionary over the given terms, assigning each term its index in
+     * the array as id. Time complexity: O(n) expected, for n terms.
+     *
+     * @param terms the terms, which must be distinct
+     * @return a new dictionary
+     * @throws IllegalArgumentException if a term appears more than once, or the
+     *                                  terms do not fit in one arena
+     */
+    public static TermDictionary build(String[] terms) throws IllegalArgumentException {
+        byte[][] encodedTerms = new byte[terms.length][];
+        long arenaLength = 0;
+        for (int id = 0; id < terms.length; id++) {
+            encodedTerms[id] = terms[id].getBytes(StandardCharsets.UTF_8);
+            arenaLength += encodedTerms[id].length;
+        }
+        if (arenaLength > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Terms are too large for one arena: " + arenaLength + " bytes");
+
+        byte[] arena = new byte[(int) arenaLength];
+        int[] offsets = new int[terms.length + 1];
+        int position = 0;
+        for (int id = 0; id < terms.length; id++) {
+            offsets[id] = position;
+            System.arraycopy(encodedTerms[id], 0, arena, position, encodedTerms[id].length);
+            position += encodedTerms[id].length;
+        }
+        offsets[terms.length] = position;
+
+        return build(arena, offsets);
+    }
+
+    /**
+     * Builds a dictionary over terms already encoded in a UTF-8 arena, assigning
+     * each term its position in the arena as id. Time complexity: O(n) expected,
+     * for n terms.
+     *
+     * @param arena   the UTF-8 bytes of every term, in id order
+     * @param offsets the start of each term in the arena, followed by the length
+     *                of the arena
+     * @return a new dictionary, which keeps the arena and offsets
+     * @throws IllegalArgumentException if a term appears more than once
+     */
+    public static TermDictionary build(byte[] arena, int[] offsets) throws IllegalArgumentException {
+        int size = offsets.length - 1;
+
+        long[] hashes = new long[size];
+        int[] remaining = new int[size];
+        for (int id = 0; id < size; id++) {
+            hashes[id] = hash(arena, offsets[id], offsets[id + 1]);
+            remaining[id] = id;
+        }
+
+        long[][] levelBits = new long[MAX_LEVELS][];
+        int[][] levelIds = new int[MAX_LEVELS][];
+        int remainingCount = size;
+        int levels = 0;
+
+        while (remainingCount > 0 && levels < MAX_LEVELS) {
+            long[] bits = new long[Math.max(1, (int) Math.ceil(GAMMA * remainingCount / Long.SIZE))];
+            long[] collisions = new long[bits.length];
+            long bitCount = (long) bits.length * Long.SIZE;
+
+            for (int i = 0; i < remainingCount; i++) {
+                int bit = position(hashes[remaining[i]], levels, bitCount);
+                if (isSet(bits, bit))
+                    collisions[bit >>> 6] |= 1L << bit;
+                else
+                    bits[bit >>> 6] |= 1L << bit;
+            }
+            for (int i = 0; i < bits.length; i++)
+                bits[i] &= ~collisions[i];
+
+            int[] placed = new int[remainingCount];
+            int placedCount = 0;
+            int nextCount = 0;
+            for (int i = 0; i < remainingCount; i++) {
+                int id = remaining[i];
+                if (isSet(bits, position(hashes[id], levels, bitCount)))
+                    placed[placedCount++] = id;
+                else
+                    remaining[nextCount++] = id;
+            }
+
+            levelBits[levels] = bits;
+            levelIds[levels] = Arrays.copyOf(placed, placedCount);
+            remainingCount = nextCount;
+            levels++;
+        }
+
+        long[][] usedLevelBits = Arrays.copyOf(levelBits, levels);
+        int[] slotIds = new int[size - remainingCount];
+        TermDictionary dictionary = new TermDictionary(arena, offsets, usedLevelBits, slotIds, new HashMap<>());
+
+        for (int level = 0; level < levels; level++) {
+            long bitCount = (long) usedLevelBits[level].length * Long.SIZE;
+            for (int id : levelIds[level])
+                slotIds[dictionary.rank(level, position(hashes[id], level, bitCount))] = id;
+        }
+
+        for (int i = 0; i < remainingCount; i++) {
+            int id = remaining[i];
+            if (dictionary.fallback.put(dictionary.getTerm(id), id) != null)
+                throw new IllegalArgumentException("Duplicate term: " + dictionary.getTerm(id));
+        }
+
+        return dictionary;
+    }
+
+    /**
+     * Restores a dictionary over a UTF-8 arena from the hash function written by
+     * {@link #getHashFunctionBytes()}, without rebuilding it. Time complexity:
+     * O(n), for n terms.
+     *
+     * @param arena        the UTF-8 bytes of every term, in id order
+     * @param offsets      the start of each term in the arena, followed by the
+     *                     length of the arena
+     * @param hashFunction the hash function, read from its current position
+     * @return the restored dictionary
+     * @throws IllegalArgumentException if the hash function does not match the
+     *                                  terms
+     */
+    public static TermDictionary fromHashFunctionBytes(byte[] arena, int[] offsets, ByteBuffer hashFunction)
+            throws IllegalArgumentException {
+        ByteBuffer in = hashFunction.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+
+        long[][] levelBits = new long[in.getInt()][];
+        for (int level = 0; level < levelBits.length; level++) {
+            levelBits[level] = new long[in.getInt()];
+            in.asLongBuffer().get(levelBits[level]);
+            in.position(in.position() + levelBits[level].length * Long.BYTES);
+        }
+
+        int[] slotIds = new int[in.getInt()];
+        in.asIntBuffer().get(slotIds);
+        in.position(in.position() + slotIds.length * Integer.BYTES);
+
+        int fallbackSize = in.getInt();
+        if (slotIds.length + fallbackSize != offsets.length - 1)
+            throw new IllegalArgumentException(
+                    "Hash function covers " + (slotIds.length + fallbackSize) + " terms, expected "
+                            + (offsets.length - 1));
+
+        TermDictionary dictionary = new TermDictionary(arena, offsets, levelBits, slotIds, new HashMap<>());
+        for (int i = 0; i < fallbackSize; i++) {
+            int id = in.getInt();
+            dictionary.fallback.put(dictionary.getTerm(id), id);
+        }
+
+        return dictionary;
+    }
+
+    /**
+     * Serializes the hash function, so that it can be restored over the same
+     * arena with {@link #fromHashFunctionBytes(byte[], int[], ByteBuffer)}. The
+     * arena itself is not included. All values are little-endian.
+     *
+     * @return the serialized hash function
+     */
+    public byte[] getHashFunctionBytes() {
+        long length = Integer.BYTES;
+        for (long[] bits : levelBits)
+            length += Integer.BYTES + (long) bits.length * Long.BYTES;
+        length += Integer.BYTES + (long) slotIds.length * Integer.BYTES;
+        length += Integer.BYTES + (long) fallback.size() * Integer.BYTES;
+
+        ByteBuffer out = ByteBuffer.allocate((int) length).order(ByteOrder.LITTLE_ENDIAN);
+
+        out.putInt(levelBits.length);
+        for (long[] bits : levelBits) {
+            out.putInt(bits.length);
+            for (long word : bits)
+                out.putLong(word);
+        }
+
+        out.putInt(slotIds.length);
+        for (int id : slotIds)
+            out.putInt(id);
+
+        out.putInt(fallback.size());
+        for (int id : fallback.values())
+            out.putInt(id);
+
+        return out.array();
+    }
+
+    /**
+     * Retrieves the number of terms in the dictionary.
+     *
+     * @return the number of terms
+     */
+    public int getSize() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * Retrieves the term with the given id, decoded from the arena.
+     *
+     * @param id the id of the term
+     * @return the term
+     */
+    public String getTerm(int id) {
+        return new String(arena, offsets[id], offsets[id + 1] - offsets[id], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Looks up the id of a term given as characters. Time complexity: O(k), for a
+     * term of k characters.
+     *
+     * @param term the term
+     * @return the id of the term, or -1 if the term is not in the dictionary
+     */
+    public int getId(CharSequence term) {
+        int id = lookup(hash(term));
+        if (id >= 0)
+            return equalsTerm(id, term) ? id : -1;
+
+        if (fallback.isEmpty())
+            return -1;
+        Integer fallbackId = fallback.get(term.toString());
+        return fallbackId == null ? -1 : fallbackId;
+    }
+
+    /**
+     * Looks up the id of a term given as a range of UTF-8 bytes. Time
+     * complexity: O(k), for a term of k bytes.
+     *
+     * @param bytes the array holding the term
+     * @param start the index of the first byte of the term
+     * @param end   the index after the last byte of the term
+     * @return the id of the term, or -1 if the term is not in the dictionary
+     */
+    public int getId(byte[] bytes, int start, int end) {
+        int id = lookup(hash(bytes, start, end));
+        if (id >= 0)
+            return Arrays.equals(arena, offsets[id], offsets[id + 1], bytes, start, end) ? id : -1;
+
+        if (fallback.isEmpty())
+            return -1;
+        Integer fallbackId = fallback.get(new String(bytes, start, end - start, StandardCharsets.UTF_8));
+        return fallbackId == null ? -1 : fallbackId;
+    }
+
+    /**
+     * Finds the id in the slot a hash leads to, without verifying the term.
+     *
+     * @param hash the hash of the term
+     * @return the id in the slot, or -1 if no level has the hash's bit set
+     */
+    private int lookup(long hash) {
+        for (int level = 0; level < levelBits.length; level++) {
+            long[] bits = levelBits[level];
+            int bit = position(hash, level, (long) bits.length * Long.SIZE);
+            if (isSet(bits, bit))
+                return slotIds[rank(level, bit)];
+        }
+        return -1;
+    }
+
+    /**
+     * Counts the set bits before a bit, across all levels up to and including
+     * the given one.
+     *
+     * @param level the level of the bit
+     * @param bit   the index of the bit in the level
+     * @return the rank of the bit
+     */
+    private int rank(int level, int bit) {
+        int word = bit >>> 6;
+        long before = levelBits[level][word] & ((1L << bit) - 1);
+        return levelRanks[level][word] + Long.bitCount(before);
+    }
+
+    /**
+     * Checks whether a bit is set.
+     *
+     * @param bits the bit array
+     * @param bit  the index of the bit
+     * @return {@code true} if the bit is set, {@code false} otherwise
+     */
+    private static boolean isSet(long[] bits, int bit) {
+        return (bits[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    /**
+     * Maps a term hash to a bit position at the given level.
+     *
+     * @param hash     the hash of the term
+     * @param level    the level
+     * @param bitCount the number of bits in the level
+     * @return the bit position
+     */
+    private static int position(long hash, int level, long bitCount) {
+        return (int) Long.remainderUnsigned(mix(hash + level * LEVEL_SEED), bitCount);
+    }
+
+    /**
+     * Finalizes a hash so that every input bit affects every output bit, using
+     * the MurmurHash3 64-bit finalizer.
+     *
+     * @param hash the hash to finalize
+     * @return the finalized hash
+     */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * Hashes a range of UTF-8 bytes with 64-bit FNV-1a.
+     *
+     * @param bytes the array holding the bytes
+     * @param start the index of the first byte
+     * @param end   the index after the last byte
+     * @return the hash
+     */
+    private static long hash(byte[] bytes, int start, int end) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = start; i < end; i++)
+            hash = (hash ^ (bytes[i] & 0xFF)) * FNV_PRIME;
+        return hash;
+    }
+
+    /**
+     * Hashes the UTF-8 encoding of a character sequence with 64-bit FNV-1a,
+     * giving the same result as hashing its encoded bytes.
+     *
+     * @param term the character sequence
+     * @return the hash
+     */
+    private static long hash(CharSequence term) {
+        long hash = FNV_OFFSET_BASIS;
+        byte[] encoded = new byte[4];
+        for (int i = 0; i < term.length();) {
+            int length = encode(term, i, encoded);
+            for (int j = 0; j < length; j++)
+                hash = (hash ^ (encoded[j] & 0xFF)) * FNV_PRIME;
+            i += isSurrogatePair(term, i) ? 2 : 1;
+        }
+        return hash;
+    }
+
+    /**
+     * Compares a character sequence with the UTF-8 bytes of a term in the arena.
+     *
+     * @param id   the id of the term
+     * @param term the character sequence
+     * @return {@code true} if the sequence encodes to the term's bytes,
+     *         {@code false} otherwise
+     */
+    private boolean equalsTerm(int id, CharSequence term) {
+        int position = offsets[id];
+        int end = offsets[id + 1];
+        byte[] encoded = new byte[4];
+
+        for (int i = 0; i < term.length();) {
+            int length = encode(term, i, encoded);
+            if (position + length > end)
+                return false;
+            for (int j = 0; j < length; j++)
+                if (arena[position++] != encoded[j])
+                    return false;
+            i += isSurrogatePair(term, i) ? 2 : 1;
+        }
+
+        return position == end;
+    }
+
+    /**
+     * Checks whether a surrogate pair starts at an index of a character sequence.
+     *
+     * @param term  the character sequence
+     * @param index the index to check
+     * @return {@code true} if a high surrogate at the index is followed by a low
+     *         surrogate, {@code false} otherwise
+     */
+    private static boolean isSurrogatePair(CharSequence term, int index) {
+        return Character.isHighSurrogate(term.charAt(index))
+                && index + 1 < term.length()
+                && Character.isLowSurrogate(term.charAt(index + 1));
+    }
+
+    /**
+     * Encodes the character, or surrogate pair, at an index of a character
+     * sequence as UTF-8. Unpaired surrogates are encoded as '?', as
+     * {@link String#getBytes(java.nio.charset.Charset)} does.
+     *
+     * @param term    the character sequence
+     * @param index   the index of the character
+     * @param encoded the array receiving up to 4 bytes
+     * @return the number of bytes written
+     */
+    private static int encode(CharSequence term, int index, byte[] encoded) {
+        char c = term.charAt(index);
+
+        if (c < 0x80) {
+            encoded[0] = (byte) c;
+            return 1;
+        }
+        if (c < 0x800) {
+            encoded[0] = (byte) (0xC0 | (c >> 6));
+            encoded[1] = (byte) (0x80 | (c & 0x3F));
+            return 2;
+        }
+        if (isSurrogatePair(term, index)) {
+            int codePoint = Character.toCodePoint(c, term.charAt(index + 1));
+            encoded[0] = (byte) (0xF0 | (codePoint >> 18));
+            encoded[1] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+            encoded[2] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            encoded[3] = (byte) (0x80 | (codePoint & 0x3F));
+            return 4;
+        }
+        if (Character.isSurrogate(c)) {
+            encoded[0] = '?';
+            return 1;
+        }
+        encoded[0] = (byte) (0xE0 | (c >> 12));
+        encoded[1] = (byte) (0x80 | ((c >> 6) & 0x3F));
+        encoded[2] = (byte) (0x80 | (c & 0x3F));
+        return 3;
+    }
+
+}
@@ -1,13 +1,40 @@
 package ie.atu.sw.util;
 
+import java.nio.FloatBuffer;
+
 /**
  * Utility class providing static methods for various vector operations such as
  * addition, subtraction, dot product, Euclidean distance, and cosine
  * similarity.
+ * The similarity kernels also have single-precision ({@code float[]}) and
+ * half-precision ({@code short[]} holding binary16 bits) versions, which
+ * accumulate in single precision, and versions that read a single-precision
+ * row in place from a {@link FloatBuffer}.
+ * <p>
+ * The element-wise operations come in allocating versions, which return a new
+ * array, and versions that write into a destination array supplied by the
+ * caller, so that composite operations such as centroids and averages do not
+ * create garbage. The destination may be one of the inputs, which makes the
+ * operation in place. Single-precision operations also have versions that work
+ * on rows of packed arrays, given by offset and length, and on rows read in
+ * place from a {@link FloatBuffer}.
+ * </p>
+ * <p>
+ * These loops are the scalar similarity kernels. {@link #getKernels()} returns
+ * the kernels {@link SimilarityAlgorithm} uses, which are the SIMD kernels of
+ * {@link SimdSimilarityKernels} when the {@code jdk.incubator.vector} module is
+ * available, and these loops otherwise.
+ * </p>
  * This class is not meant to be instantiated.
  */
 public class Vector {
 
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String SIMD_KERNELS_CLASS = "ie.atu.sw.util.SimdSimilarityKernels";
+    private static final String SCALAR_PROPERTY = "simplifier.scalarKernels";
+
+    private static final SimilarityKernelsInterface KERNELS = selectKernels();
+
     /**
      * Private constructor to prevent instantiation of this utility class.
      */
@@ -15,6 +42,37 @@ public class Vector {
         // Prevent instantiation
     }
 
+    /**
+     * Retrieves the similarity kernels chosen for this run.
+     *
+     * @return the SIMD kernels if available, the scalar kernels otherwise
+     */
+    public static SimilarityKernelsInterface getKernels() {
+        return KERNELS;
+    }
+
+    /**
+     * Chooses the similarity kernels at startup. The SIMD kernels are used when
+     * the application was started with {@code --add-modules jdk.incubator.vector},
+     * unless the {@code simplifier.scalarKernels} system property is
+     * {@code true}. Their class is loaded by name, so it is never linked when the
+     * module is missing.
+     *
+     * @return the chosen kernels
+     */
+    private static SimilarityKernelsInterface selectKernels() {
+        if (Boolean.getBoolean(SCALAR_PROPERTY) || ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty())
+            return new ScalarSimilarityKernels();
+
+        try {
+            return (SimilarityKernelsInterface) Class.forName(SIMD_KERNELS_CLASS)
+                    .getDeclaredConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new ScalarSimilarityKernels();
+        }
+    }
+
     /**
      * Adds two vectors element-wise.
      *
@@ -23,12 +81,7 @@ public class Vector {
      * @return a new vector representing the element-wise sum of the input vectors
      */
     public static double[] add(double[] vector1, double[] vector2) {
-        double[] result = new double[vector1.length];
-
-        for (int i = 0; i < vector1.length; i++)
-            result[i] = vector1[i] + vector2[i];
-
-        return result;
+        return add(vector1, vector2, new double[vector1.length]);
     }
 
     /**
@@ -40,12 +93,7 @@ public class Vector {
      *         vectors
      */
     public static double[] subtract(double[] vector1, double[] vector2) {
-        double[] result = new double[vector1.length];
-
-        for (int i = 0; i < vector1.length; i++)
-            result[i] = vector1[i] - vector2[i];
-
-        return result;
+        return subtract(vector1, vector2, new double[vector1.length]);
     }
 
     /**
@@ -57,12 +105,7 @@ public class Vector {
      *         vectors
      */
     public static double[] multiply(double[] vector1, double[] vector2) {
-        double[] result = new double[vector1.length];
-
-        for (int i = 0; i < vector1.length; i++)
-            result[i] = vector1[i] * vector2[i];
-
-        return result;
+        return multiply(vector1, vector2, new double[vector1.length]);
     }
 
     /**
@@ -74,12 +117,7 @@ public class Vector {
      *         vectors
      */
     public static double[] divide(double[] vector1, double[] vector2) {
-        double[] result = new double[vector1.length];
-
-        for (int i = 0; i < vector1.length; i++)
-            result[i] = vector1[i] / vector2[i];
-
-        return result;
+        return divide(vector1, vector2, new double[vector1.length]);
     }
 
     /**
@@ -89,12 +127,604 @@ public class Vector {
      * @return a new vector with each element squared
      */
     public static double[] square(double[] vector) {
-        double[] result = new double[vector.length];
+        return square(vector, new double[vector.length]);
+    }
+
+    /**
+     * Adds two vectors element-wise into a destination vector. The destination
+     * may be one of the inputs, which adds in place.
+     *
+     * @param vector1     the first vector
+     * @param vector2     the second vector
+     * @param destination the vector receiving the sum
+     * @return the destination vector
+     */
+    public static double[] add(double[] vector1, double[] vector2, double[] destination) {
+        for (int i = 0; i < vector1.length; i++)
+            destination[i] = vector1[i] + vector2[i];
+
+        return destination;
+    }
+
+    /**
+     * Subtracts the second vector from the first element-wise into a destination
+     * vector. The destination may be one of the inputs, which subtracts in place.
+     *
+     * @param vector1     the first vector
+     * @param vector2     the second vector
+     * @param destination the vector receiving the difference
+     * @return the destination vector
+     */
+    public static double[] subtract(double[] vector1, double[] vector2, double[] destination) {
+        for (int i = 0; i < vector1.length; i++)
+            destination[i] = vector1[i] - vector2[i];
+
+        return destination;
+    }
+
+    /**
+     * Multiplies two vectors element-wise into a destination vector. The
+     * destination may be one of the inputs, which multiplies in place.
+     *
+     * @param vector1     the first vector
+     * @param vector2     the second vector
+     * @param destination the vector receiving the product
+     * @return the destination vector
+     */
+    public static double[] multiply(double[] vector1, double[] vector2, double[] destination) {
+        for (int i = 0; i < vector1.length; i++)
+            destination[i] = vector1[i] * vector2[i];
+
+        return destination;
+    }
+
+    /**
+     * Divides the first vector by the second element-wise into a destination
+     * vector. The destination may be one of the inputs, which divides in place.
+     *
+     * @param vector1     the numerator vector
+     * @param vector2     the denominator vector
+     * @param destination the vector receiving the quotient
+     * @return the destination vector
+     */
+    public static double[] divide(double[] vector1, double[] vector2, double[] destination) {
+        for (int i = 0; i < vector1.length; i++)
+            destination[i] = vector1[i] / vector2[i];
+
+        return destination;
+    }
+
+    /**
+     * Squares each element of a vector into a destination vector. The
+     * destination may be the input, which squares in place.
+     *
+     * @param vector      the input vector
+     * @param destination the vector receiving the squares
+     * @return the destination vector
+     */
+    public static double[] square(double[] vector, double[] destination) {
+        for (int i = 0; i < vector.length; i++)
+            destination[i] = vector[i] * vector[i];
+
+        return destination;
+    }
+
+    /**
+     * Multiplies each element of a vector by a scalar into a destination vector.
+     * The destination may be the input, which scales in place.
+     *
+     * @param alpha       the scalar
+     * @param vector      the input vector
+     * @param destination the vector receiving the scaled vector
+     * @return the destination vector
+     */
+    public static double[] scale(double alpha, double[] vector, double[] destination) {
+        for (int i = 0; i < vector.length; i++)
+            destination[i] = alpha * vector[i];
+
+        return destination;
+    }
+
+    /**
+     * Adds a scaled vector to another in place: {@code y = alpha * x + y}. This
+     * is the accumulation step of sums, centroids and averages.
+     *
+     * @param alpha the scalar
+     * @param x     the vector to scale
+     * @param y     the vector to add to, which receives the result
+     * @return the vector y
+     */
+    public static double[] axpy(double alpha, double[] x, double[] y) {
+        for (int i = 0; i < x.length; i++)
+            y[i] += alpha * x[i];
+
+        return y;
+    }
+
+    /**
+     * Adds two scaled vectors into a destination vector:
+     * {@code destination = alpha * vector1 + beta * vector2}. The destination
+     * may be one of the inputs. Used for interpolations and analogies.
+     *
+     * @param alpha       the scalar for the first vector
+     * @param vector1     the first vector
+     * @param beta        the scalar for the second vector
+     * @param vector2     the second vector
+     * @param destination the vector receiving the result
+     * @return the destination vector
+     */
+    public static double[] scaledAdd(double alpha, double[] vector1, double beta, double[] vector2,
+            double[] destination) {
+        for (int i = 0; i < vector1.length; i++)
+            destination[i] = alpha * vector1[i] + beta * vector2[i];
+
+        return destination;
+    }
+
+    /**
+     * Computes the Euclidean norm (magnitude) of a vector. Time Complexity: O(n).
+     *
+     * @param vector the input vector
+     * @return the norm of the vector
+     */
+    public static double norm(double[] vector) {
+        return Math.sqrt(dotProduct(vector, vector));
+    }
+
+    /**
+     * Scales a vector to unit length in place. A zero vector is left as it is.
+     *
+     * @param vector the vector to normalize
+     * @return the norm of the vector before it was scaled
+     */
+    public static double normalize(double[] vector) {
+        double norm = norm(vector);
+        if (norm > 0.0)
+            scale(1.0 / norm, vector, vector);
+
+        return norm;
+    }
+
+    /**
+     * Adds two single-precision vectors element-wise into a destination vector.
+     * The destination may be one of the inputs, which adds in place.
+     *
+     * @param vector1     the first vector
+     * @param vector2     the second vector
+     * @param destination the vector receiving the sum
+     * @return the destination vector
+     */
+    public static float[] add(float[] vector1, float[] vector2, float[] destination) {
+        add(vector1, 0, vector2, 0, destination, 0, vector1.length);
+        return destination;
+    }
+
+    /**
+     * Subtracts the second single-precision vector from the first element-wise
+     * into a destination vector. The destination may be one of the inputs.
+     *
+     * @param vector1     the first vector
+     * @param vector2     the second vector
+     * @param destination the vector receiving the difference
+     * @return the destination vector
+     */
+    public static float[] subtract(float[] vector1, float[] vector2, float[] destination) {
+        subtract(vector1, 0, vector2, 0, destination, 0, vector1.length);
+        return destination;
+    }
+
+    /**
+     * Multiplies two single-precision vectors element-wise into a destination
+     * vector. The destination may be one of the inputs.
+     *
+     * @param vector1     the first vector
+     * @param vector2     the second vector
+     * @param destination the vector receiving the product
+     * @return the destination vector
+     */
+    public static float[] multiply(float[] vector1, float[] vector2, float[] destination) {
+        multiply(vector1, 0, vector2, 0, destination, 0, vector1.length);
+        return destination;
+    }
+
+    /**
+     * Divides the first single-precision vector by the second element-wise into
+     * a destination vector. The destination may be one of the inputs.
+     *
+     * @param vector1     the numerator vector
+     * @param vector2     the denominator vector
+     * @param destination the vector receiving the quotient
+     * @return the destination vector
+     */
+    public static float[] divide(float[] vector1, float[] vector2, float[] destination) {
+        divide(vector1, 0, vector2, 0, destination, 0, vector1.length);
+        return destination;
+    }
+
+    /**
+     * Squares each element of a single-precision vector into a destination
+     * vector. The destination may be the input.
+     *
+     * @param vector      the input vector
+     * @param destination the vector receiving the squares
+     * @return the destination vector
+     */
+    public static float[] square(float[] vector, float[] destination) {
+        square(vector, 0, destination, 0, vector.length);
+        return destination;
+    }
+
+    /**
+     * Multiplies each element of a single-precision vector by a scalar into a
+     * destination vector. The destination may be the input.
+     *
+     * @param alpha       the scalar
+     * @param vector      the input vector
+     * @param destination the vector receiving the scaled vector
+     * @return the destination vector
+     */
+    public static float[] scale(float alpha, float[] vector, float[] destination) {
+        scale(alpha, vector, 0, destination, 0, vector.length);
+        return destination;
+    }
+
+    /**
+     * Adds a scaled single-precision vector to another in place:
+     * {@code y = alpha * x + y}.
+     *
+     * @param alpha the scalar
+     * @param x     the vector to scale
+     * @param y     the vector to add to, which receives the result
+     * @return the vector y
+     */
+    public static float[] axpy(float alpha, float[] x, float[] y) {
+        axpy(alpha, x, 0, y, 0, x.length);
+        return y;
+    }
+
+    /**
+     * Adds two scaled single-precision vectors into a destination vector:
+     * {@code destination = alpha * vector1 + beta * vector2}. The destination
+     * may be one of the inputs.
+     *
+     * @param alpha       the scalar for the first vector
+     * @param vector1     the first vector
+     * @param beta        the scalar for the second vector
+     * @param vector2     the second vector
+     * @param destination the vector receiving the result
+     * @return the destination vector
+     */
+    public static float[] scaledAdd(float alpha, float[] vector1, float beta, float[] vector2,
+            float[] destination) {
+        scaledAdd(alpha, vector1, 0, beta, vector2, 0, destination, 0, vector1.length);
+        return destination;
+    }
+
+    /**
+     * Computes the Euclidean norm of a single-precision vector, accumulating in
+     * double precision. Time Complexity: O(n).
+     *
+     * @param vector the input vector
+     * @return the norm of the vector
+     */
+    public static double norm(float[] vector) {
+        return norm(vector, 0, vector.length);
+    }
+
+    /**
+     * Scales a single-precision vector to unit length in place. A zero vector is
+     * left as it is.
+     *
+     * @param vector the vector to normalize
+     * @return the norm of the vector before it was scaled
+     */
+    public static double normalize(float[] vector) {
+        return normalize(vector, 0, vector.length);
+    }
+
+    /**
+     * Adds two single-precision rows of packed arrays element-wise into a row of
+     * a destination array. The destination row may overlap an input row only if
+     * it starts at the same index.
+     *
+     * @param vector1           the array holding the first row
+     * @param offset1           the index of the first element of the first row
+     * @param vector2           the array holding the second row
+     * @param offset2           the index of the first element of the second row
+     * @param destination       the array receiving the sum
+     * @param destinationOffset the index of the first element of the result
+     * @param length            the number of elements in each row
+     */
+    public static void add(float[] vector1, int offset1, float[] vector2, int offset2,
+            float[] destination, int destinationOffset, int length) {
+        for (int i = 0; i < length; i++)
+            destination[destinationOffset + i] = vector1[offset1 + i] + vector2[offset2 + i];
+    }
+
+    /**
+     * Subtracts a single-precision row of a packed array from another
+     * element-wise into a row of a destination array.
+     *
+     * @param vector1           the array holding the first row
+     * @param offset1           the index of the first element of the first row
+     * @param vector2           the array holding the second row
+     * @param offset2           the index of the first element of the second row
+     * @param destination       the array receiving the difference
+     * @param destinationOffset the index of the first element of the result
+     * @param length            the number of elements in each row
+     */
+    public static void subtract(float[] vector1, int offset1, float[] vector2, int offset2,
+            float[] destination, int destinationOffset, int length) {
+        for (int i = 0; i < length; i++)
+            destination[destinationOffset + i] = vector1[offset1 + i] - vector2[offset2 + i];
+    }
+
+    /**
+     * Multiplies two single-precision rows of packed arrays element-wise into a
+     * row of a destination array.
+     *
+     * @param vector1           the array holding the first row
+     * @param offset1           the index of the first element of the first row
+     * @param vector2           the array holding the second row
+     * @param offset2           the index of the first element of the second row
+     * @param destination       the array receiving the product
+     * @param destinationOffset the index of the first element of the result
+     * @param length            the number of elements in each row
+     */
+    public static void multiply(float[] vector1, int offset1, float[] vector2, int offset2,
+            float[] destination, int destinationOffset, int length) {
+        for (int i = 0; i < length; i++)
+            destination[destinationOffset + i] = vector1[offset1 + i] * vector2[offset2 + i];
+    }
+
+    /**
+     * Divides a single-precision row of a packed array by another element-wise
+     * into a row of a destination array.
+     *
+     * @param vector1           the array holding the numerator row
+     * @param offset1           the index of the first element of the numerator
+     * @param vector2           the array holding the denominator row
+     * @param offset2           the index of the first element of the denominator
+     * @param destination       the array receiving the quotient
+     * @param destinationOffset the index of the first element of the result
+     * @param length            the number of elements in each row
+     */
+    public static void divide(float[] vector1, int offset1, float[] vector2, int offset2,
+            float[] destination, int destinationOffset, int length) {
+        for (int i = 0; i < length; i++)
+            destination[destinationOffset + i] = vector1[offset1 + i] / vector2[offset2 + i];
+    }
+
+    /**
+     * Squares each element of a single-precision row of a packed array into a
+     * row of a destination array.
+     *
+     * @param vector            the array holding the row
+     * @param offset            the index of the first element of the row
+     * @param destination       the array receiving the squares
+     * @param destinationOffset the index of the first element of the result
+     * @param length            the number of elements in the row
+     */
+    public static void square(float[] vector, int offset, float[] destination, int destinationOffset,
+            int length) {
+        for (int i = 0; i < length; i++)
+            destination[destinationOffset + i] = vector[offset + i] * vector[offset + i];
+    }
+
+    /**
+     * Multiplies each element of a single-precision row of a packed array by a
+     * scalar into a row of a destination array.
+     *
+     * @param alpha             the scalar
+     * @param vector            the array holding the row
+     * @param offset            the index of the first element of the row
+     * @param destination       the array receiving the scaled row
+     * @param destinationOffset the index of the first element of the result
+     * @param length            the number of elements in the row
+     */
+    public static void scale(float alpha, float[] vector, int offset, float[] destination,
+            int destinationOffset, int length) {
+        for (int i = 0; i < length; i++)
+            destination[destinationOffset + i] = alpha * vector[offset + i];
+    }
+
+    /**
+     * Adds a scaled single-precision row of a packed array to a row of another
+     * in place: {@code y = alpha * x + y}.
+     *
+     * @param alpha   the scalar
+     * @param x       the array holding the row to scale
+     * @param xOffset the index of the first element of the row to scale
+     * @param y       the array holding the row to add to
+     * @param yOffset the index of the first element of the row to add to
+     * @param length  the number of elements in each row
+     */
+    public static void axpy(float alpha, float[] x, int xOffset, float[] y, int yOffset, int length) {
+        for (int i = 0; i < length; i++)
+            y[yOffset + i] += alpha * x[xOffset + i];
+    }
+
+    /**
+     * Adds two scaled single-precision rows of packed arrays into a row of a
+     * destination array: {@code destination = alpha * vector1 + beta * vector2}.
+     *
+     * @param alpha             the scalar for the first row
+     * @param vector1           the array holding the first row
+     * @param offset1           the index of the first element of the first row
+     * @param beta              the scalar for the second row
+     * @param vector2           the array holding the second row
+     * @param offset2           the index of the first element of the second row
+     * @param destination       the array receiving the result
+     * @param destinationOffset the index of the first element of the result
+     * @param length            the number of elements in each row
+     */
+    public static void scaledAdd(float alpha, float[] vector1, int offset1, float beta, float[] vector2,
+            int offset2, float[] destination, int destinationOffset, int length) {
+        for (int i = 0; i < length; i++)
+            destination[destinationOffset + i] = alpha * vector1[offset1 + i] + beta * vector2[offset2 + i];
+    }
+
+    /**
+     * Computes the Euclidean norm of a single-precision row of a packed array,
+     * accumulating in double precision. Time Complexity: O(n).
+     *
+     * @param vector the array holding the row
+     * @param offset the index of the first element of the row
+     * @param length the number of elements in the row
+     * @return the norm of the row
+     */
+    public static double norm(float[] vector, int offset, int length) {
+        double squaredNorm = 0.0;
+        for (int i = 0; i < length; i++)
+            squaredNorm += (double) vector[offset + i] * vector[offset + i];
+
+        return Math.sqrt(squaredNorm);
+    }
+
+    /**
+     * Scales a single-precision row of a packed array to unit length in place. A
+     * zero row is left as it is.
+     *
+     * @param vector the array holding the row
+     * @param offset the index of the first element of the row
+     * @param length the number of elements in the row
+     * @return the norm of the row before it was scaled
+     */
+    public static double normalize(float[] vector, int offset, int length) {
+        double norm = norm(vector, offset, length);
+        if (norm > 0.0) {
+            double inverseNorm = 1.0 / norm;
+            for (int i = 0; i < length; i++)
+                vector[offset + i] = (float) (vector[offset + i] * inverseNorm);
+        }
+
+        return norm;
+    }
+
+    /**
+     * Adds a single-precision row held in a buffer and a single-precision vector
+     * element-wise into a destination vector, reading the row in place.
+     *
+     * @param rows        the buffer holding the row
+     * @param offset      the index of the first element of the row in the buffer
+     * @param vector      the vector
+     * @param destination the vector receiving the sum; may be the input vector
+     * @return the destination vector
+     */
+    public static float[] add(FloatBuffer rows, int offset, float[] vector, float[] destination) {
+        for (int i = 0; i < vector.length; i++)
+            destination[i] = rows.get(offset + i) + vector[i];
+
+        return destination;
+    }
+
+    /**
+     * Subtracts a single-precision vector from a row held in a buffer
+     * element-wise into a destination vector, reading the row in place.
+     *
+     * @param rows        the buffer holding the row
+     * @param offset      the index of the first element of the row in the buffer
+     * @param vector      the vector
+     * @param destination the vector receiving the difference; may be the input
+     *                    vector
+     * @return the destination vector
+     */
+    public static float[] subtract(FloatBuffer rows, int offset, float[] vector, float[] destination) {
+        for (int i = 0; i < vector.length; i++)
+            destination[i] = rows.get(offset + i) - vector[i];
+
+        return destination;
+    }
+
+    /**
+     * Multiplies a single-precision row held in a buffer and a single-precision
+     * vector element-wise into a destination vector, reading the row in place.
+     *
+     * @param rows        the buffer holding the row
+     * @param offset      the index of the first element of the row in the buffer
+     * @param vector      the vector
+     * @param destination the vector receiving the product; may be the input
+     *                    vector
+     * @return the destination vector
+     */
+    public static float[] multiply(FloatBuffer rows, int offset, float[] vector, float[] destination) {
+        for (int i = 0; i < vector.length; i++)
+            destination[i] = rows.get(offset + i) * vector[i];
+
+        return destination;
+    }
 
+    /**
+     * Divides a single-precision row held in a buffer by a single-precision
+     * vector element-wise into a destination vector, reading the row in place.
+     *
+     * @param rows        the buffer holding the numerator row
+     * @param offset      the index of the first element of the row in the buffer
+     * @param vector      the denominator vector
+     * @param destination the vector receiving the quotient; may be the input
+     *                    vector
+     * @return the destination vector
+     */
+    public static float[] divide(FloatBuffer rows, int offset, float[] vector, float[] destination) {
         for (int i = 0; i < vector.length; i++)
-            result[i] = vector[i] * vector[i];
+            destination[i] = rows.get(offset + i) / vector[i];
 
-        return result;
+        return destination;
+    }
+
+    /**
+     * Squares each element of a single-precision row held in a buffer into a
+     * destination vector, reading the row in place.
+     *
+     * @param rows        the buffer holding the row
+     * @param offset      the index of the first element of the row in the buffer
+     * @param destination the vector receiving the squares, as long as the row
+     * @return the destination vector
+     */
+    public static float[] square(FloatBuffer rows, int offset, float[] destination) {
+        for (int i = 0; i < destination.length; i++) {
+            float value = rows.get(offset + i);
+            destination[i] = value * value;
+        }
+
+        return destination;
+    }
+
+    /**
+     * Adds a scaled single-precision row held in a buffer to a vector in place:
+     * {@code y = alpha * row + y}, reading the row in place.
+     *
+     * @param alpha  the scalar
+     * @param rows   the buffer holding the row
+     * @param offset the index of the first element of the row in the buffer
+     * @param y      the vector to add to, which receives the result
+     * @return the vector y
+     */
+    public static float[] axpy(float alpha, FloatBuffer rows, int offset, float[] y) {
+        for (int i = 0; i < y.length; i++)
+            y[i] += alpha * rows.get(offset + i);
+
+        return y;
+    }
+
+    /**
+     * Computes the Euclidean norm of a single-precision row held in a buffer,
+     * reading the row in place and accumulating in double precision. Time
+     * Complexity: O(n).
+     *
+     * @param rows   the buffer holding the row
+     * @param offset the index of the first element of the row in the buffer
+     * @param length the number of elements in the row
+     * @return the norm of the row
+     */
+    public static double norm(FloatBuffer rows, int offset, int length) {
+        double squaredNorm = 0.0;
+        for (int i = 0; i < length; i++) {
+            double value = rows.get(offset + i);
+            squaredNorm += value * value;
+        }
+
+        return Math.sqrt(squaredNorm);
     }
 
     /**
@@ -184,4 +814,354 @@ public class Vector {
         return dotProduct / (Math.sqrt(magnitude1) * Math.sqrt(magnitude2));
     }
 
+    /**
+     * Computes the dot product of two single-precision vectors. Time Complexity:
+     * O(n).
+     *
+     * @param vector1 the first vector
+     * @param vector2 the second vector
+     * @return the dot product of the two vectors
+     */
+    public static double dotProduct(float[] vector1, float[] vector2) {
+        float dotProduct = 0.0f;
+
+        for (int i = 0; i < vector1.length; i++) {
+            dotProduct += vector1[i] * vector2[i];
+        }
+
+        return dotProduct;
+    }
+
+    /**
+     * Computes the Euclidean distance squared (without the square root) between two
+     * single-precision vectors. Time Complexity: O(n).
+     *
+     * @param vector1 the first vector
+     * @param vector2 the second vector
+     * @return the squared Euclidean distance between the two vectors
+     */
+    public static double euclideanDistanceNoSqrt(float[] vector1, float[] vector2) {
+        float distance = 0.0f;
+
+        for (int i = 0; i < vector1.length; i++) {
+            float difference = vector1[i] - vector2[i];
+            distance += difference * difference;
+        }
+
+        return distance;
+    }
+
+    /**
+     * Computes part of the Euclidean distance squared (without the square root)
+     * between a single-precision row of a packed array and a vector, over the
+     * elements from index {@code from} up to {@code to}. Time Complexity:
+     * O(to - from).
+     *
+     * @param matrix the array holding the row
+     * @param offset the index of the first element of the row
+     * @param vector the vector
+     * @param from   the first element to include
+     * @param to     the element after the last one to include
+     * @return the partial squared Euclidean distance
+     */
+    public static double euclideanDistanceNoSqrt(float[] matrix, int offset, float[] vector, int from, int to) {
+        float distance = 0.0f;
+
+        for (int i = from; i < to; i++) {
+            float difference = matrix[offset + i] - vector[i];
+            distance += difference * difference;
+        }
+
+        return distance;
+    }
+
+    /**
+     * Computes the Euclidean distance between two single-precision vectors. Time
+     * Complexity: O(n).
+     *
+     * @param vector1 the first vector
+     * @param vector2 the second vector
+     * @return the Euclidean distance between the two vectors
+     */
+    public static double euclideanDistance(float[] vector1, float[] vector2) {
+        return Math.sqrt(euclideanDistanceNoSqrt(vector1, vector2));
+    }
+
+    /**
+     * Computes the cosine similarity between two single-precision vectors. Time
+     * Complexity: O(n).
+     *
+     * @param vector1 the first vector
+     * @param vector2 the second vector
+     * @return the cosine similarity of the two vectors
+     */
+    public static double cosineSimilarity(float[] vector1, float[] vector2) {
+        float dotProduct = 0.0f;
+        float magnitude1 = 0.0f;
+        float magnitude2 = 0.0f;
+
+        for (int i = 0; i < vector1.length; i++) {
+            dotProduct += vector1[i] * vector2[i];
+            magnitude1 += vector1[i] * vector1[i];
+            magnitude2 += vector2[i] * vector2[i];
+        }
+
+        return dotProduct / (Math.sqrt(magnitude1) * Math.sqrt(magnitude2));
+    }
+
+    /**
+     * Computes the dot product of two half-precision vectors, stored as
+     * {@link Float#floatToFloat16(float)} bits. Time Complexity: O(n).
+     *
+     * @param vector1 the first vector
+     * @param vector2 the second vector
+     * @return the dot product of the two vectors
+     */
+    public static double dotProductFloat16(short[] vector1, short[] vector2) {
+        float dotProduct = 0.0f;
+
+        for (int i = 0; i < vector1.length; i++) {
+            dotProduct += Float.float16ToFloat(vector1[i]) * Float.float16ToFloat(vector2[i]);
+        }
+
+        return dotProduct;
+    }
+
+    /**
+     * Computes the dot products of consecutive rows of a packed row-major
+     * single-precision matrix with a vector. Four rows are multiplied together,
+     * so each element of the vector is loaded once for four rows and the four
+     * sums do not wait on each other. Each sum is accumulated in the same order
+     * as {@link #dotProduct(float[], float[])}. Time Complexity: O(r⋅n), for r
+     * rows of n elements.
+     *
+     * @param matrix      the row-major matrix
+     * @param firstRow    the first row to multiply
+     * @param rowCount    the number of rows to multiply
+     * @param vector      the vector, as long as a row
+     * @param destination the array receiving the dot product of each row, from
+     *                    index 0
+     */
+    public static void matrixVectorProduct(float[] matrix, int firstRow, int rowCount, float[] vector,
+            float[] destination) {
+        matrixVectorProduct(matrix, firstRow, rowCount, vector, 0, vector.length, destination, 0);
+    }
+
+    /**
+     * Computes the dot products of consecutive rows of a packed row-major
+     * single-precision matrix with each of a block of queries, also packed
+     * row-major. The caller chooses a block of rows small enough to stay in the
+     * cache while every query is multiplied with it. Time Complexity: O(q⋅r⋅n),
+     * for q queries and r rows of n elements.
+     *
+     * @param matrix      the row-major matrix
+     * @param firstRow    the first row to multiply
+     * @param rowCount    the number of rows to multiply
+     * @param queries     the row-major queries
+     * @param queryCount  the number of queries
+     * @param dimension   the length of each row and query
+     * @param destination the array receiving the dot product of query q with row
+     *                    r of the block at index {@code q * rowCount + r}
+     */
+    public static void matrixMatrixProduct(float[] matrix, int firstRow, int rowCount, float[] queries,
+            int queryCount, int dimension, float[] destination) {
+        for (int query = 0; query < queryCount; query++) {
+            matrixVectorProduct(
+                    matrix,
+                    firstRow,
+                    rowCount,
+                    queries,
+                    query * dimension,
+                    dimension,
+                    destination,
+                    query * rowCount);
+        }
+    }
+
+    /**
+     * Computes the dot products of consecutive rows of a packed row-major
+     * single-precision matrix with a vector held at an offset in an array, four
+     * rows at a time.
+     *
+     * @param matrix            the row-major matrix
+     * @param firstRow          the first row to multiply
+     * @param rowCount          the number of rows to multiply
+     * @param vector            the array holding the vector
+     * @param vectorOffset      the index of the first element of the vector
+     * @param dimension         the length of each row and of the vector
+     * @param destination       the array receiving the dot products
+     * @param destinationOffset the index to store the first dot product at
+     */
+    private static void matrixVectorProduct(float[] matrix, int firstRow, int rowCount, float[] vector,
+            int vectorOffset, int dimension, float[] destination, int destinationOffset) {
+        int row = 0;
+
+        for (; row <= rowCount - 4; row += 4) {
+            int base0 = (firstRow + row) * dimension;
+            int base1 = base0 + dimension;
+            int base2 = base1 + dimension;
+            int base3 = base2 + dimension;
+            float dotProduct0 = 0.0f;
+            float dotProduct1 = 0.0f;
+            float dotProduct2 = 0.0f;
+            float dotProduct3 = 0.0f;
+
+            for (int i = 0; i < dimension; i++) {
+                float value = vector[vectorOffset + i];
+                dotProduct0 += matrix[base0 + i] * value;
+                dotProduct1 += matrix[base1 + i] * value;
+                dotProduct2 += matrix[base2 + i] * value;
+                dotProduct3 += matrix[base3 + i] * value;
+            }
+
+            destination[destinationOffset + row] = dotProduct0;
+            destination[destinationOffset + row + 1] = dotProduct1;
+            destination[destinationOffset + row + 2] = dotProduct2;
+            destination[destinationOffset + row + 3] = dotProduct3;
+        }
+
+        for (; row < rowCount; row++) {
+            int base = (firstRow + row) * dimension;
+            float dotProduct = 0.0f;
+            for (int i = 0; i < dimension; i++)
+                dotProduct += matrix[base + i] * vector[vectorOffset + i];
+            destination[destinationOffset + row] = dotProduct;
+        }
+    }
+
+    /**
+     * Computes the Euclidean distance squared (without the square root) between two
+     * half-precision vectors, stored as {@link Float#floatToFloat16(float)} bits.
+     * Time Complexity: O(n).
+     *
+     * @param vector1 the first vector
+     * @param vector2 the second vector
+     * @return the squared Euclidean distance between the two vectors
+     */
+    public static double euclideanDistanceNoSqrtFloat16(short[] vector1, short[] vector2) {
+        float distance = 0.0f;
+
+        for (int i = 0; i < vector1.length; i++) {
+            float difference = Float.float16ToFloat(vector1[i]) - Float.float16ToFloat(vector2[i]);
+            distance += difference * difference;
+        }
+
+        return distance;
+    }
+
+    /**
+     * Computes the Euclidean distance between two half-precision vectors, stored as
+     * {@link Float#floatToFloat16(float)} bits. Time Complexity: O(n).
+     *
+     * @param vector1 the first vector
+     * @param vector2 the second vector
+     * @return the Euclidean distance between the two vectors
+     */
+    public static double euclideanDistanceFloat16(short[] vector1, short[] vector2) {
+        return Math.sqrt(euclideanDistanceNoSqrtFloat16(vector1, vector2));
+    }
+
+    /**
+     * Computes the cosine similarity between two half-precision vectors, stored as
+     * {@link Float#floatToFloat16(float)} bits. Time Complexity: O(n).
+     *
+     * @param vector1 the first vector
+     * @param vector2 the second vector
+     * @return the cosine similarity of the two vectors
+     */
+    public static double cosineSimilarityFloat16(short[] vector1, short[] vector2) {
+        float dotProduct = 0.0f;
+        float magnitude1 = 0.0f;
+        float magnitude2 = 0.0f;
+
+        for (int i = 0; i < vector1.length; i++) {
+            float value1 = Float.float16ToFloat(vector1[i]);
+            float value2 = Float.float16ToFloat(vector2[i]);
+            dotProduct += value1 * value2;
+            magnitude1 += value1 * value1;
+            magnitude2 += value2 * value2;
+        }
+
+        return dotProduct / (Math.sqrt(magnitude1) * Math.sqrt(magnitude2));
+    }
+
+    /**
+     * Computes the dot product of a single-precision row held in a buffer with a
+     * single-precision vector, reading the row in place. Time Complexity: O(n).
+     *
+     * @param rows   the buffer holding the row
+     * @param offset the index of the first element of the row in the buffer
+     * @param vector the vector
+     * @return the dot product of the row and the vector
+     */
+    public static double dotProduct(FloatBuffer rows, int offset, float[] vector) {
+        float dotProduct = 0.0f;
+
+        for (int i = 0; i < vector.length; i++) {
+            dotProduct += rows.get(offset + i) * vector[i];
+        }
+
+        return dotProduct;
+    }
+
+    /**
+     * Computes the Euclidean distance squared (without the square root) between a
+     * single-precision row held in a buffer and a single-precision vector, reading
+     * the row in place. Time Complexity: O(n).
+     *
+     * @param rows   the buffer holding the row
+     * @param offset the index of the first element of the row in the buffer
+     * @param vector the vector
+     * @return the squared Euclidean distance between the row and the vector
+     */
+    public static double euclideanDistanceNoSqrt(FloatBuffer rows, int offset, float[] vector) {
+        float distance = 0.0f;
+
+        for (int i = 0; i < vector.length; i++) {
+            float difference = rows.get(offset + i) - vector[i];
+            distance += difference * difference;
+        }
+
+        return distance;
+    }
+
+    /**
+     * Computes the Euclidean distance between a single-precision row held in a
+     * buffer and a single-precision vector, reading the row in place. Time
+     * Complexity: O(n).
+     *
+     * @param rows   the buffer holding the row
+     * @param offset the index of the first element of the row in the buffer
+     * @param vector the vector
+     * @return the Euclidean distance between the row and the vector
+     */
+    public static double euclideanDistance(FloatBuffer rows, int offset, float[] vector) {
+        return Math.sqrt(euclideanDistanceNoSqrt(rows, offset, vector));
+    }
+
+    /**
+     * Computes the cosine similarity between a single-precision row held in a
+     * buffer and a single-precision vector, reading the row in place. Time
+     * Complexity: O(n).
+     *
+     * @param rows   the buffer holding the row
+     * @param offset the index of the first element of the row in the buffer
+     * @param vector the vector
+     * @return the cosine similarity of the row and the vector
+     */
+    public static double cosineSimilarity(FloatBuffer rows, int offset, float[] vector) {
+        float dotProduct = 0.0f;
+        float magnitude1 = 0.0f;
+        float magnitude2 = 0.0f;
+
+        for (int i = 0; i < vector.length; i++) {
+            float value = rows.get(offset + i);
+            dotProduct += value * vector[i];
+            magnitude1 += value * value;
+            magnitude2 += vector[i] * vector[i];
+        }
+
+        return dotProduct / (Math.sqrt(magnitude1) * Math.sqrt(magnitude2));
+    }
+
 }
@@ -0,0 +1,202 @@
+package ie.atu.sw.wordembedding;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import ie.atu.sw.util.EmbeddingVector;
+import ie.atu.sw.util.Vector;
+import ie.atu.sw.util.WordEmbeddingMapInterface;
+
+/**
+ * Store of random-hyperplane binary sketches (SimHash) of word embeddings.
+ * Bit i of a sketch is set when the vector lies on the positive side of random
+ * hyperplane i, so two vectors differ in a bit with probability θ/π, where θ
+ * is the angle between them. The Hamming distance between two sketches is an
+ * estimate of the angle, and ranks words roughly as cosine similarity does.
+ * <p>
+ * Sketches are packed into {@code long}s, a whole number of them per row. A
+ * 256-bit sketch takes 32 bytes, against 8 bytes per dimension for a
+ * {@code double[]} vector, and is compared with a query in a few XOR and
+ * {@link Long#bitCount(long)} operations.
+ * </p>
+ */
+public class BinarySketchStore {
+
+    private static final long HYPERPLANE_SEED = 42L;
+
+    private final int bits;
+    private final int dimension;
+    private final String[] words;
+    private final float[] hyperplanes;
+    private final long[] sketches;
+
+    /**
+     * Constructs a store from already computed sketches.
+     *
+     * @param bits        the number of bits per sketch, a multiple of 64
+     * @param dimension   the vector dimension
+     * @param words       the word of each row
+     * @param hyperplanes the row-major normals of the hyperplanes, one per bit
+     * @param sketches    the row-major sketches
+     */
+    private BinarySketchStore(int bits, int dimension, String[] words, float[] hyperplanes, long[] sketches) {
+        this.bits = bits;
+        this.dimension = dimension;
+        this.words = words;
+        this.hyperplanes = hyperplanes;
+        this.sketches = sketches;
+    }
+
+    /**
+     * Builds a store holding sketches of the given words. The hyperplane
+     * normals are drawn from a seeded Gaussian, and the words are sketched in
+     * parallel. Words without an embedding in the map are skipped. Time
+     * complexity: O(n⋅b⋅m / p), for n words of dimension m, b bits and p
+     * workers.
+     *
+     * @param wordEmbeddingMap the word embeddings to sketch
+     * @param words            the words to include
+     * @param bits             the number of bits per sketch, a positive
+     *                         multiple of 64
+     * @return a new store
+     * @throws IllegalArgumentException if the number of bits is invalid, or the
+     *                                  embeddings do not all have the same
+     *                                  dimension
+     */
+    public static BinarySketchStore fromMap(
+            WordEmbeddingMapInterface wordEmbeddingMap,
+            Collection<String> words,
+            int bits)
+            throws IllegalArgumentException {
+        if (bits <= 0 || bits % Long.SIZE != 0)
+            throw new IllegalArgumentException("Sketch bits must be a positive multiple of 64: " + bits);
+
+        List<String> storedWords = new ArrayList<>(words.size());
+        List<EmbeddingVector> vectors = new ArrayList<>(words.size());
+
+        for (String word : words) {
+            WordEmbedding wordEmbedding = wordEmbeddingMap.getWordEmbedding(word);
+            if (wordEmbedding != null) {
+                storedWords.add(word);
+                vectors.add(wordEmbedding.vector());
+            }
+        }
+
+        int dimension = vectors.isEmpty() ? 0 : vectors.getFirst().dimension();
+
+        Random random = new Random(HYPERPLANE_SEED);
+        float[] hyperplanes = new float[bits * dimension];
+        for (int i = 0; i < hyperplanes.length; i++)
+            hyperplanes[i] = (float) random.nextGaussian();
+
+        BinarySketchStore store = new BinarySketchStore(
+                bits,
+                dimension,
+                storedWords.toArray(new String[0]),
+                hyperplanes,
+                new long[vectors.size() * (bits / Long.SIZE)]);
+
+        IntStream.range(0, vectors.size())
+                .parallel()
+                .forEach(row -> store.sketch(vectors.get(row), store.sketches, row * store.getLongsPerSketch()));
+
+        return store;
+    }
+
+    /**
+     * Retrieves the number of rows in the store.
+     *
+     * @return the number of stored words
+     */
+    public int getSize() {
+        return words.length;
+    }
+
+    /**
+     * Retrieves the number of bits per sketch.
+     *
+     * @return the number of bits
+     */
+    public int getBits() {
+        return bits;
+    }
+
+    /**
+     * Retrieves the word stored in the given row.
+     *
+     * @param row the row
+     * @return the word
+     */
+    public String getWord(int row) {
+        return words[row];
+    }
+
+    /**
+     * Retrieves the number of {@code long}s each sketch is packed into.
+     *
+     * @return the number of bits divided by 64
+     */
+    private int getLongsPerSketch() {
+        return bits / Long.SIZE;
+    }
+
+    /**
+     * Sketches a query the same way as the stored rows. Time complexity:
+     * O(b⋅m).
+     *
+     * @param query the query embedding
+     * @return the sketch, packed into longs
+     * @throws IllegalArgumentException if the query dimension differs from the
+     *                                  store's
+     */
+    public long[] sketch(EmbeddingVector query) throws IllegalArgumentException {
+        long[] sketch = new long[getLongsPerSketch()];
+        sketch(query, sketch, 0);
+        return sketch;
+    }
+
+    /**
+     * Sketches a vector into an array of packed sketches.
+     *
+     * @param vector      the vector
+     * @param destination the array receiving the sketch
+     * @param offset      the index of the first long of the sketch
+     * @throws IllegalArgumentException if the vector dimension differs from the
+     *                                  store's
+     */
+    private void sketch(EmbeddingVector vector, long[] destination, int offset) throws IllegalArgumentException {
+        if (vector.dimension() != dimension)
+            throw new IllegalArgumentException(
+                    "Embedding has dimension " + vector.dimension() + ", expected " + dimension);
+
+        float[] projections = new float[bits];
+        Vector.getKernels().matrixVectorProduct(hyperplanes, 0, bits, vector.toFloatArray(), projections);
+
+        for (int bit = 0; bit < bits; bit++)
+            if (projections[bit] > 0.0f)
+                destination[offset + bit / Long.SIZE] |= 1L << (bit % Long.SIZE);
+    }
+
+    /**
+     * Computes the Hamming distance of every stored sketch to a query sketch.
+     * Time complexity: O(n⋅b / 64).
+     *
+     * @param querySketch the query sketch, from {@link #sketch(EmbeddingVector)}
+     * @param distances   the array receiving the distance of each row
+     */
+    public void hammingDistances(long[] querySketch, int[] distances) {
+        int longs = getLongsPerSketch();
+
+        for (int row = 0; row < words.length; row++) {
+            int base = row * longs;
+            int distance = 0;
+            for (int i = 0; i < longs; i++)
+                distance += Long.bitCount(sketches[base + i] ^ querySketch[i]);
+            distances[row] = distance;
+        }
+    }
+
+}
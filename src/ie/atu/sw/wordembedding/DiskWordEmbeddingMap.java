@@ -0,0 +1,646 @@
+package ie.atu.sw.wordembedding;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import ie.atu.sw.util.ArchiveFileParser;
+import ie.atu.sw.util.EmbeddingVector;
+import ie.atu.sw.util.FileParser;
+import ie.atu.sw.util.MappedFileParser;
+import ie.atu.sw.util.TermDictionary;
+
+/**
+ * Implementation of {@link RowWordEmbeddingMapAbstract} that keeps only its
+ * words and the position of each vector in memory, and reads vectors from the
+ * embedding file when they are requested. Both text files and binary snapshots
+ * (see {@link EmbeddingSnapshot}) can be opened; a text line is parsed when its
+ * vector is read.
+ * <p>
+ * Vectors that have been read are kept in a least-recently-used cache bounded
+ * by a byte budget, so repeated lookups of the same words, such as those made
+ * while simplifying a text, do not go back to the file. The number of cache
+ * hits, misses and evictions is available through
+ * {@link #getCacheStatistics()}, to help choose a budget.
+ * </p>
+ * <p>
+ * The map holds the file open until it is closed. Reading a vector after the
+ * map has been closed throws an {@link UncheckedIOException}.
+ * </p>
+ */
+public class DiskWordEmbeddingMap extends RowWordEmbeddingMapAbstract implements AutoCloseable {
+
+    /**
+     * Approximate heap cost of one cache entry beyond its vector values: the
+     * linked hash map entry, the boxed key and the vector and array headers.
+     */
+    private static final int CACHE_ENTRY_OVERHEAD_BYTES = 96;
+
+    private static final int READ_BUFFER_BYTES = 1 << 16;
+
+    private final FileChannel channel;
+    private final EmbeddingPrecision precision;
+    private final int dimension;
+
+    // Snapshot files: rows of fixed size starting at vectorsPosition
+    private final long vectorsPosition;
+
+    // Text files: the position and length of the line holding each row
+    private final long[] lineStarts;
+    private final int[] lineLengths;
+    private final String delimiter;
+
+    // The rank of the word of each row
+    private final int[] ranks;
+
+    private final VectorCache cache;
+
+    /**
+     * Constructs a map over the vectors of a snapshot file.
+     *
+     * @param channel     the open channel of the file
+     * @param dictionary  the dictionary of words, whose ids are their rows
+     * @param header      the header of the snapshot
+     * @param ranks       the rank of the word of each row
+     * @param budgetBytes the byte budget of the vector cache
+     */
+    private DiskWordEmbeddingMap(
+            FileChannel channel,
+            TermDictionary dictionary,
+            EmbeddingSnapshot.Header header,
+            int[] ranks,
+            long budgetBytes) {
+        super(dictionary);
+        this.channel = channel;
+        this.precision = header.precision();
+        this.dimension = header.dimension();
+        this.vectorsPosition = header.vectorsPosition();
+        this.lineStarts = null;
+        this.lineLengths = null;
+        this.ranks = ranks;
+        this.delimiter = null;
+        this.cache = new VectorCache(budgetBytes, entryBytes(precision, dimension));
+    }
+
+    /**
+     * Constructs a map over the lines of a text file.
+     *
+     * @param channel     the open channel of the file
+     * @param dictionary  the dictionary of words, whose ids are their rows
+     * @param lineStarts  the position of the line of each row
+     * @param lineLengths the length in bytes of the line of each row
+     * @param ranks       the line number of the line of each row
+     * @param delimiter   the delimiter used in the file
+     * @param precision   the precision to store parsed vectors with
+     * @param dimension   the vector dimension
+     * @param budgetBytes the byte budget of the vector cache
+     */
+    private DiskWordEmbeddingMap(
+            FileChannel channel,
+            TermDictionary dictionary,
+            long[] lineStarts,
+            int[] lineLengths,
+            int[] ranks,
+            String delimiter,
+            EmbeddingPrecision precision,
+            int dimension,
+            long budgetBytes) {
+        super(dictionary);
+        this.channel = channel;
+        this.precision = precision;
+        this.dimension = dimension;
+        this.vectorsPosition = -1;
+        this.lineStarts = lineStarts;
+        this.lineLengths = lineLengths;
+        this.ranks = ranks;
+        this.delimiter = delimiter;
+        this.cache = new VectorCache(budgetBytes, entryBytes(precision, dimension));
+    }
+
+    /**
+     * Opens a word-embeddings text file or snapshot. A text file is read once,
+     * from start to end, to index its words; no vectors are parsed. A word that
+     * appears on more than one line of a text file is indexed at its last line,
+     * as the in-memory maps keep the last entry too. Time
+     * complexity: O(n) for a text file of n bytes, O(w) for a snapshot whose
+     * words take w bytes.
+     *
+     * @param fileName the name of the file to open
+     * @param options  the delimiter and precision used for text files, and the
+     *                 byte budget of the vector cache
+     * @return the opened map, which must be closed when no longer used
+     * @throws IOException if an I/O error occurs, the file is not valid, or the
+     *                     file is an archive, whose vectors cannot be read by
+     *                     position
+     */
+    public static DiskWordEmbeddingMap open(String fileName, EmbeddingLoadOptions options) throws IOException {
+        if (ArchiveFileParser.isArchiveFile(fileName)) {
+            throw new IOException("Disk-resident storage reads vectors by position and cannot read them from "
+                    + fileName + "; extract it or choose another storage");
+        }
+
+        Path path = Path.of(fileName);
+        boolean isSnapshot = EmbeddingSnapshot.isSnapshotFile(fileName);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+
+        try {
+            if (isSnapshot) {
+                EmbeddingSnapshot.Header header = EmbeddingSnapshot.readHeader(channel, path);
+                TermDictionary dictionary = EmbeddingSnapshot.readDictionary(channel, header);
+                return new DiskWordEmbeddingMap(
+                        channel,
+                        dictionary,
+                        header,
+                        EmbeddingSnapshot.readRanks(channel, header),
+                        options.cacheBytes());
+            }
+            return indexTextFile(channel, options);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads a text file line by line, recording the word, position and line
+     * number of each non-empty line whose word is in the vocabulary of the
+     * options. A word seen before keeps its row, which is moved to the later
+     * line, so the last line of each word is the one read. Reading stops at the
+     * word and byte limits of the options. The dimension is taken from the first
+     * line kept.
+     *
+     * @param channel the open channel of the file
+     * @param options the delimiter, precision and cache budget
+     * @return the map over the file
+     * @throws IOException if an I/O error occurs
+     */
+    private static DiskWordEmbeddingMap indexTextFile(FileChannel channel, EmbeddingLoadOptions options)
+            throws IOException {
+
+        String delimiter = options.delimiter();
+        byte[] delimiterBytes = MappedFileParser.isLiteralDelimiter(delimiter)
+                ? delimiter.getBytes(StandardCharsets.UTF_8)
+                : null;
+
+        byte[] arena = new byte[1 << 16];
+        int arenaLength = 0;
+        int[] offsets = new int[1 << 10];
+        long[] lineStarts = new long[1 << 10];
+        int[] lineLengths = new int[1 << 10];
+        int[] ranks = new int[1 << 10];
+        int rows = 0;
+
+        // Open-addressing table of the rows indexed so far, to find repeated words
+        int[] rowSlots = new int[1 << 11];
+        Arrays.fill(rowSlots, -1);
+        int lineNumber = 0;
+        int dimension = -1;
+
+        byte[] line = new byte[1 << 12];
+        ByteBuffer chunk = ByteBuffer.allocate(READ_BUFFER_BYTES);
+        byte[] chunkBytes = chunk.array();
+        int chunkLength = 0;
+        int chunkIndex = 0;
+        long readPosition = 0;
+
+        long position = 0;
+        boolean isEndOfFile = false;
+        while (!isEndOfFile) {
+            if (options.maxWords() > 0 && lineNumber >= options.maxWords()
+                    || options.maxBytes() > 0 && position >= options.maxBytes())
+                break;
+
+            long lineStart = position;
+            int lineLength = 0;
+            boolean isEndOfLine = false;
+
+            // Copy the line out of the read buffer, refilling it as often as needed
+            while (!isEndOfLine) {
+                if (chunkIndex == chunkLength) {
+                    chunk.clear();
+                    chunkLength = Math.max(0, channel.read(chunk, readPosition));
+                    readPosition += chunkLength;
+                    if (options.progress() != null)
+                        options.progress().addBytes(chunkLength);
+                    chunkIndex = 0;
+                    if (chunkLength == 0) {
+                        isEndOfFile = true;
+                        break;
+                    }
+                }
+                int end = chunkIndex;
+                while (end < chunkLength && chunkBytes[end] != '\n')
+                    end++;
+                int length = end - chunkIndex;
+                if (lineLength + length > line.length)
+                    line = Arrays.copyOf(line, Math.max(line.length * 2, lineLength + length));
+                System.arraycopy(chunkBytes, chunkIndex, line, lineLength, length);
+                lineLength += length;
+                isEndOfLine = end < chunkLength;
+                chunkIndex = isEndOfLine ? end + 1 : end;
+            }
+            position += lineLength + (isEndOfLine ? 1 : 0);
+            int rank = lineNumber++;
+
+            if (lineLength > 0 && line[lineLength - 1] == '\r')
+                lineLength--;
+            if (lineLength == 0)
+                continue;
+
+            int wordLength;
+            if (delimiterBytes != null) {
+                wordLength = indexOf(line, lineLength, delimiterBytes);
+            } else {
+                // The first part of a split is always a prefix of the line
+                String word = new String(line, 0, lineLength, StandardCharsets.UTF_8).split(delimiter, 2)[0];
+                wordLength = word.getBytes(StandardCharsets.UTF_8).length;
+            }
+
+            Set<String> vocabulary = options.vocabulary();
+            if (vocabulary != null && !vocabulary.contains(new String(line, 0, wordLength, StandardCharsets.UTF_8)))
+                continue;
+
+            int slot = hash(line, 0, wordLength) & (rowSlots.length - 1);
+            int seenRow;
+            while ((seenRow = rowSlots[slot]) >= 0 && !Arrays.equals(
+                    arena, offsets[seenRow], seenRow + 1 < rows ? offsets[seenRow + 1] : arenaLength,
+                    line, 0, wordLength))
+                slot = (slot + 1) & (rowSlots.length - 1);
+
+            if (seenRow >= 0) {
+                lineStarts[seenRow] = lineStart;
+                lineLengths[seenRow] = lineLength;
+                ranks[seenRow] = rank;
+                continue;
+            }
+
+            if (dimension < 0) {
+                String text = new String(line, 0, lineLength, StandardCharsets.UTF_8);
+                dimension = FileParser.parseMapLine(text, delimiter, options.precision()).vector().dimension();
+            }
+
+            if (rows == lineStarts.length) {
+                offsets = Arrays.copyOf(offsets, rows * 2 + 1);
+                lineStarts = Arrays.copyOf(lineStarts, rows * 2);
+                lineLengths = Arrays.copyOf(lineLengths, rows * 2);
+                ranks = Arrays.copyOf(ranks, rows * 2);
+            }
+            if ((long) arenaLength + wordLength > Integer.MAX_VALUE - 8)
+                throw new IOException("Words are too large to be indexed in memory");
+            if (arenaLength + wordLength > arena.length)
+                arena = Arrays.copyOf(arena, (int) Math.min(Integer.MAX_VALUE - 8, (long) arena.length * 2 + wordLength));
+
+            System.arraycopy(line, 0, arena, arenaLength, wordLength);
+            offsets[rows] = arenaLength;
+            arenaLength += wordLength;
+            lineStarts[rows] = lineStart;
+            lineLengths[rows] = lineLength;
+            ranks[rows] = rank;
+            rowSlots[slot] = rows;
+            rows++;
+
+            if (rows * 2 > rowSlots.length)
+                rowSlots = rehash(rowSlots.length * 2, arena, offsets, rows, arenaLength);
+        }
+
+        offsets = Arrays.copyOf(offsets, rows + 1);
+        offsets[rows] = arenaLength;
+
+        TermDictionary dictionary;
+        try {
+            dictionary = TermDictionary.build(Arrays.copyOf(arena, arenaLength), offsets);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Cannot index word embeddings file: " + e.getMessage(), e);
+        }
+
+        return new DiskWordEmbeddingMap(
+                channel,
+                dictionary,
+                Arrays.copyOf(lineStarts, rows),
+                Arrays.copyOf(lineLengths, rows),
+                Arrays.copyOf(ranks, rows),
+                delimiter,
+                options.precision(),
+                Math.max(dimension, 0),
+                options.cacheBytes());
+    }
+
+    /**
+     * Hashes a range of bytes with 32-bit FNV-1a.
+     *
+     * @param bytes the array holding the bytes
+     * @param start the index of the first byte
+     * @param end   the index after the last byte
+     * @return the hash
+     */
+    private static int hash(byte[] bytes, int start, int end) {
+        int hash = 0x811C9DC5;
+        for (int i = start; i < end; i++)
+            hash = (hash ^ (bytes[i] & 0xFF)) * 0x01000193;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Builds an open-addressing table of the rows indexed so far, keyed by the
+     * hash of their words.
+     *
+     * @param capacity    the number of slots, a power of two greater than the
+     *                    number of rows
+     * @param arena       the UTF-8 bytes of the words, in row order
+     * @param offsets     the start of the word of each row in the arena
+     * @param rows        the number of rows
+     * @param arenaLength the number of bytes of the arena in use
+     * @return the table, with -1 in empty slots
+     */
+    private static int[] rehash(int capacity, byte[] arena, int[] offsets, int rows, int arenaLength) {
+        int[] rowSlots = new int[capacity];
+        Arrays.fill(rowSlots, -1);
+        for (int row = 0; row < rows; row++) {
+            int end = row + 1 < rows ? offsets[row + 1] : arenaLength;
+            int slot = hash(arena, offsets[row], end) & (capacity - 1);
+            while (rowSlots[slot] >= 0)
+                slot = (slot + 1) & (capacity - 1);
+            rowSlots[slot] = row;
+        }
+        return rowSlots;
+    }
+
+    /**
+     * Finds the first occurrence of a byte sequence in the start of an array.
+     *
+     * @param bytes  the array to search
+     * @param length the number of bytes of the array to search
+     * @param target the byte sequence to find
+     * @return the index of the first occurrence, or {@code length} if there is
+     *         none
+     */
+    private static int indexOf(byte[] bytes, int length, byte[] target) {
+        outer: for (int i = 0; i + target.length <= length; i++) {
+            for (int j = 0; j < target.length; j++) {
+                if (bytes[i + j] != target[j])
+                    continue outer;
+            }
+            return i;
+        }
+        return length;
+    }
+
+    /**
+     * Calculates the bytes charged to the cache budget for one vector.
+     *
+     * @param precision the precision of the vector
+     * @param dimension the dimension of the vector
+     * @return the bytes per cache entry
+     */
+    private static long entryBytes(EmbeddingPrecision precision, int dimension) {
+        return (long) dimension * precision.getBytes() + CACHE_ENTRY_OVERHEAD_BYTES;
+    }
+
+    /**
+     * Retrieves the precision the vectors are returned with.
+     *
+     * @return the vector precision
+     */
+    public EmbeddingPrecision getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Retrieves the dimension of the vectors in the file.
+     *
+     * @return the vector dimension
+     */
+    public int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * Retrieves the current counters of the vector cache.
+     *
+     * @return a snapshot of the cache statistics
+     */
+    public CacheStatistics getCacheStatistics() {
+        return cache.getStatistics();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The vector is taken from the cache if it is there, and read from the file
+     * and added to the cache otherwise.
+     * </p>
+     *
+     * @throws UncheckedIOException if the vector cannot be read from the file
+     */
+    @Override
+    protected EmbeddingVector readVector(int row) throws UncheckedIOException {
+        EmbeddingVector vector = cache.get(row);
+        if (vector == null) {
+            try {
+                vector = lineStarts == null ? readSnapshotRow(row) : readTextRow(row);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            cache.put(row, vector);
+        }
+        return vector;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The rank is the line number of text files, and is read from snapshots.
+     * </p>
+     */
+    @Override
+    protected int readRank(int row) {
+        return ranks[row];
+    }
+
+    /**
+     * Reads the vector in the given row of a snapshot file.
+     *
+     * @param row the row of the vector
+     * @return a new embedding vector, at the precision of the snapshot
+     * @throws IOException if an I/O error occurs while reading the file
+     */
+    private EmbeddingVector readSnapshotRow(int row) throws IOException {
+        int rowBytes = dimension * precision.getBytes();
+        ByteBuffer buffer = read(vectorsPosition + (long) row * rowBytes, rowBytes).order(ByteOrder.LITTLE_ENDIAN);
+
+        return switch (precision) {
+            case FLOAT64 -> {
+                double[] values = new double[dimension];
+                buffer.asDoubleBuffer().get(values);
+                yield new EmbeddingVector.Float64(values);
+            }
+            case FLOAT32 -> {
+                float[] values = new float[dimension];
+                buffer.asFloatBuffer().get(values);
+                yield new EmbeddingVector.Float32(values);
+            }
+            case FLOAT16 -> {
+                short[] values = new short[dimension];
+                buffer.asShortBuffer().get(values);
+                yield new EmbeddingVector.Float16(values);
+            }
+        };
+    }
+
+    /**
+     * Reads and parses the line of the given row of a text file.
+     *
+     * @param row the row of the vector
+     * @return a new embedding vector, at the precision the map was opened with
+     * @throws IOException           if an I/O error occurs while reading the file
+     * @throws NumberFormatException if a number on the line cannot be parsed
+     */
+    private EmbeddingVector readTextRow(int row) throws IOException, NumberFormatException {
+        ByteBuffer buffer = read(lineStarts[row], lineLengths[row]);
+        String line = new String(buffer.array(), 0, lineLengths[row], StandardCharsets.UTF_8);
+        return FileParser.parseMapLine(line, delimiter, precision).vector();
+    }
+
+    /**
+     * Reads a region of the file with positional reads, which can be made from
+     * several threads at once.
+     *
+     * @param position the start of the region
+     * @param length   the length of the region in bytes
+     * @return a heap buffer holding the region
+     * @throws IOException if an I/O error occurs, or the file ends early
+     */
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                throw new IOException("Unexpected end of word embeddings file");
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Closes the file. Vectors can no longer be read afterwards.
+     *
+     * @throws IOException if an I/O error occurs while closing the file
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        cache.clear();
+    }
+
+    /**
+     * Record holding the counters of the vector cache.
+     *
+     * @param hits        the number of vectors found in the cache
+     * @param misses      the number of vectors read from the file
+     * @param evictions   the number of vectors removed to stay within budget
+     * @param usedBytes   the bytes currently charged to the cache
+     * @param budgetBytes the byte budget of the cache
+     */
+    public record CacheStatistics(long hits, long misses, long evictions, long usedBytes, long budgetBytes) {
+
+        /**
+         * Calculates the fraction of lookups that were found in the cache.
+         *
+         * @return the hit rate between 0 and 1, or 0 if there were no lookups
+         */
+        public double hitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+
+    }
+
+    /**
+     * Least-recently-used cache of vectors by row. Every entry is charged the
+     * same number of bytes, as all vectors in a map share a precision and
+     * dimension. Access is synchronized, as searches may read vectors from
+     * several threads.
+     */
+    private static class VectorCache {
+
+        private final long budgetBytes;
+        private final long entryBytes;
+        private final LinkedHashMap<Integer, EmbeddingVector> entries;
+
+        private long hits;
+        private long misses;
+        private long evictions;
+
+        /**
+         * Constructs an empty cache.
+         *
+         * @param budgetBytes the byte budget of the cache
+         * @param entryBytes  the bytes charged for each entry
+         */
+        VectorCache(long budgetBytes, long entryBytes) {
+            this.budgetBytes = Math.max(0, budgetBytes);
+            this.entryBytes = entryBytes;
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, EmbeddingVector> eldest) {
+                    boolean isOverBudget = size() * VectorCache.this.entryBytes > VectorCache.this.budgetBytes;
+                    if (isOverBudget)
+                        evictions++;
+                    return isOverBudget;
+                }
+            };
+        }
+
+        /**
+         * Looks up the vector of a row, counting a hit or a miss.
+         *
+         * @param row the row of the vector
+         * @return the cached vector, or {@code null} if it is not cached
+         */
+        synchronized EmbeddingVector get(int row) {
+            EmbeddingVector vector = entries.get(row);
+            if (vector == null)
+                misses++;
+            else
+                hits++;
+            return vector;
+        }
+
+        /**
+         * Adds the vector of a row, evicting the least recently used vector if the
+         * budget is exceeded.
+         *
+         * @param row    the row of the vector
+         * @param vector the vector to cache
+         */
+        synchronized void put(int row, EmbeddingVector vector) {
+            if (entryBytes <= budgetBytes)
+                entries.put(row, vector);
+        }
+
+        /**
+         * Removes every vector from the cache. The counters are kept.
+         */
+        synchronized void clear() {
+            entries.clear();
+        }
+
+        /**
+         * Retrieves the current counters.
+         *
+         * @return a snapshot of the statistics
+         */
+        synchronized CacheStatistics getStatistics() {
+            return new CacheStatistics(hits, misses, evictions, entries.size() * entryBytes, budgetBytes);
+        }
+
+    }
+
+}
@@ -0,0 +1,64 @@
+package ie.atu.sw.wordembedding;
+
+import java.util.Set;
+
+import ie.atu.sw.util.LoadProgress;
+
+/**
+ * Record holding the settings that control how a word-embeddings file is
+ * loaded by an {@link EmbeddingStorage}.
+ *
+ * @param delimiter  the delimiter used in text files
+ * @param precision  the precision to store the vectors of text files with,
+ *                   where the storage supports it
+ * @param maxWords   the number of lines to load from the start of text files,
+ *                   or 0 for no limit
+ * @param maxBytes   the byte position of text files that loaded lines must
+ *                   start before, or 0 for no limit
+ * @param vocabulary the words to load from text files, or {@code null} to load
+ *                   every word
+ * @param cacheBytes the byte budget of the vector cache of storages that read
+ *                   vectors on demand
+ * @param progress   the counter of bytes consumed by the load, or {@code null}
+ */
+public record EmbeddingLoadOptions(
+        String delimiter,
+        EmbeddingPrecision precision,
+        int maxWords,
+        long maxBytes,
+        Set<String> vocabulary,
+        long cacheBytes,
+        LoadProgress progress) {
+
+    /**
+     * Constructs options that load every word of the file.
+     *
+     * @param delimiter  the delimiter used in text files
+     * @param precision  the precision to store the vectors of text files with
+     * @param cacheBytes the byte budget of the vector cache
+     */
+    public EmbeddingLoadOptions(String delimiter, EmbeddingPrecision precision, long cacheBytes) {
+        this(delimiter, precision, 0, 0, null, cacheBytes, null);
+    }
+
+    /**
+     * Creates a copy of these options with a different precision.
+     *
+     * @param precision the precision to store the vectors of text files with
+     * @return the new options
+     */
+    public EmbeddingLoadOptions withPrecision(EmbeddingPrecision precision) {
+        return new EmbeddingLoadOptions(delimiter, precision, maxWords, maxBytes, vocabulary, cacheBytes, progress);
+    }
+
+    /**
+     * Creates a copy of these options with a different progress counter.
+     *
+     * @param progress the counter of bytes consumed by the load, or {@code null}
+     * @return the new options
+     */
+    public EmbeddingLoadOptions withProgress(LoadProgress progress) {
+        return new EmbeddingLoadOptions(delimiter, precision, maxWords, maxBytes, vocabulary, cacheBytes, progress);
+    }
+
+}
@@ -0,0 +1,87 @@
+package ie.atu.sw.wordembedding;
+
+/**
+ * Enum defining the numeric types that embedding vectors can be stored as.
+ * Each precision has a stable code, used to identify it in binary files, and a
+ * size in bytes per vector element.
+ */
+public enum EmbeddingPrecision {
+
+    /**
+     * 64-bit IEEE 754 double precision.
+     */
+    FLOAT64("Double Precision (64-bit)", 1, Double.BYTES),
+
+    /**
+     * 32-bit IEEE 754 single precision. GloVe vectors are published at this
+     * precision, so nothing is lost by storing them this way.
+     */
+    FLOAT32("Single Precision (32-bit)", 2, Float.BYTES),
+
+    /**
+     * 16-bit IEEE 754 half precision. Keeps about three significant decimal
+     * digits, which is enough to preserve the ranking of most neighbours.
+     */
+    FLOAT16("Half Precision (16-bit)", 3, Short.BYTES);
+
+    private final String name;
+    private final int code;
+    private final int bytes;
+
+    /**
+     * Constructor for initializing a precision with its properties.
+     *
+     * @param name  the name of the precision
+     * @param code  the code identifying the precision in binary files
+     * @param bytes the number of bytes per vector element
+     */
+    EmbeddingPrecision(String name, int code, int bytes) {
+        this.name = name;
+        this.code = code;
+        this.bytes = bytes;
+    }
+
+    /**
+     * Retrieves the name of the precision.
+     *
+     * @return the name of the precision
+     */
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * Retrieves the code identifying this precision in binary files.
+     *
+     * @return the precision code
+     */
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * Retrieves the number of bytes used to store one vector element.
+     *
+     * @return the element size in bytes
+     */
+    public int getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Finds the precision with the given code.
+     *
+     * @param code the precision code, as stored in a binary file
+     * @return the matching precision
+     * @throws IllegalArgumentException if no precision has the given code
+     */
+    public static EmbeddingPrecision fromCode(int code) throws IllegalArgumentException {
+        for (EmbeddingPrecision precision : values()) {
+            if (precision.code == code)
+                return precision;
+        }
+        throw new IllegalArgumentException("Unknown embedding precision code: " + code);
+    }
+
+}
@@ -0,0 +1,472 @@
+package ie.atu.sw.wordembedding;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import ie.atu.sw.util.EmbeddingVector;
+import ie.atu.sw.util.TermDictionary;
+import ie.atu.sw.util.WordEmbeddingMapInterface;
+
+/**
+ * Utility class for writing and loading binary word-embedding snapshots.
+ * A snapshot is a compiled form of a text embeddings file that can be
+ * memory-mapped back in without any parsing.
+ * <p>
+ * All values are little-endian. The file layout is:
+ * </p>
+ * <ul>
+ * <li>a 64-byte header: magic number, format version, precision code,
+ * dimension, vocabulary size, the positions of the sections below and the
+ * length of the hash function;</li>
+ * <li>the word table: vocabulary size + 1 {@code long} offsets into the word
+ * bytes, so that word i occupies [offset[i], offset[i + 1]);</li>
+ * <li>the word bytes: every word encoded as UTF-8, back to back;</li>
+ * <li>the vectors: one contiguous, 8-byte aligned, row-major block of
+ * vocabulary size x dimension elements in the stored precision;</li>
+ * <li>the hash function: an 8-byte aligned
+ * {@link TermDictionary} hash function over the word bytes, so that loading
+ * does not have to rebuild it;</li>
+ * <li>the ranks: vocabulary size {@code int} ranks,
+ * 8-byte aligned after the hash function, holding the
+ * {@link WordEmbedding#rank()} of each row.</li>
+ * </ul>
+ * This class cannot be instantiated.
+ */
+public class EmbeddingSnapshot {
+
+    static final int MAGIC = 0x424D4554; // "TEMB" in little-endian byte order
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 64;
+
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private EmbeddingSnapshot() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Converts a text embeddings file into a binary snapshot. The text file can be
+     * in any format accepted by
+     * {@link WordEmbeddingMap#getMapFromFile(String, String)}.
+     *
+     * @param textFileName     the name of the text embeddings file
+     * @param delimiter        the delimiter used in the text file
+     * @param snapshotFileName the name of the snapshot file to write
+     * @param precision        the precision to store the vectors with
+     * @throws IOException           if an I/O error occurs while reading or
+     *                               writing
+     * @throws NumberFormatException if a number in the text file cannot be
+     *                               parsed
+     */
+    public static void convert(
+            String textFileName,
+            String delimiter,
+            String snapshotFileName,
+            EmbeddingPrecision precision)
+            throws IOException, NumberFormatException {
+        write(WordEmbeddingMap.getMapFromFile(textFileName, delimiter, precision), snapshotFileName, precision);
+    }
+
+    /**
+     * Writes a word embedding map to a binary snapshot file. Time complexity:
+     * O(n⋅m), for n words of dimension m.
+     *
+     * @param wordEmbeddingMap the word embeddings to write
+     * @param fileName         the name of the snapshot file to write
+     * @param precision        the precision to store the vectors with
+     * @throws IOException              if an I/O error occurs while writing
+     * @throws IllegalArgumentException if the embeddings do not all have the same
+     *                                  dimension
+     */
+    public static void write(
+            WordEmbeddingMapInterface wordEmbeddingMap,
+            String fileName,
+            EmbeddingPrecision precision)
+            throws IOException, IllegalArgumentException {
+
+        List<WordEmbedding> embeddings = new ArrayList<>(wordEmbeddingMap.getEmbeddings());
+        int dimension = embeddings.isEmpty() ? 0 : embeddings.getFirst().vector().dimension();
+
+        byte[][] encodedWords = new byte[embeddings.size()][];
+        long wordBytesLength = 0;
+
+        for (int i = 0; i < encodedWords.length; i++) {
+            WordEmbedding wordEmbedding = embeddings.get(i);
+            if (wordEmbedding.vector().dimension() != dimension) {
+                throw new IllegalArgumentException(
+                        "Embedding for \"" + wordEmbedding.word() + "\" has dimension "
+                                + wordEmbedding.vector().dimension() + ", expected " + dimension);
+            }
+            encodedWords[i] = wordEmbedding.word().getBytes(StandardCharsets.UTF_8);
+            wordBytesLength += encodedWords[i].length;
+        }
+
+        long wordOffsetsPosition = HEADER_BYTES;
+        long wordBytesPosition = wordOffsetsPosition + (encodedWords.length + 1L) * Long.BYTES;
+        long vectorsPosition = align(wordBytesPosition + wordBytesLength);
+
+        String[] words = new String[embeddings.size()];
+        for (int i = 0; i < words.length; i++)
+            words[i] = embeddings.get(i).word();
+        byte[] hashFunction = TermDictionary.build(words).getHashFunctionBytes();
+
+        long vectorsEnd = vectorsPosition + (long) embeddings.size() * dimension * precision.getBytes();
+        long hashFunctionPosition = align(vectorsEnd);
+        long ranksPosition = align(hashFunctionPosition + hashFunction.length);
+
+        try (FileChannel channel = FileChannel.open(
+                Path.of(fileName),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+
+            ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+            buffer.putInt(MAGIC)
+                    .putInt(VERSION)
+                    .putInt(precision.getCode())
+                    .putInt(dimension)
+                    .putLong(encodedWords.length)
+                    .putLong(wordOffsetsPosition)
+                    .putLong(wordBytesPosition)
+                    .putLong(vectorsPosition)
+                    .putLong(hashFunctionPosition)
+                    .putLong(hashFunction.length);
+
+            long offset = 0;
+            for (byte[] encodedWord : encodedWords) {
+                flushIfFull(channel, buffer, Long.BYTES);
+                buffer.putLong(offset);
+                offset += encodedWord.length;
+            }
+            flushIfFull(channel, buffer, Long.BYTES);
+            buffer.putLong(offset);
+
+            for (byte[] encodedWord : encodedWords) {
+                int written = 0;
+                while (written < encodedWord.length) {
+                    flushIfFull(channel, buffer, 1);
+                    int length = Math.min(buffer.remaining(), encodedWord.length - written);
+                    buffer.put(encodedWord, written, length);
+                    written += length;
+                }
+            }
+
+            flushIfFull(channel, buffer, Long.BYTES);
+            for (long position = wordBytesPosition + wordBytesLength; position < vectorsPosition; position++)
+                buffer.put((byte) 0);
+
+            for (WordEmbedding wordEmbedding : embeddings) {
+                EmbeddingVector vector = wordEmbedding.vector();
+                for (int i = 0; i < dimension; i++) {
+                    flushIfFull(channel, buffer, Double.BYTES);
+                    switch (precision) {
+                        case FLOAT64 -> buffer.putDouble(vector.get(i));
+                        case FLOAT32 -> buffer.putFloat((float) vector.get(i));
+                        case FLOAT16 -> buffer.putShort(Float.floatToFloat16((float) vector.get(i)));
+                    }
+                }
+            }
+
+            flushIfFull(channel, buffer, Long.BYTES);
+            for (long position = vectorsEnd; position < hashFunctionPosition; position++)
+                buffer.put((byte) 0);
+
+            int written = 0;
+            while (written < hashFunction.length) {
+                flushIfFull(channel, buffer, 1);
+                int length = Math.min(buffer.remaining(), hashFunction.length - written);
+                buffer.put(hashFunction, written, length);
+                written += length;
+            }
+
+            flushIfFull(channel, buffer, Long.BYTES);
+            for (long position = hashFunctionPosition + hashFunction.length; position < ranksPosition; position++)
+                buffer.put((byte) 0);
+
+            for (WordEmbedding wordEmbedding : embeddings) {
+                flushIfFull(channel, buffer, Integer.BYTES);
+                buffer.putInt(wordEmbedding.rank());
+            }
+
+            buffer.flip();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }
+    }
+
+    /**
+     * Memory-maps a snapshot file. Only the word table is decoded; vectors are
+     * read from the mapped file when they are requested. Time complexity: O(n),
+     * for n words in the vocabulary.
+     *
+     * @param fileName the name of the snapshot file
+     * @return a {@link MappedWordEmbeddingMap} backed by the file
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    public static MappedWordEmbeddingMap load(String fileName) throws IOException {
+        return MappedWordEmbeddingMap.open(Path.of(fileName));
+    }
+
+    /**
+     * Reads and validates the header of a snapshot file. Every section must
+     * start where the writer puts it relative to the one before: in file
+     * order, after the end of the previous section, 8-byte aligned, and ending
+     * within the file. The end of the word bytes
+     * is not in the header; {@link #readDictionary(FileChannel, Header)}
+     * checks it against the vectors.
+     *
+     * @param channel the channel of the snapshot file
+     * @param path    the path of the snapshot file, for error messages
+     * @return the header
+     * @throws IOException if the header cannot be read or is not valid
+     */
+    static Header readHeader(FileChannel channel, Path path) throws IOException {
+        long fileSize = channel.size();
+        if (fileSize < HEADER_BYTES)
+            throw new IOException("Corrupt snapshot, shorter than its header: " + path);
+
+        ByteBuffer header = map(channel, 0, HEADER_BYTES);
+
+        if (header.getInt(0) != MAGIC)
+            throw new IOException("Not a word-embeddings snapshot: " + path);
+        int version = header.getInt(4);
+        if (version != VERSION)
+            throw new IOException("Unsupported snapshot version " + version + ": " + path);
+
+        EmbeddingPrecision precision;
+        try {
+            precision = EmbeddingPrecision.fromCode(header.getInt(8));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt snapshot, unknown precision code " + header.getInt(8) + ": " + path, e);
+        }
+
+        int dimension = header.getInt(12);
+        long vocabularySize = header.getLong(16);
+        if (dimension < 0 || vocabularySize < 0)
+            throw new IOException("Corrupt snapshot, negative dimension or vocabulary size: " + path);
+        if (vocabularySize > Integer.MAX_VALUE - 8)
+            throw new IOException("Snapshot vocabulary is too large: " + vocabularySize);
+
+        long wordOffsetsPosition = header.getLong(24);
+        long wordBytesPosition = header.getLong(32);
+        long vectorsPosition = header.getLong(40);
+        long hashFunctionPosition = header.getLong(48);
+        long hashFunctionLength = header.getLong(56);
+
+        long wordOffsetsEnd = checkSection(
+                "word offsets", wordOffsetsPosition, (vocabularySize + 1) * Long.BYTES, HEADER_BYTES, fileSize, path);
+        checkSection("word bytes", wordBytesPosition, 0, wordOffsetsEnd, fileSize, path);
+        long vectorsEnd;
+        try {
+            vectorsEnd = checkSection(
+                    "vectors",
+                    vectorsPosition,
+                    Math.multiplyExact(vocabularySize * dimension, (long) precision.getBytes()),
+                    wordBytesPosition,
+                    fileSize,
+                    path);
+        } catch (ArithmeticException e) {
+            throw new IOException("Corrupt snapshot, vectors section is too large: " + path, e);
+        }
+        long hashFunctionEnd = checkSection(
+                "hash function", hashFunctionPosition, hashFunctionLength, vectorsEnd, fileSize, path);
+        long ranksPosition = align(hashFunctionEnd);
+        checkSection("ranks", ranksPosition, vocabularySize * Integer.BYTES, hashFunctionEnd, fileSize, path);
+
+        return new Header(
+                precision,
+                dimension,
+                (int) vocabularySize,
+                wordOffsetsPosition,
+                wordBytesPosition,
+                vectorsPosition,
+                hashFunctionPosition,
+                hashFunctionLength,
+                ranksPosition);
+    }
+
+    /**
+     * Checks that a section of a snapshot file is 8-byte aligned, as the writer
+     * places every section, starts at or after the end of the section before
+     * it, and ends within the file.
+     *
+     * @param name        the name of the section, for error messages
+     * @param position    the start of the section
+     * @param length      the length of the section in bytes
+     * @param previousEnd the end of the section before it
+     * @param fileSize    the size of the file
+     * @param path        the path of the snapshot file, for error messages
+     * @return the end of the section
+     * @throws IOException if the section is misplaced
+     */
+    private static long checkSection(
+            String name,
+            long position,
+            long length,
+            long previousEnd,
+            long fileSize,
+            Path path)
+            throws IOException {
+
+        if (position < previousEnd || position != align(position) || length < 0 || length > fileSize - position) {
+            throw new IOException("Corrupt snapshot, " + name + " section of " + length + " bytes at byte "
+                    + position + " is misplaced after byte " + previousEnd + " in a file of " + fileSize
+                    + " bytes: " + path);
+        }
+        return position + length;
+    }
+
+    /**
+     * Copies the ranks of a snapshot file.
+     *
+     * @param channel the channel of the snapshot file
+     * @param header  the header of the snapshot file
+     * @return the rank of the word of each row
+     * @throws IOException if the ranks cannot be read
+     */
+    static int[] readRanks(FileChannel channel, Header header) throws IOException {
+        int[] ranks = new int[header.size()];
+        if (ranks.length > 0)
+            map(channel, header.ranksPosition(), (long) ranks.length * Integer.BYTES).asIntBuffer().get(ranks);
+        return ranks;
+    }
+
+    /**
+     * Copies the word table of a snapshot file into a {@link TermDictionary},
+     * with the hash function stored in the snapshot.
+     *
+     * @param channel the channel of the snapshot file
+     * @param header  the header of the snapshot file
+     * @return the dictionary of words, whose ids are their rows
+     * @throws IOException if the word table cannot be read or is not valid
+     */
+    static TermDictionary readDictionary(FileChannel channel, Header header) throws IOException {
+        int size = header.size();
+
+        ByteBuffer wordOffsets = map(channel, header.wordOffsetsPosition(), (size + 1L) * Long.BYTES);
+
+        long wordBytesLength = wordOffsets.getLong(size * Long.BYTES);
+        if (wordBytesLength < 0 || wordBytesLength > header.vectorsPosition() - header.wordBytesPosition()) {
+            throw new IOException("Corrupt snapshot, " + wordBytesLength
+                    + " word bytes overlap the vectors at byte " + header.vectorsPosition());
+        }
+        ByteBuffer wordBytes = map(channel, header.wordBytesPosition(), wordBytesLength);
+
+        byte[] arena = new byte[wordBytes.capacity()];
+        wordBytes.get(0, arena);
+
+        int[] offsets = new int[size + 1];
+        for (int row = 0; row <= size; row++)
+            offsets[row] = (int) wordOffsets.getLong(row * Long.BYTES);
+
+        try {
+            return TermDictionary.fromHashFunctionBytes(
+                    arena,
+                    offsets,
+                    map(channel, header.hashFunctionPosition(), header.hashFunctionLength()));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid snapshot word table: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Maps a read-only, little-endian region of a snapshot file.
+     *
+     * @param channel  the channel of the file
+     * @param position the start of the region
+     * @param length   the length of the region in bytes
+     * @return the mapped region
+     * @throws IOException if the region is too large or cannot be mapped
+     */
+    static ByteBuffer map(FileChannel channel, long position, long length) throws IOException {
+        if (length > Integer.MAX_VALUE)
+            throw new IOException("Snapshot section is too large to be mapped: " + length + " bytes");
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Checks whether a file starts with the snapshot magic number.
+     *
+     * @param fileName the name of the file to check
+     * @return {@code true} if the file is a snapshot, {@code false} otherwise
+     * @throws IOException if an I/O error occurs while reading the file
+     */
+    public static boolean isSnapshotFile(String fileName) throws IOException {
+        Path path = Path.of(fileName);
+        if (!Files.isRegularFile(path) || Files.size(path) < HEADER_BYTES)
+            return false;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(magic, 0);
+            return magic.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Writes the buffer to the channel if it has less than the given number of
+     * bytes remaining.
+     *
+     * @param channel  the channel to write to
+     * @param buffer   the buffer to flush
+     * @param required the number of bytes about to be put into the buffer
+     * @throws IOException if an I/O error occurs while writing
+     */
+    private static void flushIfFull(FileChannel channel, ByteBuffer buffer, int required) throws IOException {
+        if (buffer.remaining() < required) {
+            buffer.flip();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Rounds a position up to the next multiple of 8 bytes.
+     *
+     * @param position the position to align
+     * @return the aligned position
+     */
+    private static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+
+    /**
+     * Record holding the header fields of a snapshot file.
+     *
+     * @param precision            the precision the vectors are stored with
+     * @param dimension            the vector dimension
+     * @param size                 the vocabulary size
+     * @param wordOffsetsPosition  the position of the word offsets
+     * @param wordBytesPosition    the position of the word bytes
+     * @param vectorsPosition      the position of the vectors
+     * @param hashFunctionPosition the position of the hash function
+     * @param hashFunctionLength   the length of the hash function
+     * @param ranksPosition        the position of the ranks
+     */
+    record Header(
+            EmbeddingPrecision precision,
+            int dimension,
+            int size,
+            long wordOffsetsPosition,
+            long wordBytesPosition,
+            long vectorsPosition,
+            long hashFunctionPosition,
+            long hashFunctionLength,
+            long ranksPosition) {
+
+    }
+
+}
@@ -0,0 +1,127 @@
+package ie.atu.sw.wordembedding;
+
+import java.io.IOException;
+
+import ie.atu.sw.util.WordEmbeddingMapInterface;
+
+/**
+ * Enum defining where the vectors of a loaded word-embeddings file are kept.
+ * Each storage loads both text files and binary snapshots written by
+ * {@link EmbeddingSnapshot}.
+ */
+public enum EmbeddingStorage {
+
+    /**
+     * One {@link WordEmbedding} record per word on the Java heap, looked up
+     * through a hash map. Snapshots are memory-mapped instead of parsed.
+     */
+    HEAP("On-Heap Word Records") {
+        @Override
+        public WordEmbeddingMapInterface load(String fileName, EmbeddingLoadOptions options)
+                throws IOException, NumberFormatException {
+            return EmbeddingSnapshot.isSnapshotFile(fileName)
+                    ? EmbeddingSnapshot.load(fileName)
+                    : WordEmbeddingMap.getMapFromFile(fileName, options);
+        }
+    },
+
+    /**
+     * One contiguous single-precision matrix off the Java heap, addressed by word
+     * id (see {@link OffHeapWordEmbeddingMap}). The storage precision setting
+     * does not apply.
+     */
+    OFF_HEAP("Off-Heap Contiguous Matrix (32-bit)") {
+        @Override
+        public WordEmbeddingMapInterface load(String fileName, EmbeddingLoadOptions options)
+                throws IOException, NumberFormatException {
+            return OffHeapWordEmbeddingMap.fromMap(
+                    EmbeddingSnapshot.isSnapshotFile(fileName)
+                            ? EmbeddingSnapshot.load(fileName)
+                            : WordEmbeddingMap.getMapFromFile(
+                                    fileName,
+                                    options.withPrecision(getStoredPrecision(options.precision()))));
+        }
+
+        @Override
+        public EmbeddingPrecision getStoredPrecision(EmbeddingPrecision precision) {
+            return EmbeddingPrecision.FLOAT32;
+        }
+    },
+
+    /**
+     * Only a word-to-position index in memory; vectors are read from the file
+     * when requested and kept in a bounded cache (see
+     * {@link DiskWordEmbeddingMap}). Memory use is set by the cache budget, not
+     * by the size of the model.
+     */
+    DISK("Disk-Resident with Bounded Vector Cache") {
+        @Override
+        public WordEmbeddingMapInterface load(String fileName, EmbeddingLoadOptions options)
+                throws IOException, NumberFormatException {
+            return DiskWordEmbeddingMap.open(fileName, options);
+        }
+
+        @Override
+        public boolean isParsedOnLoad() {
+            return false;
+        }
+    };
+
+    private final String name;
+
+    /**
+     * Constructor for initializing the EmbeddingStorage with a name.
+     *
+     * @param name the name of the storage
+     */
+    EmbeddingStorage(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns the name of the storage.
+     *
+     * @return the name of the storage
+     */
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * Loads a word-embeddings text file or binary snapshot into this storage.
+     * Only the words within the limits and vocabulary of the options are loaded
+     * from text files; snapshots are always opened whole, as they are paged in
+     * on demand or copied without parsing.
+     *
+     * @param fileName the name of the file to load
+     * @param options  the settings controlling the load
+     * @return the loaded word embeddings
+     * @throws IOException           if an I/O error occurs while reading the file
+     * @throws NumberFormatException if a number in a text file cannot be parsed
+     */
+    public abstract WordEmbeddingMapInterface load(String fileName, EmbeddingLoadOptions options)
+            throws IOException, NumberFormatException;
+
+    /**
+     * Retrieves the precision this storage keeps the vectors of text files
+     * with, given the precision requested in the load options.
+     *
+     * @param precision the requested precision
+     * @return the precision of the loaded vectors
+     */
+    public EmbeddingPrecision getStoredPrecision(EmbeddingPrecision precision) {
+        return precision;
+    }
+
+    /**
+     * Checks whether this storage parses every vector of a text file when it
+     * loads it. Storages that read vectors on demand only index the file.
+     *
+     * @return {@code true} if loading parses every vector
+     */
+    public boolean isParsedOnLoad() {
+        return true;
+    }
+
+}
@@ -0,0 +1,283 @@
+package ie.atu.sw.wordembedding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import ie.atu.sw.util.KMeans;
+import ie.atu.sw.util.SimilarityAlgorithm;
+import ie.atu.sw.util.Vector;
+import ie.atu.sw.util.WordEmbeddingMapInterface;
+
+/**
+ * Inverted-file store of word embeddings: the embeddings are clustered with
+ * {@link KMeans} into about √n lists, and the rows of each list are packed
+ * contiguously into one {@link PackedEmbeddingMatrix}. A query is compared
+ * with the list centroids first, and only the rows of the lists nearest to it
+ * need to be scored.
+ * <p>
+ * The lists are built for one similarity algorithm. For
+ * {@link SimilarityAlgorithm#COSINE_SIMILARITY} the embeddings are clustered
+ * as unit vectors; for the other algorithms as they are. Lists are ranked by
+ * the Euclidean distance of the query to their centroid, or by the dot product
+ * with it for {@link SimilarityAlgorithm#DOT_PRODUCT}.
+ * </p>
+ */
+public class InvertedFileStore {
+
+    /**
+     * The maximum number of rows per list sampled to train the centroids. A few
+     * hundred rows place a centroid about as well as all of them.
+     */
+    public static final int TRAINING_ROWS_PER_LIST = 256;
+
+    private static final int TRAINING_ITERATIONS = 20;
+    private static final long TRAINING_SEED = 42L;
+
+    private final SimilarityAlgorithm similarityAlgorithm;
+    private final int lists;
+    private final float[] centroids;
+    private final double[] centroidSquaredNorms;
+    private final int[] listStarts;
+    private final PackedEmbeddingMatrix matrix;
+
+    /**
+     * Constructs a store from already clustered rows.
+     *
+     * @param similarityAlgorithm the algorithm the lists were built for
+     * @param lists               the number of lists
+     * @param centroids           the row-major list centroids
+     * @param listStarts          the first row of each list, followed by the
+     *                            number of rows
+     * @param matrix              the rows, grouped by list
+     */
+    private InvertedFileStore(
+            SimilarityAlgorithm similarityAlgorithm,
+            int lists,
+            float[] centroids,
+            int[] listStarts,
+            PackedEmbeddingMatrix matrix) {
+        this.similarityAlgorithm = similarityAlgorithm;
+        this.lists = lists;
+        this.centroids = centroids;
+        this.listStarts = listStarts;
+        this.matrix = matrix;
+
+        int dimension = matrix.getDimension();
+        this.centroidSquaredNorms = new double[lists];
+        for (int list = 0; list < lists; list++) {
+            double norm = Vector.norm(centroids, list * dimension, dimension);
+            centroidSquaredNorms[list] = norm * norm;
+        }
+    }
+
+    /**
+     * Builds a store holding the given words, clustered for the given
+     * algorithm into ⌈√n⌉ lists. The centroids are trained on a random sample
+     * of at most {@link #TRAINING_ROWS_PER_LIST} rows per list, and every row is
+     * then added to the list of its nearest centroid, in parallel. Words
+     * without an embedding in the map are skipped. Time complexity:
+     * O(i⋅s⋅√n⋅m / p + n⋅√n⋅m / p), for n words of dimension m, s sampled rows
+     * and i k-means iterations with p workers.
+     *
+     * @param wordEmbeddingMap    the word embeddings to store
+     * @param words               the words to include
+     * @param similarityAlgorithm the algorithm the store will be searched with
+     * @return a new store
+     * @throws IllegalArgumentException if the embeddings do not all have the same
+     *                                  dimension, or there are too many of them
+     */
+    public static InvertedFileStore fromMap(
+            WordEmbeddingMapInterface wordEmbeddingMap,
+            Collection<String> words,
+            SimilarityAlgorithm similarityAlgorithm)
+            throws IllegalArgumentException {
+
+        boolean unitRows = similarityAlgorithm == SimilarityAlgorithm.COSINE_SIMILARITY;
+        List<String> storedWords = new ArrayList<>(words.size());
+        List<float[]> vectors = new ArrayList<>(words.size());
+
+        for (String word : words) {
+            WordEmbedding wordEmbedding = wordEmbeddingMap.getWordEmbedding(word);
+            if (wordEmbedding != null) {
+                storedWords.add(word);
+                vectors.add(wordEmbedding.vector().toFloatArray());
+            }
+        }
+
+        int rows = vectors.size();
+        int dimension = rows == 0 ? 0 : vectors.getFirst().length;
+
+        if ((long) rows * dimension > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Too many vectors to pack: " + rows + " x " + dimension);
+
+        float[] packed = new float[rows * dimension];
+        for (int row = 0; row < rows; row++) {
+            float[] vector = vectors.get(row);
+            if (vector.length != dimension)
+                throw new IllegalArgumentException(
+                        "Embedding has dimension " + vector.length + ", expected " + dimension);
+
+            System.arraycopy(vector, 0, packed, row * dimension, dimension);
+            if (unitRows)
+                Vector.normalize(packed, row * dimension, dimension);
+        }
+
+        int lists = Math.max(1, (int) Math.ceil(Math.sqrt(rows)));
+        float[] centroids = rows == 0
+                ? new float[0]
+                : train(packed, rows, dimension, lists);
+
+        int[] assignments = IntStream.range(0, rows)
+                .parallel()
+                .map(row -> KMeans.nearest(centroids, lists, packed, row * dimension, dimension))
+                .toArray();
+
+        // Group the words by list, keeping their order within each list
+        int[] listStarts = new int[lists + 1];
+        for (int assignment : assignments)
+            listStarts[assignment + 1]++;
+        for (int list = 0; list < lists; list++)
+            listStarts[list + 1] += listStarts[list];
+
+        int[] next = Arrays.copyOf(listStarts, lists);
+        String[] groupedWords = new String[rows];
+        for (int row = 0; row < rows; row++)
+            groupedWords[next[assignments[row]]++] = storedWords.get(row);
+
+        return new InvertedFileStore(
+                similarityAlgorithm,
+                lists,
+                centroids,
+                listStarts,
+                PackedEmbeddingMatrix.fromMap(wordEmbeddingMap, Arrays.asList(groupedWords)));
+    }
+
+    /**
+     * Trains the list centroids on a random sample of the rows.
+     *
+     * @param packed    the row-major rows
+     * @param rows      the number of rows
+     * @param dimension the dimension of each row
+     * @param lists     the number of lists, at most rows
+     * @return the row-major centroids
+     */
+    private static float[] train(float[] packed, int rows, int dimension, int lists) {
+        int samples = (int) Math.min(rows, (long) lists * TRAINING_ROWS_PER_LIST);
+        if (samples == rows)
+            return KMeans.train(packed, rows, dimension, lists, TRAINING_ITERATIONS, TRAINING_SEED);
+
+        Random random = new Random(TRAINING_SEED);
+        int[] order = IntStream.range(0, rows).toArray();
+        float[] sample = new float[samples * dimension];
+
+        for (int i = 0; i < samples; i++) {
+            int j = i + random.nextInt(rows - i);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+            System.arraycopy(packed, order[i] * dimension, sample, i * dimension, dimension);
+        }
+
+        return KMeans.train(sample, samples, dimension, lists, TRAINING_ITERATIONS, TRAINING_SEED);
+    }
+
+    /**
+     * Retrieves the similarity algorithm the lists were built for.
+     *
+     * @return the similarity algorithm
+     */
+    public SimilarityAlgorithm getSimilarityAlgorithm() {
+        return similarityAlgorithm;
+    }
+
+    /**
+     * Retrieves the number of lists.
+     *
+     * @return the number of lists
+     */
+    public int getListCount() {
+        return lists;
+    }
+
+    /**
+     * Retrieves the first row of a list in the matrix.
+     *
+     * @param list the list
+     * @return the first row of the list
+     */
+    public int getListStart(int list) {
+        return listStarts[list];
+    }
+
+    /**
+     * Retrieves the number of rows in a list.
+     *
+     * @param list the list
+     * @return the number of rows
+     */
+    public int getListSize(int list) {
+        return listStarts[list + 1] - listStarts[list];
+    }
+
+    /**
+     * Retrieves the matrix holding the rows, grouped by list.
+     *
+     * @return the packed matrix
+     */
+    public PackedEmbeddingMatrix getMatrix() {
+        return matrix;
+    }
+
+    /**
+     * Finds the lists whose centroids are nearest to a query, scoring every
+     * centroid with one matrix-vector product. Time complexity: O(k⋅m + k⋅p),
+     * for k lists and p probes.
+     *
+     * @param query  the query, prepared by the matrix
+     * @param probes the number of lists to return
+     * @return up to probes lists, nearest first
+     */
+    public int[] nearestLists(PackedEmbeddingMatrix.Query query, int probes) {
+        probes = Math.min(probes, matrix.getSize() == 0 ? 0 : lists);
+        if (probes <= 0)
+            return new int[0];
+
+        float[] dotProducts = new float[lists];
+        Vector.getKernels().matrixVectorProduct(centroids, 0, lists, query.values(), dotProducts);
+
+        // Distance to each centroid, up to a term that is the same for every list
+        double[] distances = new double[lists];
+        for (int list = 0; list < lists; list++) {
+            distances[list] = switch (similarityAlgorithm) {
+                case DOT_PRODUCT -> -dotProducts[list];
+                case COSINE_SIMILARITY -> query.norm() > 0.0
+                        ? centroidSquaredNorms[list] - 2.0 * dotProducts[list] / query.norm()
+                        : centroidSquaredNorms[list];
+                case EUCLIDEAN_DISTANCE, EUCLIDEAN_DISTANCE_NO_SQRT ->
+                    centroidSquaredNorms[list] - 2.0 * dotProducts[list];
+            };
+        }
+
+        // Keep the nearest lists in order with an insertion sort of length probes
+        int[] nearest = new int[probes];
+        int found = 0;
+        for (int list = 0; list < lists; list++) {
+            if (found == probes && distances[list] >= distances[nearest[probes - 1]])
+                continue;
+
+            int i = found < probes ? found++ : probes - 1;
+            while (i > 0 && distances[nearest[i - 1]] > distances[list]) {
+                nearest[i] = nearest[i - 1];
+                i--;
+            }
+            nearest[i] = list;
+        }
+
+        return nearest;
+    }
+
+}
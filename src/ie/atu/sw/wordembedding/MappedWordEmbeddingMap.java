@@ -0,0 +1,161 @@
+package ie.atu.sw.wordembedding;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import ie.atu.sw.util.EmbeddingVector;
+import ie.atu.sw.util.TermDictionary;
+
+/**
+ * Implementation of {@link RowWordEmbeddingMapAbstract} backed by a
+ * memory-mapped binary snapshot written by {@link EmbeddingSnapshot}.
+ * <p>
+ * Loading only copies the word table into a {@link TermDictionary}. Vectors stay
+ * in the mapped file and a {@link WordEmbedding} is created each time one is
+ * requested, at the precision stored in the snapshot, so the heap holds no
+ * vector data for words that are never used.
+ * </p>
+ */
+public class MappedWordEmbeddingMap extends RowWordEmbeddingMapAbstract {
+
+    private final EmbeddingPrecision precision;
+    private final int dimension;
+    private final ByteBuffer[] vectorSegments;
+    private final int rowsPerSegment;
+    private final int[] ranks;
+
+    /**
+     * Constructs the map over the word dictionary and the mapped vectors.
+     *
+     * @param precision      the precision the vectors are stored with
+     * @param dimension      the vector dimension
+     * @param dictionary     the dictionary of words, whose ids are their rows
+     * @param vectorSegments the mapped vectors, in segments of whole rows
+     * @param rowsPerSegment the number of rows in each segment
+     * @param ranks          the rank of the word of each row
+     */
+    private MappedWordEmbeddingMap(
+            EmbeddingPrecision precision,
+            int dimension,
+            TermDictionary dictionary,
+            ByteBuffer[] vectorSegments,
+            int rowsPerSegment,
+            int[] ranks) {
+        super(dictionary);
+        this.precision = precision;
+        this.dimension = dimension;
+        this.vectorSegments = vectorSegments;
+        this.rowsPerSegment = rowsPerSegment;
+        this.ranks = ranks;
+    }
+
+    /**
+     * Maps the snapshot file and copies its word table into a
+     * {@link TermDictionary}. The dictionary's hash function is read from the
+     * snapshot if it was written with one, and built otherwise.
+     *
+     * @param path the path of the snapshot file
+     * @return a map backed by the file
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    static MappedWordEmbeddingMap open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+
+            EmbeddingSnapshot.Header header = EmbeddingSnapshot.readHeader(channel, path);
+            TermDictionary dictionary = EmbeddingSnapshot.readDictionary(channel, header);
+
+            EmbeddingPrecision precision = header.precision();
+            int dimension = header.dimension();
+            int size = header.size();
+
+            // A single mapping is limited to 2 GB, so the vectors are mapped in
+            // segments that each hold a whole number of rows
+            long rowBytes = (long) dimension * precision.getBytes();
+            int rowsPerSegment = rowBytes == 0 ? Math.max(size, 1) : (int) (Integer.MAX_VALUE / rowBytes);
+
+            int segments = size == 0 ? 0 : (size + rowsPerSegment - 1) / rowsPerSegment;
+            ByteBuffer[] vectorSegments = new ByteBuffer[segments];
+
+            for (int i = 0; i < segments; i++) {
+                long firstRow = (long) i * rowsPerSegment;
+                long rows = Math.min(rowsPerSegment, size - firstRow);
+                vectorSegments[i] = EmbeddingSnapshot.map(
+                        channel,
+                        header.vectorsPosition() + firstRow * rowBytes,
+                        rows * rowBytes);
+            }
+
+            return new MappedWordEmbeddingMap(
+                    precision,
+                    dimension,
+                    dictionary,
+                    vectorSegments,
+                    rowsPerSegment,
+                    EmbeddingSnapshot.readRanks(channel, header));
+        }
+    }
+
+    /**
+     * Retrieves the precision the vectors are stored with in the snapshot.
+     *
+     * @return the stored precision
+     */
+    public EmbeddingPrecision getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Retrieves the dimension of the vectors in the snapshot.
+     *
+     * @return the vector dimension
+     */
+    public int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * Reads the vector in the given row of the snapshot, keeping the precision it
+     * is stored with.
+     *
+     * @param row the row of the vector
+     * @return a new embedding vector
+     */
+    @Override
+    protected EmbeddingVector readVector(int row) {
+        ByteBuffer segment = vectorSegments[row / rowsPerSegment];
+        int position = (row % rowsPerSegment) * dimension * precision.getBytes();
+
+        return switch (precision) {
+            case FLOAT64 -> {
+                double[] values = new double[dimension];
+                segment.asDoubleBuffer().get(position / Double.BYTES, values);
+                yield new EmbeddingVector.Float64(values);
+            }
+            case FLOAT32 -> {
+                float[] values = new float[dimension];
+                segment.asFloatBuffer().get(position / Float.BYTES, values);
+                yield new EmbeddingVector.Float32(values);
+            }
+            case FLOAT16 -> {
+                short[] values = new short[dimension];
+                segment.asShortBuffer().get(position / Short.BYTES, values);
+                yield new EmbeddingVector.Float16(values);
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The rank is read from the snapshot.
+     * </p>
+     */
+    @Override
+    protected int readRank(int row) {
+        return ranks[row];
+    }
+
+}
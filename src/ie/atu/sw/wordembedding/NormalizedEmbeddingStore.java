@@ -0,0 +1,227 @@
+package ie.atu.sw.wordembedding;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import ie.atu.sw.util.EmbeddingVector;
+import ie.atu.sw.util.SimilarityAlgorithm;
+import ie.atu.sw.util.Vector;
+import ie.atu.sw.util.WordEmbeddingMapInterface;
+
+/**
+ * Store of single-precision word embeddings prepared once for repeated
+ * similarity scans. The squared norm of every row is computed when the store
+ * is built, and the rows can optionally be stored as unit vectors.
+ * <p>
+ * Every algorithm is then scored with a single dot product per row: cosine
+ * similarity of unit vectors is their dot product, and Euclidean distances use
+ * ||a - b||² = ||a||² + ||b||² - 2a·b with the cached squared norms. The
+ * scores equal those of {@link SimilarityAlgorithm} up to rounding, so the
+ * rankings are the same.
+ * </p>
+ */
+public class NormalizedEmbeddingStore {
+
+    private final int dimension;
+    private final boolean unitRows;
+    private final String[] words;
+    private final float[][] rows;
+    private final double[] squaredNorms;
+
+    /**
+     * Constructs a store from already prepared rows.
+     *
+     * @param dimension    the vector dimension
+     * @param unitRows     whether the rows have been scaled to unit length
+     * @param words        the word of each row
+     * @param rows         the stored rows
+     * @param squaredNorms the squared norm of each row before scaling
+     */
+    private NormalizedEmbeddingStore(
+            int dimension,
+            boolean unitRows,
+            String[] words,
+            float[][] rows,
+            double[] squaredNorms) {
+        this.dimension = dimension;
+        this.unitRows = unitRows;
+        this.words = words;
+        this.rows = rows;
+        this.squaredNorms = squaredNorms;
+    }
+
+    /**
+     * Builds a store holding the given words, prepared for the given algorithm.
+     * For {@link SimilarityAlgorithm#COSINE_SIMILARITY} the rows are stored as
+     * unit vectors; otherwise they are stored as they are, with their squared
+     * norms. Words without an embedding in the map are skipped. Time
+     * complexity: O(n⋅m), for n words of dimension m.
+     *
+     * @param wordEmbeddingMap    the word embeddings to store
+     * @param words               the words to include
+     * @param similarityAlgorithm the algorithm the store will be scanned with
+     * @return a new store
+     * @throws IllegalArgumentException if the embeddings do not all have the same
+     *                                  dimension
+     */
+    public static NormalizedEmbeddingStore fromMap(
+            WordEmbeddingMapInterface wordEmbeddingMap,
+            Collection<String> words,
+            SimilarityAlgorithm similarityAlgorithm)
+            throws IllegalArgumentException {
+
+        boolean unitRows = similarityAlgorithm == SimilarityAlgorithm.COSINE_SIMILARITY;
+        List<String> storedWords = new ArrayList<>(words.size());
+        List<float[]> rows = new ArrayList<>(words.size());
+
+        for (String word : words) {
+            WordEmbedding wordEmbedding = wordEmbeddingMap.getWordEmbedding(word);
+            if (wordEmbedding != null) {
+                storedWords.add(word);
+                rows.add(wordEmbedding.vector().toFloatArray());
+            }
+        }
+
+        int dimension = rows.isEmpty() ? 0 : rows.getFirst().length;
+        double[] squaredNorms = new double[rows.size()];
+
+        for (int row = 0; row < rows.size(); row++) {
+            float[] values = rows.get(row);
+            if (values.length != dimension)
+                throw new IllegalArgumentException(
+                        "Embedding has dimension " + values.length + ", expected " + dimension);
+
+            double norm;
+            if (unitRows) {
+                float[] unit = values.clone();
+                norm = Vector.normalize(unit);
+                rows.set(row, unit);
+            } else {
+                norm = Vector.norm(values);
+            }
+            squaredNorms[row] = norm * norm;
+        }
+
+        return new NormalizedEmbeddingStore(
+                dimension,
+                unitRows,
+                storedWords.toArray(new String[0]),
+                rows.toArray(new float[0][]),
+                squaredNorms);
+    }
+
+    /**
+     * Retrieves the number of rows in the store.
+     *
+     * @return the number of stored words
+     */
+    public int getSize() {
+        return words.length;
+    }
+
+    /**
+     * Retrieves the dimension of the stored vectors.
+     *
+     * @return the vector dimension
+     */
+    public int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * Retrieves the word stored in the given row.
+     *
+     * @param row the row
+     * @return the word
+     */
+    public String getWord(int row) {
+        return words[row];
+    }
+
+    /**
+     * Checks if the rows are stored as unit vectors.
+     *
+     * @return true if the rows have been scaled to unit length
+     */
+    public boolean hasUnitRows() {
+        return unitRows;
+    }
+
+    /**
+     * Prepares a query for scoring against the stored rows. The query is
+     * converted to single precision, its squared norm is computed, and it is
+     * scaled to unit length if the rows are. Time complexity: O(m).
+     *
+     * @param query the query embedding
+     * @return the prepared query
+     * @throws IllegalArgumentException if the query dimension differs from the
+     *                                  store's
+     */
+    public Query prepareQuery(EmbeddingVector query) throws IllegalArgumentException {
+        if (query.dimension() != dimension)
+            throw new IllegalArgumentException(
+                    "Query has dimension " + query.dimension() + ", expected " + dimension);
+
+        float[] values = query.toFloatArray();
+        if (unitRows) {
+            values = values.clone();
+            double norm = Vector.normalize(values);
+            return new Query(values, norm * norm);
+        }
+
+        double norm = Vector.norm(values);
+        return new Query(values, norm * norm);
+    }
+
+    /**
+     * Computes the dot product of a stored row with a prepared query. Time
+     * complexity: O(m).
+     *
+     * @param row   the row
+     * @param query the prepared query
+     * @return the dot product
+     */
+    public double dotProduct(int row, Query query) {
+        return Vector.getKernels().dotProduct(rows[row], query.values());
+    }
+
+    /**
+     * Scores a stored row against a prepared query with the given algorithm,
+     * using one dot product and the cached squared norms. Cosine similarity
+     * requires a store with unit rows. Time complexity: O(m).
+     *
+     * @param row                 the row
+     * @param query               the prepared query
+     * @param similarityAlgorithm the algorithm to score with
+     * @return the similarity or distance
+     * @throws IllegalStateException if cosine similarity is requested from a
+     *                               store without unit rows, or another
+     *                               algorithm from a store with them
+     */
+    public double score(int row, Query query, SimilarityAlgorithm similarityAlgorithm) throws IllegalStateException {
+        if (unitRows != (similarityAlgorithm == SimilarityAlgorithm.COSINE_SIMILARITY))
+            throw new IllegalStateException("Store was not prepared for " + similarityAlgorithm);
+
+        double dotProduct = dotProduct(row, query);
+
+        return switch (similarityAlgorithm) {
+            case DOT_PRODUCT, COSINE_SIMILARITY -> dotProduct;
+            case EUCLIDEAN_DISTANCE_NO_SQRT ->
+                Math.max(0.0, squaredNorms[row] + query.squaredNorm() - 2.0 * dotProduct);
+            case EUCLIDEAN_DISTANCE ->
+                Math.sqrt(Math.max(0.0, squaredNorms[row] + query.squaredNorm() - 2.0 * dotProduct));
+        };
+    }
+
+    /**
+     * Record holding a query prepared by {@link #prepareQuery(EmbeddingVector)}.
+     *
+     * @param values      the query values, scaled to unit length if the rows are
+     * @param squaredNorm the squared norm of the query before scaling
+     */
+    public record Query(float[] values, double squaredNorm) {
+
+    }
+
+}
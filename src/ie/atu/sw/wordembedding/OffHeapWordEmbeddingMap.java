@@ -0,0 +1,188 @@
+package ie.atu.sw.wordembedding;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+import ie.atu.sw.util.EmbeddingVector;
+import ie.atu.sw.util.SimilarityAlgorithm;
+import ie.atu.sw.util.TermDictionary;
+import ie.atu.sw.util.WordEmbeddingMapInterface;
+
+/**
+ * Implementation of {@link RowWordEmbeddingMapAbstract} that stores every
+ * vector at single precision in one row-major matrix held off the Java heap,
+ * in direct buffers. Words are addressed by integer id, and the similarity
+ * kernels read rows in place through {@link #getRows(int)} and
+ * {@link #getRowOffset(int)}, so a scan over consecutive ids is a sequential
+ * sweep through memory.
+ * <p>
+ * The heap only holds the word dictionary, so the work done by a full garbage
+ * collection does not grow with the number or size of the vectors. The matrix
+ * is split into segments of whole rows, each under 2 GB, and counts against
+ * the {@code -XX:MaxDirectMemorySize} limit; it is freed when the map is
+ * garbage collected.
+ * </p>
+ */
+public class OffHeapWordEmbeddingMap extends RowWordEmbeddingMapAbstract {
+
+    private final int dimension;
+    private final FloatBuffer[] segments;
+    private final int rowsPerSegment;
+    private final int[] ranks;
+
+    /**
+     * Constructs the map over the given words and matrix segments.
+     *
+     * @param dimension      the vector dimension
+     * @param words          the word of each row
+     * @param ranks          the rank of the word of each row
+     * @param segments       the matrix, in segments of whole rows
+     * @param rowsPerSegment the number of rows in each segment
+     */
+    private OffHeapWordEmbeddingMap(
+            int dimension,
+            String[] words,
+            int[] ranks,
+            FloatBuffer[] segments,
+            int rowsPerSegment) {
+        super(TermDictionary.build(words));
+        this.dimension = dimension;
+        this.ranks = ranks;
+        this.segments = segments;
+        this.rowsPerSegment = rowsPerSegment;
+    }
+
+    /**
+     * Copies a word embedding map into a new off-heap matrix. The source map can
+     * be discarded afterwards. Time complexity: O(n⋅m), for n words of dimension
+     * m.
+     *
+     * @param wordEmbeddingMap the word embeddings to copy
+     * @return a new off-heap word embedding map
+     * @throws IllegalArgumentException if the embeddings do not all have the same
+     *                                  dimension
+     */
+    public static OffHeapWordEmbeddingMap fromMap(WordEmbeddingMapInterface wordEmbeddingMap)
+            throws IllegalArgumentException {
+
+        int size = wordEmbeddingMap.getSize();
+        String[] words = new String[size];
+        int[] ranks = new int[size];
+        int dimension = -1;
+        int rowsPerSegment = 1;
+        FloatBuffer[] segments = null;
+
+        int row = 0;
+        for (WordEmbedding wordEmbedding : wordEmbeddingMap.getEmbeddings()) {
+            EmbeddingVector vector = wordEmbedding.vector();
+
+            if (dimension < 0) {
+                dimension = vector.dimension();
+                long rowBytes = (long) dimension * Float.BYTES;
+                rowsPerSegment = rowBytes == 0 ? size : (int) Math.min(size, Integer.MAX_VALUE / rowBytes);
+                segments = new FloatBuffer[(size + rowsPerSegment - 1) / rowsPerSegment];
+                for (int i = 0; i < segments.length; i++) {
+                    int rows = Math.min(rowsPerSegment, size - i * rowsPerSegment);
+                    segments[i] = ByteBuffer
+                            .allocateDirect(rows * dimension * Float.BYTES)
+                            .order(ByteOrder.nativeOrder())
+                            .asFloatBuffer();
+                }
+            } else if (vector.dimension() != dimension) {
+                throw new IllegalArgumentException(
+                        "Embedding for \"" + wordEmbedding.word() + "\" has dimension "
+                                + vector.dimension() + ", expected " + dimension);
+            }
+
+            words[row] = wordEmbedding.word();
+            ranks[row] = wordEmbedding.rank();
+            FloatBuffer segment = segments[row / rowsPerSegment];
+            int offset = (row % rowsPerSegment) * dimension;
+            if (vector instanceof EmbeddingVector.Float32 float32) {
+                segment.put(offset, float32.values());
+            } else {
+                for (int i = 0; i < dimension; i++)
+                    segment.put(offset + i, (float) vector.get(i));
+            }
+            row++;
+        }
+
+        return new OffHeapWordEmbeddingMap(
+                Math.max(dimension, 0),
+                words,
+                ranks,
+                segments == null ? new FloatBuffer[0] : segments,
+                rowsPerSegment);
+    }
+
+    /**
+     * Retrieves the dimension of the vectors in the matrix.
+     *
+     * @return the vector dimension
+     */
+    public int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * Retrieves the buffer holding the row of the word with the given id. The
+     * row starts at {@link #getRowOffset(int)} and has {@link #getDimension()}
+     * elements. The buffer must not be written to.
+     *
+     * @param id the id of the word
+     * @return the segment of the matrix holding the row
+     */
+    public FloatBuffer getRows(int id) {
+        return segments[id / rowsPerSegment];
+    }
+
+    /**
+     * Retrieves the index, in the buffer returned by {@link #getRows(int)}, of
+     * the first element of the row of the word with the given id.
+     *
+     * @param id the id of the word
+     * @return the offset of the row
+     */
+    public int getRowOffset(int id) {
+        return (id % rowsPerSegment) * dimension;
+    }
+
+    /**
+     * Calculates the similarity or distance between the row of the word with the
+     * given id and a vector, reading the row in place. Time complexity: O(m).
+     *
+     * @param id                  the id of the word
+     * @param vector              the single-precision vector to compare with
+     * @param similarityAlgorithm the algorithm to compare with
+     * @return the calculated similarity or distance
+     */
+    public double calculate(int id, float[] vector, SimilarityAlgorithm similarityAlgorithm) {
+        return similarityAlgorithm.calculate(getRows(id), getRowOffset(id), vector);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The row is copied into a new single-precision vector.
+     * </p>
+     */
+    @Override
+    protected EmbeddingVector readVector(int row) {
+        float[] values = new float[dimension];
+        getRows(row).get(getRowOffset(row), values);
+        return new EmbeddingVector.Float32(values);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The rank is copied from the source map.
+     * </p>
+     */
+    @Override
+    protected int readRank(int row) {
+        return ranks[row];
+    }
+
+}
@@ -0,0 +1,396 @@
+package ie.atu.sw.wordembedding;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import ie.atu.sw.util.EmbeddingVector;
+import ie.atu.sw.util.SimilarityAlgorithm;
+import ie.atu.sw.util.Vector;
+import ie.atu.sw.util.WordEmbeddingMapInterface;
+
+/**
+ * Matrix of single-precision word embeddings packed row-major into one
+ * contiguous {@code float[]}, with the norm of every row computed when the
+ * matrix is built. A query is scored against a block of consecutive rows at a
+ * time: one matrix-vector product of the block with the query, followed by a
+ * loop specialized for the similarity algorithm that turns the dot products
+ * into scores with the cached norms. The rows are read once, in memory order,
+ * and the scores of a block stay in the cache until they are used.
+ * <p>
+ * The rows are stored as they are, so one matrix serves every
+ * {@link SimilarityAlgorithm}; scores equal those of the algorithm up to
+ * rounding.
+ * </p>
+ */
+public class PackedEmbeddingMatrix {
+
+    /**
+     * The number of rows scored per block. The block's dot products and scores
+     * take a few kilobytes, well within the first-level cache.
+     */
+    public static final int BLOCK_ROWS = 512;
+
+    /**
+     * The number of queries scored together by
+     * {@link #scoreBlock(int, int, QueryBlock, SimilarityAlgorithm, float[], double[])}.
+     * A block of rows is read from memory once for all of them, while it is in
+     * the cache.
+     */
+    public static final int QUERY_BLOCK = 16;
+
+    private final int dimension;
+    private final String[] words;
+    private final float[] matrix;
+    private final double[] norms;
+    private final double[] squaredNorms;
+
+    /**
+     * Constructs a matrix from already packed rows.
+     *
+     * @param dimension    the vector dimension
+     * @param words        the word of each row
+     * @param matrix       the row-major rows
+     * @param norms        the norm of each row
+     * @param squaredNorms the squared norm of each row
+     */
+    private PackedEmbeddingMatrix(
+            int dimension,
+            String[] words,
+            float[] matrix,
+            double[] norms,
+            double[] squaredNorms) {
+        this.dimension = dimension;
+        this.words = words;
+        this.matrix = matrix;
+        this.norms = norms;
+        this.squaredNorms = squaredNorms;
+    }
+
+    /**
+     * Builds a matrix holding the given words. Words without an embedding in the
+     * map are skipped. Time complexity: O(n⋅m), for n words of dimension m.
+     *
+     * @param wordEmbeddingMap the word embeddings to pack
+     * @param words            the words to include
+     * @return a new packed matrix
+     * @throws IllegalArgumentException if the embeddings do not all have the same
+     *                                  dimension, or there are too many of them
+     */
+    public static PackedEmbeddingMatrix fromMap(
+            WordEmbeddingMapInterface wordEmbeddingMap,
+            Collection<String> words)
+            throws IllegalArgumentException {
+
+        List<String> storedWords = new ArrayList<>(words.size());
+        List<EmbeddingVector> vectors = new ArrayList<>(words.size());
+
+        for (String word : words) {
+            WordEmbedding wordEmbedding = wordEmbeddingMap.getWordEmbedding(word);
+            if (wordEmbedding != null) {
+                storedWords.add(word);
+                vectors.add(wordEmbedding.vector());
+            }
+        }
+
+        int rows = vectors.size();
+        int dimension = rows == 0 ? 0 : vectors.getFirst().dimension();
+
+        if ((long) rows * dimension > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Too many vectors to pack: " + rows + " x " + dimension);
+
+        float[] matrix = new float[rows * dimension];
+
+        for (int row = 0; row < rows; row++) {
+            EmbeddingVector vector = vectors.get(row);
+            if (vector.dimension() != dimension)
+                throw new IllegalArgumentException(
+                        "Embedding has dimension " + vector.dimension() + ", expected " + dimension);
+
+            System.arraycopy(vector.toFloatArray(), 0, matrix, row * dimension, dimension);
+        }
+
+        return fromRows(dimension, storedWords.toArray(new String[0]), matrix);
+    }
+
+    /**
+     * Builds a matrix from packed rows, computing the norm of every row. Time
+     * complexity: O(n⋅m), for n rows of dimension m.
+     *
+     * @param dimension the vector dimension
+     * @param words     the word of each row
+     * @param matrix    the row-major rows
+     * @return a new packed matrix
+     */
+    private static PackedEmbeddingMatrix fromRows(int dimension, String[] words, float[] matrix) {
+        double[] norms = new double[words.length];
+        double[] squaredNorms = new double[words.length];
+
+        for (int row = 0; row < words.length; row++) {
+            norms[row] = Vector.norm(matrix, row * dimension, dimension);
+            squaredNorms[row] = norms[row] * norms[row];
+        }
+
+        return new PackedEmbeddingMatrix(dimension, words, matrix, norms, squaredNorms);
+    }
+
+    /**
+     * Writes the words and rows of the matrix to a stream. The norms are not
+     * written; {@link #read(DataInputStream)} computes them again.
+     *
+     * @param out the stream to write to
+     * @throws IOException if an I/O error occurs while writing
+     */
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(dimension);
+        out.writeInt(words.length);
+
+        for (String word : words) {
+            byte[] encodedWord = word.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(encodedWord.length);
+            out.write(encodedWord);
+        }
+
+        for (float value : matrix)
+            out.writeFloat(value);
+    }
+
+    /**
+     * Reads a matrix written by {@link #write(DataOutputStream)}.
+     *
+     * @param in the stream to read from
+     * @return the matrix
+     * @throws IOException if an I/O error occurs while reading, or the stream
+     *                     does not hold a valid matrix
+     */
+    static PackedEmbeddingMatrix read(DataInputStream in) throws IOException {
+        int dimension = in.readInt();
+        int rows = in.readInt();
+        if (dimension < 0 || rows < 0 || (long) rows * dimension > Integer.MAX_VALUE)
+            throw new IOException("Corrupt packed matrix: " + rows + " x " + dimension);
+
+        String[] words = new String[rows];
+        for (int row = 0; row < rows; row++)
+            words[row] = new String(in.readNBytes(in.readInt()), StandardCharsets.UTF_8);
+
+        float[] matrix = new float[rows * dimension];
+        for (int i = 0; i < matrix.length; i++)
+            matrix[i] = in.readFloat();
+
+        return fromRows(dimension, words, matrix);
+    }
+
+    /**
+     * Retrieves the number of rows in the matrix.
+     *
+     * @return the number of stored words
+     */
+    public int getSize() {
+        return words.length;
+    }
+
+    /**
+     * Retrieves the dimension of the stored vectors.
+     *
+     * @return the vector dimension
+     */
+    public int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * Retrieves the word stored in the given row.
+     *
+     * @param row the row
+     * @return the word
+     */
+    public String getWord(int row) {
+        return words[row];
+    }
+
+    /**
+     * Prepares a query for scoring against the rows: converts it to single
+     * precision and computes its norm. Time complexity: O(m).
+     *
+     * @param query the query embedding
+     * @return the prepared query
+     * @throws IllegalArgumentException if the query dimension differs from the
+     *                                  matrix's
+     */
+    public Query prepareQuery(EmbeddingVector query) throws IllegalArgumentException {
+        if (query.dimension() != dimension)
+            throw new IllegalArgumentException(
+                    "Query has dimension " + query.dimension() + ", expected " + dimension);
+
+        float[] values = query.toFloatArray();
+        double norm = Vector.norm(values);
+        return new Query(values, norm, norm * norm);
+    }
+
+    /**
+     * Scores a block of consecutive rows against a prepared query. Time
+     * complexity: O(r⋅m), for r rows.
+     *
+     * @param firstRow            the first row of the block
+     * @param rowCount            the number of rows, at most the length of the
+     *                            arrays
+     * @param query               the prepared query
+     * @param similarityAlgorithm the algorithm to score with
+     * @param dotProducts         an array for the dot products of the block
+     * @param scores              the array receiving the score of each row of the
+     *                            block, from index 0
+     */
+    public void scoreBlock(
+            int firstRow,
+            int rowCount,
+            Query query,
+            SimilarityAlgorithm similarityAlgorithm,
+            float[] dotProducts,
+            double[] scores) {
+        Vector.getKernels().matrixVectorProduct(matrix, firstRow, rowCount, query.values(), dotProducts);
+        toScores(firstRow, rowCount, query.norm(), query.squaredNorm(), similarityAlgorithm, dotProducts, scores, 0);
+    }
+
+    /**
+     * Prepares a block of queries for scoring against the rows together: packs
+     * them row-major in single precision and computes their norms. Time
+     * complexity: O(q⋅m), for q queries.
+     *
+     * @param queries the query embeddings
+     * @return the prepared block of queries
+     * @throws IllegalArgumentException if a query dimension differs from the
+     *                                  matrix's
+     */
+    public QueryBlock prepareQueries(List<EmbeddingVector> queries) throws IllegalArgumentException {
+        float[] values = new float[queries.size() * dimension];
+        double[] queryNorms = new double[queries.size()];
+        double[] querySquaredNorms = new double[queries.size()];
+
+        for (int query = 0; query < queries.size(); query++) {
+            Query preparedQuery = prepareQuery(queries.get(query));
+            System.arraycopy(preparedQuery.values(), 0, values, query * dimension, dimension);
+            queryNorms[query] = preparedQuery.norm();
+            querySquaredNorms[query] = preparedQuery.squaredNorm();
+        }
+
+        return new QueryBlock(values, queries.size(), queryNorms, querySquaredNorms);
+    }
+
+    /**
+     * Scores a block of consecutive rows against a block of prepared queries
+     * with one matrix-matrix product. Time complexity: O(q⋅r⋅m), for q queries
+     * and r rows.
+     *
+     * @param firstRow            the first row of the block
+     * @param rowCount            the number of rows, at most
+     *                            {@link #BLOCK_ROWS}
+     * @param queries             the prepared queries
+     * @param similarityAlgorithm the algorithm to score with
+     * @param dotProducts         an array for the dot products, at least
+     *                            {@code queries.size() * rowCount} long
+     * @param scores              the array receiving the score of query q with
+     *                            row r of the block at index
+     *                            {@code q * rowCount + r}
+     */
+    public void scoreBlock(
+            int firstRow,
+            int rowCount,
+            QueryBlock queries,
+            SimilarityAlgorithm similarityAlgorithm,
+            float[] dotProducts,
+            double[] scores) {
+        Vector.getKernels().matrixMatrixProduct(
+                matrix,
+                firstRow,
+                rowCount,
+                queries.values(),
+                queries.size(),
+                dimension,
+                dotProducts);
+
+        for (int query = 0; query < queries.size(); query++) {
+            toScores(
+                    firstRow,
+                    rowCount,
+                    queries.norms()[query],
+                    queries.squaredNorms()[query],
+                    similarityAlgorithm,
+                    dotProducts,
+                    scores,
+                    query * rowCount);
+        }
+    }
+
+    /**
+     * Turns the dot products of a query with a block of rows into scores, with
+     * a loop specialized for each algorithm.
+     *
+     * @param firstRow            the first row of the block
+     * @param rowCount            the number of rows
+     * @param queryNorm           the norm of the query
+     * @param querySquaredNorm    the squared norm of the query
+     * @param similarityAlgorithm the algorithm to score with
+     * @param dotProducts         the dot products of the query with the rows
+     * @param scores              the array receiving the scores
+     * @param offset              the index of the first dot product and score
+     */
+    private void toScores(
+            int firstRow,
+            int rowCount,
+            double queryNorm,
+            double querySquaredNorm,
+            SimilarityAlgorithm similarityAlgorithm,
+            float[] dotProducts,
+            double[] scores,
+            int offset) {
+        switch (similarityAlgorithm) {
+            case DOT_PRODUCT -> {
+                for (int i = 0; i < rowCount; i++)
+                    scores[offset + i] = dotProducts[offset + i];
+            }
+            case EUCLIDEAN_DISTANCE_NO_SQRT -> {
+                for (int i = 0; i < rowCount; i++)
+                    scores[offset + i] = Math.max(0.0,
+                            squaredNorms[firstRow + i] + querySquaredNorm - 2.0 * dotProducts[offset + i]);
+            }
+            case EUCLIDEAN_DISTANCE -> {
+                for (int i = 0; i < rowCount; i++)
+                    scores[offset + i] = Math.sqrt(Math.max(0.0,
+                            squaredNorms[firstRow + i] + querySquaredNorm - 2.0 * dotProducts[offset + i]));
+            }
+            case COSINE_SIMILARITY -> {
+                for (int i = 0; i < rowCount; i++)
+                    scores[offset + i] = dotProducts[offset + i] / (norms[firstRow + i] * queryNorm);
+            }
+        }
+    }
+
+    /**
+     * Record holding a query prepared by {@link #prepareQuery(EmbeddingVector)}.
+     *
+     * @param values      the single-precision query values
+     * @param norm        the norm of the query
+     * @param squaredNorm the squared norm of the query
+     */
+    public record Query(float[] values, double norm, double squaredNorm) {
+
+    }
+
+    /**
+     * Record holding a block of queries prepared by
+     * {@link #prepareQueries(List)}.
+     *
+     * @param values       the single-precision queries, packed row-major
+     * @param size         the number of queries
+     * @param norms        the norm of each query
+     * @param squaredNorms the squared norm of each query
+     */
+    public record QueryBlock(float[] values, int size, double[] norms, double[] squaredNorms) {
+
+    }
+
+}
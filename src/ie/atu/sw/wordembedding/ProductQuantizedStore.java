@@ -0,0 +1,541 @@
+package ie.atu.sw.wordembedding;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import ie.atu.sw.util.EmbeddingVector;
+import ie.atu.sw.util.KMeans;
+import ie.atu.sw.util.SimilarityAlgorithm;
+import ie.atu.sw.util.WordEmbeddingMapInterface;
+
+/**
+ * Store of word embeddings compressed with product quantization. Each vector
+ * is split into M contiguous sub-spaces, and each sub-vector is replaced by the
+ * index of its nearest centroid in a 256-entry codebook trained for that
+ * sub-space, so that a vector is stored in M bytes.
+ * <p>
+ * Rows are scored with asymmetric distance computation: the query stays at full
+ * precision and, once per query, its dot product with or squared distance to
+ * every centroid is tabulated (see {@link #prepareQuery(EmbeddingVector,
+ * SimilarityAlgorithm)}). Scoring a row is then M table lookups and additions.
+ * </p>
+ * <p>
+ * The codebooks and codes can be written to and read from a file with
+ * {@link #write(String)} and {@link #read(String)}, so that training only needs
+ * to be done once.
+ * </p>
+ */
+public class ProductQuantizedStore {
+
+    /**
+     * The number of centroids in each sub-space codebook, so that a code fits
+     * in one byte.
+     */
+    public static final int CENTROIDS = 256;
+
+    /**
+     * The default number of dimensions in each sub-space.
+     */
+    public static final int DEFAULT_SUBSPACE_DIMENSION = 4;
+
+    static final int MAGIC = 0x51504D45; // "EMPQ" in big-endian byte order
+    static final int VERSION = 1;
+
+    private static final int MAX_TRAINING_VECTORS = 1 << 15;
+    private static final int TRAINING_ITERATIONS = 12;
+    private static final long TRAINING_SEED = 42L;
+
+    private final int dimension;
+    private final int[] subspaceStarts;
+    private final int centroids;
+    private final float[][] codebooks;
+    private final String[] words;
+    private final byte[] codes;
+    private final float[] squaredNorms;
+    private final long trainingHash;
+
+    /**
+     * Constructs a store from trained codebooks and encoded rows.
+     *
+     * @param dimension      the vector dimension
+     * @param subspaceStarts the first dimension of each sub-space, followed by the
+     *                       vector dimension
+     * @param centroids      the number of centroids in each codebook
+     * @param codebooks      the row-major centroids of each sub-space
+     * @param words          the word of each row
+     * @param codes          the row-major codes, one byte per sub-space
+     * @param squaredNorms   the squared norm of each reconstructed row
+     * @param trainingHash   the hash of the embeddings the codebooks were
+     *                       trained on
+     */
+    private ProductQuantizedStore(
+            int dimension,
+            int[] subspaceStarts,
+            int centroids,
+            float[][] codebooks,
+            String[] words,
+            byte[] codes,
+            float[] squaredNorms,
+            long trainingHash) {
+        this.dimension = dimension;
+        this.subspaceStarts = subspaceStarts;
+        this.centroids = centroids;
+        this.codebooks = codebooks;
+        this.words = words;
+        this.codes = codes;
+        this.squaredNorms = squaredNorms;
+        this.trainingHash = trainingHash;
+    }
+
+    /**
+     * Trains codebooks on the embeddings of the whole map, with sub-spaces of
+     * {@link #DEFAULT_SUBSPACE_DIMENSION} dimensions, and encodes the given
+     * words.
+     *
+     * @param wordEmbeddingMap the word embeddings to train on and encode
+     * @param words            the words to encode
+     * @return a new product-quantized store
+     * @throws IllegalArgumentException if the embeddings do not all have the same
+     *                                  dimension
+     */
+    public static ProductQuantizedStore fromMap(WordEmbeddingMapInterface wordEmbeddingMap, Collection<String> words)
+            throws IllegalArgumentException {
+        return fromMap(wordEmbeddingMap, words, defaultSubspaces(wordEmbeddingMap));
+    }
+
+    /**
+     * Retrieves the number of sub-spaces of {@link #DEFAULT_SUBSPACE_DIMENSION}
+     * dimensions the embeddings of a map are split into.
+     *
+     * @param wordEmbeddingMap the word embeddings
+     * @return the number of sub-spaces M, at least 1
+     */
+    private static int defaultSubspaces(WordEmbeddingMapInterface wordEmbeddingMap) {
+        int dimension = wordEmbeddingMap.getEmbeddings().stream()
+                .findFirst()
+                .map(wordEmbedding -> wordEmbedding.vector().dimension())
+                .orElse(0);
+        return Math.max(1, (dimension + DEFAULT_SUBSPACE_DIMENSION - 1) / DEFAULT_SUBSPACE_DIMENSION);
+    }
+
+    /**
+     * Trains codebooks on the embeddings of the whole map and encodes the given
+     * words. Training runs parallel k-means in each sub-space over a random
+     * sample of at most 32768 embeddings. Words without an embedding in the map
+     * are skipped.
+     * <p>
+     * Time complexity: O(i⋅s⋅256⋅m / p) for training on s sampled vectors of
+     * dimension m over i iterations with p workers, plus O(n⋅256⋅m) for encoding n
+     * words.
+     * </p>
+     *
+     * @param wordEmbeddingMap the word embeddings to train on and encode
+     * @param words            the words to encode
+     * @param subspaces        the number of sub-spaces M to split each vector
+     *                         into
+     * @return a new product-quantized store
+     * @throws IllegalArgumentException if the embeddings do not all have the same
+     *                                  dimension, or M is not between 1 and the
+     *                                  dimension
+     */
+    public static ProductQuantizedStore fromMap(
+            WordEmbeddingMapInterface wordEmbeddingMap,
+            Collection<String> words,
+            int subspaces)
+            throws IllegalArgumentException {
+
+        List<EmbeddingVector> trainingVectors = new ArrayList<>(wordEmbeddingMap.getSize());
+        long trainingHash = 0;
+        for (WordEmbedding wordEmbedding : wordEmbeddingMap.getEmbeddings()) {
+            trainingVectors.add(wordEmbedding.vector());
+            trainingHash += hash(wordEmbedding);
+        }
+
+        int dimension = trainingVectors.isEmpty() ? 0 : trainingVectors.getFirst().dimension();
+        if (subspaces < 1 || subspaces > Math.max(1, dimension))
+            throw new IllegalArgumentException(
+                    "Cannot split dimension " + dimension + " into " + subspaces + " sub-spaces");
+
+        int[] subspaceStarts = new int[subspaces + 1];
+        for (int m = 0; m <= subspaces; m++)
+            subspaceStarts[m] = m * dimension / subspaces;
+
+        Random random = new Random(TRAINING_SEED);
+        for (int i = trainingVectors.size() - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            trainingVectors.set(i, trainingVectors.set(j, trainingVectors.get(i)));
+        }
+        int sampleSize = Math.min(MAX_TRAINING_VECTORS, trainingVectors.size());
+        float[] sample = pack(trainingVectors.subList(0, sampleSize), dimension);
+
+        int centroids = Math.min(CENTROIDS, sampleSize);
+        float[][] codebooks = new float[subspaces][];
+
+        for (int m = 0; m < subspaces; m++) {
+            int start = subspaceStarts[m];
+            int subDimension = subspaceStarts[m + 1] - start;
+            float[] subVectors = new float[sampleSize * subDimension];
+            for (int row = 0; row < sampleSize; row++)
+                System.arraycopy(sample, row * dimension + start, subVectors, row * subDimension, subDimension);
+
+            codebooks[m] = centroids == 0
+                    ? new float[0]
+                    : KMeans.train(subVectors, sampleSize, subDimension, centroids, TRAINING_ITERATIONS,
+                            TRAINING_SEED + m);
+        }
+
+        List<String> storedWords = new ArrayList<>(words.size());
+        List<EmbeddingVector> vectors = new ArrayList<>(words.size());
+        for (String word : words) {
+            WordEmbedding wordEmbedding = wordEmbeddingMap.getWordEmbedding(word);
+            if (wordEmbedding != null) {
+                storedWords.add(word);
+                vectors.add(wordEmbedding.vector());
+            }
+        }
+
+        float[] packed = pack(vectors, dimension);
+        int rows = vectors.size();
+        byte[] codes = new byte[rows * subspaces];
+        float[] squaredNorms = new float[rows];
+
+        IntStream.range(0, rows).parallel().forEach(row -> {
+            float squaredNorm = 0.0f;
+            for (int m = 0; m < subspaces; m++) {
+                int start = subspaceStarts[m];
+                int subDimension = subspaceStarts[m + 1] - start;
+                int code = KMeans.nearest(codebooks[m], centroids, packed, row * dimension + start, subDimension);
+                codes[row * subspaces + m] = (byte) code;
+                for (int i = 0; i < subDimension; i++) {
+                    float value = codebooks[m][code * subDimension + i];
+                    squaredNorm += value * value;
+                }
+            }
+            squaredNorms[row] = squaredNorm;
+        });
+
+        return new ProductQuantizedStore(
+                dimension,
+                subspaceStarts,
+                centroids,
+                codebooks,
+                storedWords.toArray(new String[0]),
+                codes,
+                squaredNorms,
+                trainingHash);
+    }
+
+    /**
+     * Hashes a word and its vector, so that the embeddings the codebooks were
+     * trained on can be recognised. The hashes of a map are summed, which does
+     * not depend on the order of its embeddings.
+     *
+     * @param wordEmbedding the word embedding
+     * @return the hash, spread over 64 bits
+     */
+    private static long hash(WordEmbedding wordEmbedding) {
+        long hash = 31L * wordEmbedding.word().hashCode() + Arrays.hashCode(wordEmbedding.vector().toFloatArray());
+        // Mix the bits, so that sums of hashes rarely collide (SplitMix64 finaliser)
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        return hash ^ (hash >>> 31);
+    }
+
+    /**
+     * Checks if the store would be built from the given embeddings and words
+     * with sub-spaces of {@link #DEFAULT_SUBSPACE_DIMENSION} dimensions: its
+     * codebooks were trained on exactly the embeddings of the map, and it holds
+     * exactly the given words that have an embedding. Time complexity: O(N⋅m)
+     * for N embeddings of dimension m.
+     *
+     * @param wordEmbeddingMap the word embeddings
+     * @param words            the words
+     * @return true if the store would be built from them
+     */
+    public boolean isBuiltFrom(WordEmbeddingMapInterface wordEmbeddingMap, Collection<String> words) {
+        if (getSubspaces() != defaultSubspaces(wordEmbeddingMap))
+            return false;
+
+        long hash = 0;
+        for (WordEmbedding wordEmbedding : wordEmbeddingMap.getEmbeddings())
+            hash += hash(wordEmbedding);
+        if (hash != trainingHash)
+            return false;
+
+        Set<String> storedWords = new HashSet<>(Arrays.asList(this.words));
+        int matched = 0;
+        for (String word : words) {
+            if (wordEmbeddingMap.getWordEmbedding(word) == null)
+                continue;
+            if (!storedWords.contains(word))
+                return false;
+            matched++;
+        }
+
+        return matched == this.words.length;
+    }
+
+    /**
+     * Packs vectors into a row-major array of floats.
+     *
+     * @param vectors   the vectors to pack
+     * @param dimension the expected dimension
+     * @return the packed vectors
+     * @throws IllegalArgumentException if a vector has a different dimension
+     */
+    private static float[] pack(List<EmbeddingVector> vectors, int dimension) throws IllegalArgumentException {
+        if ((long) vectors.size() * dimension > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Too many vectors to quantize: " + vectors.size() + " x " + dimension);
+
+        float[] packed = new float[vectors.size() * dimension];
+        for (int row = 0; row < vectors.size(); row++) {
+            EmbeddingVector vector = vectors.get(row);
+            if (vector.dimension() != dimension)
+                throw new IllegalArgumentException(
+                        "Embedding has dimension " + vector.dimension() + ", expected " + dimension);
+            for (int i = 0; i < dimension; i++)
+                packed[row * dimension + i] = (float) vector.get(i);
+        }
+        return packed;
+    }
+
+    /**
+     * Writes the codebooks and codes to a file. Time complexity: O(n⋅M), for n
+     * rows.
+     *
+     * @param fileName the name of the file to write
+     * @throws IOException if an I/O error occurs while writing
+     */
+    public void write(String fileName) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(Path.of(fileName))))) {
+
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(dimension);
+            out.writeInt(getSubspaces());
+            out.writeInt(centroids);
+            out.writeInt(words.length);
+            out.writeLong(trainingHash);
+
+            for (int start : subspaceStarts)
+                out.writeInt(start);
+
+            for (float[] codebook : codebooks)
+                for (float value : codebook)
+                    out.writeFloat(value);
+
+            for (String word : words) {
+                byte[] encodedWord = word.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(encodedWord.length);
+                out.write(encodedWord);
+            }
+
+            out.write(codes);
+
+            for (float squaredNorm : squaredNorms)
+                out.writeFloat(squaredNorm);
+        }
+    }
+
+    /**
+     * Reads codebooks and codes written by {@link #write(String)}. Time
+     * complexity: O(n⋅M), for n rows.
+     *
+     * @param fileName the name of the file to read
+     * @return the product-quantized store held in the file
+     * @throws IOException if the file cannot be read or is not a valid
+     *                     product-quantized store
+     */
+    public static ProductQuantizedStore read(String fileName) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(Path.of(fileName))))) {
+
+            if (in.readInt() != MAGIC)
+                throw new IOException("Not a product-quantized store: " + fileName);
+            int version = in.readInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported product-quantized store version " + version + ": " + fileName);
+
+            int dimension = in.readInt();
+            int subspaces = in.readInt();
+            int centroids = in.readInt();
+            int rows = in.readInt();
+            long trainingHash = in.readLong();
+
+            int[] subspaceStarts = new int[subspaces + 1];
+            for (int m = 0; m <= subspaces; m++)
+                subspaceStarts[m] = in.readInt();
+
+            float[][] codebooks = new float[subspaces][];
+            for (int m = 0; m < subspaces; m++) {
+                codebooks[m] = new float[centroids * (subspaceStarts[m + 1] - subspaceStarts[m])];
+                for (int i = 0; i < codebooks[m].length; i++)
+                    codebooks[m][i] = in.readFloat();
+            }
+
+            String[] words = new String[rows];
+            for (int row = 0; row < rows; row++)
+                words[row] = new String(in.readNBytes(in.readInt()), StandardCharsets.UTF_8);
+
+            byte[] codes = new byte[rows * subspaces];
+            in.readFully(codes);
+
+            float[] squaredNorms = new float[rows];
+            for (int row = 0; row < rows; row++)
+                squaredNorms[row] = in.readFloat();
+
+            return new ProductQuantizedStore(
+                    dimension,
+                    subspaceStarts,
+                    centroids,
+                    codebooks,
+                    words,
+                    codes,
+                    squaredNorms,
+                    trainingHash);
+        }
+    }
+
+    /**
+     * Retrieves the number of rows in the store.
+     *
+     * @return the number of stored words
+     */
+    public int getSize() {
+        return words.length;
+    }
+
+    /**
+     * Retrieves the dimension of the stored vectors.
+     *
+     * @return the vector dimension
+     */
+    public int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * Retrieves the number of sub-spaces, which is also the number of code bytes
+     * per row.
+     *
+     * @return the number of sub-spaces M
+     */
+    public int getSubspaces() {
+        return codebooks.length;
+    }
+
+    /**
+     * Retrieves the word stored in the given row.
+     *
+     * @param row the row
+     * @return the word
+     */
+    public String getWord(int row) {
+        return words[row];
+    }
+
+    /**
+     * Builds the lookup tables for scoring the stored rows against a query. For
+     * the Euclidean algorithms the tables hold the squared distance from each
+     * query sub-vector to each centroid; otherwise they hold the dot products.
+     * Time complexity: O(256⋅m).
+     *
+     * @param query               the query embedding
+     * @param similarityAlgorithm the algorithm the rows will be scored with
+     * @return the prepared query
+     * @throws IllegalArgumentException if the query dimension differs from the
+     *                                  store's
+     */
+    public Query prepareQuery(EmbeddingVector query, SimilarityAlgorithm similarityAlgorithm)
+            throws IllegalArgumentException {
+        if (query.dimension() != dimension)
+            throw new IllegalArgumentException(
+                    "Query has dimension " + query.dimension() + ", expected " + dimension);
+
+        boolean euclidean = similarityAlgorithm == SimilarityAlgorithm.EUCLIDEAN_DISTANCE
+                || similarityAlgorithm == SimilarityAlgorithm.EUCLIDEAN_DISTANCE_NO_SQRT;
+
+        int subspaces = getSubspaces();
+        float[] tables = new float[subspaces * centroids];
+
+        for (int m = 0; m < subspaces; m++) {
+            int start = subspaceStarts[m];
+            int subDimension = subspaceStarts[m + 1] - start;
+            float[] codebook = codebooks[m];
+
+            for (int code = 0; code < centroids; code++) {
+                int centroidBase = code * subDimension;
+                float value = 0.0f;
+                for (int i = 0; i < subDimension; i++) {
+                    float element = (float) query.get(start + i);
+                    if (euclidean) {
+                        float difference = element - codebook[centroidBase + i];
+                        value += difference * difference;
+                    } else {
+                        value += element * codebook[centroidBase + i];
+                    }
+                }
+                tables[m * centroids + code] = value;
+            }
+        }
+
+        double squaredNorm = 0.0;
+        for (int i = 0; i < dimension; i++)
+            squaredNorm += query.get(i) * query.get(i);
+
+        return new Query(tables, similarityAlgorithm, (float) squaredNorm);
+    }
+
+    /**
+     * Scores a stored row against a prepared query by summing one table entry per
+     * sub-space. Time complexity: O(M).
+     *
+     * @param row   the row
+     * @param query the prepared query
+     * @return the approximate similarity or distance, as defined by the
+     *         algorithm the query was prepared for
+     */
+    public double score(int row, Query query) {
+        int subspaces = getSubspaces();
+        int base = row * subspaces;
+        float[] tables = query.tables();
+
+        float sum = 0.0f;
+        for (int m = 0; m < subspaces; m++)
+            sum += tables[m * centroids + (codes[base + m] & 0xFF)];
+
+        return switch (query.similarityAlgorithm()) {
+            case DOT_PRODUCT, EUCLIDEAN_DISTANCE_NO_SQRT -> sum;
+            case EUCLIDEAN_DISTANCE -> Math.sqrt(sum);
+            case COSINE_SIMILARITY -> sum / (Math.sqrt(squaredNorms[row]) * Math.sqrt(query.squaredNorm()));
+        };
+    }
+
+    /**
+     * Record holding a query prepared by
+     * {@link #prepareQuery(EmbeddingVector, SimilarityAlgorithm)}.
+     *
+     * @param tables              the per-sub-space lookup tables, M x 256
+     * @param similarityAlgorithm the algorithm the tables were built for
+     * @param squaredNorm         the squared norm of the query
+     */
+    public record Query(float[] tables, SimilarityAlgorithm similarityAlgorithm, float squaredNorm) {
+
+    }
+
+}
@@ -0,0 +1,404 @@
+package ie.atu.sw.wordembedding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import ie.atu.sw.util.EmbeddingVector;
+import ie.atu.sw.util.SimilarityAlgorithm;
+import ie.atu.sw.util.WordEmbeddingMapInterface;
+
+/**
+ * Store of word embeddings scalar-quantized to signed 8-bit integers, a quarter
+ * of the size of single-precision vectors. Each element is reconstructed as
+ * {@code scale * code + offset}, where the scale and offset are kept either per
+ * vector or per dimension (see {@link Scheme}).
+ * <p>
+ * Similarity is computed directly on the codes. With per-vector parameters the
+ * query is quantized the same way and the dot product is an integer dot
+ * product of the two code arrays, corrected with precomputed code sums. With
+ * per-dimension parameters the query stays at full precision and is folded into
+ * per-dimension weights once, so each row costs one float-by-byte dot product.
+ * Euclidean distances and cosine similarities are derived from the dot product
+ * and the squared norms, which are precomputed for every row.
+ * </p>
+ */
+public class QuantizedEmbeddingStore {
+
+    /**
+     * Enum defining where the quantization scale and offset are kept.
+     */
+    public enum Scheme {
+
+        /**
+         * One scale and offset per vector, fitted to the vector's own range.
+         */
+        PER_VECTOR,
+
+        /**
+         * One scale and offset per dimension, fitted to the range of that
+         * dimension across all vectors.
+         */
+        PER_DIMENSION
+
+    }
+
+    private static final int CODE_LEVELS = 255;
+    private static final int CODE_MIN = -128;
+    private static final int CODE_MAX = 127;
+
+    private final Scheme scheme;
+    private final int dimension;
+    private final String[] words;
+    private final byte[] codes;
+    private final float[] scales;
+    private final float[] offsets;
+    private final int[] codeSums;
+    private final float[] squaredNorms;
+
+    /**
+     * Constructs a store from already quantized data.
+     *
+     * @param scheme       where the scale and offset are kept
+     * @param dimension    the vector dimension
+     * @param words        the word of each row
+     * @param codes        the row-major codes
+     * @param scales       the scale of each row or dimension
+     * @param offsets      the offset of each row or dimension
+     * @param codeSums     the sum of the codes of each row
+     * @param squaredNorms the squared norm of each reconstructed row
+     */
+    private QuantizedEmbeddingStore(
+            Scheme scheme,
+            int dimension,
+            String[] words,
+            byte[] codes,
+            float[] scales,
+            float[] offsets,
+            int[] codeSums,
+            float[] squaredNorms) {
+        this.scheme = scheme;
+        this.dimension = dimension;
+        this.words = words;
+        this.codes = codes;
+        this.scales = scales;
+        this.offsets = offsets;
+        this.codeSums = codeSums;
+        this.squaredNorms = squaredNorms;
+    }
+
+    /**
+     * Builds a quantized store holding every word in the map.
+     *
+     * @param wordEmbeddingMap the word embeddings to quantize
+     * @param scheme           where the scale and offset are kept
+     * @return a new quantized store
+     */
+    public static QuantizedEmbeddingStore fromMap(WordEmbeddingMapInterface wordEmbeddingMap, Scheme scheme) {
+        return fromMap(wordEmbeddingMap, wordEmbeddingMap.getWords(), scheme);
+    }
+
+    /**
+     * Builds a quantized store holding the given words. Words without an
+     * embedding in the map are skipped. Time complexity: O(n⋅m), for n words of
+     * dimension m.
+     *
+     * @param wordEmbeddingMap the word embeddings to quantize
+     * @param words            the words to include
+     * @param scheme           where the scale and offset are kept
+     * @return a new quantized store
+     * @throws IllegalArgumentException if the embeddings do not all have the same
+     *                                  dimension, or there are too many of them
+     */
+    public static QuantizedEmbeddingStore fromMap(
+            WordEmbeddingMapInterface wordEmbeddingMap,
+            Collection<String> words,
+            Scheme scheme)
+            throws IllegalArgumentException {
+
+        List<String> storedWords = new ArrayList<>(words.size());
+        List<EmbeddingVector> vectors = new ArrayList<>(words.size());
+
+        for (String word : words) {
+            WordEmbedding wordEmbedding = wordEmbeddingMap.getWordEmbedding(word);
+            if (wordEmbedding != null) {
+                storedWords.add(word);
+                vectors.add(wordEmbedding.vector());
+            }
+        }
+
+        int rows = vectors.size();
+        int dimension = rows == 0 ? 0 : vectors.getFirst().dimension();
+
+        if ((long) rows * dimension > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Too many vectors to quantize: " + rows + " x " + dimension);
+
+        byte[] codes = new byte[rows * dimension];
+        int parameters = scheme == Scheme.PER_VECTOR ? rows : dimension;
+        float[] scales = new float[parameters];
+        float[] offsets = new float[parameters];
+
+        if (scheme == Scheme.PER_DIMENSION) {
+            double[] min = new double[dimension];
+            double[] max = new double[dimension];
+            Arrays.fill(min, Double.POSITIVE_INFINITY);
+            Arrays.fill(max, Double.NEGATIVE_INFINITY);
+            for (EmbeddingVector vector : vectors) {
+                checkDimension(vector, dimension);
+                for (int i = 0; i < dimension; i++) {
+                    min[i] = Math.min(min[i], vector.get(i));
+                    max[i] = Math.max(max[i], vector.get(i));
+                }
+            }
+            for (int i = 0; i < dimension; i++)
+                fitRange(min[i], max[i], scales, offsets, i);
+        }
+
+        int[] codeSums = new int[rows];
+        float[] squaredNorms = new float[rows];
+
+        for (int row = 0; row < rows; row++) {
+            EmbeddingVector vector = vectors.get(row);
+            checkDimension(vector, dimension);
+
+            if (scheme == Scheme.PER_VECTOR) {
+                double min = Double.POSITIVE_INFINITY;
+                double max = Double.NEGATIVE_INFINITY;
+                for (int i = 0; i < dimension; i++) {
+                    min = Math.min(min, vector.get(i));
+                    max = Math.max(max, vector.get(i));
+                }
+                fitRange(min, max, scales, offsets, row);
+            }
+
+            int codeSum = 0;
+            double squaredNorm = 0.0;
+            int base = row * dimension;
+
+            for (int i = 0; i < dimension; i++) {
+                int parameter = scheme == Scheme.PER_VECTOR ? row : i;
+                byte code = quantize(vector.get(i), scales[parameter], offsets[parameter]);
+                codes[base + i] = code;
+                codeSum += code;
+                double reconstructed = scales[parameter] * code + offsets[parameter];
+                squaredNorm += reconstructed * reconstructed;
+            }
+
+            codeSums[row] = codeSum;
+            squaredNorms[row] = (float) squaredNorm;
+        }
+
+        return new QuantizedEmbeddingStore(
+                scheme,
+                dimension,
+                storedWords.toArray(new String[0]),
+                codes,
+                scales,
+                offsets,
+                codeSums,
+                squaredNorms);
+    }
+
+    /**
+     * Checks that a vector has the expected dimension.
+     *
+     * @param vector    the vector to check
+     * @param dimension the expected dimension
+     * @throws IllegalArgumentException if the dimension differs
+     */
+    private static void checkDimension(EmbeddingVector vector, int dimension) throws IllegalArgumentException {
+        if (vector.dimension() != dimension)
+            throw new IllegalArgumentException(
+                    "Embedding has dimension " + vector.dimension() + ", expected " + dimension);
+    }
+
+    /**
+     * Fits a scale and offset so that [min, max] maps onto the full code range.
+     *
+     * @param min     the smallest value to represent
+     * @param max     the largest value to represent
+     * @param scales  the array receiving the scale
+     * @param offsets the array receiving the offset
+     * @param index   the index to store the parameters at
+     */
+    private static void fitRange(double min, double max, float[] scales, float[] offsets, int index) {
+        double scale = (max - min) / CODE_LEVELS;
+        scales[index] = (float) scale;
+        offsets[index] = (float) (min - CODE_MIN * scale);
+    }
+
+    /**
+     * Quantizes a single value.
+     *
+     * @param value  the value to quantize
+     * @param scale  the quantization scale
+     * @param offset the quantization offset
+     * @return the nearest code
+     */
+    private static byte quantize(double value, float scale, float offset) {
+        if (scale == 0.0f)
+            return 0;
+        long code = Math.round((value - offset) / scale);
+        return (byte) Math.max(CODE_MIN, Math.min(CODE_MAX, code));
+    }
+
+    /**
+     * Retrieves the number of rows in the store.
+     *
+     * @return the number of stored words
+     */
+    public int getSize() {
+        return words.length;
+    }
+
+    /**
+     * Retrieves the dimension of the stored vectors.
+     *
+     * @return the vector dimension
+     */
+    public int getDimension() {
+        return dimension;
+    }
+
+    /**
+     * Retrieves the word stored in the given row.
+     *
+     * @param row the row
+     * @return the word
+     */
+    public String getWord(int row) {
+        return words[row];
+    }
+
+    /**
+     * Retrieves the scheme the store was quantized with.
+     *
+     * @return the quantization scheme
+     */
+    public Scheme getScheme() {
+        return scheme;
+    }
+
+    /**
+     * Prepares a query for scoring against the stored rows. With per-vector
+     * parameters the query is quantized; with per-dimension parameters it is
+     * folded into per-dimension weights. Time complexity: O(m).
+     *
+     * @param query the query embedding
+     * @return the prepared query
+     * @throws IllegalArgumentException if the query dimension differs from the
+     *                                  store's
+     */
+    public Query prepareQuery(EmbeddingVector query) throws IllegalArgumentException {
+        if (query.dimension() != dimension)
+            throw new IllegalArgumentException(
+                    "Query has dimension " + query.dimension() + ", expected " + dimension);
+
+        double squaredNorm = 0.0;
+        for (int i = 0; i < dimension; i++)
+            squaredNorm += query.get(i) * query.get(i);
+
+        if (scheme == Scheme.PER_VECTOR) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < dimension; i++) {
+                min = Math.min(min, query.get(i));
+                max = Math.max(max, query.get(i));
+            }
+            float[] scale = new float[1];
+            float[] offset = new float[1];
+            fitRange(min, max, scale, offset, 0);
+
+            byte[] queryCodes = new byte[dimension];
+            int codeSum = 0;
+            for (int i = 0; i < dimension; i++) {
+                queryCodes[i] = quantize(query.get(i), scale[0], offset[0]);
+                codeSum += queryCodes[i];
+            }
+            return new Query(queryCodes, null, scale[0], offset[0], codeSum, (float) squaredNorm);
+        }
+
+        float[] weights = new float[dimension];
+        double constant = 0.0;
+        for (int i = 0; i < dimension; i++) {
+            weights[i] = (float) (scales[i] * query.get(i));
+            constant += offsets[i] * query.get(i);
+        }
+        return new Query(null, weights, 0.0f, (float) constant, 0, (float) squaredNorm);
+    }
+
+    /**
+     * Computes the dot product of a stored row with a prepared query, working
+     * directly on the row's codes. Time complexity: O(m).
+     *
+     * @param row   the row
+     * @param query the prepared query
+     * @return the approximate dot product
+     */
+    public double dotProduct(int row, Query query) {
+        int base = row * dimension;
+
+        if (scheme == Scheme.PER_VECTOR) {
+            int codeDotProduct = 0;
+            byte[] queryCodes = query.codes();
+            for (int i = 0; i < dimension; i++)
+                codeDotProduct += codes[base + i] * queryCodes[i];
+
+            float rowScale = scales[row];
+            float rowOffset = offsets[row];
+            return (double) rowScale * query.scale() * codeDotProduct
+                    + (double) rowScale * query.offset() * codeSums[row]
+                    + (double) query.scale() * rowOffset * query.codeSum()
+                    + (double) dimension * rowOffset * query.offset();
+        }
+
+        float dotProduct = 0.0f;
+        float[] weights = query.weights();
+        for (int i = 0; i < dimension; i++)
+            dotProduct += codes[base + i] * weights[i];
+
+        return dotProduct + query.offset();
+    }
+
+    /**
+     * Scores a stored row against a prepared query with the given algorithm.
+     * Euclidean distances use ||a - b||² = ||a||² + ||b||² - 2a·b, and cosine
+     * similarity uses the precomputed norms. Time complexity: O(m).
+     *
+     * @param row                 the row
+     * @param query               the prepared query
+     * @param similarityAlgorithm the algorithm to score with
+     * @return the approximate similarity or distance
+     */
+    public double score(int row, Query query, SimilarityAlgorithm similarityAlgorithm) {
+        double dotProduct = dotProduct(row, query);
+
+        return switch (similarityAlgorithm) {
+            case DOT_PRODUCT -> dotProduct;
+            case EUCLIDEAN_DISTANCE_NO_SQRT ->
+                Math.max(0.0, squaredNorms[row] + query.squaredNorm() - 2.0 * dotProduct);
+            case EUCLIDEAN_DISTANCE ->
+                Math.sqrt(Math.max(0.0, squaredNorms[row] + query.squaredNorm() - 2.0 * dotProduct));
+            case COSINE_SIMILARITY ->
+                dotProduct / (Math.sqrt(squaredNorms[row]) * Math.sqrt(query.squaredNorm()));
+        };
+    }
+
+    /**
+     * Record holding a query prepared by {@link #prepareQuery(EmbeddingVector)}.
+     *
+     * @param codes       the quantized query (per-vector scheme), or null
+     * @param weights     the query folded into per-dimension weights
+     *                    (per-dimension scheme), or null
+     * @param scale       the scale of the quantized query
+     * @param offset      the offset of the quantized query, or the constant term
+     *                    of the dot product for the per-dimension scheme
+     * @param codeSum     the sum of the query codes
+     * @param squaredNorm the squared norm of the full-precision query
+     */
+    public record Query(byte[] codes, float[] weights, float scale, float offset, int codeSum, float squaredNorm) {
+
+    }
+
+}
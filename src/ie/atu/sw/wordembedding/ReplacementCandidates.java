@@ -0,0 +1,105 @@
+package ie.atu.sw.wordembedding;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+import ie.atu.sw.util.WordEmbeddingMapInterface;
+
+/**
+ * Record holding the words of a replacement words file, resolved against a
+ * word embedding map: the candidate matrix packs the embeddings of the words
+ * the map holds, in the layout {@link ie.atu.sw.wordsearch.PackedMatrixSearch}
+ * scans. {@link SnapshotCache} keeps them next to the snapshot of the map, so
+ * that neither the file nor the matrix is rebuilt on the next load.
+ * <p>
+ * The file format starts with a magic number and a version, followed by the
+ * words of the set and the rows of the matrix.
+ * </p>
+ *
+ * @param replacementWords the words of the replacement words file
+ * @param candidateMatrix  the packed embeddings of the words the map holds
+ */
+public record ReplacementCandidates(Set<String> replacementWords, PackedEmbeddingMatrix candidateMatrix) {
+
+    static final int MAGIC = 0x43524D45; // "EMRC" in big-endian byte order
+    static final int VERSION = 1;
+
+    /**
+     * Resolves a set of replacement words against a map, packing the
+     * embeddings of the words it holds. Time complexity: O(n⋅m), for n words
+     * of dimension m.
+     *
+     * @param wordEmbeddingMap the word embeddings to pack
+     * @param replacementWords the replacement words
+     * @return the resolved candidates
+     */
+    public static ReplacementCandidates fromMap(
+            WordEmbeddingMapInterface wordEmbeddingMap,
+            Set<String> replacementWords) {
+        return new ReplacementCandidates(
+                replacementWords,
+                PackedEmbeddingMatrix.fromMap(wordEmbeddingMap, replacementWords));
+    }
+
+    /**
+     * Writes the candidates to a file.
+     *
+     * @param fileName the file to write
+     * @throws IOException if an I/O error occurs while writing the file
+     */
+    public void write(String fileName) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(Path.of(fileName))))) {
+
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(replacementWords.size());
+
+            for (String word : replacementWords) {
+                byte[] encodedWord = word.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(encodedWord.length);
+                out.write(encodedWord);
+            }
+
+            candidateMatrix.write(out);
+        }
+    }
+
+    /**
+     * Reads candidates written by {@link #write(String)}.
+     *
+     * @param fileName the file to read
+     * @return the candidates
+     * @throws IOException if an I/O error occurs while reading the file, or it
+     *                     does not hold candidates of this version
+     */
+    public static ReplacementCandidates read(String fileName) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(Path.of(fileName))))) {
+
+            if (in.readInt() != MAGIC)
+                throw new IOException("Not a replacement candidates file: " + fileName);
+            int version = in.readInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported replacement candidates version " + version + ": " + fileName);
+
+            int size = in.readInt();
+            if (size < 0)
+                throw new IOException("Corrupt replacement candidates file: " + fileName);
+
+            Set<String> replacementWords = new HashSet<>();
+            for (int i = 0; i < size; i++)
+                replacementWords.add(new String(in.readNBytes(in.readInt()), StandardCharsets.UTF_8));
+
+            return new ReplacementCandidates(replacementWords, PackedEmbeddingMatrix.read(in));
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package ie.atu.sw.wordembedding;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import ie.atu.sw.util.EmbeddingVector;
+import ie.atu.sw.util.TermDictionary;
+import ie.atu.sw.util.WordEmbeddingMapInterface;
+
+/**
+ * An abstract implementation of {@link WordEmbeddingMapInterface} for maps
+ * that keep their vectors in numbered rows outside of {@link WordEmbedding}
+ * records. Words are addressed by integer id, which is the row of their
+ * vector, and a {@link WordEmbedding} is only created when one is requested.
+ * Subclasses supply the row storage by implementing
+ * {@link #readVector(int)}.
+ * <p>
+ * Words are held in a {@link TermDictionary}, which keeps them as UTF-8 in one
+ * byte array and finds their ids with a minimal perfect hash, so no
+ * {@link String} or hash-map entry is kept per word.
+ * </p>
+ */
+public abstract class RowWordEmbeddingMapAbstract implements WordEmbeddingMapInterface {
+
+    private final TermDictionary dictionary;
+
+    /**
+     * Constructs the map over the words in a dictionary, whose ids are the rows
+     * of their vectors.
+     *
+     * @param dictionary the dictionary of words
+     */
+    protected RowWordEmbeddingMapAbstract(TermDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Reads the vector stored in the given row.
+     *
+     * @param row the row of the vector
+     * @return a new embedding vector
+     */
+    protected abstract EmbeddingVector readVector(int row);
+
+    /**
+     * Reads the rank of the word in the given row. Maps that do not know where
+     * their words came from return {@link WordEmbedding#UNKNOWN_RANK}, which is
+     * what this implementation does.
+     *
+     * @param row the row of the word
+     * @return the rank of the word
+     */
+    protected int readRank(int row) {
+        return WordEmbedding.UNKNOWN_RANK;
+    }
+
+    /**
+     * Retrieves the integer id of a word, which is the row its vector is stored
+     * in.
+     *
+     * @param word the word
+     * @return the id of the word, or -1 if the word is not in the map
+     */
+    public int getId(CharSequence word) {
+        return dictionary.getId(word);
+    }
+
+    /**
+     * Retrieves the integer id of a word given as a range of UTF-8 bytes.
+     *
+     * @param bytes the array holding the word
+     * @param start the index of the first byte of the word
+     * @param end   the index after the last byte of the word
+     * @return the id of the word, or -1 if the word is not in the map
+     */
+    public int getId(byte[] bytes, int start, int end) {
+        return dictionary.getId(bytes, start, end);
+    }
+
+    /**
+     * Retrieves the word with the given id.
+     *
+     * @param id the id of the word
+     * @return the word
+     */
+    public String getWord(int id) {
+        return dictionary.getTerm(id);
+    }
+
+    /**
+     * Retrieves the dictionary holding the words of the map.
+     *
+     * @return the term dictionary
+     */
+    public TermDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Creates the {@link WordEmbedding} for the given row.
+     *
+     * @param row the row of the vector
+     * @return a new word embedding
+     */
+    private WordEmbedding createWordEmbedding(int row) {
+        return new WordEmbedding(getWord(row), readVector(row), readRank(row));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The returned map is a read-only view; each lookup reads the vector from
+     * its row.
+     * </p>
+     */
+    @Override
+    public Map<String, WordEmbedding> getWordEmbeddingMap() {
+        return new AbstractMap<String, WordEmbedding>() {
+
+            @Override
+            public int size() {
+                return dictionary.getSize();
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return key instanceof CharSequence word && getId(word) >= 0;
+            }
+
+            @Override
+            public WordEmbedding get(Object key) {
+                int row = key instanceof CharSequence word ? getId(word) : -1;
+                return row < 0 ? null : createWordEmbedding(row);
+            }
+
+            @Override
+            public Set<Entry<String, WordEmbedding>> entrySet() {
+                return new AbstractSet<Entry<String, WordEmbedding>>() {
+
+                    @Override
+                    public int size() {
+                        return dictionary.getSize();
+                    }
+
+                    @Override
+                    public Iterator<Entry<String, WordEmbedding>> iterator() {
+                        Iterator<WordEmbedding> embeddings = getEmbeddings().iterator();
+                        return new Iterator<Entry<String, WordEmbedding>>() {
+
+                            @Override
+                            public boolean hasNext() {
+                                return embeddings.hasNext();
+                            }
+
+                            @Override
+                            public Entry<String, WordEmbedding> next() {
+                                WordEmbedding wordEmbedding = embeddings.next();
+                                return Map.entry(wordEmbedding.word(), wordEmbedding);
+                            }
+                        };
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getSize() {
+        return dictionary.getSize();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<String> getWords() {
+        return new AbstractSet<String>() {
+
+            @Override
+            public int size() {
+                return dictionary.getSize();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof CharSequence word && getId(word) >= 0;
+            }
+
+            @Override
+            public Iterator<String> iterator() {
+                return new Iterator<String>() {
+                    private int id = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return id < dictionary.getSize();
+                    }
+
+                    @Override
+                    public String next() {
+                        if (!hasNext())
+                            throw new NoSuchElementException();
+                        return getWord(id++);
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The returned collection is a read-only view; vectors are read from their
+     * rows, in row order, as it is iterated.
+     * </p>
+     */
+    @Override
+    public Collection<WordEmbedding> getEmbeddings() {
+        return new AbstractCollection<WordEmbedding>() {
+
+            @Override
+            public int size() {
+                return dictionary.getSize();
+            }
+
+            @Override
+            public Iterator<WordEmbedding> iterator() {
+                return new Iterator<WordEmbedding>() {
+                    private int row = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return row < dictionary.getSize();
+                    }
+
+                    @Override
+                    public WordEmbedding next() {
+                        if (!hasNext())
+                            throw new NoSuchElementException();
+                        return createWordEmbedding(row++);
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public WordEmbedding getWordEmbedding(String word) {
+        int row = getId(word);
+        return row < 0 ? null : createWordEmbedding(row);
+    }
+
+}
@@ -0,0 +1,683 @@
+package ie.atu.sw.wordembedding;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.function.BiPredicate;
+import java.util.zip.CRC32C;
+
+import ie.atu.sw.util.ArchiveFileParser;
+import ie.atu.sw.util.FileParser;
+import ie.atu.sw.util.WordEmbeddingMapInterface;
+
+/**
+ * A size-bounded directory of binary snapshots of parsed word-embeddings text
+ * files, so that a file that has been parsed before is loaded from its
+ * snapshot (see {@link EmbeddingSnapshot}) without any text parsing.
+ * <p>
+ * Each entry is keyed by a {@link Fingerprint} of the text file and of the
+ * settings that change the parsed result. An entry is a snapshot file and a
+ * properties file holding the fingerprint, the size and a CRC32C checksum of
+ * the snapshot, and the last-modified time of the snapshot when its checksum
+ * was verified. The checksum is verified once: when the snapshot is written,
+ * or when an entry whose snapshot has been modified since is first found.
+ * Otherwise, finding an entry only checks its fingerprint, the size and
+ * last-modified time of its snapshot, and the snapshot header. Entries that
+ * fail a check are deleted. When the entries take more than the byte
+ * budget, the least recently used entries are evicted.
+ * </p>
+ * <p>
+ * A replacement words file resolved against the embeddings, its words and
+ * their {@link ReplacementCandidates candidate matrix}, is cached next to the
+ * snapshot in the same way. Its entry is keyed by the fingerprint of the
+ * replacement words file and the key of the embeddings, and is checked and
+ * evicted like a snapshot.
+ * </p>
+ */
+public class SnapshotCache {
+
+    private static final String SNAPSHOT_EXTENSION = ".snap";
+    private static final String CANDIDATES_EXTENSION = ".cand";
+    private static final String METADATA_EXTENSION = ".properties";
+    private static final String TEMPORARY_EXTENSION = ".tmp";
+
+    private static final String SNAPSHOT_BYTES_KEY = "snapshotBytes";
+    private static final String SNAPSHOT_CHECKSUM_KEY = "snapshotChecksum";
+    private static final String SNAPSHOT_VERIFIED_MODIFIED_KEY = "snapshotVerifiedLastModified";
+    private static final String EMBEDDINGS_KEY = "embeddingsKey";
+    private static final String CANDIDATES_VERSION_KEY = "candidatesVersion";
+
+    private static final long FULLY_HASHED_BYTES = 16L << 20;
+    private static final int HASH_SAMPLES = 16;
+    private static final int HASH_SAMPLE_BYTES = 1 << 16;
+    private static final int CHECKSUM_BUFFER_BYTES = 1 << 20;
+
+    private final Path directory;
+    private final long budgetBytes;
+
+    /**
+     * Constructs a cache kept in the given directory, which is created when the
+     * first entry is stored.
+     *
+     * @param directory   the directory of the cache
+     * @param budgetBytes the maximum number of bytes the snapshots may take
+     */
+    public SnapshotCache(Path directory, long budgetBytes) {
+        this.directory = directory;
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * Retrieves the default cache directory, under the user's home directory.
+     *
+     * @return the default cache directory
+     */
+    public static Path getDefaultDirectory() {
+        return Path.of(System.getProperty("user.home"), ".simplifier", "snapshot-cache");
+    }
+
+    /**
+     * Loads a word-embeddings file into a storage, from its cached snapshot if
+     * it has one. Otherwise, the file is loaded as usual and, if the storage
+     * parsed every vector, a snapshot of the result is stored for next time.
+     * Snapshot files, and loads pruned to a vocabulary, bypass the cache.
+     *
+     * @param storage  the storage to load into
+     * @param fileName the name of the file to load
+     * @param options  the settings controlling the load
+     * @return the loaded word embeddings
+     * @throws IOException           if an I/O error occurs while reading the file
+     * @throws NumberFormatException if a number in a text file cannot be parsed
+     */
+    public WordEmbeddingMapInterface load(EmbeddingStorage storage, String fileName, EmbeddingLoadOptions options)
+            throws IOException, NumberFormatException {
+        return load(storage, fileName, options, fingerprint(storage, fileName, options));
+    }
+
+    /**
+     * Loads a word-embeddings file into a storage through the cache entry of
+     * its fingerprint, as {@link #load(EmbeddingStorage, String, EmbeddingLoadOptions)}
+     * does.
+     *
+     * @param storage     the storage to load into
+     * @param fileName    the name of the file to load
+     * @param options     the settings controlling the load
+     * @param fingerprint the fingerprint of the load, or {@code null} if it
+     *                    bypasses the cache
+     * @return the loaded word embeddings
+     * @throws IOException           if an I/O error occurs while reading the file
+     * @throws NumberFormatException if a number in a text file cannot be parsed
+     */
+    public WordEmbeddingMapInterface load(
+            EmbeddingStorage storage,
+            String fileName,
+            EmbeddingLoadOptions options,
+            Fingerprint fingerprint)
+            throws IOException, NumberFormatException {
+
+        if (fingerprint == null)
+            return storage.load(fileName, options);
+
+        Path snapshotFile = find(fingerprint);
+        if (snapshotFile != null)
+            return storage.load(snapshotFile.toString(), options);
+
+        WordEmbeddingMapInterface wordEmbeddingMap = storage.load(fileName, options);
+        if (storage.isParsedOnLoad())
+            store(fingerprint, wordEmbeddingMap);
+        return wordEmbeddingMap;
+    }
+
+    /**
+     * Calculates the fingerprint a load of a word-embeddings file is cached
+     * under.
+     *
+     * @param storage  the storage to load into
+     * @param fileName the name of the file to load
+     * @param options  the settings controlling the load
+     * @return the fingerprint, or {@code null} for snapshot files and loads
+     *         pruned to a vocabulary, which bypass the cache
+     * @throws IOException if an I/O error occurs while reading the file
+     */
+    public Fingerprint fingerprint(EmbeddingStorage storage, String fileName, EmbeddingLoadOptions options)
+            throws IOException {
+
+        if (options.vocabulary() != null || EmbeddingSnapshot.isSnapshotFile(fileName))
+            return null;
+
+        return Fingerprint.of(
+                fileName,
+                options.delimiter(),
+                storage.getStoredPrecision(options.precision()),
+                options.maxWords(),
+                options.maxBytes());
+    }
+
+    /**
+     * Loads a replacement words file resolved against word embeddings that were
+     * loaded through the cache, from its cache entry if it has one. Otherwise,
+     * the file is read and the candidate matrix packed from the map, and both
+     * are stored for next time.
+     *
+     * @param replacementWordsFileName the name of the replacement words file
+     * @param delimiter                the delimiter used in the file
+     * @param embeddingsFingerprint    the fingerprint the embeddings were loaded
+     *                                 under
+     * @param wordEmbeddingMap         the loaded word embeddings
+     * @return the resolved replacement candidates
+     * @throws IOException if an I/O error occurs while reading the file or the
+     *                     cache
+     */
+    public ReplacementCandidates loadReplacementCandidates(
+            String replacementWordsFileName,
+            String delimiter,
+            Fingerprint embeddingsFingerprint,
+            WordEmbeddingMapInterface wordEmbeddingMap)
+            throws IOException {
+
+        Properties properties = Fingerprint.of(
+                replacementWordsFileName,
+                delimiter,
+                embeddingsFingerprint.precision(),
+                0,
+                0).toProperties();
+        properties.setProperty(EMBEDDINGS_KEY, embeddingsFingerprint.key());
+        properties.setProperty(CANDIDATES_VERSION_KEY, String.valueOf(ReplacementCandidates.VERSION));
+        String key = Fingerprint.key(properties);
+
+        Path candidatesFile = find(key, properties, CANDIDATES_EXTENSION, SnapshotCache::hasValidCandidatesHeader);
+        if (candidatesFile != null)
+            return ReplacementCandidates.read(candidatesFile.toString());
+
+        ReplacementCandidates replacementCandidates = ReplacementCandidates.fromMap(
+                wordEmbeddingMap,
+                FileParser.parseSetFile(replacementWordsFileName, delimiter));
+        store(key, properties, CANDIDATES_EXTENSION, file -> replacementCandidates.write(file.toString()));
+        return replacementCandidates;
+    }
+
+    /**
+     * Finds the snapshot stored for a fingerprint and checks its integrity. The
+     * whole snapshot is only checksummed if it has been modified since its
+     * checksum was last verified; otherwise its size and header are checked. A
+     * found entry becomes the most recently used. Time complexity: O(1), or
+     * O(n) for a snapshot of n bytes that has to be verified.
+     *
+     * @param fingerprint the fingerprint of the text file
+     * @return the snapshot file, or {@code null} if there is no valid entry
+     * @throws IOException if an I/O error occurs while reading the cache
+     */
+    public Path find(Fingerprint fingerprint) throws IOException {
+        return find(fingerprint.key(), fingerprint.toProperties(), SNAPSHOT_EXTENSION, SnapshotCache::hasValidHeader);
+    }
+
+    /**
+     * Finds the data file of an entry and checks its integrity, as
+     * {@link #find(Fingerprint)} does for snapshots. An entry that fails a
+     * check is deleted.
+     *
+     * @param key         the key of the entry
+     * @param properties  the properties its metadata must hold
+     * @param extension   the extension of its data file
+     * @param headerCheck the check of the data file's header against its size
+     * @return the data file, or {@code null} if there is no valid entry
+     * @throws IOException if an I/O error occurs while reading the cache
+     */
+    private Path find(String key, Properties properties, String extension, BiPredicate<Path, Long> headerCheck)
+            throws IOException {
+        Path dataFile = directory.resolve(key + extension);
+        Path metadataFile = directory.resolve(key + METADATA_EXTENSION);
+
+        if (!Files.isRegularFile(dataFile) || !Files.isRegularFile(metadataFile))
+            return null;
+
+        Properties metadata = new Properties();
+        try (InputStream in = Files.newInputStream(metadataFile)) {
+            metadata.load(in);
+        }
+
+        long dataBytes = Files.size(dataFile);
+        boolean isValid = properties.entrySet().stream()
+                .allMatch(entry -> entry.getValue().equals(metadata.get(entry.getKey())))
+                && String.valueOf(dataBytes).equals(metadata.getProperty(SNAPSHOT_BYTES_KEY))
+                && headerCheck.test(dataFile, dataBytes);
+
+        String lastModified = String.valueOf(Files.getLastModifiedTime(dataFile).toMillis());
+        if (isValid && !lastModified.equals(metadata.getProperty(SNAPSHOT_VERIFIED_MODIFIED_KEY))) {
+            isValid = String.valueOf(checksum(dataFile)).equals(metadata.getProperty(SNAPSHOT_CHECKSUM_KEY));
+            if (isValid) {
+                metadata.setProperty(SNAPSHOT_VERIFIED_MODIFIED_KEY, lastModified);
+                writeMetadata(key, metadata);
+            }
+        }
+
+        if (!isValid) {
+            remove(key);
+            return null;
+        }
+
+        Files.setLastModifiedTime(metadataFile, FileTime.fromMillis(System.currentTimeMillis()));
+        return dataFile;
+    }
+
+    /**
+     * Stores a snapshot of a loaded map under a fingerprint, then evicts the
+     * least recently used entries until the cache is within its budget. A
+     * snapshot larger than the whole budget is not stored.
+     *
+     * @param fingerprint      the fingerprint of the text file
+     * @param wordEmbeddingMap the word embeddings parsed from the file
+     * @throws IOException if an I/O error occurs while writing the cache
+     */
+    public void store(Fingerprint fingerprint, WordEmbeddingMapInterface wordEmbeddingMap) throws IOException {
+        store(
+                fingerprint.key(),
+                fingerprint.toProperties(),
+                SNAPSHOT_EXTENSION,
+                file -> EmbeddingSnapshot.write(wordEmbeddingMap, file.toString(), fingerprint.precision()));
+    }
+
+    /**
+     * Stores an entry, as {@link #store(Fingerprint, WordEmbeddingMapInterface)}
+     * does for snapshots. An entry larger than the whole budget is not stored.
+     *
+     * @param key        the key of the entry
+     * @param properties the properties identifying the entry
+     * @param extension  the extension of its data file
+     * @param writer     the writer of the data file
+     * @throws IOException if an I/O error occurs while writing the cache
+     */
+    private void store(String key, Properties properties, String extension, EntryWriter writer) throws IOException {
+        if (budgetBytes <= 0)
+            return;
+
+        Files.createDirectories(directory);
+
+        Path temporaryDataFile = Files.createTempFile(directory, key, TEMPORARY_EXTENSION);
+
+        try {
+            writer.write(temporaryDataFile);
+
+            long dataBytes = Files.size(temporaryDataFile);
+            if (dataBytes > budgetBytes)
+                return;
+
+            Properties metadata = new Properties();
+            metadata.putAll(properties);
+            metadata.setProperty(SNAPSHOT_BYTES_KEY, String.valueOf(dataBytes));
+            metadata.setProperty(SNAPSHOT_CHECKSUM_KEY, String.valueOf(checksum(temporaryDataFile)));
+            // Moving the data file keeps its last-modified time
+            metadata.setProperty(
+                    SNAPSHOT_VERIFIED_MODIFIED_KEY,
+                    String.valueOf(Files.getLastModifiedTime(temporaryDataFile).toMillis()));
+
+            // The metadata is written last, so an entry is only found once its
+            // data file is complete
+            Files.move(
+                    temporaryDataFile,
+                    directory.resolve(key + extension),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            writeMetadata(key, metadata);
+
+        } finally {
+            Files.deleteIfExists(temporaryDataFile);
+        }
+
+        evict(key);
+    }
+
+    /**
+     * Writes the metadata of an entry, replacing it atomically.
+     *
+     * @param key      the key of the entry
+     * @param metadata the metadata to write
+     * @throws IOException if an I/O error occurs while writing the metadata
+     */
+    private void writeMetadata(String key, Properties metadata) throws IOException {
+        Path temporaryMetadataFile = Files.createTempFile(directory, key, TEMPORARY_EXTENSION);
+        try {
+            try (OutputStream out = Files.newOutputStream(temporaryMetadataFile)) {
+                metadata.store(out, "Word-embeddings snapshot cache entry");
+            }
+            Files.move(
+                    temporaryMetadataFile,
+                    directory.resolve(key + METADATA_EXTENSION),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryMetadataFile);
+        }
+    }
+
+    /**
+     * Checks that a snapshot has a valid header, and the length its header
+     * describes, which ends with the ranks section. Time complexity: O(1).
+     *
+     * @param snapshotFile  the snapshot file
+     * @param snapshotBytes the size of the snapshot file
+     * @return {@code true} if the header is valid, {@code false} if it is not or
+     *         cannot be read
+     */
+    private static boolean hasValidHeader(Path snapshotFile, long snapshotBytes) {
+        if (snapshotBytes < EmbeddingSnapshot.HEADER_BYTES)
+            return false;
+
+        try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+            EmbeddingSnapshot.Header header = EmbeddingSnapshot.readHeader(channel, snapshotFile);
+            return header.ranksPosition() + (long) header.size() * Integer.BYTES == snapshotBytes;
+        } catch (IOException | IllegalArgumentException e) {
+            // Unreadable, not a snapshot, or an unknown precision code
+            return false;
+        }
+    }
+
+    /**
+     * Checks that a replacement candidates file starts with the magic number
+     * and version of {@link ReplacementCandidates}. Time complexity: O(1).
+     *
+     * @param candidatesFile  the candidates file
+     * @param candidatesBytes the size of the candidates file
+     * @return {@code true} if the header is valid, {@code false} if it is not or
+     *         cannot be read
+     */
+    private static boolean hasValidCandidatesHeader(Path candidatesFile, long candidatesBytes) {
+        if (candidatesBytes < 2 * Integer.BYTES)
+            return false;
+
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(candidatesFile))) {
+            return in.readInt() == ReplacementCandidates.MAGIC && in.readInt() == ReplacementCandidates.VERSION;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Evicts the least recently used entries until the entries take no more
+     * than the budget. Entries whose files cannot be deleted, such as snapshots
+     * still mapped on some systems, are left for a later eviction.
+     *
+     * @param keptKey the key of an entry that must not be evicted
+     * @throws IOException if the cache directory cannot be listed
+     */
+    private void evict(String keptKey) throws IOException {
+        List<Path> metadataFiles = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + METADATA_EXTENSION)) {
+            files.forEach(metadataFiles::add);
+        }
+
+        long totalBytes = 0;
+        List<CacheEntry> entries = new ArrayList<>();
+        for (Path metadataFile : metadataFiles) {
+            String fileName = metadataFile.getFileName().toString();
+            String key = fileName.substring(0, fileName.length() - METADATA_EXTENSION.length());
+            Path dataFile = directory.resolve(key + SNAPSHOT_EXTENSION);
+            if (!Files.exists(dataFile))
+                dataFile = directory.resolve(key + CANDIDATES_EXTENSION);
+            try {
+                CacheEntry entry = new CacheEntry(
+                        key,
+                        Files.size(dataFile),
+                        Files.getLastModifiedTime(metadataFile).toMillis());
+                entries.add(entry);
+                totalBytes += entry.dataBytes();
+            } catch (IOException e) {
+                remove(key);
+            }
+        }
+
+        entries.sort(Comparator.comparingLong(CacheEntry::lastUsedMillis));
+
+        for (CacheEntry entry : entries) {
+            if (totalBytes <= budgetBytes)
+                break;
+            if (entry.key().equals(keptKey))
+                continue;
+            try {
+                remove(entry.key());
+                totalBytes -= entry.dataBytes();
+            } catch (IOException e) {
+                // Left for a later eviction
+            }
+        }
+    }
+
+    /**
+     * Deletes the files of an entry, the metadata first so that the entry is
+     * never found without its data file.
+     *
+     * @param key the key of the entry
+     * @throws IOException if a file cannot be deleted
+     */
+    private void remove(String key) throws IOException {
+        Files.deleteIfExists(directory.resolve(key + METADATA_EXTENSION));
+        Files.deleteIfExists(directory.resolve(key + SNAPSHOT_EXTENSION));
+        Files.deleteIfExists(directory.resolve(key + CANDIDATES_EXTENSION));
+    }
+
+    /**
+     * Calculates the CRC32C checksum of a file.
+     *
+     * @param file the file to check
+     * @return the checksum
+     * @throws IOException if an I/O error occurs while reading the file
+     */
+    private static long checksum(Path file) throws IOException {
+        CRC32C crc = new CRC32C();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(CHECKSUM_BUFFER_BYTES);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                crc.update(buffer);
+                buffer.clear();
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Record holding the fingerprint of a text file and of the settings that
+     * change the result of parsing it. Two loads with equal fingerprints parse
+     * the same embeddings.
+     *
+     * @param path         the absolute path of the file, including the archive
+     *                     entry
+     * @param size         the size of the file in bytes
+     * @param lastModified the last-modified time of the file, in milliseconds
+     * @param contentHash  a hash of the content of the file
+     * @param delimiter    the delimiter used in the file
+     * @param precision    the precision the vectors are stored with
+     * @param maxWords     the number of lines loaded, or 0 for all
+     * @param maxBytes     the byte position loaded lines start before, or 0 for
+     *                     no limit
+     */
+    public record Fingerprint(
+            String path,
+            long size,
+            long lastModified,
+            String contentHash,
+            String delimiter,
+            EmbeddingPrecision precision,
+            int maxWords,
+            long maxBytes) {
+
+        /**
+         * Calculates the fingerprint of a file. Files of up to 16 MB are hashed
+         * whole; larger files are hashed from 16 evenly spaced samples of 64 KB,
+         * including the first and last, so that a multi-gigabyte file does not
+         * have to be read in full. With the size and last-modified time, this
+         * catches any realistic change to a model file.
+         *
+         * @param fileName  the name of the file, possibly of an archive entry
+         * @param delimiter the delimiter used in the file
+         * @param precision the precision the vectors are stored with
+         * @param maxWords  the number of lines loaded, or 0 for all
+         * @param maxBytes  the byte position loaded lines start before, or 0
+         *                  for no limit
+         * @return the fingerprint
+         * @throws IOException if an I/O error occurs while reading the file
+         */
+        public static Fingerprint of(
+                String fileName,
+                String delimiter,
+                EmbeddingPrecision precision,
+                int maxWords,
+                long maxBytes)
+                throws IOException {
+
+            Path file = Path.of(ArchiveFileParser.getArchiveFileName(fileName)).toAbsolutePath().normalize();
+            String entryName = ArchiveFileParser.getEntryName(fileName);
+
+            MessageDigest digest = newDigest();
+            long size;
+
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                size = channel.size();
+                if (size <= FULLY_HASHED_BYTES) {
+                    update(digest, channel, 0, size);
+                } else {
+                    long step = (size - HASH_SAMPLE_BYTES) / (HASH_SAMPLES - 1);
+                    for (int i = 0; i < HASH_SAMPLES; i++)
+                        update(digest, channel, i * step, HASH_SAMPLE_BYTES);
+                }
+            }
+
+            return new Fingerprint(
+                    entryName == null ? file.toString() : ArchiveFileParser.getEntryFileName(file.toString(), entryName),
+                    size,
+                    Files.getLastModifiedTime(file).toMillis(),
+                    HexFormat.of().formatHex(digest.digest()),
+                    delimiter,
+                    precision,
+                    maxWords,
+                    maxBytes);
+        }
+
+        /**
+         * Calculates the cache key of the fingerprint: a SHA-256 hash of all of
+         * its fields.
+         *
+         * @return the key, as hexadecimal digits
+         */
+        public String key() {
+            return key(toProperties());
+        }
+
+        /**
+         * Calculates the cache key of a set of properties: a SHA-256 hash of
+         * all of them.
+         *
+         * @param properties the properties identifying an entry
+         * @return the key, as hexadecimal digits
+         */
+        static String key(Properties properties) {
+            MessageDigest digest = newDigest();
+            // Sorted, so that the key does not depend on hash order
+            digest.update(new TreeMap<>(properties).toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        }
+
+        /**
+         * Converts the fingerprint into properties, as stored in the metadata of
+         * a cache entry.
+         *
+         * @return the properties
+         */
+        Properties toProperties() {
+            Properties properties = new Properties();
+            properties.setProperty("path", path);
+            properties.setProperty("size", String.valueOf(size));
+            properties.setProperty("lastModified", String.valueOf(lastModified));
+            properties.setProperty("contentHash", contentHash);
+            properties.setProperty("delimiter", delimiter);
+            properties.setProperty("precision", precision.name());
+            properties.setProperty("maxWords", String.valueOf(maxWords));
+            properties.setProperty("maxBytes", String.valueOf(maxBytes));
+            properties.setProperty("snapshotVersion", String.valueOf(EmbeddingSnapshot.VERSION));
+            return properties;
+        }
+
+        /**
+         * Creates a SHA-256 digest, which every Java platform provides.
+         *
+         * @return a new digest
+         */
+        private static MessageDigest newDigest() {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * Adds a range of a file to a digest.
+         *
+         * @param digest   the digest to update
+         * @param channel  the channel of the file
+         * @param position the start of the range
+         * @param length   the length of the range
+         * @throws IOException if an I/O error occurs while reading the file
+         */
+        private static void update(MessageDigest digest, FileChannel channel, long position, long length)
+                throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(length, CHECKSUM_BUFFER_BYTES));
+            long end = position + length;
+            while (position < end) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+                int read = channel.read(buffer, position);
+                if (read <= 0)
+                    break;
+                buffer.flip();
+                digest.update(buffer);
+                position += read;
+            }
+        }
+    }
+
+    /**
+     * Record holding what eviction needs to know about a cache entry.
+     *
+     * @param key            the key of the entry
+     * @param dataBytes      the size of its snapshot or candidates file
+     * @param lastUsedMillis the last time it was stored or found
+     */
+    private record CacheEntry(String key, long dataBytes, long lastUsedMillis) {
+
+    }
+
+    /**
+     * Writer of the data file of an entry.
+     */
+    @FunctionalInterface
+    private interface EntryWriter {
+
+        /**
+         * Writes the data file.
+         *
+         * @param file the file to write
+         * @throws IOException if an I/O error occurs while writing the file
+         */
+        void write(Path file) throws IOException;
+    }
+
+}
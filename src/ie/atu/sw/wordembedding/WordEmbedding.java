@@ -1,31 +1,52 @@
 package ie.atu.sw.wordembedding;
 
-import java.util.List;
+import ie.atu.sw.util.EmbeddingVector;
 
 /**
- * Record representing a word and its associated embedding. Includes methods to
- * manage a list of similar words.
+ * Record representing a word and its associated embedding.
  *
- * @param word         the word represented by this embedding
- * @param embedding    the vector representing the word's embedding
- * @param similarWords a list of similar words associated with this embedding
+ * @param word   the word represented by this embedding
+ * @param vector the vector representing the word's embedding, stored at one of
+ *               the {@link EmbeddingPrecision} levels
+ * @param rank   the zero-based line of the word in the file it was loaded from,
+ *               which is its frequency rank in files sorted by frequency, such
+ *               as GloVe and word2vec; or {@link #UNKNOWN_RANK}
  */
-public record WordEmbedding(String word, double[] embedding, List<String> similarWords) {
+public record WordEmbedding(String word, EmbeddingVector vector, int rank) {
 
     /**
-     * Adds a word to the list of similar words.
+     * The rank of words whose position in the source file is not known.
+     */
+    public static final int UNKNOWN_RANK = -1;
+
+    /**
+     * Constructs a word embedding whose rank is not known.
      *
-     * @param word the similar word to add
+     * @param word   the word represented by this embedding
+     * @param vector the vector representing the word's embedding
      */
-    public void addSimilarWord(String word) {
-        similarWords.add(word);
+    public WordEmbedding(String word, EmbeddingVector vector) {
+        this(word, vector, UNKNOWN_RANK);
     }
 
     /**
-     * Clears the list of similar words.
+     * Constructs a word embedding stored at double precision.
+     *
+     * @param word      the word represented by this embedding
+     * @param embedding the vector representing the word's embedding
+     */
+    public WordEmbedding(String word, double[] embedding) {
+        this(word, new EmbeddingVector.Float64(embedding));
+    }
+
+    /**
+     * Retrieves the word's embedding as an array of doubles.
+     *
+     * @return the embedding; the backing array if the embedding is stored at
+     *         double precision, otherwise a new array
      */
-    public void emptySimilarWordList() {
-        similarWords.clear();
+    public double[] embedding() {
+        return vector.toDoubleArray();
     }
 
 }
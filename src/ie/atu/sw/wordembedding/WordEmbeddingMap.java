@@ -2,10 +2,13 @@ package ie.atu.sw.wordembedding;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 
-import ie.atu.sw.util.FileParser;
+import ie.atu.sw.util.EmbeddingVector;
+import ie.atu.sw.util.MappedFileParser;
 import ie.atu.sw.util.WordEmbeddingMapInterface;
 
 /**
@@ -20,7 +23,14 @@ public record WordEmbeddingMap(Map<String, WordEmbedding> wordEmbeddingMap)
         implements WordEmbeddingMapInterface {
 
     /**
-     * Loads a word embedding map from a file with a specified delimiter.
+     * The standard deviation of synthetic vectors around their cluster centre,
+     * relative to the spread of the centres.
+     */
+    private static final double SYNTHETIC_SPREAD = 0.5;
+
+    /**
+     * Loads a word embedding map from a file with a specified delimiter. The file
+     * is memory-mapped and parsed in parallel by {@link MappedFileParser}.
      *
      * @param fileName  the name of the file containing word embeddings
      * @param delimiter the delimiter used in the file to separate values
@@ -30,7 +40,89 @@ public record WordEmbeddingMap(Map<String, WordEmbedding> wordEmbeddingMap)
      */
     public static WordEmbeddingMap getMapFromFile(String fileName, String delimiter)
             throws IOException, NumberFormatException {
-        Map<String, WordEmbedding> map = FileParser.parseMapFile(fileName, delimiter);
+        return getMapFromFile(fileName, delimiter, EmbeddingPrecision.FLOAT64);
+    }
+
+    /**
+     * Loads a word embedding map from a file with a specified delimiter, storing
+     * the vectors at the given precision. Storing at
+     * {@link EmbeddingPrecision#FLOAT32} halves the memory used by the vectors and
+     * {@link EmbeddingPrecision#FLOAT16} quarters it.
+     *
+     * @param fileName  the name of the file containing word embeddings
+     * @param delimiter the delimiter used in the file to separate values
+     * @param precision the precision to store the vectors with
+     * @return a {@link WordEmbeddingMap} created from the file
+     * @throws IOException           if there is an error reading the file
+     * @throws NumberFormatException if a number in the file cannot be parsed
+     */
+    public static WordEmbeddingMap getMapFromFile(String fileName, String delimiter, EmbeddingPrecision precision)
+            throws IOException, NumberFormatException {
+        return getMapFromFile(fileName, new EmbeddingLoadOptions(delimiter, precision, 0));
+    }
+
+    /**
+     * Loads a word embedding map from a file as directed by a set of load
+     * options. Loading can stop after the first {@link EmbeddingLoadOptions#maxWords()}
+     * words or the first {@link EmbeddingLoadOptions#maxBytes()} bytes, which
+     * in files sorted by frequency, such as GloVe and word2vec, keeps the most
+     * useful words for a fraction of the load time and memory. Lines of words
+     * outside the {@link EmbeddingLoadOptions#vocabulary()} are skipped without
+     * parsing their numbers. Each embedding records its line as its
+     * {@link WordEmbedding#rank()}.
+     *
+     * @param fileName the name of the file containing word embeddings
+     * @param options  the options of the load
+     * @return a {@link WordEmbeddingMap} created from the file
+     * @throws IOException           if there is an error reading the file
+     * @throws NumberFormatException if a number in the file cannot be parsed
+     */
+    public static WordEmbeddingMap getMapFromFile(String fileName, EmbeddingLoadOptions options)
+            throws IOException, NumberFormatException {
+        Map<String, WordEmbedding> map = MappedFileParser.parseMapFile(fileName, options);
+        return new WordEmbeddingMap(map);
+    }
+
+    /**
+     * Generates a map of synthetic word embeddings, for trying out the search
+     * methods without an embeddings file. The vectors are drawn from a seeded
+     * mixture of Gaussian clusters, one per square root of the number of words,
+     * so that words have close neighbours as in trained embeddings. The words
+     * are named "word0", "word1" and so on, and ranked in that order.
+     *
+     * @param wordCount the number of words to generate
+     * @param dimension the dimension of the vectors
+     * @param seed      the seed of the random generator
+     * @return a {@link WordEmbeddingMap} of the generated words
+     * @throws IllegalArgumentException if the word count or dimension is not
+     *                                  positive
+     */
+    public static WordEmbeddingMap synthetic(int wordCount, int dimension, long seed)
+            throws IllegalArgumentException {
+        if (wordCount <= 0 || dimension <= 0)
+            throw new IllegalArgumentException(
+                    "Synthetic embeddings need a positive word count and dimension: " + wordCount + ", " + dimension);
+
+        Random random = new Random(seed);
+        double[][] centroids = new double[(int) Math.ceil(Math.sqrt(wordCount))][dimension];
+        for (double[] centroid : centroids)
+            for (int i = 0; i < dimension; i++)
+                centroid[i] = random.nextGaussian();
+
+        Map<String, WordEmbedding> map = new HashMap<>(wordCount * 4 / 3 + 1);
+        for (int rank = 0; rank < wordCount; rank++) {
+            double[] centroid = centroids[random.nextInt(centroids.length)];
+            double[] values = new double[dimension];
+            for (int i = 0; i < dimension; i++)
+                values[i] = centroid[i] + SYNTHETIC_SPREAD * random.nextGaussian();
+
+            String word = "word" + rank;
+            map.put(word, new WordEmbedding(
+                    word,
+                    EmbeddingVector.of(values, EmbeddingPrecision.FLOAT64),
+                    rank));
+        }
+
         return new WordEmbeddingMap(map);
     }
 
@@ -11,25 +11,27 @@ public enum ReplacementMethod {
 
     /**
      * Replacement method that returns the most similar word, which is assumed
-     * to be the last word in the list after the priority queue has been processed.
+     * to be the last word in the list, as the searches order it from least to
+     * most similar.
      * Time Complexity: O(1) for accessing the last element of the list.
      */
     MOST_SIMILAR("Most Similar Word") {
         @Override
         public String getReplacement(List<String> strings) {
-            return strings.getLast(); // the last is the most similar after popping off the PriorityQueue
+            return strings.getLast(); // the last is the most similar
         }
     },
 
     /**
      * Replacement method that returns the least similar word, which is assumed
-     * to be the first word in the list after the priority queue has been processed.
+     * to be the first word in the list, as the searches order it from least to
+     * most similar.
      * Accessing the first element of a list using getFirst() is O(1).
      */
     LEAST_SIMILAR("Least Similar Word") {
         @Override
         public String getReplacement(List<String> strings) {
-            return strings.getFirst(); // the last is the most similar after popping off the PriorityQueue
+            return strings.getFirst(); // the first is the least similar
         }
     },
 
@@ -52,8 +54,8 @@ public enum ReplacementMethod {
 
     /**
      * Replacement method that biases the selection toward the most similar word in
-     * the list, which is assumed to be the last word in the list after the priority
-     * queue has been processed. The two loops in this method run independently, and
+     * the list, which is assumed to be the last word in the list, as the searches
+     * order it from least to most similar. The two loops in this method run independently, and
      * each has O(n) complexity. The total time complexity is O(n)+O(n)=O(n).
      */
     BIASED_MOST_SIMILAR("Biased Toward Most Similar Word from List") {
@@ -1,18 +1,41 @@
 package ie.atu.sw.wordreplacer;
 
 import java.io.IOException;
+import java.util.HashSet;
 import java.util.Set;
 
 import ie.atu.sw.util.FileParser;
+import ie.atu.sw.util.LoadProgress;
 import ie.atu.sw.util.ReplacementWordSetInterface;
+import ie.atu.sw.util.WordEmbeddingMapInterface;
+import ie.atu.sw.wordembedding.PackedEmbeddingMatrix;
+import ie.atu.sw.wordembedding.WordEmbedding;
 
 /**
  * A record representing a set of replacement words, implementing the
- * {@link ReplacementWordSetInterface}.
+ * {@link ReplacementWordSetInterface}. A set resolved against a word
+ * embedding map, such as one loaded from the snapshot cache, also holds the
+ * candidate matrix packed from that map.
  * 
  * @param replacementWordSet the {@link Set} of words.
+ * @param candidateMap       the map the candidate matrix was packed from, or
+ *                           {@code null}
+ * @param candidateMatrix    the packed embeddings of the words the map holds,
+ *                           or {@code null}
  */
-public record ReplacementWordSet(Set<String> replacementWordSet) implements ReplacementWordSetInterface {
+public record ReplacementWordSet(
+        Set<String> replacementWordSet,
+        WordEmbeddingMapInterface candidateMap,
+        PackedEmbeddingMatrix candidateMatrix) implements ReplacementWordSetInterface {
+
+    /**
+     * Constructs a set that has not been resolved against a map.
+     * 
+     * @param replacementWordSet the {@link Set} of words.
+     */
+    public ReplacementWordSet(Set<String> replacementWordSet) {
+        this(replacementWordSet, null, null);
+    }
 
     /**
      * Creates a {@link ReplacementWordSet} from a file by parsing the file into a
@@ -24,7 +47,48 @@ public record ReplacementWordSet(Set<String> replacementWordSet) implements Repl
      * @throws IOException if an error occurs while reading the file
      */
     public static ReplacementWordSet getSetFromFile(String fileName, String delimiter) throws IOException {
-        Set<String> set = FileParser.parseSetFile(fileName, delimiter);
+        return getSetFromFile(fileName, delimiter, null);
+    }
+
+    /**
+     * Creates a {@link ReplacementWordSet} from a file, recording the bytes read
+     * in a progress counter.
+     * 
+     * @param fileName  the name of the file containing the replacement words
+     * @param delimiter the delimiter used to separate the words in the file
+     * @param progress  the counter of bytes read, or {@code null}
+     * @return a new ReplacementWordSet containing the words from the file
+     * @throws IOException if an error occurs while reading the file
+     */
+    public static ReplacementWordSet getSetFromFile(String fileName, String delimiter, LoadProgress progress)
+            throws IOException {
+        Set<String> set = FileParser.parseSetFile(fileName, delimiter, progress);
+        return new ReplacementWordSet(set);
+    }
+
+    /**
+     * Creates a {@link ReplacementWordSet} holding the words of another set
+     * whose rank in a word embedding map is below a limit. In files sorted by
+     * frequency the rank is the frequency rank, so this drops rare candidates.
+     * Words whose rank is not known are kept. Time complexity: O(n), for n
+     * words in the set.
+     * 
+     * @param replacementWordSet the set to filter
+     * @param wordEmbeddingMap   the word embeddings holding the ranks
+     * @param maxRank            the number of top-ranked words candidates must
+     *                           be among
+     * @return a new ReplacementWordSet containing the kept words
+     */
+    public static ReplacementWordSet withMaxRank(
+            ReplacementWordSetInterface replacementWordSet,
+            WordEmbeddingMapInterface wordEmbeddingMap,
+            int maxRank) {
+        Set<String> set = new HashSet<>();
+        for (String word : replacementWordSet.getReplacementWordSet()) {
+            WordEmbedding wordEmbedding = wordEmbeddingMap.getWordEmbedding(word);
+            if (wordEmbedding == null || wordEmbedding.rank() < maxRank)
+                set.add(word);
+        }
         return new ReplacementWordSet(set);
     }
 
@@ -51,4 +115,12 @@ public record ReplacementWordSet(Set<String> replacementWordSet) implements Repl
     public boolean containsWord(String word) {
         return replacementWordSet.contains(word);
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public PackedEmbeddingMatrix getCandidateMatrix(WordEmbeddingMapInterface wordEmbeddingMap) {
+        return wordEmbeddingMap == candidateMap ? candidateMatrix : null;
+    }
 }
@@ -1,5 +1,6 @@
 package ie.atu.sw.wordreplacer;
 
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -11,6 +12,13 @@ import java.util.regex.Pattern;
  */
 public class WordReplacer extends WordReplacerAbstract {
 
+    /**
+     * Matches a word followed by its punctuation. Group 1 (\\w+) captures one or
+     * more word characters, and group 2 (\\p{Punct}*) zero or more punctuation
+     * characters.
+     */
+    private static final Pattern WORD_PATTERN = Pattern.compile("^(\\w+)(\\p{Punct}*)$");
+
     /**
      * Constructs a new {@link WordReplacer}.
      * This constructor is used to initialize the word replacer object.
@@ -20,37 +28,62 @@ public class WordReplacer extends WordReplacerAbstract {
     }
 
     /**
-     * Extracts the word and its associated punctuation from a string.
-     * The word is matched using the pattern (\\w+) and punctuation is captured
-     * using the pattern (\\p{Punct}*). Additionally, the method checks if the word
-     * is capitalized.
+     * Finds the end of the word in a part of a string, before its punctuation.
+     * The part is matched against {@link #WORD_PATTERN} in place, as a region
+     * of the matcher; a part that does not match is a word without
+     * punctuation.
+     * 
+     * @param matcher the matcher over the whole string
+     * @param start   the index of the first character of the part
+     * @param end     the index after the last character of the part
+     * @return the index after the last character of the word
+     */
+    private static int findWordEnd(Matcher matcher, int start, int end) {
+        matcher.region(start, end);
+        return matcher.matches() ? matcher.end(1) : end;
+    }
+
+    /**
+     * Appends a range of characters to a builder in lower case, one code point
+     * at a time, so no string is created for the range.
      * 
-     * @param string the input string (a word, possibly with punctuation)
-     * @return an Object array containing the word, punctuation, and a boolean
-     *         indicating if the word is capitalized
+     * @param string    the characters to read
+     * @param start     the index of the first character (inclusive)
+     * @param end       the index of the last character (exclusive)
+     * @param lowerCase the builder to append to
      */
-    private Object[] extractWordObject(String string) {
-        // Group 1 (\\w+): Captures one or more word characters.
-        // Group 2 (\\p{Punct}*): Captures zero or more punctuation characters.
-        Pattern pattern = Pattern.compile("^(\\w+)(\\p{Punct}*)$");
-        Matcher matcher = pattern.matcher(string);
-
-        if (matcher.matches()) {
-            String word = matcher.group(1);
-            String punctuation = matcher.group(2);
-            boolean isCapitalized = Character.isUpperCase(word.charAt(0));
-            return new Object[] { word, punctuation, isCapitalized };
-        } else {
-            // If no match, return the word, empty punctuation, and isCapitalized
-            boolean isCapitalized = Character.isUpperCase(string.charAt(0));
-            return new Object[] { string, "", isCapitalized };
+    private static void appendLowerCase(CharSequence string, int start, int end, StringBuilder lowerCase) {
+        for (int i = start; i < end;) {
+            int codePoint = Character.codePointAt(string, i);
+            lowerCase.appendCodePoint(Character.toLowerCase(codePoint));
+            i += Character.charCount(codePoint);
         }
     }
 
+    /**
+     * Finds the end of the parts of a string that are replaced. Trailing spaces
+     * are left out, as splitting the string on spaces would drop them.
+     * 
+     * @param string the input string
+     * @return the index after the last character that is not a space
+     */
+    private static int findPartsEnd(String string) {
+        int end = string.length();
+        while (end > 0 && string.charAt(end - 1) == ' ')
+            end--;
+        return end;
+    }
+
     /**
      * Replaces words in a given string with their corresponding replacements,
      * while preserving capitalization and punctuation. For n words, each with
      * O(m) operations, the total complexity is O(n⋅m).
+     * <p>
+     * The string is read in place: each space-separated part is matched as a
+     * region of one matcher, and its word is lower-cased into a reused builder
+     * and looked up by id without creating a string. Strings are only read
+     * for the words that are written out.
+     * </p>
      * 
      * @param string the input string to be processed
      * @return the string with words replaced, maintaining capitalization and
@@ -59,40 +92,75 @@ public class WordReplacer extends WordReplacerAbstract {
     @Override
     public String replaceString(String string) {
 
-        StringBuilder replacedString = new StringBuilder();
-        String[] stringParts = string.split(" ");
+        StringBuilder replacedString = new StringBuilder(string.length());
+        StringBuilder lowerCaseWord = new StringBuilder();
+        Matcher matcher = WORD_PATTERN.matcher(string);
+        int partsEnd = findPartsEnd(string);
+
+        for (int partStart = 0; partStart < partsEnd;) {
+            int partEnd = string.indexOf(' ', partStart);
+            if (partEnd < 0 || partEnd > partsEnd)
+                partEnd = partsEnd;
+
+            if (partEnd > partStart) {
+                int wordEnd = findWordEnd(matcher, partStart, partEnd);
+                boolean isCapitalized = Character.isUpperCase(string.charAt(partStart));
 
-        for (int i = 0; i < stringParts.length; i++) {
-            if (!stringParts[i].isEmpty()) {
-                Object[] wordObject = extractWordObject(stringParts[i]);
-                String word = (String) wordObject[0];
-                String punctuation = (String) wordObject[1];
-                boolean isCapitalized = (Boolean) wordObject[2];
+                lowerCaseWord.setLength(0);
+                appendLowerCase(string, partStart, wordEnd, lowerCaseWord);
 
-                String replacedStringPart = replaceStringIfNotInReplacementSet(word.toLowerCase());
+                String replacement = getReplacementIfNotInReplacementSet(lowerCaseWord);
+                CharSequence replacedStringPart = replacement != null ? replacement : lowerCaseWord;
 
                 // this doesn't work when replacedStringPart is a List.toString(),
                 // which is achieved by using ReplacementMethod.ARRAY
                 if (isCapitalized) {
-                    StringBuilder sb = new StringBuilder(replacedStringPart);
-                    sb.setCharAt(0, Character.toUpperCase(sb.charAt(0)));
-                    replacedStringPart = sb.toString();
+                    replacedString
+                            .append(Character.toUpperCase(replacedStringPart.charAt(0)))
+                            .append(replacedStringPart, 1, replacedStringPart.length());
+                } else {
+                    replacedString.append(replacedStringPart);
                 }
 
-                replacedString
-                        .append(replacedStringPart)
-                        .append(punctuation);
-
+                replacedString.append(string, wordEnd, partEnd);
             }
 
             // Add a space if this is not the last word
-            if (i < stringParts.length - 1) {
-                replacedString.append(" ");
+            if (partEnd < partsEnd) {
+                replacedString.append(' ');
             }
+            partStart = partEnd + 1;
         }
 
         return replacedString.toString();
 
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The string is split and matched as in {@link #replaceString(String)}, and
+     * each word is added in lower case.
+     * </p>
+     */
+    @Override
+    protected void addLookupWords(String string, Set<String> words) {
+        StringBuilder lowerCaseWord = new StringBuilder();
+        Matcher matcher = WORD_PATTERN.matcher(string);
+        int partsEnd = findPartsEnd(string);
+
+        for (int partStart = 0; partStart < partsEnd;) {
+            int partEnd = string.indexOf(' ', partStart);
+            if (partEnd < 0 || partEnd > partsEnd)
+                partEnd = partsEnd;
+
+            if (partEnd > partStart) {
+                lowerCaseWord.setLength(0);
+                appendLowerCase(string, partStart, findWordEnd(matcher, partStart, partEnd), lowerCaseWord);
+                words.add(lowerCaseWord.toString());
+            }
+            partStart = partEnd + 1;
+        }
+    }
+
 }
\ No newline at end of file
@@ -5,19 +5,29 @@ import java.io.BufferedWriter;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.util.Comparator;
-import java.util.PriorityQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
+import ie.atu.sw.util.EmbeddingVector;
 import ie.atu.sw.util.ReplacementWordSetInterface;
+import ie.atu.sw.util.SimilarWordSearchInterface;
 import ie.atu.sw.util.SimilarityAlgorithm;
+import ie.atu.sw.util.TermDictionary;
 import ie.atu.sw.util.WordEmbeddingMapInterface;
+import ie.atu.sw.wordembedding.RowWordEmbeddingMapAbstract;
 import ie.atu.sw.wordembedding.WordEmbedding;
-import ie.atu.sw.wordembedding.WordEmbeddingSimilarity;
+import ie.atu.sw.wordsearch.SearchEvaluator;
+import ie.atu.sw.wordsearch.SearchMethod;
+import ie.atu.sw.wordsearch.SearchOptions;
 
 /**
  * An abstract class for replacing words in a text string based on word
  * embeddings and a replacement word set. It supports various similarity
- * algorithms and replacement methods.
+ * algorithms, search methods and replacement methods.
  */
 public abstract class WordReplacerAbstract {
 
@@ -27,107 +37,270 @@ public abstract class WordReplacerAbstract {
     private int similarReplacementWords = 1;
     private SimilarityAlgorithm similarityAlgorithm = SimilarityAlgorithm.COSINE_SIMILARITY;
     private ReplacementMethod replacementMethod = ReplacementMethod.MOST_SIMILAR;
+    private SearchMethod searchMethod = SearchMethod.LINEAR_SCAN;
+    private SearchOptions searchOptions = SearchOptions.DEFAULT;
+    private int maxReplacementRank = 0;
 
     /**
-     * Returns a {@link PriorityQueue} of top N similar words based on a similarity
-     * algorithm.
-     * The queue orders the words according to their similarity score.
+     * The search built by the search method for the current map, replacement set
+     * and similarity algorithm, or null if it needs to be rebuilt.
+     */
+    private SimilarWordSearchInterface similarWordSearch;
+
+    /**
+     * Dictionary of the words of the map, built once when the map is set, which
+     * resolves each word looked up to an integer id. Maps that already keep
+     * their words in one, such as {@link RowWordEmbeddingMapAbstract}, share it.
+     */
+    private TermDictionary termDictionary;
+
+    /**
+     * Flags the ids of the words in the replacement set, or null until both the
+     * map and the replacement set are set.
+     */
+    private boolean[] isReplacementWord;
+
+    /**
+     * Cache of the similar replacement words found for each word so far,
+     * indexed by the id of the word, with null for words not searched yet. Kept
+     * here rather than in each {@link WordEmbedding}, so that it also works with
+     * word-embedding maps that create embeddings on demand.
+     */
+    private final List<List<String>> similarWordsCache = new ArrayList<>();
+
+    /**
+     * Returns the search used to find similar replacement words, building it with
+     * the configured search method if it has not been built since the last
+     * change to the map, the replacement set, the maximum replacement rank, the
+     * search options or the similarity algorithm. Replacement words beyond the
+     * maximum rank are left out of the search.
+     * 
+     * @return the similar-word search
+     */
+    private SimilarWordSearchInterface getSimilarWordSearch() {
+        if (similarWordSearch == null) {
+            similarWordSearch = searchMethod.createSearch(
+                    wordEmbeddingMap,
+                    getSearchedReplacementWordSet(),
+                    similarityAlgorithm,
+                    searchOptions);
+        }
+        return similarWordSearch;
+    }
+
+    /**
+     * Returns the replacement words that are searched, which leaves out those
+     * beyond the maximum replacement rank, if one is set.
+     * 
+     * @return the searched replacement words
+     */
+    private ReplacementWordSetInterface getSearchedReplacementWordSet() {
+        return maxReplacementRank > 0
+                ? ReplacementWordSet.withMaxRank(replacementWordSet, wordEmbeddingMap, maxReplacementRank)
+                : replacementWordSet;
+    }
+
+    /**
+     * Evaluates every search method against the exact
+     * {@link SearchMethod#LINEAR_SCAN} on the loaded word embeddings and
+     * replacement words, with the configured similarity algorithm and search
+     * options, over a seeded sample of words.
      * 
-     * @param n                   the number of similar words to retrieve
-     * @param isHigherMoreSimilar indicates if higher similarity scores should be
-     *                            considered more similar
-     * @return a {@link PriorityQueue} of top N similar words
+     * @param queryCount the number of words to search for
+     * @param n          the number of similar words per search
+     * @return the measurements of each search method
+     * @throws IllegalStateException    if the word embeddings or the replacement
+     *                                  words have not been loaded
+     * @throws IllegalArgumentException if n is less than 1
      */
-    private PriorityQueue<WordEmbeddingSimilarity> getTopNSimilar(int n, boolean isHigherMoreSimilar) {
-        if (isHigherMoreSimilar) {
-            return new PriorityQueue<WordEmbeddingSimilarity>(n, Comparator.comparingDouble(o -> o.similarity()));
-        } else {
-            return new PriorityQueue<WordEmbeddingSimilarity>(n, Comparator.comparingDouble(o -> -o.similarity()));
+    public List<SearchEvaluator.Result> evaluateSearchMethods(int queryCount, int n)
+            throws IllegalStateException, IllegalArgumentException {
+        if (wordEmbeddingMap == null) {
+            throw new IllegalStateException("The Word-Embedding Map has not been initialized.");
+        }
+        if (replacementWordSet == null) {
+            throw new IllegalStateException("The Replacement-Word Set has not been initialized.");
         }
+        return evaluateSearchMethods(wordEmbeddingMap, getSearchedReplacementWordSet(), queryCount, n);
     }
 
     /**
-     * Adds similar replacement words to the provided word embedding based on the
-     * similarity algorithm.
-     * The method calculates the similarity score between the word embedding and the
-     * words in the replacement word set.
-     * Dominant Time Complexity: O(n⋅m): Iterating through n replacement words and
-     * calculating similarity for each embedding, m.
+     * Evaluates every search method against the exact
+     * {@link SearchMethod#LINEAR_SCAN} on the given word embeddings and
+     * replacement words, such as synthetic ones, with the configured similarity
+     * algorithm and search options, over a seeded sample of words.
+     * 
+     * @param wordEmbeddingMap   the word embeddings
+     * @param replacementWordSet the replacement words searched
+     * @param queryCount         the number of words to search for
+     * @param n                  the number of similar words per search
+     * @return the measurements of each search method
+     * @throws IllegalArgumentException if n is less than 1
+     */
+    public List<SearchEvaluator.Result> evaluateSearchMethods(
+            WordEmbeddingMapInterface wordEmbeddingMap,
+            ReplacementWordSetInterface replacementWordSet,
+            int queryCount,
+            int n)
+            throws IllegalArgumentException {
+        return SearchEvaluator.evaluate(
+                wordEmbeddingMap,
+                replacementWordSet,
+                similarityAlgorithm,
+                searchOptions,
+                List.of(SearchMethod.values()),
+                SearchEvaluator.sampleQueryWords(wordEmbeddingMap, replacementWordSet, queryCount),
+                n);
+    }
+
+    /**
+     * Retrieves the similarity algorithm used for calculating word similarity.
+     * 
+     * @return the similarity algorithm
+     */
+    public SimilarityAlgorithm getSimilarityAlgorithm() {
+        return similarityAlgorithm;
+    }
+
+    /**
+     * Finds the replacement words most similar to the provided word embedding
+     * using the configured search method and similarity algorithm.
+     * Dominant Time Complexity for {@link SearchMethod#LINEAR_SCAN}: O(n⋅m):
+     * Iterating through n replacement words and calculating similarity for each
+     * embedding, m.
      * 
      * @param wordEmbedding the word embedding to find similar words for
+     * @return the similar replacement words, ordered from least to most similar
      */
-    private void addSimilarReplacementWords(WordEmbedding wordEmbedding) {
-        PriorityQueue<WordEmbeddingSimilarity> topNWords = getTopNSimilar(
-                similarReplacementWords,
-                similarityAlgorithm.isHigherMoreSimilar());
-
-        for (String replacementWord : replacementWordSet.getReplacementWordSet()) {
-            WordEmbedding replacementWordEmbedding = wordEmbeddingMap.getWordEmbedding(replacementWord);
-
-            if (replacementWordEmbedding != null) {
-                topNWords.offer(
-                        new WordEmbeddingSimilarity(
-                                replacementWord,
-                                similarityAlgorithm.calculate(
-                                        replacementWordEmbedding.embedding(),
-                                        wordEmbedding.embedding())));
-
-                if (topNWords.size() > similarReplacementWords) {
-                    topNWords.poll();
-                }
+    private List<String> getSimilarReplacementWords(WordEmbedding wordEmbedding) {
+        return getSimilarWordSearch().getSimilarWords(wordEmbedding.vector(), similarReplacementWords);
+    }
+
+    /**
+     * Finds the similar replacement words of every word in a collection that
+     * would be looked up and is not cached yet, with one batched search, and
+     * caches them. Searches that support batches, such as
+     * {@link SearchMethod#PACKED_MATRIX_SCAN}, resolve the whole batch as a
+     * matrix-matrix product; the others search for each word in turn.
+     * 
+     * @param words the words to resolve
+     */
+    public void resolveSimilarWords(Collection<String> words) {
+        List<EmbeddingVector> batchVectors = new ArrayList<>();
+
+        List<Integer> batchIds = new ArrayList<>();
+
+        for (String word : words) {
+            int id = termDictionary.getId(word);
+            if (id < 0 || isReplacementWord[id] || similarWordsCache.get(id) != null)
+                continue;
+
+            WordEmbedding wordEmbedding = wordEmbeddingMap.getWordEmbedding(word);
+            if (wordEmbedding != null) {
+                batchIds.add(id);
+                batchVectors.add(wordEmbedding.vector());
             }
         }
 
-        while (!topNWords.isEmpty()) {
-            wordEmbedding.addSimilarWord(topNWords.poll().word());
-        }
+        if (batchIds.isEmpty())
+            return;
+
+        List<List<String>> similarWords = getSimilarWordSearch().getSimilarWords(
+                batchVectors,
+                similarReplacementWords);
+
+        for (int i = 0; i < batchIds.size(); i++)
+            similarWordsCache.set(batchIds.get(i), similarWords.get(i));
     }
 
     /**
-     * Clears the list of similar words in all word embeddings within the word
-     * embedding map. The method iterates over all embeddings in wordEmbeddingMap,
-     * which takes O(n). The emptySimilarWordList operation is O(1).
+     * Discards the similar-word search so that it is rebuilt on next use, and
+     * clears the cache of similar words found with it.
      */
-    private void emptyWordEmbeddingMapSimilarWordList() {
-        if (wordEmbeddingMap != null) {
-            for (WordEmbedding wordEmbedding : wordEmbeddingMap.getEmbeddings()) {
-                wordEmbedding.emptySimilarWordList();
-            }
+    private void resetSimilarWordSearch() {
+        similarWordSearch = null;
+        emptySimilarWordsCache();
+    }
+
+    /**
+     * Clears the cache of similar words found so far. Called whenever a setting
+     * that affects the result of a similarity search changes. Time complexity:
+     * O(n), for n words in the map.
+     */
+    private void emptySimilarWordsCache() {
+        Collections.fill(similarWordsCache, null);
+    }
+
+    /**
+     * Resolves the words of the map and of the replacement set to ids, once
+     * both are set: builds the dictionary of the map if it has changed, flags
+     * the replacement words, and sizes the similar-words cache to the map.
+     * Time complexity: O(N + r), for N words in the map and r replacement
+     * words.
+     *
+     * @param isNewMap whether the map has changed since the last call
+     */
+    private void resolveTermIds(boolean isNewMap) {
+        if (isNewMap)
+            termDictionary = null;
+        isReplacementWord = null;
+        similarWordsCache.clear();
+
+        if (wordEmbeddingMap == null || replacementWordSet == null)
+            return;
+
+        if (termDictionary == null) {
+            termDictionary = wordEmbeddingMap instanceof RowWordEmbeddingMapAbstract rowMap
+                    ? rowMap.getDictionary()
+                    : TermDictionary.build(wordEmbeddingMap.getWords().toArray(new String[0]));
+        }
+
+        isReplacementWord = new boolean[termDictionary.getSize()];
+        for (String word : replacementWordSet.getReplacementWordSet()) {
+            int id = termDictionary.getId(word);
+            if (id >= 0)
+                isReplacementWord[id] = true;
         }
+
+        similarWordsCache.addAll(Collections.nCopies(termDictionary.getSize(), null));
     }
 
     /**
-     * Replaces a word in the string if it is not present in the replacement set.
-     * The replacement is based on the similarity score of the word embeddings using
-     * the configured similarity algorithm and replacement method.
+     * Finds the replacement of a word if it is not present in the replacement
+     * set. The replacement is based on the similarity score of the word
+     * embeddings using the configured similarity algorithm and replacement
+     * method. The word is resolved to its id once, without creating a string,
+     * and the replacement-set test and the cache are looked up by id; the
+     * embedding is only read when the word is not cached.
      * 
      * n: Number of replacement words in replacementWordSet.
      * m: Dimensionality of the embeddings.
-     * Time complexity: O(n⋅m).
+     * Time complexity: O(n⋅m), or O(k) for a cached word of k characters.
      * 
-     * @param string the word to be replaced
-     * @return the replaced word, or the original word if no replacement is found
+     * @param word the word to be replaced, in lower case
+     * @return the replacement word, or {@code null} if the word is kept
      */
+    protected String getReplacementIfNotInReplacementSet(CharSequence word) {
+        int id = termDictionary.getId(word);
 
-    protected String replaceStringIfNotInReplacementSet(String string) {
-        if (!replacementWordSet.containsWord(string)) {
-            WordEmbedding stringEmbedding = wordEmbeddingMap.getWordEmbedding(string);
-
-            if (stringEmbedding != null) {
-                if (stringEmbedding.similarWords().isEmpty()) {
-                    addSimilarReplacementWords(stringEmbedding);
-                }
-                return replacementMethod.getReplacement(stringEmbedding.similarWords());
+        if (id >= 0 && !isReplacementWord[id]) {
+            List<String> similarWords = similarWordsCache.get(id);
+            if (similarWords == null) {
+                similarWords = getSimilarReplacementWords(wordEmbeddingMap.getWordEmbedding(word.toString()));
+                similarWordsCache.set(id, similarWords);
+            }
+            if (!similarWords.isEmpty()) {
+                return replacementMethod.getReplacement(similarWords);
             }
-
         }
 
-        return string;
+        return null;
     }
 
     /**
      * Reads the input text file and writes the modified version (with word
-     * replacements) to an output file.
+     * replacements) to an output file. The words of the file are collected
+     * first and their similar words resolved as one batch.
      * 
      * Time complexity: O(n⋅m), for n words in the input file, and m representing
      * the complexity of checking the similarity of word replacements.
@@ -143,6 +316,8 @@ public abstract class WordReplacerAbstract {
         if (replacementWordSet == null) {
             throw new IllegalStateException("The Replacement-Word Set has not been initialized.");
         }
+        resolveSimilarWords(getLookupWords(inputTextFileName));
+
         try (
                 BufferedReader inputReader = new BufferedReader(new FileReader(inputTextFileName));
                 BufferedWriter outputWriter = new BufferedWriter(new FileWriter(outputTextFileName));) {
@@ -155,6 +330,27 @@ public abstract class WordReplacerAbstract {
         }
     }
 
+    /**
+     * Collects the distinct words of a text file that would be looked up in the
+     * word embeddings when the file is replaced. The file is read line by line.
+     * Loading only these words and the replacement words is enough to replace
+     * the file. Time complexity: O(n), for n characters in the file.
+     * 
+     * @param inputTextFileName the input text file to read
+     * @return the set of words looked up for the file
+     * @throws IOException if an I/O error occurs while reading the file
+     */
+    public Set<String> getLookupWords(String inputTextFileName) throws IOException {
+        Set<String> words = new HashSet<>();
+        try (BufferedReader inputReader = new BufferedReader(new FileReader(inputTextFileName))) {
+            String inputTextLine;
+            while ((inputTextLine = inputReader.readLine()) != null) {
+                addLookupWords(inputTextLine, words);
+            }
+        }
+        return words;
+    }
+
     /**
      * Checks if the word embedding map is null.
      * 
@@ -179,13 +375,46 @@ public abstract class WordReplacerAbstract {
     }
 
     /**
-     * Sets the word embeddings map to be used by the word replacer.
+     * Retrieves the word embeddings map used by the word replacer.
+     * 
+     * @return the word embedding map, or null if none has been set
+     */
+    public WordEmbeddingMapInterface getWordEmbeddingsMap() {
+        return wordEmbeddingMap;
+    }
+
+    /**
+     * Retrieves the replacement word set used by the word replacer.
+     * 
+     * @return the replacement word set, or null if none has been set
+     */
+    public ReplacementWordSetInterface getReplacementWordsSet() {
+        return replacementWordSet;
+    }
+
+    /**
+     * Sets the word embeddings map to be used by the word replacer. A previous
+     * map that holds resources, such as an open file, is closed once the new
+     * map is in use.
      * 
      * @param wordEmbeddingMap the word embedding map
-     * @throws IllegalArgumentException if the word embedding map is null
+     * @throws IOException if the previous map cannot be closed; the new map is
+     *                     in use regardless
      */
-    public void setWordEmbeddingsMap(WordEmbeddingMapInterface wordEmbeddingMap) throws IllegalArgumentException {
+    public void setWordEmbeddingsMap(WordEmbeddingMapInterface wordEmbeddingMap) throws IOException {
+        WordEmbeddingMapInterface previousWordEmbeddingMap = this.wordEmbeddingMap;
         this.wordEmbeddingMap = wordEmbeddingMap;
+        resetSimilarWordSearch();
+        resolveTermIds(true);
+
+        if (previousWordEmbeddingMap instanceof AutoCloseable closeable
+                && previousWordEmbeddingMap != wordEmbeddingMap) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                throw new IOException("Could not close the previous word embeddings: " + e.getMessage(), e);
+            }
+        }
     }
 
     /**
@@ -195,6 +424,8 @@ public abstract class WordReplacerAbstract {
      */
     public void setReplacementWordsSet(ReplacementWordSetInterface replacementWordSet) {
         this.replacementWordSet = replacementWordSet;
+        resetSimilarWordSearch();
+        resolveTermIds(false);
     }
 
     /**
@@ -205,7 +436,7 @@ public abstract class WordReplacerAbstract {
      */
     public void setSimilarReplacementWords(int similarReplacementWords) {
         this.similarReplacementWords = similarReplacementWords;
-        emptyWordEmbeddingMapSimilarWordList();
+        emptySimilarWordsCache();
     }
 
     /**
@@ -215,7 +446,7 @@ public abstract class WordReplacerAbstract {
      */
     public void setSimilarityAlgorithm(SimilarityAlgorithm similarityAlgorithm) {
         this.similarityAlgorithm = similarityAlgorithm;
-        emptyWordEmbeddingMapSimilarWordList();
+        resetSimilarWordSearch();
     }
 
     /**
@@ -225,7 +456,42 @@ public abstract class WordReplacerAbstract {
      */
     public void setReplacementMethod(ReplacementMethod replacementMethod) {
         this.replacementMethod = replacementMethod;
-        emptyWordEmbeddingMapSimilarWordList();
+        emptySimilarWordsCache();
+    }
+
+    /**
+     * Sets the search method used to find the replacement words most similar to a
+     * word.
+     * 
+     * @param searchMethod the search method
+     */
+    public void setSearchMethod(SearchMethod searchMethod) {
+        this.searchMethod = searchMethod;
+        resetSimilarWordSearch();
+    }
+
+    /**
+     * Sets the tuning settings of the search methods that build an index over
+     * the replacement words, such as {@link SearchMethod#HNSW}.
+     * 
+     * @param searchOptions the search options
+     */
+    public void setSearchOptions(SearchOptions searchOptions) {
+        this.searchOptions = searchOptions;
+        resetSimilarWordSearch();
+    }
+
+    /**
+     * Sets the number of top-ranked words that replacement words must be among
+     * to be used as replacements. In word embeddings files sorted by frequency,
+     * this drops rare candidates and shortens every search.
+     * 
+     * @param maxReplacementRank the maximum rank, or 0 to use every replacement
+     *                           word
+     */
+    public void setMaxReplacementRank(int maxReplacementRank) {
+        this.maxReplacementRank = maxReplacementRank;
+        resetSimilarWordSearch();
     }
 
     /**
@@ -237,4 +503,13 @@ public abstract class WordReplacerAbstract {
      */
     public abstract String replaceString(String string);
 
+    /**
+     * Adds the words that {@link #replaceString(String)} would look up in the
+     * word embeddings for the given string to a set.
+     * 
+     * @param string the input string
+     * @param words  the set to add the looked-up words to
+     */
+    protected abstract void addLookupWords(String string, Set<String> words);
+
 }
@@ -0,0 +1,110 @@
+package ie.atu.sw.wordsearch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ie.atu.sw.util.EmbeddingVector;
+import ie.atu.sw.util.ReplacementWordSetInterface;
+import ie.atu.sw.util.SimilarWordSearchInterface;
+import ie.atu.sw.util.SimilarityAlgorithm;
+import ie.atu.sw.util.WordEmbeddingMapInterface;
+import ie.atu.sw.wordembedding.BinarySketchStore;
+
+/**
+ * Cosine similar-word search that prefilters the replacement words by the
+ * Hamming distance between their {@link BinarySketchStore} sketches and the
+ * query's, and re-ranks only a shortlist of the nearest sketches with the
+ * full-precision vectors. The popcount scan replaces the floating-point scan
+ * over every replacement word.
+ * <p>
+ * Hamming distances are small integers, so the shortlist is selected with a
+ * histogram of the distances, rather than by ranking every word.
+ * </p>
+ */
+public class BinarySketchSearch implements SimilarWordSearchInterface {
+
+    private final WordEmbeddingMapInterface wordEmbeddingMap;
+    private final BinarySketchStore store;
+    private final int minShortlistSize;
+    private final int rerankFactor;
+
+    /**
+     * Constructs a sketch search over the replacement words.
+     *
+     * @param wordEmbeddingMap   the map holding the full-precision embeddings
+     * @param replacementWordSet the candidate replacement words
+     * @param bits               the number of bits per sketch, a positive
+     *                           multiple of 64
+     * @param minShortlistSize   the minimum number of words re-ranked exactly
+     * @param rerankFactor       the shortlist size, as a multiple of the number
+     *                           of words requested, if that is larger
+     * @throws IllegalArgumentException if the number of bits is invalid
+     */
+    public BinarySketchSearch(
+            WordEmbeddingMapInterface wordEmbeddingMap,
+            ReplacementWordSetInterface replacementWordSet,
+            int bits,
+            int minShortlistSize,
+            int rerankFactor)
+            throws IllegalArgumentException {
+        this.wordEmbeddingMap = wordEmbeddingMap;
+        this.store = BinarySketchStore.fromMap(wordEmbeddingMap, replacementWordSet.getReplacementWordSet(), bits);
+        this.minShortlistSize = minShortlistSize;
+        this.rerankFactor = rerankFactor;
+    }
+
+    /**
+     * Checks if a similarity algorithm can be searched with sketches.
+     *
+     * @param similarityAlgorithm the algorithm
+     * @return true for cosine similarity, false otherwise
+     */
+    public static boolean supports(SimilarityAlgorithm similarityAlgorithm) {
+        return similarityAlgorithm == SimilarityAlgorithm.COSINE_SIMILARITY;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Time complexity: O(n⋅b / 64) for n replacement words and b bits, plus
+     * O(k⋅m) for re-ranking a shortlist of k words of dimension m.
+     * </p>
+     */
+    @Override
+    public List<String> getSimilarWords(EmbeddingVector query, int n) {
+        if (store.getSize() == 0)
+            return new ArrayList<>();
+
+        int[] distances = new int[store.getSize()];
+        store.hammingDistances(store.sketch(query), distances);
+
+        int shortlistSize = Math.max(minShortlistSize, n * rerankFactor);
+
+        // Find the distance up to which the rows fill the shortlist
+        int[] counts = new int[store.getBits() + 1];
+        for (int distance : distances)
+            counts[distance]++;
+
+        int threshold = 0;
+        int nearer = 0;
+        while (threshold <= store.getBits() && nearer + counts[threshold] < shortlistSize)
+            nearer += counts[threshold++];
+
+        TopNSelector shortlist = new TopNSelector(shortlistSize, false);
+        int ties = shortlistSize - nearer;
+
+        for (int row = 0; row < distances.length; row++) {
+            if (distances[row] < threshold || (distances[row] == threshold && ties-- > 0))
+                shortlist.offer(row, distances[row]);
+        }
+
+        return SearchResults.rerank(
+                shortlist,
+                store::getWord,
+                n,
+                wordEmbeddingMap,
+                SimilarityAlgorithm.COSINE_SIMILARITY,
+                query);
+    }
+
+}
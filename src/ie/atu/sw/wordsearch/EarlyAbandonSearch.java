@@ -0,0 +1,205 @@
+package ie.atu.sw.wordsearch;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import ie.atu.sw.util.EmbeddingVector;
+import ie.atu.sw.util.ReplacementWordSetInterface;
+import ie.atu.sw.util.SimilarWordSearchInterface;
+import ie.atu.sw.util.SimilarityAlgorithm;
+import ie.atu.sw.util.Vector;
+import ie.atu.sw.util.WordEmbeddingMapInterface;
+import ie.atu.sw.wordembedding.WordEmbedding;
+
+/**
+ * Exact Euclidean similar-word search that abandons a replacement word as soon
+ * as its partial distance exceeds the distance of the n-th nearest word found
+ * so far. Squared differences only grow, so an abandoned word could not have
+ * entered the top N.
+ * <p>
+ * When the search is built, the replacement-word vectors are packed row-major
+ * with their dimensions reordered from the highest variance across the
+ * replacement words to the lowest, and each query is reordered the same way.
+ * The dimensions that contribute most to a distance are summed first, so the
+ * bound is crossed early. The distance is summed a block of
+ * {@link #BLOCK_DIMENSIONS} dimensions at a time with the SIMD-friendly kernel
+ * of {@link Vector#getKernels()}, and the bound is checked between blocks.
+ * </p>
+ * <p>
+ * Words are ranked by squared distance, which ranks the same as the distance,
+ * so both {@link SimilarityAlgorithm#EUCLIDEAN_DISTANCE} and
+ * {@link SimilarityAlgorithm#EUCLIDEAN_DISTANCE_NO_SQRT} are supported.
+ * </p>
+ */
+public class EarlyAbandonSearch implements SimilarWordSearchInterface {
+
+    /**
+     * The number of dimensions summed between checks against the bound.
+     */
+    public static final int BLOCK_DIMENSIONS = 32;
+
+    private final int dimension;
+    private final String[] words;
+    private final float[] matrix;
+    private final int[] dimensionOrder;
+
+    /**
+     * Constructs an early-abandon search over the replacement words.
+     *
+     * @param wordEmbeddingMap    the map to look the replacement-word embeddings
+     *                            up in
+     * @param replacementWordSet  the candidate replacement words
+     * @param similarityAlgorithm the algorithm used to compare embeddings
+     * @throws IllegalArgumentException if the algorithm is not a Euclidean
+     *                                  distance, or the embeddings do not all
+     *                                  have the same dimension
+     */
+    public EarlyAbandonSearch(
+            WordEmbeddingMapInterface wordEmbeddingMap,
+            ReplacementWordSetInterface replacementWordSet,
+            SimilarityAlgorithm similarityAlgorithm)
+            throws IllegalArgumentException {
+        if (!supports(similarityAlgorithm))
+            throw new IllegalArgumentException("Early abandonment needs a Euclidean distance, not "
+                    + similarityAlgorithm);
+
+        List<String> storedWords = new ArrayList<>();
+        List<float[]> vectors = new ArrayList<>();
+
+        for (String word : replacementWordSet.getReplacementWordSet()) {
+            WordEmbedding wordEmbedding = wordEmbeddingMap.getWordEmbedding(word);
+            if (wordEmbedding != null) {
+                storedWords.add(word);
+                vectors.add(wordEmbedding.vector().toFloatArray());
+            }
+        }
+
+        this.dimension = vectors.isEmpty() ? 0 : vectors.getFirst().length;
+        this.words = storedWords.toArray(new String[0]);
+        this.dimensionOrder = orderByVariance(vectors, dimension);
+
+        if ((long) words.length * dimension > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Too many vectors to pack: " + words.length + " x " + dimension);
+
+        this.matrix = new float[words.length * dimension];
+        for (int row = 0; row < words.length; row++) {
+            float[] vector = vectors.get(row);
+            if (vector.length != dimension)
+                throw new IllegalArgumentException(
+                        "Embedding has dimension " + vector.length + ", expected " + dimension);
+            for (int i = 0; i < dimension; i++)
+                matrix[row * dimension + i] = vector[dimensionOrder[i]];
+        }
+    }
+
+    /**
+     * Checks if a similarity algorithm can be searched with early abandonment.
+     *
+     * @param similarityAlgorithm the algorithm
+     * @return true for the Euclidean distances, false otherwise
+     */
+    public static boolean supports(SimilarityAlgorithm similarityAlgorithm) {
+        return similarityAlgorithm == SimilarityAlgorithm.EUCLIDEAN_DISTANCE
+                || similarityAlgorithm == SimilarityAlgorithm.EUCLIDEAN_DISTANCE_NO_SQRT;
+    }
+
+    /**
+     * Orders the dimensions from the highest variance across the vectors to the
+     * lowest. Time complexity: O(n⋅m + m log m), for n vectors of dimension m.
+     *
+     * @param vectors   the vectors
+     * @param dimension the dimension of the vectors
+     * @return the dimensions, in decreasing order of variance
+     */
+    private static int[] orderByVariance(List<float[]> vectors, int dimension) {
+        double[] sums = new double[dimension];
+        double[] squaredSums = new double[dimension];
+
+        for (float[] vector : vectors) {
+            if (vector.length != dimension)
+                continue;
+            for (int i = 0; i < dimension; i++) {
+                sums[i] += vector[i];
+                squaredSums[i] += (double) vector[i] * vector[i];
+            }
+        }
+
+        int count = Math.max(1, vectors.size());
+        double[] variances = new double[dimension];
+        for (int i = 0; i < dimension; i++) {
+            double mean = sums[i] / count;
+            variances[i] = squaredSums[i] / count - mean * mean;
+        }
+
+        return IntStream.range(0, dimension)
+                .boxed()
+                .sorted(Comparator.comparingDouble((Integer i) -> variances[i]).reversed())
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Time complexity: O(n⋅m) for n replacement words of dimension m in the
+     * worst case; words abandoned after b blocks cost O(b⋅B) for blocks of B
+     * dimensions.
+     * </p>
+     */
+    @Override
+    public List<String> getSimilarWords(EmbeddingVector query, int n) {
+        if (words.length == 0)
+            return new ArrayList<>();
+        if (query.dimension() != dimension)
+            throw new IllegalArgumentException(
+                    "Query has dimension " + query.dimension() + ", expected " + dimension);
+
+        float[] orderedQuery = new float[dimension];
+        for (int i = 0; i < dimension; i++)
+            orderedQuery[i] = (float) query.get(dimensionOrder[i]);
+
+        // Ranked by squared distance, lower is more similar
+        TopNSelector topNWords = new TopNSelector(n, false);
+
+        for (int row = 0; row < words.length; row++) {
+            double bound = topNWords.getThreshold();
+            double distance = distanceWithin(row, orderedQuery, bound);
+
+            if (distance <= bound)
+                topNWords.offer(row, distance);
+        }
+
+        return topNWords.toWordList(row -> words[row]);
+    }
+
+    /**
+     * Sums the squared distance between a row and a query a block of dimensions
+     * at a time, stopping as soon as it exceeds a bound.
+     *
+     * @param row   the row
+     * @param query the query, with its dimensions reordered
+     * @param bound the distance beyond which the row is abandoned
+     * @return the squared distance, or a partial distance greater than the bound
+     *         if the row was abandoned
+     */
+    private double distanceWithin(int row, float[] query, double bound) {
+        int offset = row * dimension;
+        double distance = 0.0;
+
+        for (int from = 0; from < dimension; from += BLOCK_DIMENSIONS) {
+            distance += Vector.getKernels().euclideanDistanceNoSqrt(
+                    matrix,
+                    offset,
+                    query,
+                    from,
+                    Math.min(dimension, from + BLOCK_DIMENSIONS));
+            if (distance > bound)
+                break;
+        }
+
+        return distance;
+    }
+
+}
@@ -0,0 +1,804 @@
+package ie.atu.sw.wordsearch;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import ie.atu.sw.util.EmbeddingVector;
+import ie.atu.sw.util.SimilarityAlgorithm;
+import ie.atu.sw.util.Vector;
+import ie.atu.sw.util.WordEmbeddingMapInterface;
+import ie.atu.sw.wordembedding.WordEmbedding;
+
+/**
+ * Hierarchical navigable small world (HNSW) graph over word embeddings, for
+ * approximate nearest-neighbour search in logarithmic time.
+ * <p>
+ * Every word is a node on the bottom layer of the graph, and on each layer
+ * above with probability 1/M, where it is linked to up to M of its nearest
+ * neighbours (2M on the bottom layer). A search descends greedily from the
+ * single node of the top layer to the bottom one, then explores the bottom
+ * layer keeping the ef closest nodes found. Larger values of M, efConstruction
+ * and ef find more of the true nearest neighbours, at the cost of memory,
+ * build time and search time respectively.
+ * </p>
+ * <p>
+ * Nodes are compared with a distance derived from the similarity algorithm,
+ * lower for more similar words: one minus the cosine similarity of unit
+ * vectors, the negated dot product, or the squared Euclidean distance, which
+ * ranks the same as the distance. The graph is built for one algorithm.
+ * </p>
+ * <p>
+ * The nodes are inserted in parallel on the common fork-join pool, locking one
+ * node's links at a time, so the graph depends on the order the threads run
+ * in. An index can be written to a file and read back instead of being
+ * rebuilt.
+ * </p>
+ */
+public class HnswIndex {
+
+    static final int MAGIC = 0x57534E48; // "HNSW" in big-endian byte order
+    static final int VERSION = 1;
+
+    /**
+     * Seed of the random layer assignment, so that the layers depend only on the
+     * order of the words.
+     */
+    private static final long LAYER_SEED = 42L;
+
+    private final SimilarityAlgorithm similarityAlgorithm;
+    private final int m;
+    private final int efConstruction;
+    private final int dimension;
+    private final String[] words;
+    private final float[][] vectors;
+
+    /**
+     * The links of each node on each of its layers: element 0 holds the number
+     * of links, followed by the linked nodes. A node's links are only changed
+     * while holding the lock of its {@code links[node]} array.
+     */
+    private final int[][][] links;
+
+    private final ThreadLocal<VisitedSet> visitedSets = ThreadLocal.withInitial(VisitedSet::new);
+
+    private int entryPoint;
+    private int topLayer;
+
+    /**
+     * Constructs an index from already built nodes and links.
+     *
+     * @param similarityAlgorithm the algorithm the index was built for
+     * @param m                   the number of links per node and layer
+     * @param efConstruction      the number of candidates kept while linking
+     * @param dimension           the vector dimension
+     * @param words               the word of each node
+     * @param vectors             the vector of each node
+     * @param links               the links of each node on each of its layers
+     * @param entryPoint          the node of the top layer
+     * @param topLayer            the top layer, or -1 for an empty index
+     */
+    private HnswIndex(
+            SimilarityAlgorithm similarityAlgorithm,
+            int m,
+            int efConstruction,
+            int dimension,
+            String[] words,
+            float[][] vectors,
+            int[][][] links,
+            int entryPoint,
+            int topLayer) {
+        this.similarityAlgorithm = similarityAlgorithm;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.dimension = dimension;
+        this.words = words;
+        this.vectors = vectors;
+        this.links = links;
+        this.entryPoint = entryPoint;
+        this.topLayer = topLayer;
+    }
+
+    /**
+     * Builds an index holding the given words. Words without an embedding in the
+     * map are skipped. Time complexity: O(n⋅log n⋅efConstruction⋅M⋅m / p), for n
+     * words of dimension m with p workers.
+     *
+     * @param wordEmbeddingMap    the word embeddings to index
+     * @param words               the words to include
+     * @param similarityAlgorithm the algorithm the index will be searched with
+     * @param m                   the number of links per node and layer, at
+     *                            least 2
+     * @param efConstruction      the number of candidates kept while linking,
+     *                            at least 1
+     * @return a new index
+     * @throws IllegalArgumentException if M or efConstruction is out of range, or
+     *                                  the embeddings do not all have the same
+     *                                  dimension
+     */
+    public static HnswIndex fromMap(
+            WordEmbeddingMapInterface wordEmbeddingMap,
+            Collection<String> words,
+            SimilarityAlgorithm similarityAlgorithm,
+            int m,
+            int efConstruction)
+            throws IllegalArgumentException {
+        if (m < 2)
+            throw new IllegalArgumentException("M must be at least 2: " + m);
+        if (efConstruction < 1)
+            throw new IllegalArgumentException("efConstruction must be at least 1: " + efConstruction);
+
+        List<String> storedWords = new ArrayList<>(words.size());
+        List<float[]> vectors = new ArrayList<>(words.size());
+
+        for (String word : words) {
+            WordEmbedding wordEmbedding = wordEmbeddingMap.getWordEmbedding(word);
+            if (wordEmbedding != null) {
+                storedWords.add(word);
+                vectors.add(prepareVector(wordEmbedding.vector(), similarityAlgorithm));
+            }
+        }
+
+        int nodes = vectors.size();
+        int dimension = nodes == 0 ? 0 : vectors.getFirst().length;
+
+        Random random = new Random(LAYER_SEED);
+        double layerMultiplier = 1.0 / Math.log(m);
+        int[][][] links = new int[nodes][][];
+
+        for (int node = 0; node < nodes; node++) {
+            if (vectors.get(node).length != dimension)
+                throw new IllegalArgumentException(
+                        "Embedding has dimension " + vectors.get(node).length + ", expected " + dimension);
+
+            int layer = (int) (-Math.log(1.0 - random.nextDouble()) * layerMultiplier);
+            links[node] = new int[layer + 1][];
+            for (int l = 0; l <= layer; l++)
+                links[node][l] = new int[1 + maxLinks(l, m)];
+        }
+
+        HnswIndex index = new HnswIndex(
+                similarityAlgorithm,
+                m,
+                efConstruction,
+                dimension,
+                storedWords.toArray(new String[0]),
+                vectors.toArray(new float[0][]),
+                links,
+                0,
+                nodes == 0 ? -1 : links[0].length - 1);
+
+        IntStream.range(1, nodes).parallel().forEach(index::insert);
+
+        return index;
+    }
+
+    /**
+     * Reads the index held in the configured index file if it was built from
+     * the given words, embeddings, algorithm and settings; otherwise builds a
+     * new index and, if an index file is configured, writes it there.
+     *
+     * @param wordEmbeddingMap    the word embeddings to index
+     * @param words               the words to include
+     * @param similarityAlgorithm the algorithm the index will be searched with
+     * @param searchOptions       the graph settings and index file
+     * @return the read or new index
+     * @throws IllegalArgumentException if the settings are out of range, or the
+     *                                  embeddings do not all have the same
+     *                                  dimension
+     * @throws IOException              if the index file exists but cannot be
+     *                                  read, or cannot be written
+     */
+    public static HnswIndex fromMap(
+            WordEmbeddingMapInterface wordEmbeddingMap,
+            Collection<String> words,
+            SimilarityAlgorithm similarityAlgorithm,
+            SearchOptions searchOptions)
+            throws IllegalArgumentException, IOException {
+        return IndexFiles.readOrBuild(
+                searchOptions.indexFileName(),
+                HnswIndex::read,
+                index -> index.isBuiltFrom(
+                        wordEmbeddingMap,
+                        words,
+                        similarityAlgorithm,
+                        searchOptions.hnswM(),
+                        searchOptions.hnswEfConstruction()),
+                () -> fromMap(
+                        wordEmbeddingMap,
+                        words,
+                        similarityAlgorithm,
+                        searchOptions.hnswM(),
+                        searchOptions.hnswEfConstruction()),
+                HnswIndex::write);
+    }
+
+    /**
+     * Converts an embedding to the single-precision vector stored for it: a
+     * unit vector for cosine similarity, the vector as it is otherwise.
+     *
+     * @param vector              the embedding
+     * @param similarityAlgorithm the algorithm of the index
+     * @return a new vector
+     */
+    private static float[] prepareVector(EmbeddingVector vector, SimilarityAlgorithm similarityAlgorithm) {
+        float[] values = vector.toFloatArray().clone();
+        if (similarityAlgorithm == SimilarityAlgorithm.COSINE_SIMILARITY)
+            Vector.normalize(values);
+        return values;
+    }
+
+    /**
+     * Retrieves the maximum number of links of a node on a layer.
+     *
+     * @param layer the layer
+     * @param m     the number of links per node on the upper layers
+     * @return 2M on the bottom layer, M above it
+     */
+    private static int maxLinks(int layer, int m) {
+        return layer == 0 ? 2 * m : m;
+    }
+
+    /**
+     * Retrieves the number of nodes in the index.
+     *
+     * @return the number of indexed words
+     */
+    public int getSize() {
+        return words.length;
+    }
+
+    /**
+     * Retrieves the similarity algorithm the index was built for.
+     *
+     * @return the similarity algorithm
+     */
+    public SimilarityAlgorithm getSimilarityAlgorithm() {
+        return similarityAlgorithm;
+    }
+
+    /**
+     * Checks if the index holds exactly the given words, with the vectors they
+     * have in the map, and was built with the given algorithm and settings.
+     * Time complexity: O(n⋅m).
+     *
+     * @param wordEmbeddingMap    the word embeddings
+     * @param words               the words
+     * @param similarityAlgorithm the similarity algorithm
+     * @param m                   the number of links per node and layer
+     * @param efConstruction      the number of candidates kept while linking
+     * @return true if the index would be built the same from them, up to the
+     *         order the nodes are linked in
+     */
+    public boolean isBuiltFrom(
+            WordEmbeddingMapInterface wordEmbeddingMap,
+            Collection<String> words,
+            SimilarityAlgorithm similarityAlgorithm,
+            int m,
+            int efConstruction) {
+        if (similarityAlgorithm != this.similarityAlgorithm || m != this.m || efConstruction != this.efConstruction)
+            return false;
+
+        Map<String, Integer> nodes = new HashMap<>();
+        for (int node = 0; node < this.words.length; node++)
+            nodes.put(this.words[node], node);
+
+        int matched = 0;
+        for (String word : words) {
+            WordEmbedding wordEmbedding = wordEmbeddingMap.getWordEmbedding(word);
+            if (wordEmbedding == null)
+                continue;
+
+            Integer node = nodes.get(word);
+            if (node == null || !Arrays.equals(vectors[node], prepareVector(wordEmbedding.vector(), similarityAlgorithm)))
+                return false;
+            matched++;
+        }
+
+        return matched == this.words.length;
+    }
+
+    /**
+     * Finds the indexed words nearest to a query. Time complexity:
+     * O(log n⋅ef⋅M⋅m) on average.
+     *
+     * @param query the query embedding
+     * @param n     the maximum number of words to return
+     * @param ef    the number of candidates kept while searching the bottom
+     *              layer; at least n are kept
+     * @return up to n words, ordered from least to most similar
+     * @throws IllegalArgumentException if the query dimension differs from the
+     *                                  index's
+     */
+    public List<String> search(EmbeddingVector query, int n, int ef) throws IllegalArgumentException {
+        if (words.length == 0 || n <= 0)
+            return new ArrayList<>();
+        if (query.dimension() != dimension)
+            throw new IllegalArgumentException(
+                    "Query has dimension " + query.dimension() + ", expected " + dimension);
+
+        float[] vector = prepareVector(query, similarityAlgorithm);
+
+        int nearest = entryPoint;
+        double nearestDistance = distance(vector, vectors[nearest]);
+        for (int layer = topLayer; layer > 0; layer--) {
+            NodeHeap closest = searchLayer(vector, nearest, nearestDistance, 1, layer);
+            nearest = closest.peekNode();
+            nearestDistance = closest.peekDistance();
+        }
+
+        NodeHeap results = searchLayer(vector, nearest, nearestDistance, Math.max(ef, n), 0);
+        while (results.size() > n)
+            results.pop();
+
+        // The farthest results come off the heap first
+        List<String> similarWords = new ArrayList<>(results.size());
+        while (results.size() > 0)
+            similarWords.add(words[results.pop()]);
+        return similarWords;
+    }
+
+    /**
+     * Links a node into the graph: descends greedily to its top layer, then on
+     * each of its layers finds its nearest nodes and links them both ways.
+     *
+     * @param node the node
+     */
+    private void insert(int node) {
+        float[] vector = vectors[node];
+        int layer = links[node].length - 1;
+
+        int currentEntryPoint;
+        int currentTopLayer;
+        synchronized (this) {
+            currentEntryPoint = entryPoint;
+            currentTopLayer = topLayer;
+        }
+
+        int nearest = currentEntryPoint;
+        double nearestDistance = distance(vector, vectors[nearest]);
+        for (int l = currentTopLayer; l > layer; l--) {
+            NodeHeap closest = searchLayer(vector, nearest, nearestDistance, 1, l);
+            nearest = closest.peekNode();
+            nearestDistance = closest.peekDistance();
+        }
+
+        for (int l = Math.min(layer, currentTopLayer); l >= 0; l--) {
+            NodeHeap candidates = searchLayer(vector, nearest, nearestDistance, efConstruction, l);
+
+            // Drain the heap into arrays ordered from nearest to farthest
+            int[] neighbours = new int[candidates.size()];
+            double[] distances = new double[candidates.size()];
+            int count = 0;
+            for (int i = candidates.size() - 1; i >= 0; i--) {
+                distances[i] = candidates.peekDistance();
+                neighbours[i] = candidates.pop();
+            }
+            for (int i = 0; i < neighbours.length; i++) {
+                if (neighbours[i] != node) {
+                    neighbours[count] = neighbours[i];
+                    distances[count++] = distances[i];
+                }
+            }
+            if (count == 0)
+                continue;
+
+            nearest = neighbours[0];
+            nearestDistance = distances[0];
+
+            int selected = selectNeighbours(neighbours, distances, count, m);
+            synchronized (links[node]) {
+                int[] nodeLinks = links[node][l];
+                System.arraycopy(neighbours, 0, nodeLinks, 1, selected);
+                nodeLinks[0] = selected;
+            }
+
+            for (int i = 0; i < selected; i++)
+                link(neighbours[i], node, distances[i], l);
+        }
+
+        if (layer > currentTopLayer) {
+            synchronized (this) {
+                if (layer > topLayer) {
+                    topLayer = layer;
+                    entryPoint = node;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a link from a node to a new neighbour. If the node already has as
+     * many links as it can hold, its links and the new neighbour are pruned
+     * back to that many with {@link #selectNeighbours(int[], double[], int, int)}.
+     *
+     * @param node      the node
+     * @param neighbour the new neighbour
+     * @param distance  the distance between them
+     * @param layer     the layer
+     */
+    private void link(int node, int neighbour, double distance, int layer) {
+        synchronized (links[node]) {
+            int[] nodeLinks = links[node][layer];
+            int count = nodeLinks[0];
+
+            for (int i = 1; i <= count; i++)
+                if (nodeLinks[i] == neighbour)
+                    return;
+
+            if (count < nodeLinks.length - 1) {
+                nodeLinks[++count] = neighbour;
+                nodeLinks[0] = count;
+                return;
+            }
+
+            // Order the current links and the new neighbour from nearest to farthest
+            NodeHeap nearestFirst = new NodeHeap(false);
+            for (int i = 1; i <= count; i++)
+                nearestFirst.push(nodeLinks[i], distance(vectors[node], vectors[nodeLinks[i]]));
+            nearestFirst.push(neighbour, distance);
+
+            int[] candidates = new int[count + 1];
+            double[] distances = new double[count + 1];
+            for (int i = 0; i <= count; i++) {
+                distances[i] = nearestFirst.peekDistance();
+                candidates[i] = nearestFirst.pop();
+            }
+
+            int selected = selectNeighbours(candidates, distances, count + 1, count);
+            System.arraycopy(candidates, 0, nodeLinks, 1, selected);
+            nodeLinks[0] = selected;
+        }
+    }
+
+    /**
+     * Selects the neighbours to link a node to from candidates ordered from
+     * nearest to farthest. A candidate is preferred if it is nearer to the node
+     * than to every candidate already selected, which spreads the links in
+     * different directions; the remaining places are filled with the nearest
+     * candidates passed over. The selection is moved to the front of the
+     * arrays.
+     *
+     * @param candidates the candidate nodes, nearest first
+     * @param distances  the distance of each candidate to the node
+     * @param count      the number of candidates
+     * @param max        the maximum number of neighbours to select
+     * @return the number of neighbours selected
+     */
+    private int selectNeighbours(int[] candidates, double[] distances, int count, int max) {
+        if (count <= max)
+            return count;
+
+        boolean[] preferred = new boolean[count];
+        int selected = 0;
+        int[] selection = new int[max];
+
+        for (int i = 0; i < count && selected < max; i++) {
+            boolean diverse = true;
+            for (int j = 0; j < selected && diverse; j++)
+                diverse = distance(vectors[candidates[i]], vectors[candidates[selection[j]]]) >= distances[i];
+
+            if (diverse) {
+                preferred[i] = true;
+                selection[selected++] = i;
+            }
+        }
+
+        for (int i = 0; i < count && selected < max; i++)
+            if (!preferred[i])
+                selection[selected++] = i;
+
+        Arrays.sort(selection, 0, selected);
+        for (int i = 0; i < selected; i++) {
+            candidates[i] = candidates[selection[i]];
+            distances[i] = distances[selection[i]];
+        }
+        return selected;
+    }
+
+    /**
+     * Explores one layer from an entry node, keeping the ef nodes nearest to the
+     * query found so far and expanding the nearest unexpanded one until it is
+     * farther than all of them.
+     *
+     * @param query         the query vector
+     * @param entry         the node to start from
+     * @param entryDistance the distance of the entry node to the query
+     * @param ef            the number of nodes to keep
+     * @param layer         the layer
+     * @return a heap of up to ef nodes, farthest first
+     */
+    private NodeHeap searchLayer(float[] query, int entry, double entryDistance, int ef, int layer) {
+        VisitedSet visited = visitedSets.get();
+        visited.clear(words.length);
+
+        NodeHeap candidates = new NodeHeap(false);
+        NodeHeap results = new NodeHeap(true);
+
+        visited.add(entry);
+        candidates.push(entry, entryDistance);
+        results.push(entry, entryDistance);
+
+        while (candidates.size() > 0) {
+            if (results.size() >= ef && candidates.peekDistance() > results.peekDistance())
+                break;
+
+            for (int neighbour : getLinks(candidates.pop(), layer)) {
+                if (!visited.add(neighbour))
+                    continue;
+
+                double distance = distance(query, vectors[neighbour]);
+                if (results.size() < ef || distance < results.peekDistance()) {
+                    candidates.push(neighbour, distance);
+                    results.push(neighbour, distance);
+                    if (results.size() > ef)
+                        results.pop();
+                }
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Retrieves a copy of the links of a node on a layer.
+     *
+     * @param node  the node
+     * @param layer the layer
+     * @return the linked nodes
+     */
+    private int[] getLinks(int node, int layer) {
+        synchronized (links[node]) {
+            int[] nodeLinks = links[node][layer];
+            return Arrays.copyOfRange(nodeLinks, 1, 1 + nodeLinks[0]);
+        }
+    }
+
+    /**
+     * Computes the distance between two stored or prepared vectors for the
+     * algorithm of the index. Time complexity: O(m).
+     *
+     * @param vector1 the first vector
+     * @param vector2 the second vector
+     * @return the distance, lower for more similar vectors
+     */
+    private double distance(float[] vector1, float[] vector2) {
+        return switch (similarityAlgorithm) {
+            case COSINE_SIMILARITY -> 1.0 - Vector.getKernels().dotProduct(vector1, vector2);
+            case DOT_PRODUCT -> -Vector.getKernels().dotProduct(vector1, vector2);
+            case EUCLIDEAN_DISTANCE, EUCLIDEAN_DISTANCE_NO_SQRT ->
+                Vector.getKernels().euclideanDistanceNoSqrt(vector1, vector2);
+        };
+    }
+
+    /**
+     * Writes the vectors and the graph to a file. Time complexity: O(n⋅(m + M)).
+     *
+     * @param fileName the name of the file to write
+     * @throws IOException if an I/O error occurs while writing
+     */
+    public void write(String fileName) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(Path.of(fileName))))) {
+
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(similarityAlgorithm.name());
+            out.writeInt(m);
+            out.writeInt(efConstruction);
+            out.writeInt(dimension);
+            out.writeInt(words.length);
+            out.writeInt(entryPoint);
+            out.writeInt(topLayer);
+
+            for (String word : words) {
+                byte[] encodedWord = word.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(encodedWord.length);
+                out.write(encodedWord);
+            }
+
+            for (float[] vector : vectors)
+                for (float value : vector)
+                    out.writeFloat(value);
+
+            for (int[][] nodeLinks : links) {
+                out.writeInt(nodeLinks.length);
+                for (int[] layerLinks : nodeLinks) {
+                    out.writeInt(layerLinks[0]);
+                    for (int i = 1; i <= layerLinks[0]; i++)
+                        out.writeInt(layerLinks[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads an index written by {@link #write(String)}. Time complexity:
+     * O(n⋅(m + M)).
+     *
+     * @param fileName the name of the file to read
+     * @return the index held in the file
+     * @throws IOException if the file cannot be read or is not a valid HNSW
+     *                     index
+     */
+    public static HnswIndex read(String fileName) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(Path.of(fileName))))) {
+
+            if (in.readInt() != MAGIC)
+                throw new IOException("Not an HNSW index: " + fileName);
+            int version = in.readInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported HNSW index version " + version + ": " + fileName);
+
+            SimilarityAlgorithm similarityAlgorithm;
+            try {
+                similarityAlgorithm = SimilarityAlgorithm.valueOf(in.readUTF());
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Unknown similarity algorithm in HNSW index: " + fileName, e);
+            }
+
+            int m = in.readInt();
+            int efConstruction = in.readInt();
+            int dimension = in.readInt();
+            int nodes = in.readInt();
+            int entryPoint = in.readInt();
+            int topLayer = in.readInt();
+
+            String[] words = new String[nodes];
+            for (int node = 0; node < nodes; node++)
+                words[node] = new String(in.readNBytes(in.readInt()), StandardCharsets.UTF_8);
+
+            float[][] vectors = new float[nodes][dimension];
+            for (float[] vector : vectors)
+                for (int i = 0; i < dimension; i++)
+                    vector[i] = in.readFloat();
+
+            int[][][] links = new int[nodes][][];
+            for (int node = 0; node < nodes; node++) {
+                links[node] = new int[in.readInt()][];
+                for (int layer = 0; layer < links[node].length; layer++) {
+                    int count = in.readInt();
+                    if (count > maxLinks(layer, m))
+                        throw new IOException("Corrupt HNSW index: " + fileName);
+
+                    links[node][layer] = new int[1 + maxLinks(layer, m)];
+                    links[node][layer][0] = count;
+                    for (int i = 1; i <= count; i++)
+                        links[node][layer][i] = in.readInt();
+                }
+            }
+
+            return new HnswIndex(
+                    similarityAlgorithm,
+                    m,
+                    efConstruction,
+                    dimension,
+                    words,
+                    vectors,
+                    links,
+                    entryPoint,
+                    topLayer);
+        }
+    }
+
+    /**
+     * Binary heap of nodes keyed by their distance to a query.
+     */
+    private static final class NodeHeap {
+
+        private final boolean farthestFirst;
+        private int[] nodes = new int[16];
+        private double[] distances = new double[16];
+        private int size;
+
+        /**
+         * Constructs an empty heap.
+         *
+         * @param farthestFirst true for the farthest node at the head, false for
+         *                      the nearest
+         */
+        NodeHeap(boolean farthestFirst) {
+            this.farthestFirst = farthestFirst;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int peekNode() {
+            return nodes[0];
+        }
+
+        double peekDistance() {
+            return distances[0];
+        }
+
+        void push(int node, double distance) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                distances = Arrays.copyOf(distances, size * 2);
+            }
+
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (!isBefore(distance, distances[parent]))
+                    break;
+                nodes[i] = nodes[parent];
+                distances[i] = distances[parent];
+                i = parent;
+            }
+            nodes[i] = node;
+            distances[i] = distance;
+        }
+
+        int pop() {
+            int head = nodes[0];
+            int node = nodes[--size];
+            double distance = distances[size];
+
+            int i = 0;
+            while (2 * i + 1 < size) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && isBefore(distances[child + 1], distances[child]))
+                    child++;
+                if (!isBefore(distances[child], distance))
+                    break;
+                nodes[i] = nodes[child];
+                distances[i] = distances[child];
+                i = child;
+            }
+            nodes[i] = node;
+            distances[i] = distance;
+
+            return head;
+        }
+
+        private boolean isBefore(double distance1, double distance2) {
+            return farthestFirst ? distance1 > distance2 : distance1 < distance2;
+        }
+    }
+
+    /**
+     * Set of the nodes visited by a search, cleared in constant time by moving
+     * to a new generation mark.
+     */
+    private static final class VisitedSet {
+
+        private int[] marks = new int[0];
+        private int generation;
+
+        void clear(int nodes) {
+            if (marks.length < nodes) {
+                marks = new int[nodes];
+                generation = 0;
+            }
+            if (++generation == 0) {
+                Arrays.fill(marks, 0);
+                generation = 1;
+            }
+        }
+
+        boolean add(int node) {
+            if (marks[node] == generation)
+                return false;
+            marks[node] = generation;
+            return true;
+        }
+    }
+
+}
@@ -0,0 +1,57 @@
+package ie.atu.sw.wordsearch;
+
+import java.util.List;
+
+import ie.atu.sw.util.EmbeddingVector;
+import ie.atu.sw.util.SimilarWordSearchInterface;
+
+/**
+ * Approximate similar-word search that walks an {@link HnswIndex} built over
+ * the replacement words, instead of comparing the word with every replacement
+ * word. The number of candidates kept per search, ef, trades speed for recall.
+ */
+public class HnswSearch implements SimilarWordSearchInterface {
+
+    private final HnswIndex index;
+    private final int ef;
+
+    /**
+     * Constructs a search over an index.
+     *
+     * @param index the index built over the replacement words
+     * @param ef    the number of candidates kept while searching for each word
+     * @throws IllegalArgumentException if ef is less than 1
+     */
+    public HnswSearch(HnswIndex index, int ef) throws IllegalArgumentException {
+        if (ef < 1)
+            throw new IllegalArgumentException("ef must be at least 1: " + ef);
+        this.index = index;
+        this.ef = ef;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Time complexity: O(log n⋅ef⋅M⋅m) on average, for n replacement words of
+     * dimension m linked to M neighbours each.
+     * </p>
+     */
+    @Override
+    public List<String> getSimilarWords(EmbeddingVector query, int n) {
+        return index.search(query, n, ef);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The queries are searched in parallel on the common fork-join pool.
+     * </p>
+     */
+    @Override
+    public List<List<String>> getSimilarWords(List<EmbeddingVector> queries, int n) {
+        return queries.parallelStream()
+                .map(query -> getSimilarWords(query, n))
+                .toList();
+    }
+
+}
@@ -0,0 +1,101 @@
+package ie.atu.sw.wordsearch;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Utility class with the index-file handling shared by the searches whose
+ * index can be saved, such as {@link HnswIndex} and {@link VantagePointTree}:
+ * an index is read from the configured file if it was built from the same
+ * inputs, and built and written there otherwise.
+ * <p>
+ * This class cannot be instantiated.
+ * </p>
+ */
+class IndexFiles {
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private IndexFiles() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Reads an index from a file.
+     *
+     * @param <T> the type of the index
+     */
+    @FunctionalInterface
+    interface IndexReader<T> {
+
+        /**
+         * Reads the index held in a file.
+         *
+         * @param fileName the file
+         * @return the index
+         * @throws IOException if the file cannot be read or is not a valid index
+         */
+        T read(String fileName) throws IOException;
+    }
+
+    /**
+     * Writes an index to a file.
+     *
+     * @param <T> the type of the index
+     */
+    @FunctionalInterface
+    interface IndexWriter<T> {
+
+        /**
+         * Writes an index to a file, replacing it.
+         *
+         * @param index    the index
+         * @param fileName the file
+         * @throws IOException if the file cannot be written
+         */
+        void write(T index, String fileName) throws IOException;
+    }
+
+    /**
+     * Reads the index held in a file if it is fresh; otherwise builds a new
+     * index and writes it to the file. Without a file, the index is built
+     * every time.
+     *
+     * @param <T>      the type of the index
+     * @param fileName the index file, or blank for none
+     * @param reader   reads the index from the file
+     * @param isFresh  checks if a read index was built from the current inputs
+     * @param builder  builds a new index
+     * @param writer   writes a new index to the file
+     * @return the read or new index
+     * @throws IOException if the file exists but cannot be read or is not a
+     *                     valid index, or the new index cannot be written
+     */
+    static <T> T readOrBuild(
+            String fileName,
+            IndexReader<T> reader,
+            Predicate<T> isFresh,
+            Supplier<T> builder,
+            IndexWriter<T> writer)
+            throws IOException {
+        boolean hasFile = fileName != null && !fileName.isBlank();
+
+        if (hasFile && Files.isRegularFile(Path.of(fileName))) {
+            T index = reader.read(fileName);
+            if (isFresh.test(index))
+                return index;
+        }
+
+        T index = builder.get();
+
+        if (hasFile)
+            writer.write(index, fileName);
+
+        return index;
+    }
+
+}
@@ -0,0 +1,99 @@
+package ie.atu.sw.wordsearch;
+
+import java.util.List;
+
+import ie.atu.sw.util.EmbeddingVector;
+import ie.atu.sw.util.ReplacementWordSetInterface;
+import ie.atu.sw.util.SimilarWordSearchInterface;
+import ie.atu.sw.util.SimilarityAlgorithm;
+import ie.atu.sw.util.WordEmbeddingMapInterface;
+import ie.atu.sw.wordembedding.InvertedFileStore;
+import ie.atu.sw.wordembedding.PackedEmbeddingMatrix;
+
+/**
+ * Approximate similar-word search over an {@link InvertedFileStore} built over
+ * the replacement words. Each query is compared with the list centroids, and
+ * only the rows of the nearest lists are scored, a block at a time, with the
+ * configured similarity algorithm. Scanning more lists finds more of the true
+ * most similar words, at the cost of latency; scanning every list is exact.
+ */
+public class InvertedFileSearch implements SimilarWordSearchInterface {
+
+    private final SimilarityAlgorithm similarityAlgorithm;
+    private final InvertedFileStore store;
+    private final int probes;
+
+    /**
+     * Constructs a search over the replacement words, clustering their vectors
+     * into lists.
+     *
+     * @param wordEmbeddingMap    the map to look the replacement-word embeddings
+     *                            up in
+     * @param replacementWordSet  the candidate replacement words
+     * @param similarityAlgorithm the algorithm used to compare embeddings
+     * @param probes              the number of lists scanned per query
+     * @throws IllegalArgumentException if probes is less than 1
+     */
+    public InvertedFileSearch(
+            WordEmbeddingMapInterface wordEmbeddingMap,
+            ReplacementWordSetInterface replacementWordSet,
+            SimilarityAlgorithm similarityAlgorithm,
+            int probes)
+            throws IllegalArgumentException {
+        if (probes < 1)
+            throw new IllegalArgumentException("The number of probes must be at least 1: " + probes);
+
+        this.similarityAlgorithm = similarityAlgorithm;
+        this.store = InvertedFileStore.fromMap(
+                wordEmbeddingMap,
+                replacementWordSet.getReplacementWordSet(),
+                similarityAlgorithm);
+        this.probes = probes;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Time complexity: O(k⋅m + p⋅(n/k)⋅m), for n replacement words of dimension
+     * m in k lists, p of which are scanned.
+     * </p>
+     */
+    @Override
+    public List<String> getSimilarWords(EmbeddingVector query, int n) {
+        PackedEmbeddingMatrix matrix = store.getMatrix();
+        PackedEmbeddingMatrix.Query preparedQuery = matrix.prepareQuery(query);
+        float[] dotProducts = new float[PackedEmbeddingMatrix.BLOCK_ROWS];
+        double[] scores = new double[PackedEmbeddingMatrix.BLOCK_ROWS];
+
+        TopNSelector topNWords = new TopNSelector(n, similarityAlgorithm.isHigherMoreSimilar());
+
+        for (int list : store.nearestLists(preparedQuery, probes)) {
+            int start = store.getListStart(list);
+            int end = start + store.getListSize(list);
+
+            for (int firstRow = start; firstRow < end; firstRow += PackedEmbeddingMatrix.BLOCK_ROWS) {
+                int rowCount = Math.min(PackedEmbeddingMatrix.BLOCK_ROWS, end - firstRow);
+                matrix.scoreBlock(firstRow, rowCount, preparedQuery, similarityAlgorithm, dotProducts, scores);
+
+                for (int i = 0; i < rowCount; i++)
+                    topNWords.offer(firstRow + i, scores[i]);
+            }
+        }
+
+        return topNWords.toWordList(matrix::getWord);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The queries are searched in parallel on the common fork-join pool.
+     * </p>
+     */
+    @Override
+    public List<List<String>> getSimilarWords(List<EmbeddingVector> queries, int n) {
+        return queries.parallelStream()
+                .map(query -> getSimilarWords(query, n))
+                .toList();
+    }
+
+}
@@ -0,0 +1,124 @@
+package ie.atu.sw.wordsearch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ie.atu.sw.util.EmbeddingVector;
+import ie.atu.sw.util.ReplacementWordSetInterface;
+import ie.atu.sw.util.SimilarWordSearchInterface;
+import ie.atu.sw.util.SimilarityAlgorithm;
+import ie.atu.sw.util.WordEmbeddingMapInterface;
+import ie.atu.sw.wordembedding.OffHeapWordEmbeddingMap;
+import ie.atu.sw.wordembedding.WordEmbedding;
+
+/**
+ * Exact similar-word search that compares the query with every replacement
+ * word. This is the reference that every other search is measured against.
+ * <p>
+ * The replacement words are resolved once, when the search is constructed:
+ * over an {@link OffHeapWordEmbeddingMap} to ids, scanned in id order reading
+ * each row in place, and over any other map to their vectors, so that no
+ * {@link WordEmbedding} is created while searching. Words without an embedding
+ * are dropped. Each thread reuses its own top-N selector.
+ * </p>
+ */
+public class LinearScanSearch implements SimilarWordSearchInterface {
+
+    private final WordEmbeddingMapInterface wordEmbeddingMap;
+    private final SimilarityAlgorithm similarityAlgorithm;
+
+    /**
+     * The replacement words with an embedding, indexed by the ids offered to
+     * the top-N selector, if the map is not an {@link OffHeapWordEmbeddingMap},
+     * or null otherwise.
+     */
+    private final String[] replacementWords;
+
+    /**
+     * The vectors of the replacement words, in the order of
+     * {@link #replacementWords}, or null if the map is an
+     * {@link OffHeapWordEmbeddingMap}.
+     */
+    private final EmbeddingVector[] replacementVectors;
+
+    /**
+     * The ids of the replacement words in ascending order, if the map is an
+     * {@link OffHeapWordEmbeddingMap}, or null otherwise.
+     */
+    private final int[] offHeapIds;
+
+    private final ThreadLocal<TopNSelector> selectors;
+
+    /**
+     * Constructs a linear scan over the replacement words. Time complexity:
+     * O(n) lookups, for n replacement words.
+     *
+     * @param wordEmbeddingMap    the map to look the replacement-word embeddings
+     *                            up in
+     * @param replacementWordSet  the candidate replacement words
+     * @param similarityAlgorithm the algorithm used to compare embeddings
+     */
+    public LinearScanSearch(
+            WordEmbeddingMapInterface wordEmbeddingMap,
+            ReplacementWordSetInterface replacementWordSet,
+            SimilarityAlgorithm similarityAlgorithm) {
+        this.wordEmbeddingMap = wordEmbeddingMap;
+        this.similarityAlgorithm = similarityAlgorithm;
+        this.selectors = ThreadLocal.withInitial(
+                () -> new TopNSelector(0, similarityAlgorithm.isHigherMoreSimilar()));
+
+        if (wordEmbeddingMap instanceof OffHeapWordEmbeddingMap offHeapMap) {
+            this.offHeapIds = replacementWordSet.getReplacementWordSet().stream()
+                    .mapToInt(offHeapMap::getId)
+                    .filter(id -> id >= 0)
+                    .sorted()
+                    .toArray();
+            this.replacementWords = null;
+            this.replacementVectors = null;
+            return;
+        }
+
+        List<String> words = new ArrayList<>();
+        List<EmbeddingVector> vectors = new ArrayList<>();
+        for (String word : replacementWordSet.getReplacementWordSet()) {
+            WordEmbedding wordEmbedding = wordEmbeddingMap.getWordEmbedding(word);
+            if (wordEmbedding != null) {
+                words.add(word);
+                vectors.add(wordEmbedding.vector());
+            }
+        }
+
+        this.offHeapIds = null;
+        this.replacementWords = words.toArray(new String[0]);
+        this.replacementVectors = vectors.toArray(new EmbeddingVector[0]);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Dominant Time Complexity: O(n⋅m): Iterating through n replacement words and
+     * calculating similarity for each embedding, m.
+     * </p>
+     */
+    @Override
+    public List<String> getSimilarWords(EmbeddingVector query, int n) {
+        TopNSelector topNWords = selectors.get();
+        topNWords.reset(n);
+
+        if (offHeapIds != null) {
+            OffHeapWordEmbeddingMap offHeapMap = (OffHeapWordEmbeddingMap) wordEmbeddingMap;
+            float[] queryValues = query.toFloatArray();
+
+            for (int id : offHeapIds)
+                topNWords.offer(id, offHeapMap.calculate(id, queryValues, similarityAlgorithm));
+
+            return topNWords.toWordList(offHeapMap::getWord);
+        }
+
+        for (int i = 0; i < replacementVectors.length; i++)
+            topNWords.offer(i, similarityAlgorithm.calculate(replacementVectors[i], query));
+
+        return topNWords.toWordList(i -> replacementWords[i]);
+    }
+
+}
@@ -0,0 +1,63 @@
+package ie.atu.sw.wordsearch;
+
+import java.util.List;
+
+import ie.atu.sw.util.EmbeddingVector;
+import ie.atu.sw.util.ReplacementWordSetInterface;
+import ie.atu.sw.util.SimilarWordSearchInterface;
+import ie.atu.sw.util.SimilarityAlgorithm;
+import ie.atu.sw.util.WordEmbeddingMapInterface;
+import ie.atu.sw.wordembedding.NormalizedEmbeddingStore;
+
+/**
+ * Exact similar-word search over replacement-word vectors prepared by a
+ * {@link NormalizedEmbeddingStore}. Rows are unit vectors for cosine
+ * similarity and carry cached squared norms for Euclidean distances, so each
+ * replacement word costs one dot product whatever the algorithm. The ranking
+ * is the same as {@link LinearScanSearch}'s.
+ */
+public class NormalizedSearch implements SimilarWordSearchInterface {
+
+    private final SimilarityAlgorithm similarityAlgorithm;
+    private final NormalizedEmbeddingStore store;
+
+    /**
+     * Constructs a search over the replacement words, preparing their vectors
+     * for the similarity algorithm.
+     *
+     * @param wordEmbeddingMap    the map to look the replacement-word embeddings
+     *                            up in
+     * @param replacementWordSet  the candidate replacement words
+     * @param similarityAlgorithm the algorithm used to compare embeddings
+     */
+    public NormalizedSearch(
+            WordEmbeddingMapInterface wordEmbeddingMap,
+            ReplacementWordSetInterface replacementWordSet,
+            SimilarityAlgorithm similarityAlgorithm) {
+        this.similarityAlgorithm = similarityAlgorithm;
+        this.store = NormalizedEmbeddingStore.fromMap(
+                wordEmbeddingMap,
+                replacementWordSet.getReplacementWordSet(),
+                similarityAlgorithm);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Time complexity: O(n⋅m) for n replacement words of dimension m, with one
+     * dot product per word.
+     * </p>
+     */
+    @Override
+    public List<String> getSimilarWords(EmbeddingVector query, int n) {
+        NormalizedEmbeddingStore.Query preparedQuery = store.prepareQuery(query);
+
+        TopNSelector topNWords = new TopNSelector(n, similarityAlgorithm.isHigherMoreSimilar());
+
+        for (int row = 0; row < store.getSize(); row++)
+            topNWords.offer(row, store.score(row, preparedQuery, similarityAlgorithm));
+
+        return topNWords.toWordList(store::getWord);
+    }
+
+}
@@ -0,0 +1,139 @@
+package ie.atu.sw.wordsearch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import ie.atu.sw.util.EmbeddingVector;
+import ie.atu.sw.util.ReplacementWordSetInterface;
+import ie.atu.sw.util.SimilarWordSearchInterface;
+import ie.atu.sw.util.SimilarityAlgorithm;
+import ie.atu.sw.util.WordEmbeddingMapInterface;
+import ie.atu.sw.wordembedding.PackedEmbeddingMatrix;
+
+/**
+ * Exact similar-word search over the replacement-word vectors packed into one
+ * contiguous {@link PackedEmbeddingMatrix} when the search is built. Each query
+ * streams through the matrix a block of rows at a time, scoring the block with
+ * one matrix-vector product instead of a lookup and a similarity call per
+ * word. The ranking is the same as {@link LinearScanSearch}'s.
+ * <p>
+ * A batch of queries is resolved as a matrix-matrix product between blocks of
+ * queries and blocks of rows, in parallel.
+ * </p>
+ */
+public class PackedMatrixSearch implements SimilarWordSearchInterface {
+
+    private final SimilarityAlgorithm similarityAlgorithm;
+    private final PackedEmbeddingMatrix matrix;
+
+    /**
+     * Constructs a search over the replacement words, packing their vectors
+     * unless the set already holds them packed from the map.
+     *
+     * @param wordEmbeddingMap    the map to look the replacement-word embeddings
+     *                            up in
+     * @param replacementWordSet  the candidate replacement words
+     * @param similarityAlgorithm the algorithm used to compare embeddings
+     */
+    public PackedMatrixSearch(
+            WordEmbeddingMapInterface wordEmbeddingMap,
+            ReplacementWordSetInterface replacementWordSet,
+            SimilarityAlgorithm similarityAlgorithm) {
+        this.similarityAlgorithm = similarityAlgorithm;
+        PackedEmbeddingMatrix candidateMatrix = replacementWordSet.getCandidateMatrix(wordEmbeddingMap);
+        this.matrix = candidateMatrix != null
+                ? candidateMatrix
+                : PackedEmbeddingMatrix.fromMap(wordEmbeddingMap, replacementWordSet.getReplacementWordSet());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Time complexity: O(n⋅m) for n replacement words of dimension m, read
+     * sequentially.
+     * </p>
+     */
+    @Override
+    public List<String> getSimilarWords(EmbeddingVector query, int n) {
+        PackedEmbeddingMatrix.Query preparedQuery = matrix.prepareQuery(query);
+        float[] dotProducts = new float[PackedEmbeddingMatrix.BLOCK_ROWS];
+        double[] scores = new double[PackedEmbeddingMatrix.BLOCK_ROWS];
+
+        TopNSelector topNWords = new TopNSelector(n, similarityAlgorithm.isHigherMoreSimilar());
+
+        for (int firstRow = 0; firstRow < matrix.getSize(); firstRow += PackedEmbeddingMatrix.BLOCK_ROWS) {
+            int rowCount = Math.min(PackedEmbeddingMatrix.BLOCK_ROWS, matrix.getSize() - firstRow);
+            matrix.scoreBlock(firstRow, rowCount, preparedQuery, similarityAlgorithm, dotProducts, scores);
+
+            for (int i = 0; i < rowCount; i++)
+                topNWords.offer(firstRow + i, scores[i]);
+        }
+
+        return topNWords.toWordList(matrix::getWord);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The queries are split into blocks of {@link PackedEmbeddingMatrix#QUERY_BLOCK},
+     * and each block is scored against each block of rows with one
+     * matrix-matrix product, so the matrix is read from memory once per block of
+     * queries instead of once per query. Blocks of queries are scored in
+     * parallel on the common fork-join pool, each with its own top-N selectors.
+     * Time complexity: O(q⋅n⋅m / p), for q queries with p workers.
+     * </p>
+     */
+    @Override
+    public List<List<String>> getSimilarWords(List<EmbeddingVector> queries, int n) {
+        int queryBlocks = (queries.size() + PackedEmbeddingMatrix.QUERY_BLOCK - 1)
+                / PackedEmbeddingMatrix.QUERY_BLOCK;
+
+        return IntStream.range(0, queryBlocks)
+                .parallel()
+                .mapToObj(block -> getSimilarWordsForBlock(
+                        queries.subList(
+                                block * PackedEmbeddingMatrix.QUERY_BLOCK,
+                                Math.min(queries.size(), (block + 1) * PackedEmbeddingMatrix.QUERY_BLOCK)),
+                        n))
+                .flatMap(List::stream)
+                .toList();
+    }
+
+    /**
+     * Finds the similar words for one block of queries, scoring the block
+     * against the matrix a block of rows at a time.
+     *
+     * @param queries the block of query embeddings
+     * @param n       the maximum number of similar words to return per query
+     * @return for each query, in order, up to n similar words, ordered from least
+     *         to most similar
+     */
+    private List<List<String>> getSimilarWordsForBlock(List<EmbeddingVector> queries, int n) {
+        PackedEmbeddingMatrix.QueryBlock queryBlock = matrix.prepareQueries(queries);
+        float[] dotProducts = new float[queryBlock.size() * PackedEmbeddingMatrix.BLOCK_ROWS];
+        double[] scores = new double[queryBlock.size() * PackedEmbeddingMatrix.BLOCK_ROWS];
+
+        List<TopNSelector> topNWords = new ArrayList<>(queryBlock.size());
+        for (int query = 0; query < queryBlock.size(); query++)
+            topNWords.add(new TopNSelector(n, similarityAlgorithm.isHigherMoreSimilar()));
+
+        for (int firstRow = 0; firstRow < matrix.getSize(); firstRow += PackedEmbeddingMatrix.BLOCK_ROWS) {
+            int rowCount = Math.min(PackedEmbeddingMatrix.BLOCK_ROWS, matrix.getSize() - firstRow);
+            matrix.scoreBlock(firstRow, rowCount, queryBlock, similarityAlgorithm, dotProducts, scores);
+
+            for (int query = 0; query < queryBlock.size(); query++) {
+                int offset = query * rowCount;
+                TopNSelector selector = topNWords.get(query);
+                for (int i = 0; i < rowCount; i++)
+                    selector.offer(firstRow + i, scores[offset + i]);
+            }
+        }
+
+        List<List<String>> similarWords = new ArrayList<>(queryBlock.size());
+        for (TopNSelector selector : topNWords)
+            similarWords.add(selector.toWordList(matrix::getWord));
+        return similarWords;
+    }
+
+}
@@ -0,0 +1,71 @@
+package ie.atu.sw.wordsearch;
+
+import java.util.List;
+
+import ie.atu.sw.util.EmbeddingVector;
+import ie.atu.sw.util.SimilarWordSearchInterface;
+import ie.atu.sw.util.SimilarityAlgorithm;
+import ie.atu.sw.util.WordEmbeddingMapInterface;
+import ie.atu.sw.wordembedding.ProductQuantizedStore;
+
+/**
+ * Similar-word search that scans product-quantized replacement-word codes held
+ * in a {@link ProductQuantizedStore}, scoring each row with per-query lookup
+ * tables instead of vector arithmetic. Optionally, a shortlist of the best
+ * approximate scores is re-ranked with the full-precision vectors.
+ */
+public class ProductQuantizedSearch implements SimilarWordSearchInterface {
+
+    private final WordEmbeddingMapInterface wordEmbeddingMap;
+    private final SimilarityAlgorithm similarityAlgorithm;
+    private final ProductQuantizedStore store;
+    private final int rerankFactor;
+
+    /**
+     * Constructs a product-quantized search over an existing store, for example
+     * one read back with {@link ProductQuantizedStore#read(String)}.
+     *
+     * @param wordEmbeddingMap    the map holding the full-precision embeddings,
+     *                            used for re-ranking
+     * @param store               the product-quantized replacement words
+     * @param similarityAlgorithm the algorithm used to compare embeddings
+     * @param rerankFactor        the shortlist size, as a multiple of the number of
+     *                            words requested, to re-rank exactly; 0 disables
+     *                            re-ranking
+     */
+    public ProductQuantizedSearch(
+            WordEmbeddingMapInterface wordEmbeddingMap,
+            ProductQuantizedStore store,
+            SimilarityAlgorithm similarityAlgorithm,
+            int rerankFactor) {
+        this.wordEmbeddingMap = wordEmbeddingMap;
+        this.similarityAlgorithm = similarityAlgorithm;
+        this.store = store;
+        this.rerankFactor = rerankFactor;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Time complexity: O(256⋅m) to build the lookup tables, O(n⋅M) to scan n
+     * replacement words of M codes, plus O(k⋅m) for re-ranking a shortlist of k
+     * words.
+     * </p>
+     */
+    @Override
+    public List<String> getSimilarWords(EmbeddingVector query, int n) {
+        ProductQuantizedStore.Query preparedQuery = store.prepareQuery(query, similarityAlgorithm);
+        int shortlistSize = rerankFactor > 0 ? n * rerankFactor : n;
+
+        TopNSelector shortlist = new TopNSelector(shortlistSize, similarityAlgorithm.isHigherMoreSimilar());
+
+        for (int row = 0; row < store.getSize(); row++)
+            shortlist.offer(row, store.score(row, preparedQuery));
+
+        if (rerankFactor <= 0)
+            return shortlist.toWordList(store::getWord);
+
+        return SearchResults.rerank(shortlist, store::getWord, n, wordEmbeddingMap, similarityAlgorithm, query);
+    }
+
+}
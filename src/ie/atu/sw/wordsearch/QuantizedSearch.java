@@ -0,0 +1,75 @@
+package ie.atu.sw.wordsearch;
+
+import java.util.List;
+
+import ie.atu.sw.util.EmbeddingVector;
+import ie.atu.sw.util.ReplacementWordSetInterface;
+import ie.atu.sw.util.SimilarWordSearchInterface;
+import ie.atu.sw.util.SimilarityAlgorithm;
+import ie.atu.sw.util.WordEmbeddingMapInterface;
+import ie.atu.sw.wordembedding.QuantizedEmbeddingStore;
+
+/**
+ * Similar-word search that scans int8 scalar-quantized replacement-word
+ * vectors held in a {@link QuantizedEmbeddingStore}. The scan touches a quarter
+ * of the bytes of a single-precision scan. Optionally, a shortlist of the best
+ * quantized scores is re-ranked with the full-precision vectors, which
+ * recovers almost all of the accuracy lost to quantization.
+ */
+public class QuantizedSearch implements SimilarWordSearchInterface {
+
+    private final WordEmbeddingMapInterface wordEmbeddingMap;
+    private final SimilarityAlgorithm similarityAlgorithm;
+    private final QuantizedEmbeddingStore store;
+    private final int rerankFactor;
+
+    /**
+     * Constructs a quantized search over the replacement words.
+     *
+     * @param wordEmbeddingMap    the map holding the full-precision embeddings
+     * @param replacementWordSet  the candidate replacement words
+     * @param similarityAlgorithm the algorithm used to compare embeddings
+     * @param scheme              where the quantization scale and offset are kept
+     * @param rerankFactor        the shortlist size, as a multiple of the number of
+     *                            words requested, to re-rank exactly; 0 disables
+     *                            re-ranking
+     */
+    public QuantizedSearch(
+            WordEmbeddingMapInterface wordEmbeddingMap,
+            ReplacementWordSetInterface replacementWordSet,
+            SimilarityAlgorithm similarityAlgorithm,
+            QuantizedEmbeddingStore.Scheme scheme,
+            int rerankFactor) {
+        this.wordEmbeddingMap = wordEmbeddingMap;
+        this.similarityAlgorithm = similarityAlgorithm;
+        this.store = QuantizedEmbeddingStore.fromMap(
+                wordEmbeddingMap,
+                replacementWordSet.getReplacementWordSet(),
+                scheme);
+        this.rerankFactor = rerankFactor;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Time complexity: O(n⋅m) byte operations for n replacement words of
+     * dimension m, plus O(k⋅m) for re-ranking a shortlist of k words.
+     * </p>
+     */
+    @Override
+    public List<String> getSimilarWords(EmbeddingVector query, int n) {
+        QuantizedEmbeddingStore.Query preparedQuery = store.prepareQuery(query);
+        int shortlistSize = rerankFactor > 0 ? n * rerankFactor : n;
+
+        TopNSelector shortlist = new TopNSelector(shortlistSize, similarityAlgorithm.isHigherMoreSimilar());
+
+        for (int row = 0; row < store.getSize(); row++)
+            shortlist.offer(row, store.score(row, preparedQuery, similarityAlgorithm));
+
+        if (rerankFactor <= 0)
+            return shortlist.toWordList(store::getWord);
+
+        return SearchResults.rerank(shortlist, store::getWord, n, wordEmbeddingMap, similarityAlgorithm, query);
+    }
+
+}
@@ -0,0 +1,336 @@
+package ie.atu.sw.wordsearch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import ie.atu.sw.util.EmbeddingVector;
+import ie.atu.sw.util.ReplacementWordSetInterface;
+import ie.atu.sw.util.SimilarWordSearchInterface;
+import ie.atu.sw.util.SimilarityAlgorithm;
+import ie.atu.sw.util.WordEmbeddingMapInterface;
+import ie.atu.sw.wordembedding.WordEmbedding;
+
+/**
+ * Utility class measuring the accuracy and speed of the search methods against
+ * the exact {@link SearchMethod#LINEAR_SCAN}, the search the word replacer uses
+ * by default, over a sample of query words. Each method is built and run in
+ * turn, so that its build time and memory are measured on their own.
+ * <p>
+ * This class cannot be instantiated.
+ * </p>
+ */
+public class SearchEvaluator {
+
+    private static final long SAMPLE_SEED = 42L;
+    private static final int WARM_UP_QUERIES = 100;
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private SearchEvaluator() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Record holding the measurements of one search method.
+     *
+     * @param searchMethod         the search method measured
+     * @param recall               the fraction of the exact top-N words found,
+     *                             between 0 and 1
+     * @param meanRankDisplacement the mean distance between the rank of each
+     *                             exact top-N word and its rank in the results,
+     *                             where a missing word counts as ranked N
+     * @param queriesPerSecond     the number of queries answered per second,
+     *                             one at a time
+     * @param p50Millis            the median query latency, in milliseconds
+     * @param p99Millis            the 99th percentile query latency, in
+     *                             milliseconds
+     * @param buildMillis          the time taken to build the search, in
+     *                             milliseconds
+     * @param buildBytes           the heap retained by the built search, in
+     *                             bytes, as measured around a garbage collection
+     */
+    public record Result(
+            SearchMethod searchMethod,
+            double recall,
+            double meanRankDisplacement,
+            double queriesPerSecond,
+            double p50Millis,
+            double p99Millis,
+            double buildMillis,
+            long buildBytes) {
+    }
+
+    /**
+     * Samples query words from the word embeddings. Words outside the
+     * replacement set are preferred, as they are the ones the word replacer
+     * looks up; replacement words are only used when there are not enough
+     * others. The sample is drawn with a fixed seed, so that it is the same from
+     * run to run.
+     *
+     * @param wordEmbeddingMap   the word embeddings
+     * @param replacementWordSet the replacement words
+     * @param queryCount         the number of words to sample
+     * @return up to queryCount distinct words with an embedding
+     */
+    public static List<String> sampleQueryWords(
+            WordEmbeddingMapInterface wordEmbeddingMap,
+            ReplacementWordSetInterface replacementWordSet,
+            int queryCount) {
+        List<String> others = new ArrayList<>();
+        List<String> replacements = new ArrayList<>();
+        for (String word : wordEmbeddingMap.getWords()) {
+            if (replacementWordSet.containsWord(word))
+                replacements.add(word);
+            else
+                others.add(word);
+        }
+
+        // Sort first, as the iteration order of the words is not defined
+        Collections.sort(others);
+        Collections.sort(replacements);
+        Random random = new Random(SAMPLE_SEED);
+        Collections.shuffle(others, random);
+        Collections.shuffle(replacements, random);
+        others.addAll(replacements);
+
+        return new ArrayList<>(others.subList(0, Math.min(Math.max(0, queryCount), others.size())));
+    }
+
+    /**
+     * Evaluates search methods against the exact linear scan. Index files are
+     * neither read nor written, so that the build time is that of a fresh
+     * build. Time complexity: dominated by the n⋅m linear scan per query word,
+     * for n replacement words of dimension m, plus the builds.
+     *
+     * @param wordEmbeddingMap    the word embeddings
+     * @param replacementWordSet  the replacement words searched
+     * @param similarityAlgorithm the algorithm used to compare embeddings
+     * @param searchOptions       the settings of the methods that build an index
+     * @param searchMethods       the methods to evaluate
+     * @param queryWords          the words to search for
+     * @param n                   the number of similar words per query
+     * @return the measurements of each method, in the order given
+     * @throws IllegalArgumentException if a query word has no embedding, or n is
+     *                                  less than 1
+     */
+    public static List<Result> evaluate(
+            WordEmbeddingMapInterface wordEmbeddingMap,
+            ReplacementWordSetInterface replacementWordSet,
+            SimilarityAlgorithm similarityAlgorithm,
+            SearchOptions searchOptions,
+            List<SearchMethod> searchMethods,
+            List<String> queryWords,
+            int n)
+            throws IllegalArgumentException {
+        if (n < 1)
+            throw new IllegalArgumentException("The number of similar words must be at least 1: " + n);
+
+        List<EmbeddingVector> queries = new ArrayList<>(queryWords.size());
+        for (String word : queryWords) {
+            WordEmbedding wordEmbedding = wordEmbeddingMap.getWordEmbedding(word);
+            if (wordEmbedding == null)
+                throw new IllegalArgumentException("Query word has no embedding: " + word);
+            queries.add(wordEmbedding.vector());
+        }
+
+        List<List<String>> expected = SearchMethod.LINEAR_SCAN
+                .createSearch(wordEmbeddingMap, replacementWordSet, similarityAlgorithm)
+                .getSimilarWords(queries, n);
+
+        SearchOptions evaluationOptions = searchOptions.withIndexFileName("");
+        List<Result> results = new ArrayList<>(searchMethods.size());
+
+        for (SearchMethod searchMethod : searchMethods) {
+            results.add(evaluate(
+                    searchMethod,
+                    wordEmbeddingMap,
+                    replacementWordSet,
+                    similarityAlgorithm,
+                    evaluationOptions,
+                    queries,
+                    expected,
+                    n));
+        }
+
+        return results;
+    }
+
+    /**
+     * Evaluates one search method against the exact results. The search is only
+     * referenced from this method, so that it can be collected before the next
+     * method is built and measured.
+     *
+     * @param searchMethod        the method to evaluate
+     * @param wordEmbeddingMap    the word embeddings
+     * @param replacementWordSet  the replacement words searched
+     * @param similarityAlgorithm the algorithm used to compare embeddings
+     * @param searchOptions       the settings of the methods that build an index
+     * @param queries             the query embeddings
+     * @param expected            the exact similar words of each query, ordered
+     *                            from least to most similar
+     * @param n                   the number of similar words per query
+     * @return the measurements of the method
+     */
+    private static Result evaluate(
+            SearchMethod searchMethod,
+            WordEmbeddingMapInterface wordEmbeddingMap,
+            ReplacementWordSetInterface replacementWordSet,
+            SimilarityAlgorithm similarityAlgorithm,
+            SearchOptions searchOptions,
+            List<EmbeddingVector> queries,
+            List<List<String>> expected,
+            int n) {
+        long heapBefore = usedHeap();
+        long buildStart = System.nanoTime();
+        SimilarWordSearchInterface search = searchMethod.createSearch(
+                wordEmbeddingMap,
+                replacementWordSet,
+                similarityAlgorithm,
+                searchOptions);
+        double buildMillis = (System.nanoTime() - buildStart) / 1e6;
+        long buildBytes = Math.max(0, usedHeap() - heapBefore);
+
+        for (int i = 0; i < Math.min(WARM_UP_QUERIES, queries.size()); i++)
+            search.getSimilarWords(queries.get(i), n);
+
+        long[] latencies = new long[queries.size()];
+        int found = 0;
+        int expectedCount = 0;
+        long displacement = 0;
+
+        for (int i = 0; i < queries.size(); i++) {
+            long queryStart = System.nanoTime();
+            List<String> actual = search.getSimilarWords(queries.get(i), n);
+            latencies[i] = System.nanoTime() - queryStart;
+
+            // Both lists are ordered from least to most similar
+            Map<String, Integer> actualRanks = new HashMap<>();
+            for (int rank = 0; rank < actual.size(); rank++)
+                actualRanks.put(actual.get(actual.size() - 1 - rank), rank);
+
+            List<String> exact = expected.get(i);
+            for (int rank = 0; rank < exact.size(); rank++) {
+                Integer actualRank = actualRanks.get(exact.get(exact.size() - 1 - rank));
+                if (actualRank != null)
+                    found++;
+                displacement += Math.abs((actualRank == null ? n : actualRank) - rank);
+            }
+            expectedCount += exact.size();
+        }
+
+        long totalNanos = Arrays.stream(latencies).sum();
+        Arrays.sort(latencies);
+
+        return new Result(
+                searchMethod,
+                expectedCount == 0 ? 1.0 : (double) found / expectedCount,
+                expectedCount == 0 ? 0.0 : (double) displacement / expectedCount,
+                totalNanos == 0 ? 0.0 : queries.size() * 1e9 / totalNanos,
+                percentile(latencies, 0.50) / 1e6,
+                percentile(latencies, 0.99) / 1e6,
+                buildMillis,
+                buildBytes);
+    }
+
+    /**
+     * Formats measurements as a table of aligned columns, one row per method.
+     *
+     * @param results the measurements
+     * @return the table, with a header line
+     */
+    public static String toTable(List<Result> results) {
+        StringBuilder table = new StringBuilder(String.format(
+                Locale.ROOT,
+                "%-28s %8s %8s %10s %9s %9s %10s %10s%n",
+                "Method", "Recall", "RankDisp", "Queries/s", "p50 ms", "p99 ms", "Build ms", "Build MB"));
+
+        for (Result result : results) {
+            table.append(String.format(
+                    Locale.ROOT,
+                    "%-28s %8.4f %8.3f %10.1f %9.3f %9.3f %10.1f %10.1f%n",
+                    result.searchMethod().name(),
+                    result.recall(),
+                    result.meanRankDisplacement(),
+                    result.queriesPerSecond(),
+                    result.p50Millis(),
+                    result.p99Millis(),
+                    result.buildMillis(),
+                    result.buildBytes() / (1024.0 * 1024.0)));
+        }
+
+        return table.toString();
+    }
+
+    /**
+     * Formats measurements as a JSON document, for comparing runs with other
+     * tools.
+     *
+     * @param similarityAlgorithm the algorithm the methods were evaluated with
+     * @param queryCount          the number of query words
+     * @param n                   the number of similar words per query
+     * @param results             the measurements
+     * @return the JSON document
+     */
+    public static String toJson(SimilarityAlgorithm similarityAlgorithm, int queryCount, int n, List<Result> results) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        json.append("  \"similarityAlgorithm\": \"").append(similarityAlgorithm.name()).append("\",\n");
+        json.append("  \"queries\": ").append(queryCount).append(",\n");
+        json.append("  \"n\": ").append(n).append(",\n");
+        json.append("  \"results\": [");
+
+        for (int i = 0; i < results.size(); i++) {
+            Result result = results.get(i);
+            json.append(i == 0 ? "\n" : ",\n");
+            json.append(String.format(
+                    Locale.ROOT,
+                    "    {\"method\": \"%s\", \"recall\": %.6f, \"meanRankDisplacement\": %.6f, "
+                            + "\"queriesPerSecond\": %.3f, \"p50Millis\": %.6f, \"p99Millis\": %.6f, "
+                            + "\"buildMillis\": %.3f, \"buildBytes\": %d}",
+                    result.searchMethod().name(),
+                    result.recall(),
+                    result.meanRankDisplacement(),
+                    result.queriesPerSecond(),
+                    result.p50Millis(),
+                    result.p99Millis(),
+                    result.buildMillis(),
+                    result.buildBytes()));
+        }
+
+        json.append("\n  ]\n}\n");
+        return json.toString();
+    }
+
+    /**
+     * Retrieves a percentile of sorted values, by the nearest-rank method.
+     *
+     * @param sorted   the values, in ascending order
+     * @param fraction the percentile, between 0 and 1
+     * @return the value at the percentile, or 0 if there are none
+     */
+    private static long percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0)
+            return 0;
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    /**
+     * Measures the heap in use after asking for a garbage collection.
+     *
+     * @return the used heap, in bytes
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
@@ -0,0 +1,441 @@
+package ie.atu.sw.wordsearch;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Set;
+
+import ie.atu.sw.util.ReplacementWordSetInterface;
+import ie.atu.sw.util.SimilarWordSearchInterface;
+import ie.atu.sw.util.SimilarityAlgorithm;
+import ie.atu.sw.util.WordEmbeddingMapInterface;
+import ie.atu.sw.wordembedding.ProductQuantizedStore;
+import ie.atu.sw.wordembedding.QuantizedEmbeddingStore;
+
+/**
+ * Enum defining the methods available for searching the replacement words for
+ * the words most similar to a given word. Each method builds a
+ * {@link SimilarWordSearchInterface} over a replacement-word set.
+ */
+public enum SearchMethod {
+
+    /**
+     * Exact search comparing the word with every replacement word.
+     * Time Complexity: O(n⋅m) per word, for n replacement words of dimension m.
+     */
+    LINEAR_SCAN("Linear Scan (Exact)") {
+        @Override
+        public SimilarWordSearchInterface createSearch(
+                WordEmbeddingMapInterface wordEmbeddingMap,
+                ReplacementWordSetInterface replacementWordSet,
+                SimilarityAlgorithm similarityAlgorithm) {
+            return new LinearScanSearch(wordEmbeddingMap, replacementWordSet, similarityAlgorithm);
+        }
+    },
+
+    /**
+     * Exact search over replacement-word vectors prepared once for the
+     * similarity algorithm: unit vectors for cosine similarity, cached squared
+     * norms for Euclidean distances. Ranks the same as {@link #LINEAR_SCAN}.
+     * Time Complexity: O(n⋅m) per word, one dot product per replacement word.
+     */
+    NORMALIZED_SCAN("Linear Scan (Cached Norms)") {
+        @Override
+        public SimilarWordSearchInterface createSearch(
+                WordEmbeddingMapInterface wordEmbeddingMap,
+                ReplacementWordSetInterface replacementWordSet,
+                SimilarityAlgorithm similarityAlgorithm) {
+            return new NormalizedSearch(wordEmbeddingMap, replacementWordSet, similarityAlgorithm);
+        }
+    },
+
+    /**
+     * Exact search over the replacement-word vectors packed into one contiguous
+     * matrix, scored a block of rows at a time with a matrix-vector product.
+     * Ranks the same as {@link #LINEAR_SCAN}.
+     * Time Complexity: O(n⋅m) per word, read sequentially.
+     */
+    PACKED_MATRIX_SCAN("Packed Matrix Scan (Blocked)") {
+        @Override
+        public SimilarWordSearchInterface createSearch(
+                WordEmbeddingMapInterface wordEmbeddingMap,
+                ReplacementWordSetInterface replacementWordSet,
+                SimilarityAlgorithm similarityAlgorithm) {
+            return new PackedMatrixSearch(wordEmbeddingMap, replacementWordSet, similarityAlgorithm);
+        }
+    },
+
+    /**
+     * Exact Euclidean search that stops summing a replacement word's distance
+     * once it exceeds the n-th best so far, with the dimensions reordered by
+     * variance. Other algorithms fall back to {@link #LINEAR_SCAN}.
+     * Time Complexity: O(n⋅m) per word in the worst case.
+     */
+    EARLY_ABANDON("Early-Abandon Scan (Exact, Euclidean)") {
+        @Override
+        public SimilarWordSearchInterface createSearch(
+                WordEmbeddingMapInterface wordEmbeddingMap,
+                ReplacementWordSetInterface replacementWordSet,
+                SimilarityAlgorithm similarityAlgorithm) {
+            if (!EarlyAbandonSearch.supports(similarityAlgorithm))
+                return LINEAR_SCAN.createSearch(wordEmbeddingMap, replacementWordSet, similarityAlgorithm);
+            return new EarlyAbandonSearch(wordEmbeddingMap, replacementWordSet, similarityAlgorithm);
+        }
+    },
+
+    /**
+     * Exact search walking a vantage-point tree built over the replacement
+     * words, in parallel, when the search is built, and read from and saved to
+     * the index file of the {@link SearchOptions} when one is set. Ranks the
+     * same as {@link #LINEAR_SCAN}. The dot product falls back to
+     * {@link #LINEAR_SCAN}.
+     * Time Complexity: O(log n⋅m) per word in low dimensions, up to O(n⋅m).
+     */
+    VANTAGE_POINT_TREE("Vantage-Point Tree (Exact, Euclidean/Cosine)") {
+        @Override
+        public SimilarWordSearchInterface createSearch(
+                WordEmbeddingMapInterface wordEmbeddingMap,
+                ReplacementWordSetInterface replacementWordSet,
+                SimilarityAlgorithm similarityAlgorithm) {
+            return createSearch(wordEmbeddingMap, replacementWordSet, similarityAlgorithm, SearchOptions.DEFAULT);
+        }
+
+        @Override
+        public SimilarWordSearchInterface createSearch(
+                WordEmbeddingMapInterface wordEmbeddingMap,
+                ReplacementWordSetInterface replacementWordSet,
+                SimilarityAlgorithm similarityAlgorithm,
+                SearchOptions searchOptions) {
+            if (!VantagePointTree.supports(similarityAlgorithm))
+                return LINEAR_SCAN.createSearch(wordEmbeddingMap, replacementWordSet, similarityAlgorithm);
+            try {
+                return new VantagePointTreeSearch(
+                        wordEmbeddingMap,
+                        VantagePointTree.fromMap(
+                                wordEmbeddingMap,
+                                replacementWordSet.getReplacementWordSet(),
+                                similarityAlgorithm,
+                                searchOptions));
+            } catch (IOException e) {
+                throw indexFileException(searchOptions, e);
+            }
+        }
+    },
+
+    /**
+     * Approximate search over int8 scalar-quantized replacement-word vectors.
+     * Time Complexity: O(n⋅m) byte operations per word.
+     */
+    INT8_QUANTIZED("Int8 Quantized Scan") {
+        @Override
+        public SimilarWordSearchInterface createSearch(
+                WordEmbeddingMapInterface wordEmbeddingMap,
+                ReplacementWordSetInterface replacementWordSet,
+                SimilarityAlgorithm similarityAlgorithm) {
+            return new QuantizedSearch(
+                    wordEmbeddingMap,
+                    replacementWordSet,
+                    similarityAlgorithm,
+                    QuantizedEmbeddingStore.Scheme.PER_VECTOR,
+                    0);
+        }
+    },
+
+    /**
+     * Int8 quantized scan whose shortlist is re-ranked with the full-precision
+     * vectors. Time Complexity: O(n⋅m) byte operations plus O(k⋅m) for a
+     * shortlist of k words.
+     */
+    INT8_QUANTIZED_RERANKED("Int8 Quantized Scan + Exact Re-rank") {
+        @Override
+        public SimilarWordSearchInterface createSearch(
+                WordEmbeddingMapInterface wordEmbeddingMap,
+                ReplacementWordSetInterface replacementWordSet,
+                SimilarityAlgorithm similarityAlgorithm) {
+            return new QuantizedSearch(
+                    wordEmbeddingMap,
+                    replacementWordSet,
+                    similarityAlgorithm,
+                    QuantizedEmbeddingStore.Scheme.PER_VECTOR,
+                    RERANK_FACTOR);
+        }
+    },
+
+    /**
+     * Approximate search over product-quantized replacement-word codes, scored
+     * with per-query lookup tables. Codebooks are trained with k-means over the
+     * whole embeddings map when the search is built, or read from the index
+     * file of the {@link SearchOptions} if they were trained on the same map.
+     * Time Complexity: O(n⋅M) table lookups per word, for M sub-spaces.
+     */
+    PRODUCT_QUANTIZED("Product Quantized Scan") {
+        @Override
+        public SimilarWordSearchInterface createSearch(
+                WordEmbeddingMapInterface wordEmbeddingMap,
+                ReplacementWordSetInterface replacementWordSet,
+                SimilarityAlgorithm similarityAlgorithm) {
+            return createSearch(wordEmbeddingMap, replacementWordSet, similarityAlgorithm, SearchOptions.DEFAULT);
+        }
+
+        @Override
+        public SimilarWordSearchInterface createSearch(
+                WordEmbeddingMapInterface wordEmbeddingMap,
+                ReplacementWordSetInterface replacementWordSet,
+                SimilarityAlgorithm similarityAlgorithm,
+                SearchOptions searchOptions) {
+            return new ProductQuantizedSearch(
+                    wordEmbeddingMap,
+                    productQuantizedStore(wordEmbeddingMap, replacementWordSet, searchOptions),
+                    similarityAlgorithm,
+                    0);
+        }
+    },
+
+    /**
+     * Product-quantized scan whose shortlist is re-ranked with the
+     * full-precision vectors. Time Complexity: O(n⋅M) table lookups plus O(k⋅m)
+     * for a shortlist of k words.
+     */
+    PRODUCT_QUANTIZED_RERANKED("Product Quantized Scan + Exact Re-rank") {
+        @Override
+        public SimilarWordSearchInterface createSearch(
+                WordEmbeddingMapInterface wordEmbeddingMap,
+                ReplacementWordSetInterface replacementWordSet,
+                SimilarityAlgorithm similarityAlgorithm) {
+            return createSearch(wordEmbeddingMap, replacementWordSet, similarityAlgorithm, SearchOptions.DEFAULT);
+        }
+
+        @Override
+        public SimilarWordSearchInterface createSearch(
+                WordEmbeddingMapInterface wordEmbeddingMap,
+                ReplacementWordSetInterface replacementWordSet,
+                SimilarityAlgorithm similarityAlgorithm,
+                SearchOptions searchOptions) {
+            return new ProductQuantizedSearch(
+                    wordEmbeddingMap,
+                    productQuantizedStore(wordEmbeddingMap, replacementWordSet, searchOptions),
+                    similarityAlgorithm,
+                    PQ_RERANK_FACTOR);
+        }
+    },
+
+    /**
+     * Approximate search walking a hierarchical navigable small world graph
+     * built over the replacement words, in parallel, when the search is built.
+     * The graph is tuned by the HNSW settings of the {@link SearchOptions}, and
+     * read from and saved to their index file when one is set.
+     * Time Complexity: O(log n⋅ef⋅M⋅m) per word on average.
+     */
+    HNSW("HNSW Graph (Approximate)") {
+        @Override
+        public SimilarWordSearchInterface createSearch(
+                WordEmbeddingMapInterface wordEmbeddingMap,
+                ReplacementWordSetInterface replacementWordSet,
+                SimilarityAlgorithm similarityAlgorithm) {
+            return createSearch(wordEmbeddingMap, replacementWordSet, similarityAlgorithm, SearchOptions.DEFAULT);
+        }
+
+        @Override
+        public SimilarWordSearchInterface createSearch(
+                WordEmbeddingMapInterface wordEmbeddingMap,
+                ReplacementWordSetInterface replacementWordSet,
+                SimilarityAlgorithm similarityAlgorithm,
+                SearchOptions searchOptions) {
+            try {
+                return new HnswSearch(
+                        HnswIndex.fromMap(
+                                wordEmbeddingMap,
+                                replacementWordSet.getReplacementWordSet(),
+                                similarityAlgorithm,
+                                searchOptions),
+                        searchOptions.hnswEf());
+            } catch (IOException e) {
+                throw indexFileException(searchOptions, e);
+            }
+        }
+    },
+
+    /**
+     * Approximate search over an inverted-file index: the replacement words are
+     * clustered with k-means into about √n lists when the search is built, and
+     * only the lists nearest to the word are scanned. The number of lists
+     * scanned is set by the {@link SearchOptions}.
+     * Time Complexity: O(√n⋅m + p⋅√n⋅m) per word, scanning p lists.
+     */
+    INVERTED_FILE("Inverted File Index (Approximate)") {
+        @Override
+        public SimilarWordSearchInterface createSearch(
+                WordEmbeddingMapInterface wordEmbeddingMap,
+                ReplacementWordSetInterface replacementWordSet,
+                SimilarityAlgorithm similarityAlgorithm) {
+            return createSearch(wordEmbeddingMap, replacementWordSet, similarityAlgorithm, SearchOptions.DEFAULT);
+        }
+
+        @Override
+        public SimilarWordSearchInterface createSearch(
+                WordEmbeddingMapInterface wordEmbeddingMap,
+                ReplacementWordSetInterface replacementWordSet,
+                SimilarityAlgorithm similarityAlgorithm,
+                SearchOptions searchOptions) {
+            return new InvertedFileSearch(
+                    wordEmbeddingMap,
+                    replacementWordSet,
+                    similarityAlgorithm,
+                    searchOptions.ivfProbes());
+        }
+    },
+
+    /**
+     * Cosine search that prefilters the replacement words by the Hamming
+     * distance between random-hyperplane sketches, whose size is set by the
+     * {@link SearchOptions}, and re-ranks a shortlist of a few hundred words
+     * exactly. Other algorithms fall back to {@link #LINEAR_SCAN}.
+     * Time Complexity: O(n⋅b / 64) popcounts plus O(k⋅m) per word, for b bits
+     * and a shortlist of k words.
+     */
+    BINARY_SKETCH("Binary Sketch Prefilter + Exact Re-rank (Cosine)") {
+        @Override
+        public SimilarWordSearchInterface createSearch(
+                WordEmbeddingMapInterface wordEmbeddingMap,
+                ReplacementWordSetInterface replacementWordSet,
+                SimilarityAlgorithm similarityAlgorithm) {
+            return createSearch(wordEmbeddingMap, replacementWordSet, similarityAlgorithm, SearchOptions.DEFAULT);
+        }
+
+        @Override
+        public SimilarWordSearchInterface createSearch(
+                WordEmbeddingMapInterface wordEmbeddingMap,
+                ReplacementWordSetInterface replacementWordSet,
+                SimilarityAlgorithm similarityAlgorithm,
+                SearchOptions searchOptions) {
+            if (!BinarySketchSearch.supports(similarityAlgorithm))
+                return LINEAR_SCAN.createSearch(wordEmbeddingMap, replacementWordSet, similarityAlgorithm);
+            return new BinarySketchSearch(
+                    wordEmbeddingMap,
+                    replacementWordSet,
+                    searchOptions.sketchBits(),
+                    SKETCH_SHORTLIST_SIZE,
+                    RERANK_FACTOR);
+        }
+    };
+
+    /**
+     * Shortlist size, as a multiple of the number of similar words requested,
+     * used by searches that re-rank approximate results exactly.
+     */
+    private static final int RERANK_FACTOR = 4;
+
+    /**
+     * Shortlist size multiple for re-ranking product-quantized results, which
+     * are coarser than scalar-quantized ones.
+     */
+    private static final int PQ_RERANK_FACTOR = 10;
+
+    /**
+     * Minimum number of words re-ranked exactly after a binary sketch
+     * prefilter. Sketches only estimate the angle, so the shortlist is a few
+     * hundred words even when few are requested.
+     */
+    private static final int SKETCH_SHORTLIST_SIZE = 256;
+
+    private final String name;
+
+    /**
+     * Constructor for initializing the SearchMethod with a name.
+     *
+     * @param name the name of the search method
+     */
+    SearchMethod(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns the name of the search method.
+     *
+     * @return the name of the search method
+     */
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * Builds a search over the replacement words using this method.
+     *
+     * @param wordEmbeddingMap    the map holding the word embeddings
+     * @param replacementWordSet  the candidate replacement words
+     * @param similarityAlgorithm the algorithm used to compare embeddings
+     * @return a new search over the replacement words
+     */
+    public abstract SimilarWordSearchInterface createSearch(
+            WordEmbeddingMapInterface wordEmbeddingMap,
+            ReplacementWordSetInterface replacementWordSet,
+            SimilarityAlgorithm similarityAlgorithm);
+
+    /**
+     * Builds a search over the replacement words using this method, tuned with
+     * the given options. Methods without settings ignore them.
+     *
+     * @param wordEmbeddingMap    the map holding the word embeddings
+     * @param replacementWordSet  the candidate replacement words
+     * @param similarityAlgorithm the algorithm used to compare embeddings
+     * @param searchOptions       the settings of the methods that build an
+     *                            index
+     * @return a new search over the replacement words
+     * @throws UncheckedIOException if the index file of the options exists but
+     *                              cannot be read, or cannot be written
+     */
+    public SimilarWordSearchInterface createSearch(
+            WordEmbeddingMapInterface wordEmbeddingMap,
+            ReplacementWordSetInterface replacementWordSet,
+            SimilarityAlgorithm similarityAlgorithm,
+            SearchOptions searchOptions) {
+        return createSearch(wordEmbeddingMap, replacementWordSet, similarityAlgorithm);
+    }
+
+    /**
+     * Reads the product-quantized store of the replacement words from the index
+     * file of the options if it was trained on the same embeddings, and trains
+     * and writes a new one otherwise.
+     *
+     * @param wordEmbeddingMap   the word embeddings
+     * @param replacementWordSet the replacement words
+     * @param searchOptions      the options holding the index file
+     * @return the product-quantized store
+     * @throws UncheckedIOException if the index file exists but cannot be read,
+     *                              or cannot be written
+     */
+    private static ProductQuantizedStore productQuantizedStore(
+            WordEmbeddingMapInterface wordEmbeddingMap,
+            ReplacementWordSetInterface replacementWordSet,
+            SearchOptions searchOptions) {
+        Set<String> words = replacementWordSet.getReplacementWordSet();
+        try {
+            return IndexFiles.readOrBuild(
+                    searchOptions.indexFileName(),
+                    ProductQuantizedStore::read,
+                    store -> store.isBuiltFrom(wordEmbeddingMap, words),
+                    () -> ProductQuantizedStore.fromMap(wordEmbeddingMap, words),
+                    ProductQuantizedStore::write);
+        } catch (IOException e) {
+            throw indexFileException(searchOptions, e);
+        }
+    }
+
+    /**
+     * Wraps an error reading or writing the index file of the options, so that
+     * it can be thrown from a search method and reported to the user.
+     *
+     * @param searchOptions the options holding the index file
+     * @param e             the error
+     * @return an unchecked exception naming the file
+     */
+    private static UncheckedIOException indexFileException(SearchOptions searchOptions, IOException e) {
+        String reason = e.getMessage() == null
+                ? e.getClass().getSimpleName()
+                : e.getClass().getSimpleName() + ": " + e.getMessage();
+        return new UncheckedIOException(
+                "Cannot use search index file " + searchOptions.indexFileName() + " (" + reason + ")",
+                e);
+    }
+
+}
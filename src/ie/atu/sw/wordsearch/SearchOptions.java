@@ -0,0 +1,83 @@
+package ie.atu.sw.wordsearch;
+
+/**
+ * Record holding the tuning settings of the search methods that build an index
+ * over the replacement words. Methods that build no index ignore them.
+ *
+ * @param hnswM              the number of neighbours each node of an
+ *                           {@link HnswIndex} is linked to per layer, twice
+ *                           that on the bottom layer
+ * @param hnswEfConstruction the number of candidates kept while linking each
+ *                           node of an {@link HnswIndex}
+ * @param hnswEf             the number of candidates kept while searching an
+ *                           {@link HnswIndex} for each word
+ * @param indexFileName      the file an {@link HnswIndex},
+ *                           {@link VantagePointTree} or
+ *                           {@link ie.atu.sw.wordembedding.ProductQuantizedStore}
+ *                           is loaded from if it was built from the same
+ *                           vectors and settings, and saved to otherwise, or
+ *                           blank to always build it
+ * @param ivfProbes          the number of lists of an
+ *                           {@link ie.atu.sw.wordembedding.InvertedFileStore}
+ *                           nearest to each word that are scanned
+ * @param sketchBits         the number of bits of each
+ *                           {@link ie.atu.sw.wordembedding.BinarySketchStore}
+ *                           sketch, a positive multiple of 64
+ */
+public record SearchOptions(
+        int hnswM,
+        int hnswEfConstruction,
+        int hnswEf,
+        String indexFileName,
+        int ivfProbes,
+        int sketchBits) {
+
+    /**
+     * The default settings.
+     */
+    public static final SearchOptions DEFAULT = new SearchOptions(16, 200, 64, "", 16, 256);
+
+    /**
+     * Creates a copy of these options with different HNSW graph settings.
+     *
+     * @param hnswM              the number of neighbours per node and layer
+     * @param hnswEfConstruction the number of candidates kept while linking
+     * @param hnswEf             the number of candidates kept while searching
+     * @return the new options
+     */
+    public SearchOptions withHnsw(int hnswM, int hnswEfConstruction, int hnswEf) {
+        return new SearchOptions(hnswM, hnswEfConstruction, hnswEf, indexFileName, ivfProbes, sketchBits);
+    }
+
+    /**
+     * Creates a copy of these options with a different index file.
+     *
+     * @param indexFileName the index file, or blank for none
+     * @return the new options
+     */
+    public SearchOptions withIndexFileName(String indexFileName) {
+        return new SearchOptions(hnswM, hnswEfConstruction, hnswEf, indexFileName, ivfProbes, sketchBits);
+    }
+
+    /**
+     * Creates a copy of these options with a different number of inverted-file
+     * lists to scan.
+     *
+     * @param ivfProbes the number of lists scanned per word
+     * @return the new options
+     */
+    public SearchOptions withIvfProbes(int ivfProbes) {
+        return new SearchOptions(hnswM, hnswEfConstruction, hnswEf, indexFileName, ivfProbes, sketchBits);
+    }
+
+    /**
+     * Creates a copy of these options with a different binary sketch size.
+     *
+     * @param sketchBits the number of bits per sketch
+     * @return the new options
+     */
+    public SearchOptions withSketchBits(int sketchBits) {
+        return new SearchOptions(hnswM, hnswEfConstruction, hnswEf, indexFileName, ivfProbes, sketchBits);
+    }
+
+}
@@ -0,0 +1,58 @@
+package ie.atu.sw.wordsearch;
+
+import java.util.List;
+import java.util.function.IntFunction;
+
+import ie.atu.sw.util.EmbeddingVector;
+import ie.atu.sw.util.SimilarityAlgorithm;
+import ie.atu.sw.util.WordEmbeddingMapInterface;
+import ie.atu.sw.wordembedding.WordEmbedding;
+
+/**
+ * Utility class with the re-ranking shared by the similar-word searches that
+ * shortlist words with approximate scores, such as quantized codes, and rank
+ * the shortlist with the full-precision embeddings.
+ * <p>
+ * This class cannot be instantiated.
+ * </p>
+ */
+class SearchResults {
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private SearchResults() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Re-ranks a shortlist of approximately scored words with their
+     * full-precision embeddings, keeping the n most similar.
+     *
+     * @param shortlist           the approximately scored words
+     * @param words               maps the id of a shortlisted word to the word
+     * @param n                   the number of similar words to retain
+     * @param wordEmbeddingMap    the map holding the full-precision embeddings
+     * @param similarityAlgorithm the algorithm used to compare embeddings
+     * @param query               the query embedding
+     * @return the words, ordered from least to most similar
+     */
+    static List<String> rerank(
+            TopNSelector shortlist,
+            IntFunction<String> words,
+            int n,
+            WordEmbeddingMapInterface wordEmbeddingMap,
+            SimilarityAlgorithm similarityAlgorithm,
+            EmbeddingVector query) {
+        shortlist.sort();
+        TopNSelector topNWords = new TopNSelector(n, similarityAlgorithm.isHigherMoreSimilar());
+
+        for (int i = 0; i < shortlist.size(); i++) {
+            WordEmbedding wordEmbedding = wordEmbeddingMap.getWordEmbedding(words.apply(shortlist.getId(i)));
+            topNWords.offer(i, similarityAlgorithm.calculate(wordEmbedding.vector(), query));
+        }
+
+        return topNWords.toWordList(i -> words.apply(shortlist.getId(i)));
+    }
+
+}
@@ -0,0 +1,325 @@
+package ie.atu.sw.wordsearch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Bounded selector of the N most similar candidates of a search, kept in
+ * parallel {@code int[]} ids and {@code double[]} scores. Offering a candidate
+ * allocates nothing: a candidate less similar than the N-th best so far is
+ * rejected with one comparison, before it is inserted.
+ * <p>
+ * Up to {@link #QUICKSELECT_THRESHOLD} candidates are kept in a binary heap
+ * with the least similar at its root. Larger selections, such as the long
+ * lists of {@code ReplacementMethod.ARRAY}, append to a buffer of 2N
+ * candidates instead, and quickselect the N best whenever it fills, which
+ * costs O(1) amortised per candidate instead of O(log N). The threshold is
+ * raised to the N-th best at each quickselect. The selector can be
+ * {@link #reset(int) reset} and reused for the next query.
+ * </p>
+ * <p>
+ * Scores are kept internally as keys where higher is more similar, negated
+ * when lower scores are more similar. Among candidates with the same score,
+ * the one offered last is kept.
+ * </p>
+ */
+class TopNSelector {
+
+    /**
+     * The largest N kept in a heap; larger selections use quickselect.
+     */
+    static final int QUICKSELECT_THRESHOLD = 128;
+
+    private final boolean isHigherMoreSimilar;
+    private int n;
+    private int[] ids;
+    private double[] keys;
+    private int size;
+    private boolean isHeap;
+
+    /**
+     * The key a buffered candidate must reach to be kept, the key of the N-th
+     * best candidate at the last quickselect.
+     */
+    private double threshold;
+
+    /**
+     * Constructs an empty selector.
+     *
+     * @param n                   the number of candidates to keep
+     * @param isHigherMoreSimilar indicates if higher similarity scores should be
+     *                            considered more similar
+     */
+    TopNSelector(int n, boolean isHigherMoreSimilar) {
+        this.isHigherMoreSimilar = isHigherMoreSimilar;
+        reset(n);
+    }
+
+    /**
+     * Empties the selector for a new search, growing its arrays if needed.
+     *
+     * @param n the number of candidates to keep
+     */
+    void reset(int n) {
+        this.n = Math.max(0, n);
+        this.isHeap = this.n <= QUICKSELECT_THRESHOLD;
+
+        int capacity = isHeap ? this.n : 2 * this.n;
+        if (ids == null || ids.length < capacity) {
+            ids = new int[capacity];
+            keys = new double[capacity];
+        }
+
+        size = 0;
+        threshold = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Retrieves the number of candidates kept so far.
+     *
+     * @return the number of candidates, at most N once {@link #sort()} is called
+     */
+    int size() {
+        return Math.min(size, n);
+    }
+
+    /**
+     * Retrieves the score a candidate must reach to be kept: the score of the
+     * N-th best candidate so far in a heap, or a bound no better than it in the
+     * buffer, which is only raised when it is quickselected. Searches prune with
+     * it, as no candidate beyond it can enter the selection.
+     *
+     * @return the threshold score, or the least similar score possible while
+     *         fewer than N candidates are kept
+     */
+    double getThreshold() {
+        double key;
+        if (n == 0)
+            key = Double.POSITIVE_INFINITY;
+        else if (isHeap)
+            key = size < n ? Double.NEGATIVE_INFINITY : keys[0];
+        else
+            key = threshold;
+        return toScore(key);
+    }
+
+    /**
+     * Offers a candidate, keeping it if it is among the N most similar so far.
+     * Time complexity: O(log N) for a heap, O(1) amortised otherwise, and O(1)
+     * for a rejected candidate.
+     *
+     * @param id    the id of the candidate, such as its row in a store
+     * @param score the similarity score of the candidate
+     */
+    void offer(int id, double score) {
+        double key = isHigherMoreSimilar ? score : -score;
+
+        if (isHeap) {
+            if (size < n) {
+                siftUp(size++, id, key);
+            } else if (n > 0 && key >= keys[0]) {
+                siftDown(0, size, id, key);
+            }
+            return;
+        }
+
+        if (key < threshold)
+            return;
+
+        ids[size] = id;
+        keys[size] = key;
+        if (++size == ids.length || (size == n && threshold == Double.NEGATIVE_INFINITY))
+            selectBest();
+    }
+
+    /**
+     * Sorts the kept candidates from most to least similar, keeping only the N
+     * best. Time complexity: O(N log N).
+     */
+    void sort() {
+        if (!isHeap) {
+            if (size > n)
+                selectBest();
+            // Heapify the buffer, so both modes sort the same way
+            for (int i = size / 2 - 1; i >= 0; i--)
+                siftDown(i, size, ids[i], keys[i]);
+        }
+
+        // Move the least similar to the end, one at a time
+        for (int end = size - 1; end > 0; end--) {
+            int id = ids[end];
+            double key = keys[end];
+            ids[end] = ids[0];
+            keys[end] = keys[0];
+            siftDown(0, end, id, key);
+        }
+
+        isHeap = false;
+        threshold = size == n && n > 0 ? keys[size - 1] : Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Retrieves the id of a kept candidate, in the order left by
+     * {@link #sort()}.
+     *
+     * @param index the index of the candidate, from most similar
+     * @return the id
+     */
+    int getId(int index) {
+        return ids[index];
+    }
+
+    /**
+     * Retrieves the score of a kept candidate, in the order left by
+     * {@link #sort()}.
+     *
+     * @param index the index of the candidate, from most similar
+     * @return the similarity score
+     */
+    double getScore(int index) {
+        return toScore(keys[index]);
+    }
+
+    /**
+     * Sorts the kept candidates and lists their words, as the similar-word
+     * searches return them.
+     *
+     * @param words maps the id of a candidate to its word
+     * @return the words, ordered from least to most similar
+     */
+    List<String> toWordList(IntFunction<String> words) {
+        sort();
+        List<String> similarWords = new ArrayList<>(size);
+        for (int i = size - 1; i >= 0; i--)
+            similarWords.add(words.apply(ids[i]));
+        return similarWords;
+    }
+
+    /**
+     * Converts an internal key back to a similarity score.
+     *
+     * @param key the key
+     * @return the score
+     */
+    private double toScore(double key) {
+        return isHigherMoreSimilar ? key : -key;
+    }
+
+    /**
+     * Moves a candidate up the heap from a hole until its parent is no more
+     * similar than it.
+     *
+     * @param hole the empty position to start from
+     * @param id   the id of the candidate
+     * @param key  the key of the candidate
+     */
+    private void siftUp(int hole, int id, double key) {
+        while (hole > 0) {
+            int parent = (hole - 1) >>> 1;
+            if (keys[parent] <= key)
+                break;
+            ids[hole] = ids[parent];
+            keys[hole] = keys[parent];
+            hole = parent;
+        }
+        ids[hole] = id;
+        keys[hole] = key;
+    }
+
+    /**
+     * Moves a candidate down the heap from a hole until its children are no
+     * less similar than it.
+     *
+     * @param hole the empty position to start from
+     * @param end  the number of positions in the heap
+     * @param id   the id of the candidate
+     * @param key  the key of the candidate
+     */
+    private void siftDown(int hole, int end, int id, double key) {
+        int child;
+        while ((child = 2 * hole + 1) < end) {
+            if (child + 1 < end && keys[child + 1] < keys[child])
+                child++;
+            if (key <= keys[child])
+                break;
+            ids[hole] = ids[child];
+            keys[hole] = keys[child];
+            hole = child;
+        }
+        ids[hole] = id;
+        keys[hole] = key;
+    }
+
+    /**
+     * Quickselects the N most similar candidates of the buffer into its first
+     * N positions, discards the rest and raises the threshold to the N-th best
+     * key. Time complexity: O(N) on average.
+     */
+    private void selectBest() {
+        if (size > n) {
+            int left = 0;
+            int right = size - 1;
+
+            // Partition until position n - 1 holds the n-th largest key
+            while (left < right) {
+                int middle = (left + right) >>> 1;
+                double pivot = medianOfThree(keys[left], keys[middle], keys[right]);
+                int i = left;
+                int j = right;
+
+                while (i <= j) {
+                    while (keys[i] > pivot)
+                        i++;
+                    while (keys[j] < pivot)
+                        j--;
+                    if (i <= j)
+                        swap(i++, j--);
+                }
+
+                if (n - 1 <= j)
+                    right = j;
+                else if (n - 1 >= i)
+                    left = i;
+                else
+                    break;
+            }
+
+            size = n;
+        }
+
+        double worst = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < size; i++)
+            worst = Math.min(worst, keys[i]);
+        threshold = size == n ? worst : Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Swaps two candidates.
+     *
+     * @param i the position of the first candidate
+     * @param j the position of the second candidate
+     */
+    private void swap(int i, int j) {
+        int id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+
+        double key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+    }
+
+    /**
+     * Finds the median of three keys, the pivot of a partition.
+     *
+     * @param a the first key
+     * @param b the second key
+     * @param c the third key
+     * @return the median
+     */
+    private static double medianOfThree(double a, double b, double c) {
+        return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+    }
+
+}
@@ -0,0 +1,601 @@
+package ie.atu.sw.wordsearch;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.IntStream;
+
+import ie.atu.sw.util.EmbeddingVector;
+import ie.atu.sw.util.SimilarityAlgorithm;
+import ie.atu.sw.util.Vector;
+import ie.atu.sw.util.WordEmbeddingMapInterface;
+import ie.atu.sw.wordembedding.WordEmbedding;
+
+/**
+ * Vantage-point tree over word embeddings, for exact nearest-neighbour search
+ * in a metric space. Each node holds a vantage point and the median distance
+ * of the other words in its subtree to it: the nearer half goes to the inner
+ * subtree and the farther half to the outer one. A search skips a subtree
+ * when the triangle inequality shows that none of its words can be nearer
+ * than the n-th nearest word found so far.
+ * <p>
+ * Words are compared with the Euclidean distance for the Euclidean
+ * algorithms, and with the Euclidean distance between unit vectors, the chord
+ * of the angle between them, for {@link SimilarityAlgorithm#COSINE_SIMILARITY}.
+ * Both are metrics, and the chord grows with the angle, so it ranks words the
+ * same as cosine similarity. The dot product is not a metric and is not
+ * supported.
+ * </p>
+ * <p>
+ * The tree is stored implicitly: its words are reordered so that every
+ * subtree is a contiguous range of rows of one packed matrix, starting with
+ * its vantage point, and small subtrees are leaves scanned row by row. The
+ * subtrees are built in parallel on the common fork-join pool. A tree can be
+ * written to a file and read back instead of being rebuilt.
+ * </p>
+ */
+public class VantagePointTree {
+
+    static final int MAGIC = 0x52545056; // "VPTR" in big-endian byte order
+    static final int VERSION = 1;
+
+    /**
+     * The largest subtree stored as a leaf and scanned row by row.
+     */
+    public static final int LEAF_SIZE = 16;
+
+    /**
+     * The smallest subtree whose two halves are built as separate fork-join
+     * tasks.
+     */
+    private static final int PARALLEL_SIZE = 4096;
+
+    /**
+     * Relative slack added to the search radius when pruning, so that a word
+     * is not skipped because of rounding in the single-precision distances.
+     */
+    private static final double PRUNING_SLACK = 1e-5;
+
+    private static final long VANTAGE_POINT_SEED = 42L;
+
+    private final SimilarityAlgorithm similarityAlgorithm;
+    private final int dimension;
+    private final String[] words;
+    private final float[] matrix;
+
+    /**
+     * For the subtree whose vantage point is in a row, the first row of its
+     * outer subtree, or -1 if the subtree is a leaf.
+     */
+    private final int[] outerStarts;
+
+    /**
+     * For the subtree whose vantage point is in a row, the median distance
+     * separating its inner and outer subtrees.
+     */
+    private final float[] radii;
+
+    /**
+     * Constructs a tree from already ordered rows.
+     *
+     * @param similarityAlgorithm the algorithm the tree was built for
+     * @param dimension           the vector dimension
+     * @param words               the word of each row
+     * @param matrix              the row-major rows, in tree order
+     * @param outerStarts         the first outer row of each subtree
+     * @param radii               the median distance of each subtree
+     */
+    private VantagePointTree(
+            SimilarityAlgorithm similarityAlgorithm,
+            int dimension,
+            String[] words,
+            float[] matrix,
+            int[] outerStarts,
+            float[] radii) {
+        this.similarityAlgorithm = similarityAlgorithm;
+        this.dimension = dimension;
+        this.words = words;
+        this.matrix = matrix;
+        this.outerStarts = outerStarts;
+        this.radii = radii;
+    }
+
+    /**
+     * Checks if a similarity algorithm can be searched with a vantage-point
+     * tree.
+     *
+     * @param similarityAlgorithm the algorithm
+     * @return true for the Euclidean distances and cosine similarity, false
+     *         otherwise
+     */
+    public static boolean supports(SimilarityAlgorithm similarityAlgorithm) {
+        return similarityAlgorithm != SimilarityAlgorithm.DOT_PRODUCT;
+    }
+
+    /**
+     * Builds a tree holding the given words. Words without an embedding in the
+     * map are skipped. Time complexity: O(n⋅log n⋅m / p), for n words of
+     * dimension m with p workers.
+     *
+     * @param wordEmbeddingMap    the word embeddings to index
+     * @param words               the words to include
+     * @param similarityAlgorithm the algorithm the tree will be searched with
+     * @return a new tree
+     * @throws IllegalArgumentException if the algorithm is not supported, or the
+     *                                  embeddings do not all have the same
+     *                                  dimension, or there are too many of them
+     */
+    public static VantagePointTree fromMap(
+            WordEmbeddingMapInterface wordEmbeddingMap,
+            Collection<String> words,
+            SimilarityAlgorithm similarityAlgorithm)
+            throws IllegalArgumentException {
+        if (!supports(similarityAlgorithm))
+            throw new IllegalArgumentException("A vantage-point tree needs a metric, not " + similarityAlgorithm);
+
+        List<String> storedWords = new ArrayList<>(words.size());
+        List<float[]> vectors = new ArrayList<>(words.size());
+
+        for (String word : words) {
+            WordEmbedding wordEmbedding = wordEmbeddingMap.getWordEmbedding(word);
+            if (wordEmbedding != null) {
+                storedWords.add(word);
+                vectors.add(prepareVector(wordEmbedding.vector(), similarityAlgorithm));
+            }
+        }
+
+        int rows = vectors.size();
+        int dimension = rows == 0 ? 0 : vectors.getFirst().length;
+
+        if ((long) rows * dimension > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Too many vectors to pack: " + rows + " x " + dimension);
+
+        float[] packed = new float[rows * dimension];
+        for (int row = 0; row < rows; row++) {
+            float[] vector = vectors.get(row);
+            if (vector.length != dimension)
+                throw new IllegalArgumentException(
+                        "Embedding has dimension " + vector.length + ", expected " + dimension);
+            System.arraycopy(vector, 0, packed, row * dimension, dimension);
+        }
+
+        int[] order = IntStream.range(0, rows).toArray();
+        int[] outerStarts = new int[rows];
+        float[] radii = new float[rows];
+
+        ForkJoinPool.commonPool().invoke(
+                new BuildTask(packed, dimension, order, new float[rows], outerStarts, radii, 0, rows));
+
+        // Lay the rows out in tree order
+        String[] orderedWords = new String[rows];
+        float[] matrix = new float[rows * dimension];
+        for (int position = 0; position < rows; position++) {
+            orderedWords[position] = storedWords.get(order[position]);
+            System.arraycopy(packed, order[position] * dimension, matrix, position * dimension, dimension);
+        }
+
+        return new VantagePointTree(similarityAlgorithm, dimension, orderedWords, matrix, outerStarts, radii);
+    }
+
+    /**
+     * Reads the tree held in the configured index file if it was built from the
+     * given words, embeddings and algorithm; otherwise builds a new tree and,
+     * if an index file is configured, writes it there.
+     *
+     * @param wordEmbeddingMap    the word embeddings to index
+     * @param words               the words to include
+     * @param similarityAlgorithm the algorithm the tree will be searched with
+     * @param searchOptions       the options holding the index file
+     * @return the read or new tree
+     * @throws IllegalArgumentException if the algorithm is not supported, or the
+     *                                  embeddings do not all have the same
+     *                                  dimension
+     * @throws IOException              if the index file exists but cannot be
+     *                                  read, or cannot be written
+     */
+    public static VantagePointTree fromMap(
+            WordEmbeddingMapInterface wordEmbeddingMap,
+            Collection<String> words,
+            SimilarityAlgorithm similarityAlgorithm,
+            SearchOptions searchOptions)
+            throws IllegalArgumentException, IOException {
+        return IndexFiles.readOrBuild(
+                searchOptions.indexFileName(),
+                VantagePointTree::read,
+                tree -> tree.isBuiltFrom(wordEmbeddingMap, words, similarityAlgorithm),
+                () -> fromMap(wordEmbeddingMap, words, similarityAlgorithm),
+                VantagePointTree::write);
+    }
+
+    /**
+     * Converts an embedding to the single-precision vector stored for it: a
+     * unit vector for cosine similarity, the vector as it is otherwise.
+     *
+     * @param vector              the embedding
+     * @param similarityAlgorithm the algorithm of the tree
+     * @return a new vector
+     */
+    private static float[] prepareVector(EmbeddingVector vector, SimilarityAlgorithm similarityAlgorithm) {
+        float[] values = vector.toFloatArray().clone();
+        if (similarityAlgorithm == SimilarityAlgorithm.COSINE_SIMILARITY)
+            Vector.normalize(values);
+        return values;
+    }
+
+    /**
+     * Retrieves the number of words in the tree.
+     *
+     * @return the number of indexed words
+     */
+    public int getSize() {
+        return words.length;
+    }
+
+    /**
+     * Checks if the tree holds exactly the given words, with the vectors they
+     * have in the map, and was built for the given algorithm. Time complexity:
+     * O(n⋅m).
+     *
+     * @param wordEmbeddingMap    the word embeddings
+     * @param words               the words
+     * @param similarityAlgorithm the similarity algorithm
+     * @return true if the tree would be built from them
+     */
+    public boolean isBuiltFrom(
+            WordEmbeddingMapInterface wordEmbeddingMap,
+            Collection<String> words,
+            SimilarityAlgorithm similarityAlgorithm) {
+        if (similarityAlgorithm != this.similarityAlgorithm)
+            return false;
+
+        Map<String, Integer> rows = new HashMap<>();
+        for (int row = 0; row < this.words.length; row++)
+            rows.put(this.words[row], row);
+
+        int matched = 0;
+        for (String word : words) {
+            WordEmbedding wordEmbedding = wordEmbeddingMap.getWordEmbedding(word);
+            if (wordEmbedding == null)
+                continue;
+
+            Integer row = rows.get(word);
+            if (row == null || !Arrays.equals(
+                    matrix, row * dimension, (row + 1) * dimension,
+                    prepareVector(wordEmbedding.vector(), similarityAlgorithm), 0, dimension))
+                return false;
+            matched++;
+        }
+
+        return matched == this.words.length;
+    }
+
+    /**
+     * Finds the n words nearest to a query. The words found are re-scored with
+     * the similarity algorithm, so they are ranked exactly as a linear scan
+     * ranks them. Time complexity: O(log n⋅m) for well-separated data, up to
+     * O(n⋅m) in high dimensions.
+     *
+     * @param query            the query embedding
+     * @param n                the maximum number of words to return
+     * @param wordEmbeddingMap the map holding the full-precision embeddings
+     * @return up to n words, ordered from least to most similar
+     * @throws IllegalArgumentException if the query dimension differs from the
+     *                                  tree's
+     */
+    public List<String> search(EmbeddingVector query, int n, WordEmbeddingMapInterface wordEmbeddingMap)
+            throws IllegalArgumentException {
+        if (words.length == 0 || n <= 0)
+            return new ArrayList<>();
+        if (query.dimension() != dimension)
+            throw new IllegalArgumentException(
+                    "Query has dimension " + query.dimension() + ", expected " + dimension);
+
+        float[] vector = prepareVector(query, similarityAlgorithm);
+        TopNSelector nearest = new TopNSelector(n, false);
+
+        search(vector, nearest, 0, words.length);
+
+        return SearchResults.rerank(nearest, row -> words[row], n, wordEmbeddingMap, similarityAlgorithm, query);
+    }
+
+    /**
+     * Searches a subtree, offering its rows to the selection of nearest rows.
+     *
+     * @param query   the prepared query
+     * @param nearest the nearest rows found so far
+     * @param from    the first row of the subtree, its vantage point
+     * @param to      the row after the last row of the subtree
+     */
+    private void search(float[] query, TopNSelector nearest, int from, int to) {
+        int outerStart = outerStarts[from];
+
+        if (outerStart < 0) {
+            for (int row = from; row < to; row++)
+                nearest.offer(row, distance(row, query));
+            return;
+        }
+
+        double distance = distance(from, query);
+        nearest.offer(from, distance);
+
+        double radius = radii[from];
+        if (distance < radius) {
+            search(query, nearest, from + 1, outerStart);
+            if (distance + searchRadius(nearest) >= radius)
+                search(query, nearest, outerStart, to);
+        } else {
+            search(query, nearest, outerStart, to);
+            if (distance - searchRadius(nearest) <= radius)
+                search(query, nearest, from + 1, outerStart);
+        }
+    }
+
+    /**
+     * Retrieves the distance within which a word must be to enter the nearest
+     * words, with slack for rounding.
+     *
+     * @param nearest the nearest rows found so far
+     * @return the search radius, or infinity if fewer than n words were found
+     */
+    private static double searchRadius(TopNSelector nearest) {
+        return nearest.getThreshold() * (1.0 + PRUNING_SLACK) + PRUNING_SLACK;
+    }
+
+    /**
+     * Computes the distance between a row of the tree and a prepared query.
+     *
+     * @param row   the row
+     * @param query the prepared query
+     * @return the Euclidean distance
+     */
+    private double distance(int row, float[] query) {
+        return Math.sqrt(Vector.getKernels().euclideanDistanceNoSqrt(matrix, row * dimension, query, 0, dimension));
+    }
+
+    /**
+     * Writes the tree to a file. Time complexity: O(n⋅m).
+     *
+     * @param fileName the name of the file to write
+     * @throws IOException if an I/O error occurs while writing
+     */
+    public void write(String fileName) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(Path.of(fileName))))) {
+
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(similarityAlgorithm.name());
+            out.writeInt(dimension);
+            out.writeInt(words.length);
+
+            for (String word : words) {
+                byte[] encodedWord = word.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(encodedWord.length);
+                out.write(encodedWord);
+            }
+
+            for (float value : matrix)
+                out.writeFloat(value);
+
+            for (int row = 0; row < words.length; row++) {
+                out.writeInt(outerStarts[row]);
+                out.writeFloat(radii[row]);
+            }
+        }
+    }
+
+    /**
+     * Reads a tree written by {@link #write(String)}. Time complexity: O(n⋅m).
+     *
+     * @param fileName the name of the file to read
+     * @return the tree held in the file
+     * @throws IOException if the file cannot be read or is not a valid
+     *                     vantage-point tree
+     */
+    public static VantagePointTree read(String fileName) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(Path.of(fileName))))) {
+
+            if (in.readInt() != MAGIC)
+                throw new IOException("Not a vantage-point tree: " + fileName);
+            int version = in.readInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported vantage-point tree version " + version + ": " + fileName);
+
+            SimilarityAlgorithm similarityAlgorithm;
+            try {
+                similarityAlgorithm = SimilarityAlgorithm.valueOf(in.readUTF());
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Unknown similarity algorithm in vantage-point tree: " + fileName, e);
+            }
+
+            int dimension = in.readInt();
+            int rows = in.readInt();
+
+            String[] words = new String[rows];
+            for (int row = 0; row < rows; row++)
+                words[row] = new String(in.readNBytes(in.readInt()), StandardCharsets.UTF_8);
+
+            float[] matrix = new float[rows * dimension];
+            for (int i = 0; i < matrix.length; i++)
+                matrix[i] = in.readFloat();
+
+            int[] outerStarts = new int[rows];
+            float[] radii = new float[rows];
+            for (int row = 0; row < rows; row++) {
+                outerStarts[row] = in.readInt();
+                radii[row] = in.readFloat();
+                if (outerStarts[row] > rows)
+                    throw new IOException("Corrupt vantage-point tree: " + fileName);
+            }
+
+            return new VantagePointTree(similarityAlgorithm, dimension, words, matrix, outerStarts, radii);
+        }
+    }
+
+    /**
+     * Fork-join task that builds the subtree over a range of positions, forking
+     * the inner and outer subtrees while they are large.
+     */
+    private static class BuildTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final float[] vectors;
+        private final int dimension;
+        private final int[] order;
+        private final float[] distances;
+        private final int[] outerStarts;
+        private final float[] radii;
+        private final int from;
+        private final int to;
+
+        /**
+         * Constructs a task for the positions in the range [from, to).
+         *
+         * @param vectors     the row-major vectors, in their original order
+         * @param dimension   the vector dimension
+         * @param order       the vector at each position, rearranged in place
+         * @param distances   scratch space for the distance at each position
+         * @param outerStarts the array receiving the first outer position of
+         *                    each subtree
+         * @param radii       the array receiving the median distance of each
+         *                    subtree
+         * @param from        the first position (inclusive)
+         * @param to          the last position (exclusive)
+         */
+        BuildTask(
+                float[] vectors,
+                int dimension,
+                int[] order,
+                float[] distances,
+                int[] outerStarts,
+                float[] radii,
+                int from,
+                int to) {
+            this.vectors = vectors;
+            this.dimension = dimension;
+            this.order = order;
+            this.distances = distances;
+            this.outerStarts = outerStarts;
+            this.radii = radii;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Picks a vantage point at random, splits the other positions at the
+         * median distance to it, and builds the two halves.
+         */
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_SIZE) {
+                if (to > from)
+                    outerStarts[from] = -1;
+                return;
+            }
+
+            SplittableRandom random = new SplittableRandom(VANTAGE_POINT_SEED + from * 31L + to);
+            swap(from, from + random.nextInt(to - from));
+
+            float[] vantagePoint = Arrays.copyOfRange(vectors, order[from] * dimension, (order[from] + 1) * dimension);
+            for (int position = from + 1; position < to; position++)
+                distances[position] = (float) Math.sqrt(Vector.getKernels().euclideanDistanceNoSqrt(
+                        vectors, order[position] * dimension, vantagePoint, 0, dimension));
+
+            int median = (from + 1 + to) >>> 1;
+            select(from + 1, to, median);
+
+            outerStarts[from] = median;
+            radii[from] = distances[median];
+
+            BuildTask inner = subtask(from + 1, median);
+            BuildTask outer = subtask(median, to);
+
+            if (to - from >= PARALLEL_SIZE) {
+                invokeAll(inner, outer);
+            } else {
+                inner.compute();
+                outer.compute();
+            }
+        }
+
+        /**
+         * Creates a task for a subrange of the positions of this task.
+         *
+         * @param from the first position (inclusive)
+         * @param to   the last position (exclusive)
+         * @return the new task
+         */
+        private BuildTask subtask(int from, int to) {
+            return new BuildTask(vectors, dimension, order, distances, outerStarts, radii, from, to);
+        }
+
+        /**
+         * Rearranges a range of positions so that the position k holds the
+         * k-th smallest distance, those before it no larger and those after it
+         * no smaller (quickselect).
+         *
+         * @param low  the first position of the range (inclusive)
+         * @param high the last position of the range (exclusive)
+         * @param k    the position to select
+         */
+        private void select(int low, int high, int k) {
+            int left = low;
+            int right = high - 1;
+
+            while (left < right) {
+                float pivot = distances[(left + right) >>> 1];
+                int i = left;
+                int j = right;
+
+                while (i <= j) {
+                    while (distances[i] < pivot)
+                        i++;
+                    while (distances[j] > pivot)
+                        j--;
+                    if (i <= j)
+                        swap(i++, j--);
+                }
+
+                if (k <= j)
+                    right = j;
+                else if (k >= i)
+                    left = i;
+                else
+                    return;
+            }
+        }
+
+        /**
+         * Swaps the vectors, and their distances, at two positions.
+         *
+         * @param i the first position
+         * @param j the second position
+         */
+        private void swap(int i, int j) {
+            int vector = order[i];
+            order[i] = order[j];
+            order[j] = vector;
+
+            float distance = distances[i];
+            distances[i] = distances[j];
+            distances[j] = distance;
+        }
+    }
+
+}
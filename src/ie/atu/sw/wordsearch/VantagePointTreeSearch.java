@@ -0,0 +1,57 @@
+package ie.atu.sw.wordsearch;
+
+import java.util.List;
+
+import ie.atu.sw.util.EmbeddingVector;
+import ie.atu.sw.util.SimilarWordSearchInterface;
+import ie.atu.sw.util.WordEmbeddingMapInterface;
+
+/**
+ * Exact similar-word search that walks a {@link VantagePointTree} built over
+ * the replacement words, pruning subtrees with the triangle inequality instead
+ * of comparing the word with every replacement word. The ranking is the same
+ * as {@link LinearScanSearch}'s.
+ */
+public class VantagePointTreeSearch implements SimilarWordSearchInterface {
+
+    private final WordEmbeddingMapInterface wordEmbeddingMap;
+    private final VantagePointTree tree;
+
+    /**
+     * Constructs a search over a tree.
+     *
+     * @param wordEmbeddingMap the map holding the full-precision embeddings
+     * @param tree             the tree built over the replacement words
+     */
+    public VantagePointTreeSearch(WordEmbeddingMapInterface wordEmbeddingMap, VantagePointTree tree) {
+        this.wordEmbeddingMap = wordEmbeddingMap;
+        this.tree = tree;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Time complexity: O(log n⋅m) for n replacement words of dimension m in
+     * low dimensions, up to O(n⋅m) in high dimensions, where the triangle
+     * inequality prunes little.
+     * </p>
+     */
+    @Override
+    public List<String> getSimilarWords(EmbeddingVector query, int n) {
+        return tree.search(query, n, wordEmbeddingMap);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The queries are searched in parallel on the common fork-join pool.
+     * </p>
+     */
+    @Override
+    public List<List<String>> getSimilarWords(List<EmbeddingVector> queries, int n) {
+        return queries.parallelStream()
+                .map(query -> getSimilarWords(query, n))
+                .toList();
+    }
+
+}